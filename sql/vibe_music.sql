@@ -43,7 +43,8 @@ CREATE TABLE `tb_artist`  (
   `area` varchar(30) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci NULL DEFAULT NULL COMMENT '歌手国籍',
   `introduction` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci NULL DEFAULT NULL COMMENT '歌手简介',
   PRIMARY KEY (`id`) USING BTREE,
-  INDEX `name`(`name`) USING BTREE
+  INDEX `name`(`name`) USING BTREE,
+  FULLTEXT INDEX `ft_artist_name`(`name`) WITH PARSER `ngram`
 ) ENGINE = InnoDB AUTO_INCREMENT = 0 CHARACTER SET = utf8mb4 COLLATE = utf8mb4_unicode_ci ROW_FORMAT = Dynamic;
 
 -- ----------------------------
@@ -109,6 +110,21 @@ CREATE TABLE `tb_genre`  (
 ) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_unicode_ci ROW_FORMAT = Dynamic;
 
 
+-- ----------------------------
+-- Table structure for tb_outbox
+-- ----------------------------
+DROP TABLE IF EXISTS `tb_outbox`;
+CREATE TABLE `tb_outbox`  (
+  `id` bigint(0) NOT NULL AUTO_INCREMENT COMMENT '变更 id，插入时分配，不代表提交顺序',
+  `tags` text CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci NOT NULL COMMENT '受影响的缓存标签，逗号分隔',
+  `published` tinyint(0) NOT NULL DEFAULT 0 COMMENT '发布状态：0-待发布，1-已发布，2-发布失败（不再重试）',
+  `retry_count` int(0) NOT NULL DEFAULT 0 COMMENT '发布失败的次数',
+  `create_time` datetime(0) NOT NULL COMMENT '创建时间',
+  PRIMARY KEY (`id`) USING BTREE,
+  INDEX `idx_outbox_published_id`(`published`, `id`) USING BTREE,
+  INDEX `idx_outbox_create_time`(`create_time`) USING BTREE
+) ENGINE = InnoDB AUTO_INCREMENT = 0 CHARACTER SET = utf8mb4 COLLATE = utf8mb4_unicode_ci ROW_FORMAT = Dynamic;
+
 -- ----------------------------
 -- Table structure for tb_playlist
 -- ----------------------------
@@ -157,6 +173,10 @@ CREATE TABLE `tb_song`  (
   `release_time` date NOT NULL COMMENT '歌曲发行时间',
   PRIMARY KEY (`id`) USING BTREE,
   INDEX `fk_song_artist_id`(`artist_id`) USING BTREE,
+  INDEX `idx_song_artist_release`(`artist_id`, `release_time`, `id`) USING BTREE,
+  INDEX `idx_song_release`(`release_time`, `id`) USING BTREE,
+  FULLTEXT INDEX `ft_song_name`(`name`) WITH PARSER `ngram`,
+  FULLTEXT INDEX `ft_song_album`(`album`) WITH PARSER `ngram`,
   CONSTRAINT `fk_song_artist_id` FOREIGN KEY (`artist_id`) REFERENCES `tb_artist` (`id`) ON DELETE CASCADE ON UPDATE CASCADE
 ) ENGINE = InnoDB AUTO_INCREMENT = 0 CHARACTER SET = utf8mb4 COLLATE = utf8mb4_unicode_ci ROW_FORMAT = Dynamic;
 
@@ -190,7 +210,8 @@ CREATE TABLE `tb_user`  (
   PRIMARY KEY (`id`) USING BTREE,
   UNIQUE INDEX `username`(`username`) USING BTREE,
   UNIQUE INDEX `email`(`email`) USING BTREE,
-  UNIQUE INDEX `phone`(`phone`) USING BTREE
+  UNIQUE INDEX `phone`(`phone`) USING BTREE,
+  INDEX `idx_user_create_time`(`create_time`, `id`) USING BTREE
 ) ENGINE = InnoDB AUTO_INCREMENT = 0 CHARACTER SET = utf8mb4 COLLATE = utf8mb4_unicode_ci ROW_FORMAT = Dynamic;
 
 -- ----------------------------
@@ -0,0 +1,56 @@
+package com.kay.music.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @Description: 缓存编解码配置，按 key 前缀选择编解码器，没有匹配的前缀时使用默认编解码器
+ * @Author: Kay
+ * @date:   2026/10/18 14:20
+ */
+@Component
+@ConfigurationProperties(prefix = "cache.codec")
+public class CacheCodecProperties {
+
+    /**
+     * 默认编解码器名称
+     */
+    private String defaultCodec = "json";
+
+    /**
+     * key 前缀 -> 编解码器名称，最长前缀优先
+     */
+    private Map<String, String> prefixes = new HashMap<>();
+
+    /**
+     * 编码后的数据达到该字节数时使用 LZ4 压缩，0 表示不压缩
+     */
+    private int compressionThreshold = 1024;
+
+    public String getDefaultCodec() {
+        return defaultCodec;
+    }
+
+    public void setDefaultCodec(String defaultCodec) {
+        this.defaultCodec = defaultCodec;
+    }
+
+    public Map<String, String> getPrefixes() {
+        return prefixes;
+    }
+
+    public void setPrefixes(Map<String, String> prefixes) {
+        this.prefixes = prefixes;
+    }
+
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    public void setCompressionThreshold(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+    }
+}
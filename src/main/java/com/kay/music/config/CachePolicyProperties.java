@@ -0,0 +1,95 @@
+package com.kay.music.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @Description: Spring 缓存（@Cacheable）的策略配置，按缓存名覆盖默认策略，没有配置的项沿用默认值
+ * @Author: Kay
+ * @date:   2026/10/18 20:30
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "cache.policy")
+public class CachePolicyProperties {
+
+    /**
+     * 默认策略，与改造前一致：5 小时 + 随机 0-2 小时
+     */
+    private Policy defaults = new Policy(Duration.ofHours(5), Duration.ofHours(2), true, Duration.ofMinutes(2), false, true);
+
+    /**
+     * 缓存名 -> 策略
+     */
+    private Map<String, Policy> caches = new HashMap<>();
+
+    /**
+     * 该缓存最终生效的策略（按缓存名覆盖默认策略）
+     */
+    public Policy resolve(String cacheName) {
+        Policy policy = caches.get(cacheName);
+        if (policy == null) {
+            return defaults;
+        }
+        return new Policy(
+                policy.getTtl() != null ? policy.getTtl() : defaults.getTtl(),
+                policy.getJitter() != null ? policy.getJitter() : defaults.getJitter(),
+                policy.getCacheNullValues() != null ? policy.getCacheNullValues() : defaults.getCacheNullValues(),
+                policy.getNullTtl() != null ? policy.getNullTtl() : defaults.getNullTtl(),
+                policy.getCompression() != null ? policy.getCompression() : defaults.getCompression(),
+                policy.getSingleFlight() != null ? policy.getSingleFlight() : defaults.getSingleFlight()
+        );
+    }
+
+    @Data
+    public static class Policy {
+
+        /**
+         * 基础过期时间
+         */
+        private Duration ttl;
+
+        /**
+         * 随机抖动范围，每条缓存写入时在基础过期时间上加 0 ~ jitter，防止同时失效（缓存雪崩）
+         */
+        private Duration jitter;
+
+        /**
+         * 是否缓存 null
+         */
+        private Boolean cacheNullValues;
+
+        /**
+         * 空结果（null 或 data 为空的 Result）的过期时间，防止缓存穿透的同时让新增数据尽快可见
+         */
+        private Duration nullTtl;
+
+        /**
+         * 是否压缩（GZIP）缓存值
+         */
+        private Boolean compression;
+
+        /**
+         * 未命中时是否全集群单飞加载（只对 @Cacheable(sync = true) 的方法生效）
+         */
+        private Boolean singleFlight;
+
+        public Policy() {
+        }
+
+        public Policy(Duration ttl, Duration jitter, Boolean cacheNullValues, Duration nullTtl, Boolean compression,
+                      Boolean singleFlight) {
+            this.ttl = ttl;
+            this.jitter = jitter;
+            this.cacheNullValues = cacheNullValues;
+            this.nullTtl = nullTtl;
+            this.compression = compression;
+            this.singleFlight = singleFlight;
+        }
+    }
+}
@@ -6,20 +6,39 @@ import com.fasterxml.jackson.annotation.PropertyAccessor;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.kay.music.utils.CacheMetrics;
+import com.kay.music.utils.CachePolicyRedisCacheWriter;
+import com.kay.music.utils.CacheSingleFlight;
+import com.kay.music.utils.CacheTagIndex;
+import com.kay.music.utils.HotKeyDetector;
+import com.kay.music.utils.TaggingCacheManager;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.cache.RedisCacheWriter;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
-import java.time.Duration;
-import java.util.Random;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 /**
  * @Author: Kay
  * @date:   2025/11/16 16:43
@@ -27,6 +46,14 @@ import java.util.Random;
 @Configuration
 public class RedisConfig {
 
+    /**
+     * 使用 @CacheConfig 的缓存，每个缓存单独包一层序列化器，按缓存名统计反序列化耗时
+     */
+    private static final List<String> CACHE_NAMES = List.of(
+            "songCache", "artistCache", "playlistCache", "userCache",
+            "userFavoriteCache", "bannerCache", "feedbackCache"
+    );
+
 
     /**
      * 自定义 Jackson2JsonRedisSerializer 配置
@@ -52,35 +79,151 @@ public class RedisConfig {
         return template;
     }
 
+    /**
+     * Redis 发布/订阅监听容器，用于接收本地缓存失效、变更事件等广播
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory redisConnectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        // 默认每条消息一个新线程，处理顺序不确定；改为单线程按收到的顺序处理
+        // 这个线程同时处理本地缓存、布隆过滤器、命名空间的失效广播和 ChangeEvent，只能用来分发：
+        // 需要访问数据库的监听者（搜索索引、歌词索引、输入提示、随机推荐）把任务交给 IndexTaskExecutor，
+        // 布隆过滤器的重建交给 CacheRebuildExecutor，不能在这里同步执行
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setThreadNamePrefix("redis-listener-");
+        executor.setDaemon(true);
+        executor.initialize();
+        container.setTaskExecutor(executor);
+        return container;
+    }
+
     /**
      * RedisCacheManager 配置
+     * 外面包一层 TaggingCacheManager，写入缓存时记录依赖标签，写操作按标签精确删除
+     * 过期时间、空值处理、压缩按 cache.policy 中每个缓存的策略配置，过期时间在每条缓存写入时计算（带随机抖动）
      */
     @Bean
-    public RedisCacheManager cacheManager(RedisConnectionFactory redisConnectionFactory) {
+    public CacheManager cacheManager(RedisConnectionFactory redisConnectionFactory, CacheTagIndex cacheTagIndex,
+                                     CacheMetrics cacheMetrics, CachePolicyProperties cachePolicyProperties,
+                                     CacheSingleFlight cacheSingleFlight, HotKeyDetector hotKeyDetector) {
         // Key 序列化器
         RedisSerializer<String> stringSerializer = new StringRedisSerializer();
         // Value 序列化器
         Jackson2JsonRedisSerializer<Object> valueSerializer = jackson2JsonRedisSerializer();
 
-        // 配置缓存的序列化方式
+        // 配置缓存的序列化方式，entryTtl 只是兜底，实际过期时间由 CachePolicyRedisCacheWriter 在写入时计算
         RedisCacheConfiguration cacheConfig = RedisCacheConfiguration.defaultCacheConfig()
-                .entryTtl(getRandomExpiration()) // 添加随机过期时间，防止缓存雪崩
+                .entryTtl(cachePolicyProperties.getDefaults().getTtl())
                 .serializeKeysWith(RedisSerializationContext.SerializationPair.fromSerializer(stringSerializer))
                 .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(valueSerializer));
 
-        return RedisCacheManager.builder(redisConnectionFactory)
+        Set<String> cacheNames = new LinkedHashSet<>(CACHE_NAMES);
+        cacheNames.addAll(cachePolicyProperties.getCaches().keySet());
+        Map<String, RedisCacheConfiguration> cacheConfigs = new HashMap<>();
+        for (String cacheName : cacheNames) {
+            CachePolicyProperties.Policy policy = cachePolicyProperties.resolve(cacheName);
+            RedisSerializer<Object> serializer = new TimedRedisSerializer(valueSerializer, cacheName, cacheMetrics);
+            if (policy.getCompression()) {
+                serializer = new GzipRedisSerializer(serializer);
+            }
+            RedisCacheConfiguration config = cacheConfig.entryTtl(policy.getTtl())
+                    .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(serializer));
+            cacheConfigs.put(cacheName, policy.getCacheNullValues() ? config : config.disableCachingNullValues());
+        }
+
+        RedisCacheWriter cacheWriter = new CachePolicyRedisCacheWriter(
+                RedisCacheWriter.nonLockingRedisCacheWriter(redisConnectionFactory), cachePolicyProperties, hotKeyDetector);
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(cacheWriter)
                 .cacheDefaults(cacheConfig)
+                .withInitialCacheConfigurations(cacheConfigs)
                 .build();
+        // 不再作为 Bean 暴露，需要手动初始化
+        redisCacheManager.initializeCaches();
+
+        // 各缓存中“空结果”条目的默认标签
+        Map<String, String> defaultTags = Map.of(
+                "songCache", CacheTagIndex.SONG_LIST,
+                "artistCache", CacheTagIndex.ARTIST_LIST,
+                "playlistCache", CacheTagIndex.PLAYLIST_LIST,
+                "userCache", CacheTagIndex.USER_LIST
+        );
+        // key 中带有用户 id 的缓存，条目打上当前用户的标签（userCache 中的用户信息本身带有 userId，按实体打标签即可）
+        Set<String> userCaches = Set.of("userFavoriteCache");
+        return new TaggingCacheManager(redisCacheManager, cacheTagIndex, cacheMetrics, cacheSingleFlight,
+                cachePolicyProperties, defaultTags, userCaches);
     }
     
     /**
-     * 获取随机过期时间（5-7小时之间的随机值）
-     * 这样可以防止大量缓存同时失效导致的缓存雪崩问题
-     * @return 随机Duration
+     * 记录反序列化耗时的序列化器（反序列化时拿不到 key，前缀记为 *）
+     */
+    private static class TimedRedisSerializer implements RedisSerializer<Object> {
+
+        private final RedisSerializer<Object> delegate;
+        private final String cacheName;
+        private final CacheMetrics cacheMetrics;
+
+        TimedRedisSerializer(RedisSerializer<Object> delegate, String cacheName, CacheMetrics cacheMetrics) {
+            this.delegate = delegate;
+            this.cacheName = cacheName;
+            this.cacheMetrics = cacheMetrics;
+        }
+
+        @Override
+        public byte[] serialize(Object value) throws SerializationException {
+            return delegate.serialize(value);
+        }
+
+        @Override
+        public Object deserialize(byte[] bytes) throws SerializationException {
+            long start = System.nanoTime();
+            Object value = delegate.deserialize(bytes);
+            cacheMetrics.recordDeserialize(cacheName, "*", System.nanoTime() - start);
+            return value;
+        }
+    }
+
+    /**
+     * GZIP 压缩的序列化器
+     * 读取时按 GZIP 的魔数判断，关闭压缩后已经压缩的缓存仍然可以读取，反之亦然
      */
-    private Duration getRandomExpiration() {
-        Random random = new Random();
-        long randomMinutes = 300 + random.nextInt(120); // 5小时 + 随机0-2小时
-        return Duration.ofMinutes(randomMinutes);
+    private static class GzipRedisSerializer implements RedisSerializer<Object> {
+
+        private final RedisSerializer<Object> delegate;
+
+        GzipRedisSerializer(RedisSerializer<Object> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public byte[] serialize(Object value) throws SerializationException {
+            byte[] bytes = delegate.serialize(value);
+            if (bytes == null) {
+                return null;
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                gzip.write(bytes);
+            } catch (IOException e) {
+                throw new SerializationException("缓存压缩失败", e);
+            }
+            return out.toByteArray();
+        }
+
+        @Override
+        public Object deserialize(byte[] bytes) throws SerializationException {
+            if (bytes == null || bytes.length < 2
+                    || (bytes[0] & 0xff) != (GZIPInputStream.GZIP_MAGIC & 0xff)
+                    || (bytes[1] & 0xff) != (GZIPInputStream.GZIP_MAGIC >> 8)) {
+                return delegate.deserialize(bytes);
+            }
+            try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+                return delegate.deserialize(gzip.readAllBytes());
+            } catch (IOException e) {
+                throw new SerializationException("缓存解压失败", e);
+            }
+        }
     }
 }
@@ -27,12 +27,14 @@ public class WebConfig implements WebMvcConfigurer {
                         "/swagger-ui.html",   //  原生 Swagger 首页（备用）
                         "/knife4j/**",         //  Knife4j 增强功能（如调试回调）
                         // -------------------------------------
+                        "/actuator/health/**", "/actuator/prometheus", // 健康检查和监控指标
                         "/admin/login", "/admin/logout", "/admin/register",
                         "/user/login", "/user/logout", "/user/register",
                         "/user/sendVerificationCode", "/user/resetUserPassword",
                         "/banner/getBannerList",
                         "/playlist/getAllPlaylists", "/playlist/getRecommendedPlaylists", "/playlist/getPlaylistDetail/**",
                         "/artist/getAllArtists", "/artist/getArtistDetail/**", "/artist/getRandomArtists",
-                        "/song/getAllSongs", "/song/getRecommendedSongs", "/song/getSongDetail/**");
+                        "/song/getAllSongs", "/song/getRecommendedSongs", "/song/getSongDetail/**",
+                        "/search/suggest", "/search/lyric");
     }
 }
@@ -30,6 +30,7 @@ public class MessageConstant {
     public static final String ARTIST = "歌手";
     public static final String SONG = "歌曲";
     public static final String PLAYLIST = "歌单";
+    public static final String CURSOR = "分页游标";
 
     public static final String SUCCESS = "成功";
     public static final String FAILED = "失败";
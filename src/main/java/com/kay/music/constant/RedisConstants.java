@@ -29,6 +29,16 @@ public class RedisConstants {
      */
     public static final Long CACHE_SONG_TTL = 30L;
     
+    /**
+     * 歌曲实体缓存 key 前缀，每首歌只缓存一份，分页、歌单详情等只保存歌曲 id
+     */
+    public static final String CACHE_SONG_ENTITY_KEY = "music:entity:song:";
+
+    /**
+     * 歌曲实体缓存的有效期（分钟），需要比缓存依赖标签的有效期短
+     */
+    public static final Long CACHE_SONG_ENTITY_TTL = 60L;
+    
     /**
      * 歌单数据 Redis key 前缀
      */
@@ -73,4 +83,89 @@ public class RedisConstants {
      * 互斥锁的有效期（秒）
      */
     public static final Long LOCK_TTL = 10L;
+
+    /**
+     * 本地缓存失效广播频道
+     */
+    public static final String CACHE_INVALIDATE_CHANNEL = "music:cache:invalidate";
+
+    /**
+     * 布隆过滤器更新广播频道，新增 id 或删除后需要重建时通知其他节点
+     */
+    public static final String BLOOM_UPDATE_CHANNEL = "music:bloom:update";
+
+    /**
+     * 布隆过滤器重建任务在重建线程池中的去重 key（不写入 Redis）
+     */
+    public static final String BLOOM_REBUILD_KEY = "music:bloom:rebuild:";
+
+    /**
+     * 缓存命名空间版本号：命名空间 -> 版本号（Hash）
+     */
+    public static final String CACHE_GENERATION_KEY = "music:cache:generation";
+
+    /**
+     * 缓存命名空间版本号更新广播频道
+     */
+    public static final String CACHE_GENERATION_CHANNEL = "music:cache:generation:update";
+
+    /**
+     * Spring 缓存未命中时的加载租约前缀，同一个 key 全集群只有一个节点查询数据库
+     */
+    public static final String CACHE_LOAD_LEASE_KEY = "music:lock:cache:load:";
+
+    /**
+     * 孤儿缓存回收的锁，多节点时只有一个节点执行
+     */
+    public static final String CACHE_SWEEPER_LOCK_KEY = "music:lock:cache:sweeper";
+
+    /**
+     * 变更发件箱发布的锁，多节点时只有一个节点发布
+     */
+    public static final String OUTBOX_LOCK_KEY = "music:lock:outbox";
+
+    /**
+     * 变更广播频道，各节点收到后按顺序发布为本地事件
+     */
+    public static final String OUTBOX_EVENT_CHANNEL = "music:outbox:event";
+
+    /**
+     * 缓存预热计划：预热目标 -> 访问次数（ZSet）
+     */
+    public static final String WARMUP_PLAN_KEY = "music:warmup:plan";
+
+    /**
+     * 缓存预热计划每日衰减的锁，多节点时只衰减一次
+     */
+    public static final String WARMUP_DECAY_LOCK_KEY = "music:lock:warmup:decay";
+
+    /**
+     * 缓存依赖标签 Redis key 前缀
+     */
+    public static final String CACHE_TAG_KEY = "music:cache:tag:";
+
+    /**
+     * 缓存依赖标签的有效期（小时），需要比 Spring 缓存最长的 TTL（7 小时）更长
+     */
+    public static final Long CACHE_TAG_TTL = 8L;
+
+    /**
+     * 用户收藏歌曲 id 集合 Redis key 前缀
+     */
+    public static final String FAVORITE_SONG_KEY = "music:favorite:song:";
+
+    /**
+     * 用户收藏歌曲 id 集合的有效期（分钟）
+     */
+    public static final Long FAVORITE_SONG_TTL = 60L;
+
+    /**
+     * 不带筛选条件的分页总数 Redis key 前缀
+     */
+    public static final String COUNT_TOTAL_KEY = "music:count:total:";
+
+    /**
+     * 带筛选条件的分页总数 Redis key 前缀
+     */
+    public static final String COUNT_FILTER_KEY = "music:count:filter:";
 }
@@ -9,6 +9,9 @@ import com.kay.music.pojo.vo.UserManagementVO;
 import com.kay.music.result.PageResult;
 import com.kay.music.result.Result;
 import com.kay.music.service.*;
+import com.kay.music.utils.CacheRebuildExecutor;
+import com.kay.music.utils.CacheWarmUpPlanner;
+import com.kay.music.utils.HotKeyDetector;
 import com.kay.music.utils.ThreadLocalUtil;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -19,6 +22,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author Kay
@@ -37,6 +41,9 @@ public class AdminController {
     private final MinioService minioService;
     private final ISongService songService;
     private final IPlaylistService playlistService;
+    private final CacheRebuildExecutor cacheRebuildExecutor;
+    private final CacheWarmUpPlanner cacheWarmUpPlanner;
+    private final HotKeyDetector hotKeyDetector;
 
     /**
      * @Author: Kay
@@ -451,4 +458,37 @@ public class AdminController {
         return playlistService.deletePlaylists(playlistIds);
     }
 
+    /**
+     * @Description: 查看缓存重建线程池的运行指标（队列深度、重建耗时、丢弃次数等）
+     * @Author: Kay
+     * @date:   2026/10/18 15:55
+     */
+    @Operation(summary = "查看缓存重建指标")
+    @GetMapping("/getCacheRebuildStats")
+    public Result<Map<String, Object>> getCacheRebuildStats() {
+        return Result.success(cacheRebuildExecutor.stats());
+    }
+
+    /**
+     * @Description: 查看缓存预热进度
+     * @Author: Kay
+     * @date:   2026/10/18 17:40
+     */
+    @Operation(summary = "查看缓存预热进度")
+    @GetMapping("/getCacheWarmUpStats")
+    public Result<Map<String, Object>> getCacheWarmUpStats() {
+        return Result.success(cacheWarmUpPlanner.stats());
+    }
+
+    /**
+     * @Description: 查看热点 key（上一个统计窗口访问量最高的前 K 个 key，以及是否在本节点保留了副本）
+     * @Author: Kay
+     * @date:   2026/10/18 22:05
+     */
+    @Operation(summary = "查看热点 key")
+    @GetMapping("/getHotKeys")
+    public Result<Map<String, Object>> getHotKeys() {
+        return Result.success(hotKeyDetector.stats());
+    }
+
 }
@@ -6,6 +6,7 @@ import com.kay.music.pojo.vo.ArtistVO;
 import com.kay.music.result.PageResult;
 import com.kay.music.result.Result;
 import com.kay.music.service.IArtistService;
+import com.kay.music.utils.CacheWarmUpPlanner;
 import com.kay.music.utils.ThreadLocalUtil;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -30,6 +31,7 @@ public class ArtistController {
 
     private final IArtistService artistService;
     private final ThreadLocalUtil threadLocalUtil;
+    private final CacheWarmUpPlanner cacheWarmUpPlanner;
 
     /**
      * @Description: 获取所有歌手列表
@@ -62,6 +64,7 @@ public class ArtistController {
     @GetMapping("/getArtistDetail/{id}")
     public Result<ArtistDetailVO> getArtistDetail(@PathVariable("id") Long artistId, HttpServletRequest request) {
         threadLocalUtil.setThreadLocalByToken(request);
+        cacheWarmUpPlanner.recordArtistDetail(artistId);
         return artistService.getArtistDetail(artistId);
     }
     
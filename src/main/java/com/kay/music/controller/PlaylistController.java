@@ -8,6 +8,7 @@ import com.kay.music.result.PageResult;
 import com.kay.music.result.Result;
 import com.kay.music.service.IPlaylistService;
 import com.kay.music.service.MinioService;
+import com.kay.music.utils.CacheWarmUpPlanner;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.servlet.http.HttpServletRequest;
@@ -31,6 +32,7 @@ public class PlaylistController {
 
     private final IPlaylistService playlistService;
     private final MinioService minioService;
+    private final CacheWarmUpPlanner cacheWarmUpPlanner;
 
     /**
      * 获取所有歌单
@@ -65,6 +67,7 @@ public class PlaylistController {
     @Operation(summary = "获取歌单详情")
     @GetMapping("/getPlaylistDetail/{id}")
     public Result<PlaylistDetailVO> getPlaylistDetail(@PathVariable("id") Long playlistId, HttpServletRequest request) {
+        cacheWarmUpPlanner.recordPlaylistDetail(playlistId);
         return playlistService.getPlaylistDetail(playlistId, request);
     }
 
@@ -0,0 +1,70 @@
+package com.kay.music.controller;
+
+import com.kay.music.enumeration.RoleEnum;
+import com.kay.music.pojo.dto.LyricSearchDTO;
+import com.kay.music.pojo.vo.SongVO;
+import com.kay.music.pojo.vo.SuggestionVO;
+import com.kay.music.result.PageResult;
+import com.kay.music.result.Result;
+import com.kay.music.service.ISongService;
+import com.kay.music.utils.ThreadLocalUtil;
+import com.kay.music.utils.TypeaheadIndex;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * @author Kay
+ * @date 2026/10/18 23:00
+ */
+@RestController
+@RequestMapping("/search")
+@Slf4j
+@RequiredArgsConstructor
+@Tag(name = "搜索接口")
+public class SearchController {
+
+    private final TypeaheadIndex typeaheadIndex;
+    private final ISongService songService;
+    private final ThreadLocalUtil threadLocalUtil;
+
+    /**
+     * @Description: 输入提示：按前缀（原文、全拼或首字母）补全歌名、歌手名、歌单标题，每种类型按热度返回前 limit 个
+     * @Author: Kay
+     * @date:   2026/10/18 23:00
+     */
+    @Operation(summary = "输入提示")
+    @GetMapping("/suggest")
+    public Result<List<SuggestionVO>> suggest(@RequestParam("keyword") String keyword,
+                                              @RequestParam(value = "limit", required = false) Integer limit) {
+        List<SuggestionVO> suggestions = typeaheadIndex.suggest(keyword, limit == null ? typeaheadIndex.getTopK() : limit);
+        if (suggestions == null) {
+            // 索引未启用或还没有构建完成
+            return Result.success(List.of());
+        }
+        return Result.success(suggestions);
+    }
+
+    /**
+     * @Description: 歌词搜索：按记得的一句歌词找歌（短语匹配），登录和不登录都能访问，登录用户返回喜欢状态
+     * @Author: Kay
+     * @date:   2026/10/18 23:57
+     */
+    @Operation(summary = "歌词搜索")
+    @PostMapping("/lyric")
+    public Result<PageResult<SongVO>> searchLyric(@RequestBody @Valid LyricSearchDTO lyricSearchDTO,
+                                                  HttpServletRequest request) {
+        // 接口已放行，没有校验 jwt，header 里有 token 时手动解析一次
+        threadLocalUtil.setThreadLocalByToken(request);
+        Long userId = ThreadLocalUtil.getUserId();
+        String role = ThreadLocalUtil.getRole();
+        // 未登录 或 角色不是普通用户 → 不叠加喜欢状态
+        return songService.searchLyric(lyricSearchDTO, RoleEnum.USER.getRole().equals(role) ? userId : null);
+    }
+}
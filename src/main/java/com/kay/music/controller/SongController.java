@@ -7,6 +7,7 @@ import com.kay.music.pojo.vo.SongVO;
 import com.kay.music.result.PageResult;
 import com.kay.music.result.Result;
 import com.kay.music.service.ISongService;
+import com.kay.music.utils.CacheWarmUpPlanner;
 import com.kay.music.utils.JwtUtil;
 import com.kay.music.utils.ThreadLocalUtil;
 import io.swagger.v3.oas.annotations.Operation;
@@ -34,6 +35,7 @@ public class SongController {
     private final ISongService songService;
     private final JwtUtil jwtUtil;
     private final ThreadLocalUtil threadLocalUtil;
+    private final CacheWarmUpPlanner cacheWarmUpPlanner;
 
     /**
      * @Description: 获取所有歌曲 , 区分了 用户登录 ， 无用户登录 时， 缓存问题（拆成了两个函数）
@@ -47,6 +49,8 @@ public class SongController {
         // 因为 这个接口 是登录和不登录都能访问的，所以进行了 放行，就没有校验 jwt ， 当然 ThreadLocal就没有内容了
         // 1. 如果 ThreadLocal 为空，但 header 里有 token，可以手动解析一次
         threadLocalUtil.setThreadLocalByToken(request);
+        // 登录用户也复用游客版的分页缓存，统一按游客版记录访问量
+        cacheWarmUpPlanner.recordSongPage(songDTO);
 
         // 2. 再正常读取 userId / role
         Long userId = ThreadLocalUtil.getUserId();
@@ -70,6 +74,7 @@ public class SongController {
     public Result<List<SongVO>> getRecommendedSongs(HttpServletRequest request) {
         // 1. 如果 ThreadLocal 为空，但 header 里有 token，可以手动解析一次
         threadLocalUtil.setThreadLocalByToken(request);
+        cacheWarmUpPlanner.recordRecommendedSongs();
         return songService.getRecommendedSongs();
     }
 
@@ -83,6 +88,7 @@ public class SongController {
     public Result<SongDetailVO> getSongDetail( @PathVariable("id") Long songId, HttpServletRequest request ){
         // 1. 如果 ThreadLocal 为空，但 header 里有 token，可以手动解析一次
         threadLocalUtil.setThreadLocalByToken(request);
+        cacheWarmUpPlanner.recordSongDetail(songId);
         return songService.getSongDetail(songId, request);
     }
 
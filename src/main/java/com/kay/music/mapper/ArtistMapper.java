@@ -1,9 +1,14 @@
 package com.kay.music.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.kay.music.pojo.dto.SuggestEntryDTO;
 import com.kay.music.pojo.entity.Artist;
 import com.kay.music.pojo.vo.ArtistDetailVO;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Collection;
+import java.util.List;
 
 /**
  * @author Kay
@@ -12,4 +17,7 @@ import org.apache.ibatis.annotations.Mapper;
 @Mapper
 public interface ArtistMapper extends BaseMapper<Artist> {
     ArtistDetailVO getArtistDetailById(Long artistId);
+
+    // 输入提示：指定的歌手（为 null 时返回全部），带其歌曲被收藏的总次数
+    List<SuggestEntryDTO> getSuggestEntries(@Param("artistIds") Collection<Long> artistIds);
 }
@@ -0,0 +1,27 @@
+package com.kay.music.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.kay.music.pojo.entity.Outbox;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * @author Kay
+ * @date 2026/10/18 21:40
+ */
+@Mapper
+public interface OutboxMapper extends BaseMapper<Outbox> {
+
+    // 获取待发布的变更：按发布状态而不是 id 范围读取，晚提交的小 id 变更也能读到
+    @Select("SELECT id AS outboxId, tags, published, retry_count AS retryCount, create_time AS createTime FROM tb_outbox WHERE published = 0 ORDER BY id LIMIT #{limit}")
+    List<Outbox> getPending(@Param("limit") int limit);
+
+    // 删除早于指定时间的已发布变更
+    @Delete("DELETE FROM tb_outbox WHERE published = 1 AND create_time < #{before} LIMIT #{limit}")
+    int deletePublishedBefore(@Param("before") LocalDateTime before, @Param("limit") int limit);
+}
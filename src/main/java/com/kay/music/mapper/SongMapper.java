@@ -3,14 +3,21 @@ package com.kay.music.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.kay.music.pojo.dto.SuggestEntryDTO;
 import com.kay.music.pojo.entity.Song;
 import com.kay.music.pojo.vo.SongAdminVO;
 import com.kay.music.pojo.vo.SongDetailVO;
 import com.kay.music.pojo.vo.SongVO;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.ResultType;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.session.ResultHandler;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -35,6 +42,7 @@ public interface SongMapper extends BaseMapper<Song> {
                     s.cover_url AS coverUrl, 
                     s.audio_url AS audioUrl, 
                     s.release_time AS releaseTime, 
+                    s.artist_id AS artistId, 
                     a.name AS artistName
                 FROM tb_song s
                 LEFT JOIN tb_artist a ON s.artist_id = a.id
@@ -48,7 +56,7 @@ public interface SongMapper extends BaseMapper<Song> {
                                      @Param("artistName") String artistName,
                                      @Param("album") String album);
 
-    // 获取随机歌曲列表
+    // 游标分页获取歌曲列表：按 id 升序，从 lastId 之后取 limit 条（lastId 为 null 时从头开始），条件同 getSongsWithArtist
     @Select("""
                 SELECT 
                     s.id AS songId, 
@@ -58,15 +66,67 @@ public interface SongMapper extends BaseMapper<Song> {
                     s.cover_url AS coverUrl, 
                     s.audio_url AS audioUrl, 
                     s.release_time AS releaseTime, 
+                    s.artist_id AS artistId, 
                     a.name AS artistName
                 FROM tb_song s
                 LEFT JOIN tb_artist a ON s.artist_id = a.id
-                ORDER BY RAND() LIMIT 20
+                WHERE 
+                    (#{lastId} IS NULL OR s.id > #{lastId})
+                    AND (#{songName} IS NULL OR s.name LIKE CONCAT('%', #{songName}, '%'))
+                    AND (#{artistName} IS NULL OR a.name LIKE CONCAT('%', #{artistName}, '%'))
+                    AND (#{album} IS NULL OR s.album LIKE CONCAT('%', #{album}, '%'))
+                ORDER BY s.id
+                LIMIT #{limit}
             """)
-    List<SongVO> getRandomSongsWithArtist();
+    List<SongVO> getSongsWithArtistAfter(@Param("lastId") Long lastId,
+                                         @Param("limit") int limit,
+                                         @Param("songName") String songName,
+                                         @Param("artistName") String artistName,
+                                         @Param("album") String album);
 
     SongDetailVO getSongDetailById(Long songId);
 
+    // 根据歌曲id批量获取歌曲（歌曲实体缓存未命中时回填）
+    List<SongVO> getSongsWithArtistByIds(@Param("songIds") Collection<Long> songIds);
+
+    // 搜索索引启动时全量构建：全部歌曲的歌名、专辑和歌手名
+    @Select("""
+                SELECT 
+                    s.id AS songId, 
+                    s.name AS songName, 
+                    s.album, 
+                    s.artist_id AS artistId, 
+                    a.name AS artistName
+                FROM tb_song s
+                LEFT JOIN tb_artist a ON s.artist_id = a.id
+                ORDER BY s.id
+            """)
+    List<SongVO> getAllSongIndexEntries();
+
+    // 搜索索引增量更新：指定的歌曲，以及指定歌手的全部歌曲
+    List<SongVO> getSongIndexEntries(@Param("songIds") Collection<Long> songIds,
+                                     @Param("artistIds") Collection<Long> artistIds);
+
+    // 输入提示：指定的歌曲及指定歌手的全部歌曲（都为 null 时返回全部），带被收藏次数
+    List<SuggestEntryDTO> getSuggestEntries(@Param("songIds") Collection<Long> songIds,
+                                            @Param("artistIds") Collection<Long> artistIds);
+
+    // 歌词索引全量构建：按 id 顺序流式读取全部歌曲的歌词，逐行交给 handler，整张表不会一次读进内存
+    @Select("SELECT id AS songId, artist_id AS artistId, lyric FROM tb_song ORDER BY id")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    @ResultType(Song.class)
+    void streamAllLyrics(ResultHandler<Song> handler);
+
+    // 歌词索引增量更新：指定的歌曲，以及指定歌手的全部歌曲
+    List<Song> getLyrics(@Param("songIds") Collection<Long> songIds,
+                         @Param("artistIds") Collection<Long> artistIds);
+
+    // 全文检索：参数为 BOOLEAN MODE 的查询串，为 null 的字段不作为条件，按相关度之和倒序，只返回歌曲 id
+    IPage<Long> searchSongIdsFulltext(Page<Long> page,
+                                      @Param("songName") String songName,
+                                      @Param("artistName") String artistName,
+                                      @Param("album") String album);
+
     // 获取歌曲列表
     @Select("""
                 SELECT 
@@ -90,6 +150,39 @@ public interface SongMapper extends BaseMapper<Song> {
             """)
     IPage<SongAdminVO> getSongsWithArtistName(Page<SongAdminVO> page, Long artistId, String songName, String album);
 
+    // 游标分页获取歌曲列表：按发行时间、id 倒序，从 (lastReleaseTime, lastId) 之后取 limit 条，
+    // 走 idx_song_artist_release / idx_song_release 联合索引
+    @Select("""
+                SELECT 
+                    s.id AS songId, 
+                    s.name AS songName, 
+                    s.artist_id AS artistId, 
+                    s.album, 
+                    s.lyric, 
+                    s.duration, 
+                    s.cover_url AS coverUrl, 
+                    s.audio_url AS audioUrl, 
+                    s.release_time AS releaseTime, 
+                    a.name AS artistName
+                FROM tb_song s
+                LEFT JOIN tb_artist a ON s.artist_id = a.id
+                WHERE 
+                    (#{artistId} IS NULL OR s.artist_id = #{artistId})
+                    AND (#{songName} IS NULL OR s.name LIKE CONCAT('%', #{songName}, '%'))
+                    AND (#{album} IS NULL OR s.album LIKE CONCAT('%', #{album}, '%'))
+                    AND (#{lastId} IS NULL
+                        OR s.release_time < #{lastReleaseTime}
+                        OR (s.release_time = #{lastReleaseTime} AND s.id < #{lastId}))
+                ORDER BY s.release_time DESC, s.id DESC
+                LIMIT #{limit}
+            """)
+    List<SongAdminVO> getSongsWithArtistNameAfter(@Param("artistId") Long artistId,
+                                                  @Param("songName") String songName,
+                                                  @Param("album") String album,
+                                                  @Param("lastReleaseTime") LocalDate lastReleaseTime,
+                                                  @Param("lastId") Long lastId,
+                                                  @Param("limit") int limit);
+
     // 根据用户收藏的歌曲id列表获取歌曲列表
     IPage<SongVO> getSongsByIds(Page<SongVO> page,
                                 @Param("songIds") List<Long> songIds,
@@ -0,0 +1,34 @@
+package com.kay.music.pojo.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * @author Kay
+ * @date 2026/10/18 23:57
+ */
+@Data
+@Schema(name = "LyricSearchDTO", description = "歌词搜索DTO类")
+public class LyricSearchDTO implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    @Schema(description = "页码" , example = "1")
+    @NotNull
+    private Integer pageNum;
+
+    @Schema(description = "每页数量" , example = "10")
+    @NotNull
+    private Integer pageSize;
+
+    @Schema(description = "记得的歌词，按短语匹配，标点和空白只作为分隔" , example = "刮风这天我试过握着你手")
+    @NotBlank
+    private String keyword;
+
+}
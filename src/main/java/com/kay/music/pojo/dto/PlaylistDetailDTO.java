@@ -0,0 +1,52 @@
+package com.kay.music.pojo.dto;
+
+import com.kay.music.pojo.vo.CommentVO;
+import lombok.Data;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 歌单详情在缓存中的形式
+ * 歌曲只保存 id，返回前从歌曲实体缓存组装成 PlaylistDetailVO；喜欢状态与用户有关，不缓存
+ *
+ * @author Kay
+ * @date 2026/10/18 19:55
+ */
+@Data
+public class PlaylistDetailDTO implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 歌单 id
+     */
+    private Long playlistId;
+
+    /**
+     * 歌单标题
+     */
+    private String title;
+
+    /**
+     * 歌单封面
+     */
+    private String coverUrl;
+
+    /**
+     * 歌单简介
+     */
+    private String introduction;
+
+    /**
+     * 歌曲 id 列表（按歌单中的顺序）
+     */
+    private List<Long> songIds;
+
+    /**
+     * 评论列表
+     */
+    private List<CommentVO> comments;
+}
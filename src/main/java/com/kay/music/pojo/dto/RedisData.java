@@ -19,6 +19,11 @@ public class RedisData<T> {
      * 逻辑过期时间
      */
     private LocalDateTime expireTime;
+
+    /**
+     * 上次重建耗时（毫秒），重建越慢越需要提前刷新
+     */
+    private Long rebuildMillis;
     
     /**
      * 实际数据
@@ -50,4 +50,10 @@ public class SongAndArtistDTO implements Serializable {
     @Schema(description = "专辑名称", example = "叶惠美")
     private String album;
 
+    @Schema(description = "游标分页：传入上一页返回的 nextCursor，第一页传空字符串；不传时按页码分页" , example = "")
+    private String cursor;
+
+    @Schema(description = "是否需要总数，传 false 时不统计总数（total 为 null），只返回是否还有下一页（hasMore）" , example = "true")
+    private Boolean withTotal;
+
 }
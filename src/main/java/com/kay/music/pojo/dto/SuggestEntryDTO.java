@@ -0,0 +1,33 @@
+package com.kay.music.pojo.dto;
+
+import lombok.Data;
+
+/**
+ * 输入提示索引的一条数据：歌曲、歌手或歌单的 id、名称和热度
+ *
+ * @author Kay
+ * @date 2026/10/18 23:00
+ */
+@Data
+public class SuggestEntryDTO {
+
+    /**
+     * 歌曲 / 歌手 / 歌单 id
+     */
+    private Long id;
+
+    /**
+     * 歌名 / 歌手名 / 歌单标题
+     */
+    private String name;
+
+    /**
+     * 热度：被收藏的次数（歌手为其歌曲被收藏的总次数）
+     */
+    private Long weight;
+
+    /**
+     * 歌曲所属的歌手 id，歌手删除时找到需要移除的歌曲
+     */
+    private Long artistId;
+}
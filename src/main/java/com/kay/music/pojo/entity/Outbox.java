@@ -0,0 +1,59 @@
+package com.kay.music.pojo.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.experimental.Accessors;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 变更发件箱，与业务数据在同一个事务中写入
+ *
+ * @author Kay
+ * @date 2026/10/18 21:40
+ */
+@Data
+@EqualsAndHashCode(callSuper = false)
+@Accessors(chain = true)
+@TableName("tb_outbox")
+public class Outbox implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 变更 id，插入时分配，不代表提交顺序
+     */
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long outboxId;
+
+    /**
+     * 受影响的缓存标签，逗号分隔
+     */
+    @TableField("tags")
+    private String tags;
+
+    /**
+     * 发布状态：0-待发布，1-已发布，2-发布失败（重试次数用完，不再发布）
+     */
+    @TableField("published")
+    private Integer published;
+
+    /**
+     * 发布失败的次数
+     */
+    @TableField("retry_count")
+    private Integer retryCount;
+
+    /**
+     * 创建时间
+     */
+    @TableField("create_time")
+    private LocalDateTime createTime;
+}
@@ -25,6 +25,9 @@ public class SongVO implements Serializable {
     @Schema(description = "歌名" , example = "晴天")
     private String songName;
 
+    @Schema(description = "歌手 id" , example = "1")
+    private Long artistId;
+
     @Schema(description = "歌手名" , example = "周杰伦")
     private String artistName;
 
@@ -0,0 +1,32 @@
+package com.kay.music.pojo.vo;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * @author Kay
+ * @date 2026/10/18 23:00
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(name = "SuggestionVO", description = "输入提示VO类")
+public class SuggestionVO implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    @Schema(description = "类型：song / artist / playlist" , example = "song")
+    private String type;
+
+    @Schema(description = "歌曲 / 歌手 / 歌单 id" , example = "1")
+    private Long id;
+
+    @Schema(description = "歌名 / 歌手名 / 歌单标题" , example = "晴天")
+    private String name;
+}
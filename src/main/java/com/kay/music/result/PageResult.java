@@ -1,6 +1,6 @@
 package com.kay.music.result;
 
-import lombok.AllArgsConstructor;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
@@ -12,10 +12,23 @@ import java.util.List;
  */
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 public class PageResult<T> {
 
     private Long total; //总条数
     private List<T> items; //当前页数据集合
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String nextCursor; //游标分页时下一页的游标，没有下一页（或不是游标分页）时为 null
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean hasMore; //不要总数（withTotal = false）时是否还有下一页，此时 total 为 null
 
+    public PageResult(Long total, List<T> items) {
+        this.total = total;
+        this.items = items;
+    }
+
+    public PageResult(Long total, List<T> items, String nextCursor) {
+        this.total = total;
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
 }
@@ -1,6 +1,7 @@
 package com.kay.music.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.kay.music.pojo.dto.LyricSearchDTO;
 import com.kay.music.pojo.dto.SongAddDTO;
 import com.kay.music.pojo.dto.SongAndArtistDTO;
 import com.kay.music.pojo.dto.SongDTO;
@@ -26,6 +27,8 @@ public interface ISongService extends IService<Song> {
 
     Result<PageResult<SongVO>> getAllSongsForUser(SongDTO songDTO, Long userId);
 
+    Result<PageResult<SongVO>> searchLyric(LyricSearchDTO lyricSearchDTO, Long userId);
+
     Result<List<SongVO>> getRecommendedSongs();
 
     Result<SongDetailVO> getSongDetail(Long songId, HttpServletRequest request);
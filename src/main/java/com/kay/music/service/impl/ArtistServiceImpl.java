@@ -1,8 +1,6 @@
 package com.kay.music.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
-import com.baomidou.mybatisplus.core.metadata.IPage;
-import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.kay.music.constant.MessageConstant;
 import com.kay.music.enumeration.LikeStatusEnum;
@@ -21,14 +19,21 @@ import com.kay.music.result.PageResult;
 import com.kay.music.result.Result;
 import com.kay.music.service.IArtistService;
 import com.kay.music.service.MinioService;
+import com.kay.music.utils.CacheTagIndex;
+import com.kay.music.utils.ChangeOutbox;
+import com.kay.music.utils.CountCache;
+import com.kay.music.utils.IdBloomFilter;
+import com.kay.music.utils.PageCursor;
+import com.kay.music.utils.RandomSampler;
 import com.kay.music.utils.ThreadLocalUtil;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.BeanUtils;
 import org.springframework.cache.annotation.CacheConfig;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -45,6 +50,10 @@ public class ArtistServiceImpl extends ServiceImpl<ArtistMapper, Artist> impleme
     private final ArtistMapper artistMapper;
     private final MinioService minioService;
     private final UserFavoriteMapper userFavoriteMapper;
+    private final ChangeOutbox changeOutbox;
+    private final IdBloomFilter idBloomFilter;
+    private final CountCache countCache;
+    private final RandomSampler randomSampler;
 
     
     /**
@@ -63,7 +72,8 @@ public class ArtistServiceImpl extends ServiceImpl<ArtistMapper, Artist> impleme
             wrapper.eq(Artist::getArea, area);
         }
 
-        return Result.success(artistMapper.selectCount(wrapper));
+        return Result.success(countCache.count(CountCache.ARTIST, CountCache.filter("count", gender, area),
+                () -> artistMapper.selectCount(wrapper)));
     }
 
     /**
@@ -72,11 +82,13 @@ public class ArtistServiceImpl extends ServiceImpl<ArtistMapper, Artist> impleme
      * @date:   2025/11/21 11:31
      */
     @Override
-    @Cacheable(key = "'admin:artist:' + #artistDTO.pageNum + '-' + #artistDTO.pageSize + '-' + #artistDTO.artistName + '-' + #artistDTO.gender + '-' + #artistDTO.area", unless = "#result == null")
+    @Cacheable(key = "'admin:artist:' + #artistDTO.pageNum + '-' + #artistDTO.pageSize + '-' + #artistDTO.artistName + '-' + #artistDTO.gender + '-' + #artistDTO.area + '-' + #artistDTO.cursor + '-' + #artistDTO.withTotal", unless = "#result == null")
     public Result<PageResult<Artist>> getAllArtistsAndDetail(ArtistDTO artistDTO) {
 
-        // 分页查询
-        Page<Artist> page = new Page<>(artistDTO.getPageNum(), artistDTO.getPageSize());
+        // 分页查询，总数优先取缓存，不要总数时不统计
+        CountCache.CountedPage<Artist> page = countCache.page(CountCache.ARTIST,
+                CountCache.filter("list", artistDTO.getArtistName(), artistDTO.getGender(), artistDTO.getArea()),
+                artistDTO.getPageNum(), artistDTO.getPageSize(), artistDTO.getWithTotal());
         LambdaQueryWrapper<Artist> queryWrapper = new LambdaQueryWrapper<>();
         // 根据 artistDTO 的条件构建查询条件
         if (artistDTO.getArtistName() != null) {
@@ -91,11 +103,28 @@ public class ArtistServiceImpl extends ServiceImpl<ArtistMapper, Artist> impleme
         // 倒序排序
         queryWrapper.orderByDesc(Artist::getArtistId);
 
-        IPage<Artist> artistPage = artistMapper.selectPage(page, queryWrapper);
-        if (artistPage.getRecords().isEmpty()) {
+        // 游标分页：从上一页最后一个歌手的 id 往前取，走主键索引
+        if (artistDTO.getCursor() != null) {
+            PageCursor<Void> cursor = PageCursor.parse(artistDTO.getCursor());
+            if (cursor == null) {
+                return Result.error(MessageConstant.CURSOR + MessageConstant.INVALID);
+            }
+            queryWrapper.lt(!cursor.isFirst(), Artist::getArtistId, cursor.id())
+                    .last("LIMIT " + (artistDTO.getPageSize() + 1));
+            List<Artist> artists = artistMapper.selectList(queryWrapper);
+            if (artists.isEmpty()) {
+                return Result.success(MessageConstant.DATA_NOT_FOUND, new PageResult<>(0L, null));
+            }
+            return Result.success(PageCursor.page(artists, artistDTO.getPageSize(),
+                    artist -> PageCursor.encode(null, artist.getArtistId())));
+        }
+
+        artistMapper.selectPage(page, queryWrapper);
+        PageResult<Artist> artistPage = countCache.result(page);
+        if (artistPage.getItems().isEmpty()) {
             return Result.success(MessageConstant.DATA_NOT_FOUND, new PageResult<>(0L, null));
         }
-        return Result.success(new PageResult<>(artistPage.getTotal(), artistPage.getRecords()));
+        return Result.success(artistPage);
     }
 
     /**
@@ -103,8 +132,8 @@ public class ArtistServiceImpl extends ServiceImpl<ArtistMapper, Artist> impleme
      * @Author: Kay
      * @date:   2025/11/21 20:46
      */
+    @Transactional
     @Override
-    @CacheEvict(cacheNames = "artistCache", allEntries = true)
     public Result addArtist(ArtistAddDTO artistAddDTO) {
 
         LambdaQueryWrapper<Artist> queryWrapper = new LambdaQueryWrapper<>();
@@ -118,6 +147,9 @@ public class ArtistServiceImpl extends ServiceImpl<ArtistMapper, Artist> impleme
         Artist artist = new Artist();
         BeanUtils.copyProperties(artistAddDTO, artist);
         artistMapper.insert(artist);
+        changeOutbox.record(CacheTagIndex.artist(artist.getArtistId()), CacheTagIndex.ARTIST_LIST);
+        countCache.increment(CountCache.ARTIST, 1);
+        idBloomFilter.add(IdBloomFilter.ARTIST, artist.getArtistId());
 
         return Result.success(MessageConstant.ADD + MessageConstant.SUCCESS);
     }
@@ -127,8 +159,8 @@ public class ArtistServiceImpl extends ServiceImpl<ArtistMapper, Artist> impleme
      * @Author: Kay
      * @date:   2025/11/21 20:51
      */
+    @Transactional
     @Override
-    @CacheEvict(cacheNames = "artistCache", allEntries = true)
     public Result updateArtist(ArtistUpdateDTO artistUpdateDTO) {
 
         Long artistId = artistUpdateDTO.getArtistId();
@@ -144,6 +176,8 @@ public class ArtistServiceImpl extends ServiceImpl<ArtistMapper, Artist> impleme
         if (artistMapper.updateById(artist) == 0) {
             return Result.error(MessageConstant.UPDATE + MessageConstant.FAILED);
         }
+        // 歌曲列表中展示的是歌手名，按歌手名搜索的结果也会变化
+        changeOutbox.record(CacheTagIndex.artist(artistId), CacheTagIndex.ARTIST_LIST, CacheTagIndex.SONG_LIST);
 
         return Result.success(MessageConstant.UPDATE + MessageConstant.SUCCESS);
     }
@@ -153,8 +187,8 @@ public class ArtistServiceImpl extends ServiceImpl<ArtistMapper, Artist> impleme
      * @Author: Kay
      * @date:   2025/11/21 20:55
      */
+    @Transactional
     @Override
-    @CacheEvict(cacheNames = "artistCache", allEntries = true)
     public Result updateArtistAvatar(Long artistId, String avatar) {
         Artist artist = artistMapper.selectById(artistId);
         // 1. 删除已经存在的头像
@@ -167,6 +201,7 @@ public class ArtistServiceImpl extends ServiceImpl<ArtistMapper, Artist> impleme
         if (artistMapper.updateById(artist) == 0) {
             return Result.error(MessageConstant.UPDATE + MessageConstant.FAILED);
         }
+        changeOutbox.record(CacheTagIndex.artist(artistId));
 
         return Result.success(MessageConstant.UPDATE + MessageConstant.SUCCESS);
     }
@@ -176,8 +211,8 @@ public class ArtistServiceImpl extends ServiceImpl<ArtistMapper, Artist> impleme
      * @Author: Kay
      * @date:   2025/11/21 20:58
      */
+    @Transactional
     @Override
-    @CacheEvict(cacheNames = "artistCache", allEntries = true)
     public Result deleteArtist(Long artistId) {
         // 1. 查询歌手信息，获取头像 URL
         Artist artist = artistMapper.selectById(artistId);
@@ -195,6 +230,11 @@ public class ArtistServiceImpl extends ServiceImpl<ArtistMapper, Artist> impleme
         if (artistMapper.deleteById(artistId) == 0) {
             return Result.error(MessageConstant.DELETE + MessageConstant.FAILED);
         }
+        changeOutbox.record(CacheTagIndex.artist(artistId), CacheTagIndex.ARTIST_LIST, CacheTagIndex.SONG_LIST);
+        // 歌手的歌曲被级联删除，不知道具体数量，歌曲总数重新统计
+        countCache.increment(CountCache.ARTIST, -1);
+        countCache.evict(CountCache.SONG);
+        idBloomFilter.removed(IdBloomFilter.ARTIST);
 
         return Result.success(MessageConstant.DELETE + MessageConstant.SUCCESS);
     }
@@ -204,8 +244,8 @@ public class ArtistServiceImpl extends ServiceImpl<ArtistMapper, Artist> impleme
      * @Author: Kay
      * @date:   2025/11/21 21:00
      */
+    @Transactional
     @Override
-    @CacheEvict(cacheNames = {"artistCache", "songCache"}, allEntries = true)
     public Result deleteArtists(List<Long> artistIds) {
 
         // 1. 查询歌手信息，获取头像 URL 列表
@@ -221,9 +261,18 @@ public class ArtistServiceImpl extends ServiceImpl<ArtistMapper, Artist> impleme
         }
 
         // 3. 删除数据库中的歌手信息
-        if (artistMapper.deleteByIds(artistIds) == 0) {
+        int deleted = artistMapper.deleteByIds(artistIds);
+        if (deleted == 0) {
             return Result.error(MessageConstant.DELETE + MessageConstant.FAILED);
         }
+        countCache.increment(CountCache.ARTIST, -deleted);
+        countCache.evict(CountCache.SONG);
+
+        // 4. 失效这些歌手相关的缓存
+        List<String> tags = new ArrayList<>(List.of(CacheTagIndex.ARTIST_LIST, CacheTagIndex.SONG_LIST));
+        artistIds.forEach(artistId -> tags.add(CacheTagIndex.artist(artistId)));
+        changeOutbox.record(tags);
+        idBloomFilter.removed(IdBloomFilter.ARTIST);
 
         return Result.success(MessageConstant.DELETE + MessageConstant.SUCCESS);
     }
@@ -234,10 +283,12 @@ public class ArtistServiceImpl extends ServiceImpl<ArtistMapper, Artist> impleme
      * @date:   2025/11/21 21:04
      */
     @Override
-    @Cacheable(key = "'artist:list:' + #artistDTO.pageNum + '-' + #artistDTO.pageSize + '-' + #artistDTO.artistName + '-' + #artistDTO.gender + '-' + #artistDTO.area", unless = "#result == null")
+    @Cacheable(key = "'artist:list:' + #artistDTO.pageNum + '-' + #artistDTO.pageSize + '-' + #artistDTO.artistName + '-' + #artistDTO.gender + '-' + #artistDTO.area + '-' + #artistDTO.cursor + '-' + #artistDTO.withTotal", sync = true)
     public Result<PageResult<ArtistVO>> getAllArtists(ArtistDTO artistDTO) {
-        // 分页查询
-        Page<Artist> page = new Page<>(artistDTO.getPageNum(), artistDTO.getPageSize());
+        // 分页查询，总数优先取缓存，不要总数时不统计（与管理端列表的筛选条件相同，共用同一个总数）
+        CountCache.CountedPage<Artist> page = countCache.page(CountCache.ARTIST,
+                CountCache.filter("list", artistDTO.getArtistName(), artistDTO.getGender(), artistDTO.getArea()),
+                artistDTO.getPageNum(), artistDTO.getPageSize(), artistDTO.getWithTotal());
         LambdaQueryWrapper<Artist> queryWrapper = new LambdaQueryWrapper<>();
         // 根据 artistDTO 的条件构建查询条件
         if (artistDTO.getArtistName() != null) {
@@ -250,20 +301,45 @@ public class ArtistServiceImpl extends ServiceImpl<ArtistMapper, Artist> impleme
             queryWrapper.like(Artist::getArea, artistDTO.getArea());
         }
 
-        IPage<Artist> artistPage = artistMapper.selectPage(page, queryWrapper);
-        if (artistPage.getRecords().isEmpty()) {
+        // 游标分页：按 id 升序，从上一页最后一个歌手之后取，走主键索引
+        if (artistDTO.getCursor() != null) {
+            PageCursor<Void> cursor = PageCursor.parse(artistDTO.getCursor());
+            if (cursor == null) {
+                return Result.error(MessageConstant.CURSOR + MessageConstant.INVALID);
+            }
+            queryWrapper.gt(!cursor.isFirst(), Artist::getArtistId, cursor.id())
+                    .orderByAsc(Artist::getArtistId)
+                    .last("LIMIT " + (artistDTO.getPageSize() + 1));
+            List<Artist> artists = artistMapper.selectList(queryWrapper);
+            if (artists.isEmpty()) {
+                return Result.success(MessageConstant.DATA_NOT_FOUND, new PageResult<>(0L, null));
+            }
+            PageResult<Artist> artistPage = PageCursor.page(artists, artistDTO.getPageSize(),
+                    artist -> PageCursor.encode(null, artist.getArtistId()));
+            return Result.success(new PageResult<>(null, toArtistVOList(artistPage.getItems()), artistPage.getNextCursor()));
+        }
+
+        artistMapper.selectPage(page, queryWrapper);
+        PageResult<Artist> artistPage = countCache.result(page);
+        if (artistPage.getItems().isEmpty()) {
             return Result.success(MessageConstant.DATA_NOT_FOUND, new PageResult<>(0L, null));
         }
 
-        // 转换成 ArtistVO
-        List<ArtistVO> artistVOList = artistPage.getRecords().stream()
+        PageResult<ArtistVO> result = new PageResult<>(artistPage.getTotal(), toArtistVOList(artistPage.getItems()));
+        result.setHasMore(artistPage.getHasMore());
+        return Result.success(result);
+    }
+
+    /**
+     * Artist 转换成 ArtistVO
+     */
+    private static List<ArtistVO> toArtistVOList(List<Artist> artists) {
+        return artists.stream()
                 .map(artist -> {
                     ArtistVO artistVO = new ArtistVO();
                     BeanUtils.copyProperties(artist, artistVO);
                     return artistVO;
                 }).toList();
-
-        return Result.success(new PageResult<>(artistPage.getTotal(), artistVOList));
     }
 
     /**
@@ -274,10 +350,9 @@ public class ArtistServiceImpl extends ServiceImpl<ArtistMapper, Artist> impleme
     @Override
     public Result<List<ArtistVO>> getRandomArtists() {
 
-        LambdaQueryWrapper<Artist> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.last("ORDER BY RAND() LIMIT 10");
-
-        List<Artist> artists = artistMapper.selectList(queryWrapper);
+        // 从随机推荐 id 池中抽取，按主键读取
+        List<Artist> artists = randomSampler.sample(RandomSampler.ARTIST, 10,
+                artistMapper::selectBatchIds, Artist::getArtistId);
         if (artists.isEmpty()) {
             return Result.success(MessageConstant.DATA_NOT_FOUND, null);
         }
@@ -298,8 +373,12 @@ public class ArtistServiceImpl extends ServiceImpl<ArtistMapper, Artist> impleme
      * @date:   2025/11/21 21:12
      */
     @Override
-    @Cacheable(key = "'artist:detail:' + #artistId", unless = "#result == null")
+    // 布隆过滤器判断不存在的 id 不读写缓存
+    @Cacheable(key = "'artist:detail:' + #artistId", condition = "@idBloomFilter.mightContainArtist(#artistId)", sync = true)
     public Result<ArtistDetailVO> getArtistDetail(Long artistId) {
+        if (!idBloomFilter.mightContainArtist(artistId)) {
+            return Result.success(MessageConstant.ARTIST + MessageConstant.NOT_FOUND, null);
+        }
 
         ArtistDetailVO artistDetailVO = artistMapper.getArtistDetailById(artistId);
         
@@ -342,7 +421,7 @@ public class ArtistServiceImpl extends ServiceImpl<ArtistMapper, Artist> impleme
      * @date:   2025/11/21 21:33
      */
     @Override
-    @Cacheable(key = "'artist:names'", unless = "#result == null")
+    @Cacheable(key = "'artist:names'", sync = true)
     public Result<List<ArtistNameVO>> getAllArtistNames() {
         List<Artist> artists = artistMapper.selectList(new LambdaQueryWrapper<Artist>().orderByDesc(Artist::getArtistId));
         if (artists.isEmpty()) {
@@ -185,7 +185,7 @@ public class BannerServiceImpl extends ServiceImpl<BannerMapper, Banner> impleme
      * @return 轮播图列表
      */
     @Override
-    @Cacheable(key = "'bannerList'")
+    @Cacheable(key = "'bannerList'", sync = true)
     public Result<List<BannerVO>> getBannerList() {
         // 获取最后九个有效的轮播图
         List<Banner> banners = bannerMapper.selectList(new LambdaQueryWrapper<Banner>()
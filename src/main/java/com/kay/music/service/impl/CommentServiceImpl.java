@@ -8,10 +8,12 @@ import com.kay.music.pojo.dto.CommentSongDTO;
 import com.kay.music.pojo.entity.Comment;
 import com.kay.music.result.Result;
 import com.kay.music.service.ICommentService;
+import com.kay.music.utils.CacheTagIndex;
+import com.kay.music.utils.ChangeOutbox;
 import com.kay.music.utils.ThreadLocalUtil;
 import lombok.RequiredArgsConstructor;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.Objects;
@@ -25,6 +27,7 @@ import java.util.Objects;
 public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment> implements ICommentService {
 
     private final CommentMapper commentMapper;
+    private final ChangeOutbox changeOutbox;
 
     /**
      * 添加歌曲评论
@@ -32,8 +35,8 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment> impl
      * @param commentSongDTO 歌曲评论DTO
      * @return Result
      */
+    @Transactional
     @Override
-    @CacheEvict(cacheNames = "songCache", allEntries = true)
     public Result addSongComment(CommentSongDTO commentSongDTO) {
 
         Long userId = ThreadLocalUtil.getUserId();
@@ -46,6 +49,7 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment> impl
         if (commentMapper.insert(comment) == 0) {
             return Result.error(MessageConstant.ADD + MessageConstant.FAILED);
         }
+        changeOutbox.record(commentTag(comment));
         return Result.success(MessageConstant.ADD + MessageConstant.SUCCESS);
     }
 
@@ -55,8 +59,8 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment> impl
      * @param commentPlaylistDTO 歌单评论DTO
      * @return Result
      */
+    @Transactional
     @Override
-    @CacheEvict(cacheNames = "playlistCache", allEntries = true)
     public Result addPlaylistComment(CommentPlaylistDTO commentPlaylistDTO) {
         Long userId = ThreadLocalUtil.getUserId();
 
@@ -68,6 +72,7 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment> impl
         if (commentMapper.insert(comment) == 0) {
             return Result.error(MessageConstant.ADD + MessageConstant.FAILED);
         }
+        changeOutbox.record(commentTag(comment));
         return Result.success(MessageConstant.ADD + MessageConstant.SUCCESS);
     }
 
@@ -91,8 +96,8 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment> impl
      * @param commentId 评论ID
      * @return Result
      */
+    @Transactional
     @Override
-    @CacheEvict(cacheNames = {"songCache", "playlistCache"}, allEntries = true)
     public Result likeComment(Long commentId) {
         Comment comment = commentMapper.selectById(commentId);
         if (comment == null) {
@@ -106,6 +111,7 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment> impl
         if (commentMapper.updateById(comment) == 0) {
             return Result.error(MessageConstant.FAILED);
         }
+        changeOutbox.record(commentTag(comment));
         return Result.success(MessageConstant.SUCCESS);
     }
 
@@ -115,8 +121,8 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment> impl
      * @param commentId 评论ID
      * @return Result
      */
+    @Transactional
     @Override
-    @CacheEvict(cacheNames = {"songCache", "playlistCache"}, allEntries = true)
     public Result cancelLikeComment(Long commentId) {
         Comment comment = commentMapper.selectById(commentId);
         if (comment == null) {
@@ -130,6 +136,7 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment> impl
         if (commentMapper.updateById(comment) == 0) {
             return Result.error(MessageConstant.FAILED);
         }
+        changeOutbox.record(commentTag(comment));
         return Result.success(MessageConstant.SUCCESS);
     }
 
@@ -139,8 +146,8 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment> impl
      * @param commentId 评论ID
      * @return Result
      */
+    @Transactional
     @Override
-    @CacheEvict(cacheNames = {"songCache", "playlistCache"}, allEntries = true)
     public Result deleteComment(Long commentId) {
         Long userId = ThreadLocalUtil.getUserId();
 
@@ -155,6 +162,16 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment> impl
         if (commentMapper.deleteById(commentId) == 0) {
             return Result.error(MessageConstant.DELETE + MessageConstant.FAILED);
         }
+        changeOutbox.record(commentTag(comment));
         return Result.success(MessageConstant.DELETE + MessageConstant.SUCCESS);
     }
+
+    /**
+     * 评论展示在歌曲详情或歌单详情中，返回对应的缓存标签
+     */
+    private String commentTag(Comment comment) {
+        return comment.getType() == 0
+                ? CacheTagIndex.song(comment.getSongId())
+                : CacheTagIndex.playlist(comment.getPlaylistId());
+    }
 }
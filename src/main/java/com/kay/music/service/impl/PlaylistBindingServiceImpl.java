@@ -9,10 +9,10 @@ import com.kay.music.pojo.entity.Playlist;
 import com.kay.music.pojo.entity.PlaylistBinding;
 import com.kay.music.result.Result;
 import com.kay.music.service.IPlaylistBindingService;
+import com.kay.music.utils.CacheTagIndex;
+import com.kay.music.utils.ChangeOutbox;
 import com.kay.music.utils.ThreadLocalUtil;
 import lombok.RequiredArgsConstructor;
-import org.springframework.cache.annotation.CacheConfig;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -22,14 +22,13 @@ import org.springframework.transaction.annotation.Transactional;
  */
 @Service
 @RequiredArgsConstructor
-@CacheConfig(cacheNames = "playlistCache")
 public class PlaylistBindingServiceImpl extends ServiceImpl<PlaylistBindingMapper, PlaylistBinding> implements IPlaylistBindingService {
 
     private final PlaylistMapper playlistMapper;
+    private final ChangeOutbox changeOutbox;
 
     @Override
     @Transactional
-    @CacheEvict(key = "#playlistId")
     public Result addSongToPlaylist(Long playlistId, Long songId) {
         // 获取当前登录用户 ID
         Long currentUserId = ThreadLocalUtil.getUserId();
@@ -68,6 +67,8 @@ public class PlaylistBindingServiceImpl extends ServiceImpl<PlaylistBindingMappe
         
         boolean saved = this.save(binding);
         if (saved) {
+            // 歌单详情的缓存 key 是 playlist:detail:{id}，按标签失效才能删到
+            changeOutbox.record(CacheTagIndex.playlist(playlistId));
             return Result.success("添加成功");
         } else {
             return Result.error("添加失败");
@@ -76,7 +77,6 @@ public class PlaylistBindingServiceImpl extends ServiceImpl<PlaylistBindingMappe
 
     @Override
     @Transactional
-    @CacheEvict(key = "#playlistId")
     public Result removeSongFromPlaylist(Long playlistId, Long songId) {
         // 获取当前登录用户 ID
         Long currentUserId = ThreadLocalUtil.getUserId();
@@ -106,6 +106,7 @@ public class PlaylistBindingServiceImpl extends ServiceImpl<PlaylistBindingMappe
         
         boolean removed = this.remove(wrapper);
         if (removed) {
+            changeOutbox.record(CacheTagIndex.playlist(playlistId));
             return Result.success("移除成功");
         } else {
             return Result.error("移除失败，歌曲可能不在歌单中");
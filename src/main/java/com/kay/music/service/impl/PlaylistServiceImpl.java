@@ -1,8 +1,6 @@
 package com.kay.music.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
-import com.baomidou.mybatisplus.core.metadata.IPage;
-import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.kay.music.constant.MessageConstant;
 import com.kay.music.enumeration.LikeStatusEnum;
@@ -11,6 +9,7 @@ import com.kay.music.mapper.PlaylistMapper;
 import com.kay.music.mapper.UserFavoriteMapper;
 import com.kay.music.pojo.dto.PlaylistAddDTO;
 import com.kay.music.pojo.dto.PlaylistDTO;
+import com.kay.music.pojo.dto.PlaylistDetailDTO;
 import com.kay.music.pojo.dto.PlaylistUpdateDTO;
 import com.kay.music.pojo.entity.Playlist;
 import com.kay.music.pojo.entity.UserFavorite;
@@ -21,15 +20,25 @@ import com.kay.music.result.PageResult;
 import com.kay.music.result.Result;
 import com.kay.music.service.IPlaylistService;
 import com.kay.music.service.MinioService;
+import com.kay.music.utils.CacheTagIndex;
+import com.kay.music.utils.ChangeOutbox;
+import com.kay.music.utils.CountCache;
+import com.kay.music.utils.IdBloomFilter;
+import com.kay.music.utils.PageCursor;
+import com.kay.music.utils.RandomSampler;
+import com.kay.music.utils.SongEntityCache;
 import com.kay.music.utils.ThreadLocalUtil;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.BeanUtils;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheConfig;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -47,6 +56,17 @@ public class PlaylistServiceImpl extends ServiceImpl<PlaylistMapper, Playlist> i
     private final MinioService minioService;
     private final ThreadLocalUtil threadLocalUtil;
     private final UserFavoriteMapper userFavoriteMapper;
+    private final ChangeOutbox changeOutbox;
+    private final IdBloomFilter idBloomFilter;
+    private final SongEntityCache songEntityCache;
+    private final CacheManager cacheManager;
+    private final CountCache countCache;
+    private final RandomSampler randomSampler;
+
+    /**
+     * 歌单缓存名，与 @CacheConfig 一致
+     */
+    private static final String PLAYLIST_CACHE = "playlistCache";
 
     /**
      * @Description: 获取所有歌单数量
@@ -55,7 +75,7 @@ public class PlaylistServiceImpl extends ServiceImpl<PlaylistMapper, Playlist> i
      */
     @Override
     public Result<Long> getAllPlaylistsCount() {
-        return Result.success(playlistMapper.selectCount(null));
+        return Result.success(countCache.count(CountCache.PLAYLIST, null, () -> playlistMapper.selectCount(null)));
     }
     
     /**
@@ -64,10 +84,12 @@ public class PlaylistServiceImpl extends ServiceImpl<PlaylistMapper, Playlist> i
      * @date:   2025/11/22 15:15
      */
     @Override
-    @Cacheable(key = "'admin:playlist:' + #playlistDTO.pageNum + '-' + #playlistDTO.pageSize + '-' + #playlistDTO.title", unless = "#result == null")
+    @Cacheable(key = "'admin:playlist:' + #playlistDTO.pageNum + '-' + #playlistDTO.pageSize + '-' + #playlistDTO.title + '-' + #playlistDTO.cursor + '-' + #playlistDTO.withTotal", unless = "#result == null")
     public Result<PageResult<Playlist>> getAllPlaylistsInfo(PlaylistDTO playlistDTO) {
-        // 分页查询
-        Page<Playlist> page = new Page<>(playlistDTO.getPageNum(), playlistDTO.getPageSize());
+        // 分页查询，总数优先取缓存，不要总数时不统计
+        CountCache.CountedPage<Playlist> page = countCache.page(CountCache.PLAYLIST,
+                CountCache.filter("list", playlistDTO.getTitle()),
+                playlistDTO.getPageNum(), playlistDTO.getPageSize(), playlistDTO.getWithTotal());
         LambdaQueryWrapper<Playlist> queryWrapper = new LambdaQueryWrapper<>();
         // 根据 playlistDTO 的条件构建查询条件
         if (playlistDTO.getTitle() != null) {
@@ -76,12 +98,29 @@ public class PlaylistServiceImpl extends ServiceImpl<PlaylistMapper, Playlist> i
         // 倒序排序
         queryWrapper.orderByDesc(Playlist::getPlaylistId);
 
-        IPage<Playlist> playlistPage = playlistMapper.selectPage(page, queryWrapper);
-        if (playlistPage.getRecords().isEmpty()) {
+        // 游标分页：从上一页最后一个歌单的 id 往前取，走主键索引
+        if (playlistDTO.getCursor() != null) {
+            PageCursor<Void> cursor = PageCursor.parse(playlistDTO.getCursor());
+            if (cursor == null) {
+                return Result.error(MessageConstant.CURSOR + MessageConstant.INVALID);
+            }
+            queryWrapper.lt(!cursor.isFirst(), Playlist::getPlaylistId, cursor.id())
+                    .last("LIMIT " + (playlistDTO.getPageSize() + 1));
+            List<Playlist> playlists = playlistMapper.selectList(queryWrapper);
+            if (playlists.isEmpty()) {
+                return Result.success(MessageConstant.DATA_NOT_FOUND, new PageResult<>(0L, null));
+            }
+            return Result.success(PageCursor.page(playlists, playlistDTO.getPageSize(),
+                    playlist -> PageCursor.encode(null, playlist.getPlaylistId())));
+        }
+
+        playlistMapper.selectPage(page, queryWrapper);
+        PageResult<Playlist> playlistPage = countCache.result(page);
+        if (playlistPage.getItems().isEmpty()) {
             return Result.success(MessageConstant.DATA_NOT_FOUND, new PageResult<>(0L, null));
         }
 
-        return Result.success(new PageResult<>(playlistPage.getTotal(), playlistPage.getRecords()));
+        return Result.success(playlistPage);
     }
 
     /**
@@ -89,8 +128,8 @@ public class PlaylistServiceImpl extends ServiceImpl<PlaylistMapper, Playlist> i
      * @Author: Kay
      * @date:   2025/11/22 15:18
      */
+    @Transactional
     @Override
-    @CacheEvict(cacheNames = "playlistCache", allEntries = true)
     public Result addPlaylist(PlaylistAddDTO playlistAddDTOO) {
         LambdaQueryWrapper<Playlist> queryWrapper = new LambdaQueryWrapper<>();
         queryWrapper.eq(Playlist::getTitle, playlistAddDTOO.getTitle());
@@ -108,6 +147,9 @@ public class PlaylistServiceImpl extends ServiceImpl<PlaylistMapper, Playlist> i
         BeanUtils.copyProperties(playlistAddDTOO, playlist);
         playlist.setUserId(currentUserId); // 设置创建者 ID
         playlistMapper.insert(playlist);
+        changeOutbox.record(CacheTagIndex.playlist(playlist.getPlaylistId()), CacheTagIndex.PLAYLIST_LIST);
+        countCache.increment(CountCache.PLAYLIST, 1);
+        idBloomFilter.add(IdBloomFilter.PLAYLIST, playlist.getPlaylistId());
 
         return Result.success(MessageConstant.ADD + MessageConstant.SUCCESS);
     }
@@ -117,8 +159,8 @@ public class PlaylistServiceImpl extends ServiceImpl<PlaylistMapper, Playlist> i
      * @Author: Kay
      * @date:   2025/11/22 15:20
      */
+    @Transactional
     @Override
-    @CacheEvict(cacheNames = "playlistCache", allEntries = true)
     public Result updatePlaylist(PlaylistUpdateDTO playlistUpdateDTO) {
         Long playlistId = playlistUpdateDTO.getPlaylistId();
 
@@ -152,6 +194,8 @@ public class PlaylistServiceImpl extends ServiceImpl<PlaylistMapper, Playlist> i
         if (playlistMapper.updateById(playlist) == 0) {
             return Result.error(MessageConstant.UPDATE + MessageConstant.FAILED);
         }
+        // 标题变化会影响按标题搜索的结果
+        changeOutbox.record(CacheTagIndex.playlist(playlistId), CacheTagIndex.PLAYLIST_LIST);
 
         return Result.success(MessageConstant.UPDATE + MessageConstant.SUCCESS);
     }
@@ -161,8 +205,8 @@ public class PlaylistServiceImpl extends ServiceImpl<PlaylistMapper, Playlist> i
      * @Author: Kay
      * @date:   2025/11/22 15:22
      */
+    @Transactional
     @Override
-    @CacheEvict(cacheNames = "playlistCache", allEntries = true)
     public Result updatePlaylistCover(Long playlistId, String coverUrl) {
         // 获取当前登录用户 ID
         Long currentUserId = ThreadLocalUtil.getUserId();
@@ -193,13 +237,14 @@ public class PlaylistServiceImpl extends ServiceImpl<PlaylistMapper, Playlist> i
         if (playlistMapper.updateById(playlist) == 0) {
             return Result.error(MessageConstant.UPDATE + MessageConstant.FAILED);
         }
+        changeOutbox.record(CacheTagIndex.playlist(playlistId));
 
         return Result.success(MessageConstant.UPDATE + MessageConstant.SUCCESS);
     }
 
 
+    @Transactional
     @Override
-    @CacheEvict(cacheNames = "playlistCache", allEntries = true)
     public Result deletePlaylist(Long playlistId) {
         // 获取当前登录用户 ID
         Long currentUserId = ThreadLocalUtil.getUserId();
@@ -233,12 +278,15 @@ public class PlaylistServiceImpl extends ServiceImpl<PlaylistMapper, Playlist> i
         if (playlistMapper.deleteById(playlistId) == 0) {
             return Result.error(MessageConstant.DELETE + MessageConstant.FAILED);
         }
+        changeOutbox.record(CacheTagIndex.playlist(playlistId), CacheTagIndex.PLAYLIST_LIST);
+        countCache.increment(CountCache.PLAYLIST, -1);
+        idBloomFilter.removed(IdBloomFilter.PLAYLIST);
 
         return Result.success(MessageConstant.DELETE + MessageConstant.SUCCESS);
     }
 
+    @Transactional
     @Override
-    @CacheEvict(cacheNames = "playlistCache", allEntries = true)
     public Result deletePlaylists(List<Long> playlistIds) {
         // 获取当前登录用户 ID
         Long currentUserId = ThreadLocalUtil.getUserId();
@@ -271,9 +319,17 @@ public class PlaylistServiceImpl extends ServiceImpl<PlaylistMapper, Playlist> i
         }
 
         // 3. 删除数据库中的歌单信息
-        if (playlistMapper.deleteBatchIds(playlistIds) == 0) {
+        int deleted = playlistMapper.deleteBatchIds(playlistIds);
+        if (deleted == 0) {
             return Result.error(MessageConstant.DELETE + MessageConstant.FAILED);
         }
+        countCache.increment(CountCache.PLAYLIST, -deleted);
+
+        // 4. 失效这些歌单相关的缓存
+        List<String> tags = new ArrayList<>(List.of(CacheTagIndex.PLAYLIST_LIST));
+        playlistIds.forEach(playlistId -> tags.add(CacheTagIndex.playlist(playlistId)));
+        changeOutbox.record(tags);
+        idBloomFilter.removed(IdBloomFilter.PLAYLIST);
 
         return Result.success(MessageConstant.DELETE + MessageConstant.SUCCESS);
     }
@@ -285,30 +341,57 @@ public class PlaylistServiceImpl extends ServiceImpl<PlaylistMapper, Playlist> i
      * @return 歌单列表
      */
     @Override
-    @Cacheable(key = "'playlist:list:' + #playlistDTO.pageNum + '-' + #playlistDTO.pageSize + '-' + #playlistDTO.title", unless = "#result == null")
+    @Cacheable(key = "'playlist:list:' + #playlistDTO.pageNum + '-' + #playlistDTO.pageSize + '-' + #playlistDTO.title + '-' + #playlistDTO.cursor + '-' + #playlistDTO.withTotal", sync = true)
     public Result<PageResult<PlaylistVO>> getAllPlaylists(PlaylistDTO playlistDTO) {
-        // 分页查询
-        Page<Playlist> page = new Page<>(playlistDTO.getPageNum(), playlistDTO.getPageSize());
+        // 分页查询，总数优先取缓存，不要总数时不统计
+        CountCache.CountedPage<Playlist> page = countCache.page(CountCache.PLAYLIST,
+                CountCache.filter("list", playlistDTO.getTitle()),
+                playlistDTO.getPageNum(), playlistDTO.getPageSize(), playlistDTO.getWithTotal());
         LambdaQueryWrapper<Playlist> queryWrapper = new LambdaQueryWrapper<>();
         // 根据 playlistDTO 的条件构建查询条件
         if (playlistDTO.getTitle() != null) {
             queryWrapper.like(Playlist::getTitle, playlistDTO.getTitle());
         }
 
-        IPage<Playlist> playlistPage = playlistMapper.selectPage(page, queryWrapper);
-        if (playlistPage.getRecords().isEmpty()) {
+        // 游标分页：按 id 升序，从上一页最后一个歌单之后取，走主键索引
+        if (playlistDTO.getCursor() != null) {
+            PageCursor<Void> cursor = PageCursor.parse(playlistDTO.getCursor());
+            if (cursor == null) {
+                return Result.error(MessageConstant.CURSOR + MessageConstant.INVALID);
+            }
+            queryWrapper.gt(!cursor.isFirst(), Playlist::getPlaylistId, cursor.id())
+                    .orderByAsc(Playlist::getPlaylistId)
+                    .last("LIMIT " + (playlistDTO.getPageSize() + 1));
+            List<Playlist> playlists = playlistMapper.selectList(queryWrapper);
+            if (playlists.isEmpty()) {
+                return Result.success(MessageConstant.DATA_NOT_FOUND, new PageResult<>(0L, null));
+            }
+            PageResult<Playlist> playlistPage = PageCursor.page(playlists, playlistDTO.getPageSize(),
+                    playlist -> PageCursor.encode(null, playlist.getPlaylistId()));
+            return Result.success(new PageResult<>(null, toPlaylistVOList(playlistPage.getItems()), playlistPage.getNextCursor()));
+        }
+
+        playlistMapper.selectPage(page, queryWrapper);
+        PageResult<Playlist> playlistPage = countCache.result(page);
+        if (playlistPage.getItems().isEmpty()) {
             return Result.success(MessageConstant.DATA_NOT_FOUND, new PageResult<>(0L, null));
         }
 
-        // 转换为 PlaylistVO
-        List<PlaylistVO> playlistVOList = playlistPage.getRecords().stream()
+        PageResult<PlaylistVO> result = new PageResult<>(playlistPage.getTotal(), toPlaylistVOList(playlistPage.getItems()));
+        result.setHasMore(playlistPage.getHasMore());
+        return Result.success(result);
+    }
+
+    /**
+     * Playlist 转换为 PlaylistVO
+     */
+    private static List<PlaylistVO> toPlaylistVOList(List<Playlist> playlists) {
+        return playlists.stream()
                 .map(playlist -> {
                     PlaylistVO playlistVO = new PlaylistVO();
                     BeanUtils.copyProperties(playlist, playlistVO);
                     return playlistVO;
                 }).toList();
-
-        return Result.success(new PageResult<>(playlistPage.getTotal(), playlistVOList));
     }
 
     // TODO: 推荐方式需要修改，当前为随机推荐，后续可以基于用户收藏、播放历史等方式实现个性化推荐
@@ -320,10 +403,11 @@ public class PlaylistServiceImpl extends ServiceImpl<PlaylistMapper, Playlist> i
      * @return 随机歌单列表
      */
     @Override
-    @Cacheable(key = "'playlist:recommended'", unless = "#result == null")
+    @Cacheable(key = "'playlist:recommended'", sync = true)
     public Result<List<PlaylistVO>> getRecommendedPlaylists(HttpServletRequest request) {
-        // 目前简化为返回随机歌单
-        List<PlaylistVO> playlists = playlistMapper.getRandomPlaylists(10);
+        // 目前简化为返回随机歌单：从随机推荐 id 池中抽取，按主键读取
+        List<PlaylistVO> playlists = toPlaylistVOList(randomSampler.sample(RandomSampler.PLAYLIST, 10,
+                playlistMapper::selectBatchIds, Playlist::getPlaylistId));
         if (playlists == null || playlists.isEmpty()) {
             // 返回空结果（也会被缓存，防止缓存穿透）
             return Result.success(MessageConstant.DATA_NOT_FOUND, null);
@@ -333,24 +417,42 @@ public class PlaylistServiceImpl extends ServiceImpl<PlaylistMapper, Playlist> i
 
     /**
      * 获取歌单详情
+     * 缓存（playlist:detail:{id}）中只保存歌单信息和歌曲 id，歌曲从歌曲实体缓存组装，喜欢状态每次按用户设置
      *
      * @param playlistId 歌单id
      * @param request    HttpServletRequest，用于获取请求头中的 token
      * @return 歌单详情
      */
     @Override
-    @Cacheable(key = "'playlist:detail:' + #playlistId", unless = "#result == null")
     public Result<PlaylistDetailVO> getPlaylistDetail(Long playlistId, HttpServletRequest request) {
-        PlaylistDetailVO playlistDetailVO = playlistMapper.getPlaylistDetailById(playlistId);
-        
-        // 如果歌单不存在，返回空结果（也会被缓存，防止缓存穿透）
-        if (playlistDetailVO == null) {
+        // 布隆过滤器判断不存在的 id 不读写缓存
+        if (!idBloomFilter.mightContainPlaylist(playlistId)) {
             return Result.success(MessageConstant.PLAYLIST + MessageConstant.NOT_FOUND, null);
         }
-        
-        // 设置默认状态
-        List<SongVO> songVOList = playlistDetailVO.getSongs();
+
+        // 未命中时全集群只有一个线程查询数据库；歌单不存在时也缓存（空值），防止缓存穿透
+        Cache cache = cacheManager.getCache(PLAYLIST_CACHE);
+        String key = "playlist:detail:" + playlistId;
+        Object cached = cache.<Object>get(key, () -> getPlaylistDetailFromDatabase(playlistId));
+        if (cached != null && !(cached instanceof PlaylistDetailDTO)) {
+            // 改造前缓存的是整个 Result<PlaylistDetailVO>，删除后重新加载
+            cache.evict(key);
+            cached = cache.<Object>get(key, () -> getPlaylistDetailFromDatabase(playlistId));
+        }
+        PlaylistDetailDTO playlistDetailDTO = (PlaylistDetailDTO) cached;
+
+        // 如果歌单不存在，返回空结果
+        if (playlistDetailDTO == null) {
+            return Result.success(MessageConstant.PLAYLIST + MessageConstant.NOT_FOUND, null);
+        }
+
+        PlaylistDetailVO playlistDetailVO = new PlaylistDetailVO();
+        BeanUtils.copyProperties(playlistDetailDTO, playlistDetailVO);
+
+        // 组装歌曲，设置默认状态
+        List<SongVO> songVOList = songEntityCache.getSongs(playlistDetailDTO.getSongIds());
         songVOList.forEach(songVO -> songVO.setLikeStatus(LikeStatusEnum.DEFAULT.getId()));
+        playlistDetailVO.setSongs(songVOList);
         playlistDetailVO.setLikeStatus(LikeStatusEnum.DEFAULT.getId());
 
         threadLocalUtil.setThreadLocalByToken(request);
@@ -389,4 +491,23 @@ public class PlaylistServiceImpl extends ServiceImpl<PlaylistMapper, Playlist> i
         return Result.success(playlistDetailVO);
     }
 
+    /**
+     * 从数据库查询歌单详情，歌曲顺便写入歌曲实体缓存
+     *
+     * @return 歌单不存在时返回 null
+     */
+    private PlaylistDetailDTO getPlaylistDetailFromDatabase(Long playlistId) {
+        PlaylistDetailVO playlistDetailVO = playlistMapper.getPlaylistDetailById(playlistId);
+        if (playlistDetailVO == null) {
+            return null;
+        }
+        List<SongVO> songs = playlistDetailVO.getSongs() == null ? List.of() : playlistDetailVO.getSongs();
+        songEntityCache.put(songs);
+
+        PlaylistDetailDTO playlistDetailDTO = new PlaylistDetailDTO();
+        BeanUtils.copyProperties(playlistDetailVO, playlistDetailDTO);
+        playlistDetailDTO.setSongIds(songs.stream().map(SongVO::getSongId).toList());
+        return playlistDetailDTO;
+    }
+
 }
@@ -1,21 +1,18 @@
 package com.kay.music.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
-import com.baomidou.mybatisplus.core.metadata.IPage;
-import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.kay.music.constant.MessageConstant;
 import com.kay.music.enumeration.LikeStatusEnum;
 import com.kay.music.mapper.ArtistMapper;
 import com.kay.music.mapper.SongMapper;
-import com.kay.music.mapper.UserFavoriteMapper;
+import com.kay.music.pojo.dto.LyricSearchDTO;
 import com.kay.music.pojo.dto.SongAddDTO;
 import com.kay.music.pojo.dto.SongAndArtistDTO;
 import com.kay.music.pojo.dto.SongDTO;
 import com.kay.music.pojo.dto.SongUpdateDTO;
 import com.kay.music.pojo.entity.Artist;
 import com.kay.music.pojo.entity.Song;
-import com.kay.music.pojo.entity.UserFavorite;
 import com.kay.music.pojo.vo.SongAdminVO;
 import com.kay.music.pojo.vo.SongDetailVO;
 import com.kay.music.pojo.vo.SongVO;
@@ -23,6 +20,22 @@ import com.kay.music.result.PageResult;
 import com.kay.music.result.Result;
 import com.kay.music.service.ISongService;
 import com.kay.music.service.MinioService;
+import com.kay.music.utils.CacheCodecRegistry;
+import com.kay.music.utils.CacheMetrics;
+import com.kay.music.utils.CacheNamespaces;
+import com.kay.music.utils.CacheRebuildExecutor;
+import com.kay.music.utils.CacheTagIndex;
+import com.kay.music.utils.ChangeOutbox;
+import com.kay.music.utils.CountCache;
+import com.kay.music.utils.EarlyRefreshPolicy;
+import com.kay.music.utils.FavoriteSongCache;
+import com.kay.music.utils.IdBloomFilter;
+import com.kay.music.utils.LyricIndex;
+import com.kay.music.utils.NearCache;
+import com.kay.music.utils.PageCursor;
+import com.kay.music.utils.RandomSampler;
+import com.kay.music.utils.SongEntityCache;
+import com.kay.music.utils.SongSearchEngineRegistry;
 import com.kay.music.utils.ThreadLocalUtil;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
@@ -35,32 +48,29 @@ import org.jaudiotagger.tag.FieldKey;
 import org.jaudiotagger.tag.TagException;
 import org.springframework.beans.BeanUtils;
 import org.springframework.cache.annotation.CacheConfig;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import com.kay.music.constant.RedisConstants;
 import com.kay.music.pojo.dto.RedisData;
 
-import cn.hutool.core.util.StrUtil;
-import cn.hutool.json.JSONObject;
-import cn.hutool.json.JSONUtil;
+import cn.hutool.core.lang.TypeReference;
 import jakarta.annotation.Resource;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.reflect.Type;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 
 /**
  * @author Kay
@@ -75,66 +85,98 @@ public class SongServiceImpl extends ServiceImpl<SongMapper, Song> implements IS
     @Resource
     private StringRedisTemplate stringRedisTemplate; // 注入Redis模板
     
-    // 线程池，用于异步更新缓存
-    private static final ExecutorService CACHE_REBUILD_EXECUTOR = Executors.newFixedThreadPool(10);
-
     private final SongMapper songMapper;
-    private final UserFavoriteMapper userFavoriteMapper;
     private final MinioService minioService;
     private final ArtistMapper artistMapper;
+    private final NearCache nearCache;
+    private final CacheTagIndex cacheTagIndex;
+    private final ChangeOutbox changeOutbox;
+    private final FavoriteSongCache favoriteSongCache;
+    private final CacheCodecRegistry cacheCodecRegistry;
+    private final CacheRebuildExecutor cacheRebuildExecutor;
+    private final IdBloomFilter idBloomFilter;
+    private final EarlyRefreshPolicy earlyRefreshPolicy;
+    private final CacheMetrics cacheMetrics;
+    private final CacheNamespaces cacheNamespaces;
+    private final SongEntityCache songEntityCache;
+    private final SongSearchEngineRegistry songSearchEngineRegistry;
+    private final LyricIndex lyricIndex;
+    private final CountCache countCache;
+    private final RandomSampler randomSampler;
+
+    /**
+     * 各个缓存中 data 的类型，解码时直接绑定到带泛型的类型
+     */
+    private static final Type SONG_ID_PAGE_TYPE = new TypeReference<PageResult<Long>>() {}.getType();
+    private static final Type SONG_ID_LIST_TYPE = new TypeReference<List<Long>>() {}.getType();
+    private static final Type SONG_ADMIN_PAGE_TYPE = new TypeReference<PageResult<SongAdminVO>>() {}.getType();
 
     /**
      * @Description: 游客版：只需要歌曲列表 + 默认 likeStatus = DEFAULT , 结果对所有“未登录用户”通用，可以全局缓存
+     *               不再叠加 @Cacheable，否则每次请求都会先走一次 songCache 的 Redis 读取，本地缓存就没有意义了
+     *               分页缓存只保存歌曲 id，歌曲本身从歌曲实体缓存组装
+     *               搜索引擎（search.engine）可用时直接由引擎分页，不再读取分页缓存，也不再用 LIKE 查询数据库；
+     *               fuzzy 为 true 时使用拼音、容错的模糊模式（仅 index 引擎支持）
      * @Author: Kay
      * @date:   2025/11/20 20:06
      */
-    @Cacheable(
-            key = "'guest:' + #songDTO.pageNum + '-' + #songDTO.pageSize + '-' + " +
-                    "#songDTO.songName + '-' + #songDTO.artistName + '-' + #songDTO.album",
-            unless = "#result == null"
-    )
+    @Override
     public Result<PageResult<SongVO>> getAllSongsForGuest(SongDTO songDTO) {
-                    // 从数据库查询数据
-                    // 下面是原来的查询逻辑
+        if (songDTO.getCursor() != null) {
+            return getSongsByCursor(songDTO);
+        }
+
+        PageResult<Long> indexed = songSearchEngineRegistry.search(songDTO.getSongName(), songDTO.getArtistName(),
+                songDTO.getAlbum(), songDTO.getPageNum(), songDTO.getPageSize(), Boolean.TRUE.equals(songDTO.getFuzzy()));
+        if (indexed != null) {
+            if (indexed.getItems().isEmpty()) {
+                return Result.success(MessageConstant.DATA_NOT_FOUND, new PageResult<>(0L, null));
+            }
+            PageResult<SongVO> result = assembleSongPage(indexed);
+            if (Boolean.FALSE.equals(songDTO.getWithTotal())) {
+                // 搜索引擎已经给出总数，按客户端的要求只返回是否还有下一页
+                result.setHasMore((long) songDTO.getPageNum() * songDTO.getPageSize() < result.getTotal());
+                result.setTotal(null);
+            }
+            return Result.success(result);
+        }
 
         // 使用与缓存穿透类似的方式实现逻辑过期
-        String cacheKey = RedisConstants.CACHE_SONG_KEY + "guest:" + 
+        String cacheKey = cacheNamespaces.key(CacheNamespaces.SONG_GUEST,
                 songDTO.getPageNum() + ":" + songDTO.getPageSize() + ":" +
-                songDTO.getSongName() + ":" + songDTO.getArtistName() + ":" + songDTO.getAlbum();
-                
+                songDTO.getSongName() + ":" + songDTO.getArtistName() + ":" + songDTO.getAlbum() + ":" +
+                songDTO.getWithTotal());
+
+        // 0. 先查本地缓存，不需要刷新直接返回
+        RedisData<PageResult<Long>> local = nearCache.get(cacheKey);
+        if (local != null && !earlyRefreshPolicy.shouldRefresh(local)) {
+            return Result.success(assembleSongPage(local.getData()));
+        }
+
         // 1. 从 Redis 查询缓存
-        String json = stringRedisTemplate.opsForValue().get(cacheKey);
+        byte[] bytes = cacheCodecRegistry.getBytes(cacheKey);
         
         // 2. 判断是否存在
-        if (StrUtil.isNotBlank(json)) {
-            // 2.1 存在，判断是否为空值
-            if (json.equals("")) {
-                return Result.success(MessageConstant.DATA_NOT_FOUND, new PageResult<>(0L, null));
-            }
-            
-            // 2.2 非空值，需要反序列化
+        if (bytes != null) {
+            // 2.1 存在，需要反序列化
             try {
-                RedisData redisData = JSONUtil.toBean(json, RedisData.class);
-                PageResult<SongVO> result = JSONUtil.toBean((JSONObject) redisData.getData(), PageResult.class);
+                // 按泛型解析，items 才是 Long 而不是 Integer
+                RedisData<PageResult<Long>> redisData = cacheCodecRegistry.decode(cacheKey, bytes, SONG_ID_PAGE_TYPE);
+                cacheMetrics.served(CacheMetrics.REDIS, cacheKey, redisData);
+                PageResult<Long> idPage = redisData.getData();
                 
-                // 判断是否过期
-                if (redisData.getExpireTime().isAfter(LocalDateTime.now())) {
-                    // 未过期，直接返回
-                    return Result.success(result);
+                // 判断是否需要刷新（已过期，或者快过期时按概率提前刷新）
+                if (!earlyRefreshPolicy.shouldRefresh(redisData)) {
+                    // 不需要，放入本地缓存后返回
+                    nearCache.put(cacheKey, redisData, bytes.length);
+                    return Result.success(assembleSongPage(idPage));
                 }
                 
-                // 已过期，异步重建缓存
-                CACHE_REBUILD_EXECUTOR.submit(() -> {
-                    try {
-                        // 从数据库重新查询
-                        queryFromDatabaseForGuest(songDTO, cacheKey);
-                    } catch (Exception e) {
-                        log.error("缓存重建异常", e);
-                    }
-                });
+                // 需要刷新，异步重建缓存（同一个 key 只会提交一次，队列满时丢弃，继续返回旧数据）
+                cacheRebuildExecutor.submit(cacheKey, () -> queryFromDatabaseForGuest(songDTO, cacheKey));
                 
-                // 返回过期的数据
-                return Result.success(result);
+                // 返回当前的数据（可能已过期）
+                return Result.success(assembleSongPage(idPage));
             } catch (Exception e) {
                 log.error("缓存数据解析异常", e);
             }
@@ -148,142 +190,120 @@ public class SongServiceImpl extends ServiceImpl<SongMapper, Song> implements IS
      * 从数据库查询游客歌曲列表并写入缓存
      */
     private Result<PageResult<SongVO>> queryFromDatabaseForGuest(SongDTO songDTO, String cacheKey) {
-        // 1. 查询歌曲列表（分页）
-        Page<SongVO> page = new Page<>(songDTO.getPageNum(), songDTO.getPageSize());
-        IPage<SongVO> songPage = songMapper.getSongsWithArtist(
+        long start = System.currentTimeMillis();
+        // 1. 查询歌曲列表（分页），总数优先取缓存，不要总数时不统计
+        CountCache.CountedPage<SongVO> page = countCache.page(CountCache.SONG,
+                CountCache.filter("guest", songDTO.getSongName(), songDTO.getArtistName(), songDTO.getAlbum()),
+                songDTO.getPageNum(), songDTO.getPageSize(), songDTO.getWithTotal());
+        songMapper.getSongsWithArtist(
                 page,
                 songDTO.getSongName(),
                 songDTO.getArtistName(),
                 songDTO.getAlbum()
         );
+        PageResult<SongVO> songPage = countCache.result(page);
         
         // 1.2 没有查到，返回空结果（也会被缓存，防止缓存穿透）
-        if (songPage.getRecords().isEmpty()) {
+        if (songPage.getItems().isEmpty()) {
             // 将空值写入Redis
             stringRedisTemplate.opsForValue().set(cacheKey, "", RedisConstants.CACHE_NULL_TTL, TimeUnit.MINUTES);
             return Result.success(MessageConstant.DATA_NOT_FOUND, new PageResult<>(0L, null));
         }
         
         // 2. 默认全部设置为 未点赞
-        List<SongVO> songVOList = songPage.getRecords().stream()
+        List<SongVO> songVOList = songPage.getItems().stream()
                 .peek(songVO -> songVO.setLikeStatus(LikeStatusEnum.DEFAULT.getId()))
                 .toList();
         
         PageResult<SongVO> result = new PageResult<>(songPage.getTotal(), songVOList);
+        result.setHasMore(songPage.getHasMore());
         
-        // 3. 将数据写入Redis，使用逻辑过期
-        setWithLogicalExpire(cacheKey, result);
+        // 3. 歌曲写入实体缓存，分页只保存 id，使用逻辑过期
+        songEntityCache.put(songVOList);
+        PageResult<Long> idPage = new PageResult<>(songPage.getTotal(), songVOList.stream().map(SongVO::getSongId).toList());
+        idPage.setHasMore(songPage.getHasMore());
+        setWithLogicalExpire(cacheKey, idPage, System.currentTimeMillis() - start);
         
         return Result.success(result);
     }
 
     /**
-     * @Description: 登录用户版：在游客基础上增加“喜欢状态” , 注意：这里的 key 一定要包含 userId，否则会串用户！
+     * 游标分页：按歌曲 id 升序，每页的开销与翻到第几页无关；游标不固定，不写分页缓存
+     */
+    private Result<PageResult<SongVO>> getSongsByCursor(SongDTO songDTO) {
+        PageCursor<Void> cursor = PageCursor.parse(songDTO.getCursor());
+        if (cursor == null) {
+            return Result.error(MessageConstant.CURSOR + MessageConstant.INVALID);
+        }
+        List<SongVO> songs = songMapper.getSongsWithArtistAfter(cursor.id(), songDTO.getPageSize() + 1,
+                songDTO.getSongName(), songDTO.getArtistName(), songDTO.getAlbum());
+        if (songs.isEmpty()) {
+            return Result.success(MessageConstant.DATA_NOT_FOUND, new PageResult<>(0L, null));
+        }
+        songs.forEach(songVO -> songVO.setLikeStatus(LikeStatusEnum.DEFAULT.getId()));
+        return Result.success(PageCursor.page(songs, songDTO.getPageSize(), songVO -> PageCursor.encode(null, songVO.getSongId())));
+    }
+
+    /**
+     * 按分页缓存中的歌曲 id 从实体缓存组装歌曲列表，喜欢状态默认为未点赞
+     */
+    private PageResult<SongVO> assembleSongPage(PageResult<Long> idPage) {
+        List<SongVO> songVOList = songEntityCache.getSongs(idPage.getItems());
+        songVOList.forEach(songVO -> songVO.setLikeStatus(LikeStatusEnum.DEFAULT.getId()));
+        PageResult<SongVO> result = new PageResult<>(idPage.getTotal(), songVOList);
+        result.setHasMore(idPage.getHasMore());
+        return result;
+    }
+
+    /**
+     * @Description: 登录用户版：复用游客版的共享分页缓存，返回前再根据用户的收藏集合叠加“喜欢状态”
+     *               缓存不再按 userId 区分，缓存大小和数据库压力只和歌曲数量有关
      * @Author: Kay
      * @date:   2025/11/20 20:07
      */
     @Override
-    @Cacheable(
-            key = "'user:' + #userId + '-' + #songDTO.pageNum + '-' + #songDTO.pageSize + '-' + " +
-                    "#songDTO.songName + '-' + #songDTO.artistName + '-' + #songDTO.album",
-            unless = "#result == null"
-    )
     public Result<PageResult<SongVO>> getAllSongsForUser(SongDTO songDTO, Long userId) {
-        // 使用逻辑过期方式从缓存获取
-        String cacheKey = RedisConstants.CACHE_SONG_KEY + "user:" + userId + ":" + 
-                songDTO.getPageNum() + ":" + songDTO.getPageSize() + ":" +
-                songDTO.getSongName() + ":" + songDTO.getArtistName() + ":" + songDTO.getAlbum();
-                
-        String json = stringRedisTemplate.opsForValue().get(cacheKey);
-        
-        // 2. 判断是否存在
-        if (StrUtil.isNotBlank(json)) {
-            // 2.1 存在，判断是否为空值
-            if (json.equals("")) {
-                return Result.success(MessageConstant.DATA_NOT_FOUND, new PageResult<>(0L, null));
-            }
-            
-            // 2.2 非空值，需要反序列化
-            try {
-                RedisData redisData = JSONUtil.toBean(json, RedisData.class);
-                PageResult<SongVO> result = JSONUtil.toBean((JSONObject) redisData.getData(), PageResult.class);
-                
-                // 判断是否过期
-                if (redisData.getExpireTime().isAfter(LocalDateTime.now())) {
-                    // 未过期，直接返回
-                    return Result.success(result);
-                }
-                
-                // 已过期，异步重建缓存
-                CACHE_REBUILD_EXECUTOR.submit(() -> {
-                    try {
-                        // 从数据库重新查询
-                        queryFromDatabaseForUser(songDTO, userId, cacheKey);
-                    } catch (Exception e) {
-                        log.error("缓存重建异常", e);
-                    }
-                });
-                
-                // 返回过期的数据
-                return Result.success(result);
-            } catch (Exception e) {
-                log.error("缓存数据解析异常", e);
-            }
+        Result<PageResult<SongVO>> shared = getAllSongsForGuest(songDTO);
+        PageResult<SongVO> page = shared.getData();
+        if (page == null || page.getItems() == null || page.getItems().isEmpty()) {
+            return shared;
         }
-        
-        // 3. 缓存未命中，从数据库查询
-        return queryFromDatabaseForUser(songDTO, userId, cacheKey);
+
+        // 游客版返回的已经是从实体缓存组装出的副本，可以直接设置喜欢状态
+        applyLikeStatus(page.getItems(), userId);
+
+        return shared;
     }
-    
+
     /**
-     * 从数据库查询用户歌曲列表并写入缓存
+     * 根据用户的收藏集合设置喜欢状态
      */
-    private Result<PageResult<SongVO>> queryFromDatabaseForUser(SongDTO songDTO, Long userId, String cacheKey) {
-                    // 从数据库查询数据
-                    // 下面是原来的查询逻辑
-
-        Page<SongVO> page = new Page<>(songDTO.getPageNum(), songDTO.getPageSize());
-        IPage<SongVO> songPage = songMapper.getSongsWithArtist(
-                page,
-                songDTO.getSongName(),
-                songDTO.getArtistName(),
-                songDTO.getAlbum()
-        );
+    private void applyLikeStatus(List<SongVO> songVOList, Long userId) {
+        // 找到自己点赞了的歌曲 id
+        Set<Long> favoriteSongIds = favoriteSongCache.filterFavorites(userId,
+                songVOList.stream().map(SongVO::getSongId).toList());
+        songVOList.forEach(songVO -> songVO.setLikeStatus(favoriteSongIds.contains(songVO.getSongId())
+                ? LikeStatusEnum.LIKE.getId()
+                : LikeStatusEnum.DEFAULT.getId()));
+    }
 
-        if (songPage.getRecords().isEmpty()) {
-            // 没有查到结果，返回空结果（也会被缓存，防止缓存穿透）
-            stringRedisTemplate.opsForValue().set(cacheKey, "", RedisConstants.CACHE_NULL_TTL, TimeUnit.MINUTES);
+    /**
+     * @Description: 歌词搜索：按记得的一句歌词做短语匹配，由进程内的歌词倒排索引分页，歌曲从实体缓存组装
+     *               登录用户再叠加“喜欢状态”；索引未启用或未构建完成时返回空结果，不对歌词做 LIKE 查询
+     * @Author: Kay
+     * @date:   2026/10/18 23:57
+     */
+    @Override
+    public Result<PageResult<SongVO>> searchLyric(LyricSearchDTO lyricSearchDTO, Long userId) {
+        PageResult<Long> idPage = lyricIndex.search(lyricSearchDTO.getKeyword(),
+                lyricSearchDTO.getPageNum(), lyricSearchDTO.getPageSize());
+        if (idPage == null || idPage.getItems().isEmpty()) {
             return Result.success(MessageConstant.DATA_NOT_FOUND, new PageResult<>(0L, null));
         }
-        
-        // 2. 默认全部设置为 未点赞
-        List<SongVO> songVOList = songPage.getRecords().stream()
-                .peek(songVO -> songVO.setLikeStatus(LikeStatusEnum.DEFAULT.getId()))
-                .toList();
-                
-        // 3. 获取用户收藏的歌曲
-        List<UserFavorite> favoriteSongs = userFavoriteMapper.selectList(
-                new LambdaQueryWrapper<UserFavorite>()
-                        .eq(UserFavorite::getUserId, userId)
-                        .eq(UserFavorite::getType, 0)
-        );
-        
-        // 4. 找到自己点赞了的故去id
-        Set<Long> favoriteSongIds = favoriteSongs.stream()
-                .map(UserFavorite::getSongId)
-                .collect(Collectors.toSet());
-
-        for (SongVO songVO : songVOList) {
-            if (favoriteSongIds.contains(songVO.getSongId())) {
-                songVO.setLikeStatus(LikeStatusEnum.LIKE.getId());
-            }
+        PageResult<SongVO> result = assembleSongPage(idPage);
+        if (userId != null) {
+            applyLikeStatus(result.getItems(), userId);
         }
-        
-        PageResult<SongVO> result = new PageResult<>(songPage.getTotal(), songVOList);
-        
-        // 5. 将数据写入Redis，使用逻辑过期
-        setWithLogicalExpire(cacheKey, result);
-        
         return Result.success(result);
     }
 
@@ -294,44 +314,39 @@ public class SongServiceImpl extends ServiceImpl<SongMapper, Song> implements IS
      */
     // TODO: 推荐方式需要修改，当前为随机推荐，后续可以基于用户行为、协同过滤等方式实现个性化推荐
     @Override
-    @Cacheable(key = "'recommended'", unless = "#result == null")
     public Result<List<SongVO>> getRecommendedSongs() {
         // 使用逻辑过期方式从缓存获取
-        String cacheKey = RedisConstants.CACHE_SONG_KEY + "recommended";
+        String cacheKey = cacheNamespaces.key(CacheNamespaces.SONG_RECOMMENDED, null);
+
+        // 0. 先查本地缓存，不需要刷新直接返回
+        RedisData<List<Long>> local = nearCache.get(cacheKey);
+        if (local != null && !earlyRefreshPolicy.shouldRefresh(local)) {
+            return Result.success(songEntityCache.getSongs(local.getData()));
+        }
         
         // 1. 从 Redis 查询缓存
-        String json = stringRedisTemplate.opsForValue().get(cacheKey);
+        byte[] bytes = cacheCodecRegistry.getBytes(cacheKey);
         
         // 2. 判断是否存在
-        if (StrUtil.isNotBlank(json)) {
-            // 2.1 存在，判断是否为空值
-            if (json.equals("")) {
-                return Result.success(MessageConstant.DATA_NOT_FOUND, null);
-            }
-            
-            // 2.2 非空值，需要反序列化
+        if (bytes != null) {
+            // 2.1 存在，需要反序列化
             try {
-                RedisData redisData = JSONUtil.toBean(json, RedisData.class);
-                List<SongVO> result = JSONUtil.toBean((JSONObject) redisData.getData(), List.class);
+                RedisData<List<Long>> redisData = cacheCodecRegistry.decode(cacheKey, bytes, SONG_ID_LIST_TYPE);
+                cacheMetrics.served(CacheMetrics.REDIS, cacheKey, redisData);
+                List<Long> songIds = redisData.getData();
                 
-                // 判断是否过期
-                if (redisData.getExpireTime().isAfter(LocalDateTime.now())) {
-                    // 未过期，直接返回
-                    return Result.success(result);
+                // 判断是否需要刷新（已过期，或者快过期时按概率提前刷新）
+                if (!earlyRefreshPolicy.shouldRefresh(redisData)) {
+                    // 不需要，放入本地缓存后返回
+                    nearCache.put(cacheKey, redisData, bytes.length);
+                    return Result.success(songEntityCache.getSongs(songIds));
                 }
                 
-                // 已过期，异步重建缓存
-                CACHE_REBUILD_EXECUTOR.submit(() -> {
-                    try {
-                        // 从数据库重新查询
-                        queryRecommendedSongsFromDb(cacheKey);
-                    } catch (Exception e) {
-                        log.error("缓存重建异常", e);
-                    }
-                });
+                // 需要刷新，异步重建缓存（同一个 key 只会提交一次，队列满时丢弃，继续返回旧数据）
+                cacheRebuildExecutor.submit(cacheKey, () -> queryRecommendedSongsFromDb(cacheKey));
                 
-                // 返回过期的数据
-                return Result.success(result);
+                // 返回当前的数据（可能已过期）
+                return Result.success(songEntityCache.getSongs(songIds));
             } catch (Exception e) {
                 log.error("缓存数据解析异常", e);
             }
@@ -345,16 +360,19 @@ public class SongServiceImpl extends ServiceImpl<SongMapper, Song> implements IS
      * 从数据库查询推荐歌曲并写入缓存
      */
     private Result<List<SongVO>> queryRecommendedSongsFromDb(String cacheKey) {
-        // 目前简化为随机推荐
-        List<SongVO> recommendedSongs = songMapper.getRandomSongsWithArtist();
+        long start = System.currentTimeMillis();
+        // 目前简化为随机推荐：从随机推荐 id 池中抽取，按主键读取（经过歌曲实体缓存）
+        List<SongVO> recommendedSongs = randomSampler.sample(RandomSampler.SONG, 20,
+                songEntityCache::getSongs, SongVO::getSongId);
         if (recommendedSongs == null || recommendedSongs.isEmpty()) {
             // 将空值写入Redis
             stringRedisTemplate.opsForValue().set(cacheKey, "", RedisConstants.CACHE_NULL_TTL, TimeUnit.MINUTES);
             return Result.success(MessageConstant.DATA_NOT_FOUND, null);
         }
         
-        // 将结果写入Redis，使用逻辑过期
-        setWithLogicalExpire(cacheKey, recommendedSongs);
+        // 歌曲已由 getSongs 写入实体缓存，推荐列表只保存 id，使用逻辑过期
+        setWithLogicalExpire(cacheKey, recommendedSongs.stream().map(SongVO::getSongId).toList(),
+                System.currentTimeMillis() - start);
         
         return Result.success(recommendedSongs);
     }
@@ -368,72 +386,74 @@ public class SongServiceImpl extends ServiceImpl<SongMapper, Song> implements IS
     @Override
     // 不再使用Spring的缓存注解，而是手动实现逻辑过期机制
     public Result<SongDetailVO> getSongDetail(Long songId, HttpServletRequest request) {
+        // 布隆过滤器判断不存在的 id 直接返回，不访问 Redis 和数据库
+        if (!idBloomFilter.mightContainSong(songId)) {
+            return Result.error(MessageConstant.SONG + MessageConstant.NOT_FOUND, null);
+        }
+
         String key = RedisConstants.CACHE_SONG_KEY + songId;
+
+        // 0. 先查本地缓存，不需要刷新直接返回（喜欢状态在副本上设置，不能改共享对象）
+        RedisData<SongDetailVO> local = nearCache.get(key);
+        if (local != null && !earlyRefreshPolicy.shouldRefresh(local)) {
+            return Result.success(withLikeStatus(local.getData(), songId));
+        }
         
         // 1. 从 Redis 查询缓存
-        String json = stringRedisTemplate.opsForValue().get(key);
+        byte[] bytes = cacheCodecRegistry.getBytes(key);
         
         // 2. 判断是否存在
-        if (StrUtil.isBlank(json)) {
+        if (bytes == null) {
             // 3. 不存在，直接从数据库查询
             return queryWithPassThrough(songId, request);
         }
         
-        // 4. 存在，判断是否为空值
-        if (json.equals("")) {
-            // 返回错误信息
-            return Result.error(MessageConstant.SONG + MessageConstant.NOT_FOUND, null);
+        // 4. 存在，需要反序列化为对象；数据损坏或编解码器不认识时与分页一样按未命中处理
+        RedisData<SongDetailVO> redisData;
+        try {
+            redisData = cacheCodecRegistry.decode(key, bytes, SongDetailVO.class);
+        } catch (Exception e) {
+            log.error("缓存数据解析异常", e);
+            return queryWithPassThrough(songId, request);
         }
+        cacheMetrics.served(CacheMetrics.REDIS, key, redisData);
+        SongDetailVO songDetailVO = redisData.getData();
         
-        // 5. 并非空值，需要反序列化为对象
-        RedisData redisData = JSONUtil.toBean(json, RedisData.class);
-        SongDetailVO songDetailVO = JSONUtil.toBean((JSONObject) redisData.getData(), SongDetailVO.class);
-        LocalDateTime expireTime = redisData.getExpireTime();
-        
-        // 6. 判断是否过期
-        if (expireTime.isAfter(LocalDateTime.now())) {
-            // 6.1 未过期，直接返回
-            return Result.success(songDetailVO);
+        // 5. 判断是否需要刷新（已过期，或者快过期时按概率提前刷新）
+        if (!earlyRefreshPolicy.shouldRefresh(redisData)) {
+            // 5.1 不需要，放入本地缓存后返回
+            nearCache.put(key, redisData, bytes.length);
+            return Result.success(withLikeStatus(songDetailVO, songId));
         }
         
-        // 7. 已过期，需要缓存重建
+        // 7. 需要刷新，缓存重建
         // 7.1 获取互斥锁
         String lockKey = RedisConstants.LOCK_KEY + key;
         boolean isLock = tryLock(lockKey);
         
         // 7.2 判断是否获取锁成功
         if (isLock) {
-            // 7.3 成功，开启独立线程，实现缓存重建
-            CACHE_REBUILD_EXECUTOR.submit(() -> {
+            // 7.3 成功，交给重建线程池，实现缓存重建
+            boolean submitted = cacheRebuildExecutor.submit(key, () -> {
                 try {
                     // 查询数据库
+                    long start = System.currentTimeMillis();
                     SongDetailVO newSongDetailVO = getFromDatabase(songId);
                     // 重建缓存
-                    setWithLogicalExpire(key, newSongDetailVO);
-                } catch (Exception e) {
-                    log.error("缓存重建异常", e);
+                    setSongDetail(key, newSongDetailVO, System.currentTimeMillis() - start);
                 } finally {
                     // 释放锁
                     unlock(lockKey);
                 }
             });
-        }
-
-        // 8. 返回缓存中的数据（包括过期数据）
-        // 如果用户登录了，还需要设置喜欢状态
-        Long userId = ThreadLocalUtil.getUserId();
-        if (userId != null) {
-            // 获取用户收藏的歌曲
-            UserFavorite favoriteSong = userFavoriteMapper.selectOne(new LambdaQueryWrapper<UserFavorite>()
-                    .eq(UserFavorite::getUserId, userId)
-                    .eq(UserFavorite::getType, 0)
-                    .eq(UserFavorite::getSongId, songId));
-            if (favoriteSong != null) {
-                songDetailVO.setLikeStatus(LikeStatusEnum.LIKE.getId());
+            if (!submitted) {
+                // 任务被丢弃，立即释放锁，下次读取再尝试
+                unlock(lockKey);
             }
         }
-        
-        return Result.success(songDetailVO);
+
+        // 8. 返回缓存中的数据（可能已过期）
+        return Result.success(withLikeStatus(songDetailVO, songId));
     }
     
     /**
@@ -442,6 +462,7 @@ public class SongServiceImpl extends ServiceImpl<SongMapper, Song> implements IS
     private Result<SongDetailVO> queryWithPassThrough(Long songId, HttpServletRequest request) {
         String key = RedisConstants.CACHE_SONG_KEY + songId;
         // 从数据库查询
+        long start = System.currentTimeMillis();
         SongDetailVO songDetailVO = getFromDatabase(songId);
         
         // 如果数据库中也不存在
@@ -451,22 +472,27 @@ public class SongServiceImpl extends ServiceImpl<SongMapper, Song> implements IS
             return Result.error(MessageConstant.SONG + MessageConstant.NOT_FOUND, null);
         }
         
+        // 将数据写入Redis，使用逻辑过期（缓存的是与用户无关的数据）
+        setSongDetail(key, songDetailVO, System.currentTimeMillis() - start);
+        
         // 添加用户收藏状态
+        return Result.success(withLikeStatus(songDetailVO, songId));
+    }
+
+    /**
+     * 复制一份歌曲详情，并根据当前登录用户设置喜欢状态
+     * 缓存中的对象是所有用户共享的，不能直接修改
+     */
+    private SongDetailVO withLikeStatus(SongDetailVO cached, Long songId) {
+        SongDetailVO songDetailVO = new SongDetailVO();
+        BeanUtils.copyProperties(cached, songDetailVO);
+        songDetailVO.setLikeStatus(LikeStatusEnum.DEFAULT.getId());
+
         Long userId = ThreadLocalUtil.getUserId();
-        if (userId != null) {
-            UserFavorite favoriteSong = userFavoriteMapper.selectOne(new LambdaQueryWrapper<UserFavorite>()
-                    .eq(UserFavorite::getUserId, userId)
-                    .eq(UserFavorite::getType, 0)
-                    .eq(UserFavorite::getSongId, songId));
-            if (favoriteSong != null) {
-                songDetailVO.setLikeStatus(LikeStatusEnum.LIKE.getId());
-            }
+        if (userId != null && favoriteSongCache.isFavorite(userId, songId)) {
+            songDetailVO.setLikeStatus(LikeStatusEnum.LIKE.getId());
         }
-        
-        // 将数据写入Redis，使用逻辑过期
-        setWithLogicalExpire(key, songDetailVO);
-        
-        return Result.success(songDetailVO);
+        return songDetailVO;
     }
 
     /**
@@ -476,54 +502,48 @@ public class SongServiceImpl extends ServiceImpl<SongMapper, Song> implements IS
      */
     @Override
     public Result<Long> getAllSongsCount() {
-        return Result.success(songMapper.selectCount(null));
+        return Result.success(countCache.count(CountCache.SONG, null, () -> songMapper.selectCount(null)));
     }
 
     /**
      * @Description: 获取歌手的所有歌曲
+     *               页码分页由下面的逻辑过期缓存负责，不再叠加 @Cacheable（同 getAllSongsForGuest）；
+     *               游标分页不缓存，每一页的开销本来就与翻到第几页无关
      * @Author: Kay
      * @date:   2025/11/21 21:36
      */
     @Override
-    @Cacheable(key = "'artist-songs:' + #songDTO.pageNum + '-' + #songDTO.pageSize + '-' + #songDTO.songName + '-' + #songDTO.album + '-' + #songDTO.artistId", unless = "#result == null")
     public Result<PageResult<SongAdminVO>> getAllSongsByArtist(SongAndArtistDTO songDTO) {
+        if (songDTO.getCursor() != null) {
+            return getSongsByArtistAndCursor(songDTO);
+        }
+
         // 使用逻辑过期方式从缓存获取
-        String cacheKey = RedisConstants.CACHE_SONG_KEY + "artist:" + songDTO.getArtistId() + ":" + 
+        String cacheKey = cacheNamespaces.key(CacheNamespaces.songsOfArtist(songDTO.getArtistId()),
                 songDTO.getPageNum() + ":" + songDTO.getPageSize() + ":" +
-                songDTO.getSongName() + ":" + songDTO.getAlbum();
+                songDTO.getSongName() + ":" + songDTO.getAlbum() + ":" + songDTO.getWithTotal());
                 
         // 1. 从 Redis 查询缓存
-        String json = stringRedisTemplate.opsForValue().get(cacheKey);
+        byte[] bytes = cacheCodecRegistry.getBytes(cacheKey);
         
         // 2. 判断是否存在
-        if (StrUtil.isNotBlank(json)) {
-            // 2.1 存在，判断是否为空值
-            if (json.equals("")) {
-                return Result.success(MessageConstant.DATA_NOT_FOUND, new PageResult<>(0L, null));
-            }
-            
-            // 2.2 非空值，需要反序列化
+        if (bytes != null) {
+            // 2.1 存在，需要反序列化
             try {
-                RedisData redisData = JSONUtil.toBean(json, RedisData.class);
-                PageResult<SongAdminVO> result = JSONUtil.toBean((JSONObject) redisData.getData(), PageResult.class);
+                RedisData<PageResult<SongAdminVO>> redisData = cacheCodecRegistry.decode(cacheKey, bytes, SONG_ADMIN_PAGE_TYPE);
+                cacheMetrics.served(CacheMetrics.REDIS, cacheKey, redisData);
+                PageResult<SongAdminVO> result = redisData.getData();
                 
-                // 判断是否过期
-                if (redisData.getExpireTime().isAfter(LocalDateTime.now())) {
-                    // 未过期，直接返回
+                // 判断是否需要刷新（已过期，或者快过期时按概率提前刷新）
+                if (!earlyRefreshPolicy.shouldRefresh(redisData)) {
+                    // 不需要，直接返回
                     return Result.success(result);
                 }
                 
-                // 已过期，异步重建缓存
-                CACHE_REBUILD_EXECUTOR.submit(() -> {
-                    try {
-                        // 从数据库重新查询
-                        querySongsByArtistFromDb(songDTO, cacheKey);
-                    } catch (Exception e) {
-                        log.error("缓存重建异常", e);
-                    }
-                });
+                // 需要刷新，异步重建缓存（同一个 key 只会提交一次，队列满时丢弃，继续返回旧数据）
+                cacheRebuildExecutor.submit(cacheKey, () -> querySongsByArtistFromDb(songDTO, cacheKey));
                 
-                // 返回过期的数据
+                // 返回当前的数据（可能已过期）
                 return Result.success(result);
             } catch (Exception e) {
                 log.error("缓存数据解析异常", e);
@@ -534,24 +554,43 @@ public class SongServiceImpl extends ServiceImpl<SongMapper, Song> implements IS
         return querySongsByArtistFromDb(songDTO, cacheKey);
     }
     
+    /**
+     * 游标分页：按发行时间、id 倒序，走 (artist_id, release_time, id) 联合索引，每页的开销与翻到第几页无关
+     */
+    private Result<PageResult<SongAdminVO>> getSongsByArtistAndCursor(SongAndArtistDTO songDTO) {
+        PageCursor<LocalDate> cursor = PageCursor.parse(songDTO.getCursor(), LocalDate::parse);
+        if (cursor == null) {
+            return Result.error(MessageConstant.CURSOR + MessageConstant.INVALID);
+        }
+        List<SongAdminVO> songs = songMapper.getSongsWithArtistNameAfter(songDTO.getArtistId(), songDTO.getSongName(),
+                songDTO.getAlbum(), cursor.key(), cursor.id(), songDTO.getPageSize() + 1);
+        if (songs.isEmpty()) {
+            return Result.success(MessageConstant.DATA_NOT_FOUND, new PageResult<>(0L, null));
+        }
+        return Result.success(PageCursor.page(songs, songDTO.getPageSize(),
+                song -> PageCursor.encode(song.getReleaseTime(), song.getSongId())));
+    }
+
     /**
      * 从数据库查询艺术家歌曲并写入缓存
      */
     private Result<PageResult<SongAdminVO>> querySongsByArtistFromDb(SongAndArtistDTO songDTO, String cacheKey) {
-        // 分页查询
-        Page<SongAdminVO> page = new Page<>(songDTO.getPageNum(), songDTO.getPageSize());
-        IPage<SongAdminVO> songPage = songMapper.getSongsWithArtistName(page, songDTO.getArtistId(), songDTO.getSongName(), songDTO.getAlbum());
-
-        if (songPage.getRecords().isEmpty()) {
+        long start = System.currentTimeMillis();
+        // 分页查询，总数优先取缓存，不要总数时不统计
+        CountCache.CountedPage<SongAdminVO> page = countCache.page(CountCache.SONG,
+                CountCache.filter("artist", songDTO.getArtistId(), songDTO.getSongName(), songDTO.getAlbum()),
+                songDTO.getPageNum(), songDTO.getPageSize(), songDTO.getWithTotal());
+        songMapper.getSongsWithArtistName(page, songDTO.getArtistId(), songDTO.getSongName(), songDTO.getAlbum());
+        PageResult<SongAdminVO> result = countCache.result(page);
+
+        if (result.getItems().isEmpty()) {
             // 缓存空结果，防止缓存穿透
             stringRedisTemplate.opsForValue().set(cacheKey, "", RedisConstants.CACHE_NULL_TTL, TimeUnit.MINUTES);
             return Result.success(MessageConstant.DATA_NOT_FOUND, new PageResult<>(0L, null));
         }
         
-        PageResult<SongAdminVO> result = new PageResult<>(songPage.getTotal(), songPage.getRecords());
-        
-        // 将结果存入Redis，使用逻辑过期
-        setWithLogicalExpire(cacheKey, result);
+        // 将结果存入Redis，使用逻辑过期（key 带该歌手命名空间的版本号，歌手的歌曲变化时整体失效）
+        setWithLogicalExpire(cacheKey, result, System.currentTimeMillis() - start);
         
         return Result.success(result);
     }
@@ -561,8 +600,8 @@ public class SongServiceImpl extends ServiceImpl<SongMapper, Song> implements IS
      * @Author: Kay
      * @date:   2025/11/21 21:41
      */
+    @Transactional
     @Override
-    @CacheEvict(cacheNames = "songCache", allEntries = true)
     public Result addSong(SongAddDTO songAddDTO) {
         Song song = new Song();
         BeanUtils.copyProperties(songAddDTO, song);
@@ -571,6 +610,10 @@ public class SongServiceImpl extends ServiceImpl<SongMapper, Song> implements IS
         if (songMapper.insert(song) == 0) {
             return Result.error(MessageConstant.ADD + MessageConstant.FAILED);
         }
+        idBloomFilter.add(IdBloomFilter.SONG, song.getSongId());
+        // 新歌会出现在歌曲列表和该歌手的歌曲中
+        changeOutbox.record(CacheTagIndex.SONG_LIST, CacheTagIndex.artist(songAddDTO.getArtistId()));
+        countCache.increment(CountCache.SONG, 1);
         // 获取刚插入的歌曲记录
         Song songInDB = songMapper.selectOne(new LambdaQueryWrapper<Song>()
                 .eq(Song::getArtistId, songAddDTO.getArtistId())
@@ -591,8 +634,8 @@ public class SongServiceImpl extends ServiceImpl<SongMapper, Song> implements IS
      * @Author: Kay
      * @date:   2025/11/21 21:48
      */
+    @Transactional
     @Override
-    @CacheEvict(cacheNames = "songCache", allEntries = true)
     public Result updateSong(SongUpdateDTO songUpdateDTO) {
 
         // 查询数据库中是否存在该歌曲
@@ -608,6 +651,11 @@ public class SongServiceImpl extends ServiceImpl<SongMapper, Song> implements IS
             return Result.error(MessageConstant.UPDATE + MessageConstant.FAILED);
         }
 
+        // 歌名、专辑、歌手都可能变化，搜索结果和新旧歌手的歌曲列表都要失效；没有修改歌手时 artistId 为空，仍是原来的歌手
+        Long artistId = song.getArtistId() != null ? song.getArtistId() : songInDB.getArtistId();
+        changeOutbox.record(CacheTagIndex.song(songInDB.getSongId()), CacheTagIndex.SONG_LIST,
+                CacheTagIndex.artist(songInDB.getArtistId()), CacheTagIndex.artist(artistId));
+
         return Result.success(MessageConstant.UPDATE + MessageConstant.SUCCESS);
     }
 
@@ -616,8 +664,8 @@ public class SongServiceImpl extends ServiceImpl<SongMapper, Song> implements IS
      * @Author: Kay
      * @date:   2025/11/22 15:01
      */
+    @Transactional
     @Override
-    @CacheEvict(cacheNames = "songCache", allEntries = true)
     public Result updateSongCover(Long songId, String coverUrl) {
         Song song = songMapper.selectById(songId);
         String cover = song.getCoverUrl();
@@ -630,6 +678,9 @@ public class SongServiceImpl extends ServiceImpl<SongMapper, Song> implements IS
             return Result.error(MessageConstant.UPDATE + MessageConstant.FAILED);
         }
 
+        // 歌手的歌曲列表里也有封面
+        changeOutbox.record(CacheTagIndex.song(songId), CacheTagIndex.artist(song.getArtistId()));
+
         return Result.success(MessageConstant.UPDATE + MessageConstant.SUCCESS);
     }
 
@@ -638,8 +689,8 @@ public class SongServiceImpl extends ServiceImpl<SongMapper, Song> implements IS
      * @Author: Kay
      * @date:   2025/11/22 15:02
      */
+    @Transactional
     @Override
-    @CacheEvict(cacheNames = "songCache", allEntries = true)
     public Result updateSongAudio(Long songId, String audioUrl, String duration) {
         Song song = songMapper.selectById(songId);
         String audio = song.getAudioUrl();
@@ -652,6 +703,9 @@ public class SongServiceImpl extends ServiceImpl<SongMapper, Song> implements IS
             return Result.error(MessageConstant.UPDATE + MessageConstant.FAILED);
         }
 
+        // 歌手的歌曲列表里也有时长
+        changeOutbox.record(CacheTagIndex.song(songId), CacheTagIndex.artist(song.getArtistId()));
+
         return Result.success(MessageConstant.UPDATE + MessageConstant.SUCCESS);
     }
 
@@ -660,8 +714,8 @@ public class SongServiceImpl extends ServiceImpl<SongMapper, Song> implements IS
      * @Author: Kay
      * @date:   2025/11/22 15:04
      */
+    @Transactional
     @Override
-    @CacheEvict(cacheNames = "songCache", allEntries = true)
     public Result deleteSong(Long songId) {
         Song song = songMapper.selectById(songId);
         if (song == null) {
@@ -681,6 +735,11 @@ public class SongServiceImpl extends ServiceImpl<SongMapper, Song> implements IS
             return Result.error(MessageConstant.DELETE + MessageConstant.FAILED);
         }
 
+        // 删除后列表的总数和分页都会变化
+        changeOutbox.record(CacheTagIndex.song(songId), CacheTagIndex.SONG_LIST, CacheTagIndex.artist(song.getArtistId()));
+        countCache.increment(CountCache.SONG, -1);
+        idBloomFilter.removed(IdBloomFilter.SONG);
+
         return Result.success(MessageConstant.DELETE + MessageConstant.SUCCESS);
     }
 
@@ -689,8 +748,8 @@ public class SongServiceImpl extends ServiceImpl<SongMapper, Song> implements IS
      * @Author: Kay
      * @date:   2025/11/22 15:05
      */
+    @Transactional
     @Override
-    @CacheEvict(cacheNames = "songCache", allEntries = true)
     public Result deleteSongs(List<Long> songIds) {
         // 1. 查询歌曲信息，获取歌曲封面 URL 列表
         List<Song> songs = songMapper.selectByIds(songIds);
@@ -712,34 +771,55 @@ public class SongServiceImpl extends ServiceImpl<SongMapper, Song> implements IS
         }
 
         // 3. 删除数据库中的歌曲信息
-        if (songMapper.deleteByIds(songIds) == 0) {
+        int deleted = songMapper.deleteByIds(songIds);
+        if (deleted == 0) {
             return Result.error(MessageConstant.DELETE + MessageConstant.FAILED);
         }
+        countCache.increment(CountCache.SONG, -deleted);
+
+        // 4. 失效包含这些歌曲的缓存
+        List<String> tags = new ArrayList<>();
+        tags.add(CacheTagIndex.SONG_LIST);
+        songs.forEach(song -> {
+            tags.add(CacheTagIndex.song(song.getSongId()));
+            tags.add(CacheTagIndex.artist(song.getArtistId()));
+        });
+        changeOutbox.record(tags);
+        idBloomFilter.removed(IdBloomFilter.SONG);
 
         return Result.success(MessageConstant.DELETE + MessageConstant.SUCCESS);
     }
 
+    @Transactional
     @Override
-    @CacheEvict(cacheNames = {"songCache", "artistCache"}, allEntries = true)
     public Result addSongByFile(MultipartFile audio) {
         if (audio.isEmpty()) {
             return Result.error("上传的文件为空");
         }
-        addSongByFileFunction(audio);
+        Long artistId = addSongByFileFunction(audio);
+        // 可能新建了歌手
+        changeOutbox.record(CacheTagIndex.SONG_LIST, CacheTagIndex.ARTIST_LIST, CacheTagIndex.artist(artistId));
         return Result.success("文件处理成功，信息已输出");
     }
 
+    @Transactional
     @Override
-    @CacheEvict(cacheNames = {"songCache", "artistCache"}, allEntries = true)
     public Result batchAddSongByFile(MultipartFile[] audios) {
+        List<String> tags = new ArrayList<>(List.of(CacheTagIndex.SONG_LIST, CacheTagIndex.ARTIST_LIST));
         for (MultipartFile audio : audios) {
-            addSongByFileFunction(audio);
+            tags.add(CacheTagIndex.artist(addSongByFileFunction(audio)));
         }
+        changeOutbox.record(tags);
         // 返回操作成功的结果
         return Result.success("文件处理成功，信息已输出");
     }
 
-    private void addSongByFileFunction(MultipartFile audio){
+    /**
+     * 解析音频文件并插入歌曲
+     * @return 歌曲所属歌手的 id，未插入时返回 null
+     */
+    private Long addSongByFileFunction(MultipartFile audio){
+        Long artistId = null;
         try {
 
             String audioUrl = minioService.uploadFile(audio, "songs");
@@ -747,7 +827,7 @@ public class SongServiceImpl extends ServiceImpl<SongMapper, Song> implements IS
             // 获取上传文件的原始文件名
             String originalFilename = audio.getOriginalFilename();
             if (originalFilename == null || originalFilename.isEmpty()) {
-                return;
+                return null;
                 // return Result.error("文件名为空");
             }
 
@@ -755,7 +835,7 @@ public class SongServiceImpl extends ServiceImpl<SongMapper, Song> implements IS
             String extension = originalFilename.substring(originalFilename.lastIndexOf("."));
             if (!extension.equalsIgnoreCase(".mp3") && !extension.equalsIgnoreCase(".flac") && !extension.equalsIgnoreCase(".wav")) {
                 // return Result.error("不支持的文件格式");
-                return;
+                return null;
             }
 
             // 1. 创建临时文件并添加正确的扩展名
@@ -798,7 +878,6 @@ public class SongServiceImpl extends ServiceImpl<SongMapper, Song> implements IS
                 // 1. 查找有无歌手信息 ， 获取 歌手 id
                 Artist artist = artistMapper.selectOne(new LambdaQueryWrapper<Artist>().eq(Artist::getArtistName, artistName));
                 // 1.1 有则 获取 id
-                Long artistId;
                 if ( artist != null ) {
                     artistId = artist.getArtistId();
                 } else {
@@ -806,6 +885,8 @@ public class SongServiceImpl extends ServiceImpl<SongMapper, Song> implements IS
                     Artist newArtist = new Artist().setArtistName(artistName);
                     artistMapper.insert(newArtist);
                     artistId = newArtist.getArtistId();
+                    idBloomFilter.add(IdBloomFilter.ARTIST, artistId);
+                    countCache.increment(CountCache.ARTIST, 1);
                 }
 
                 // 2. 组装已有信息
@@ -819,6 +900,8 @@ public class SongServiceImpl extends ServiceImpl<SongMapper, Song> implements IS
 
                 // 3. 插入信息
                 songMapper.insert(song);
+                idBloomFilter.add(IdBloomFilter.SONG, song.getSongId());
+                countCache.increment(CountCache.SONG, 1);
 
 
 
@@ -835,6 +918,7 @@ public class SongServiceImpl extends ServiceImpl<SongMapper, Song> implements IS
         } catch (TagException | InvalidAudioFrameException | ReadOnlyFileException e) {
             throw new RuntimeException(e);
         }
+        return artistId;
     }
 
     /**
@@ -852,15 +936,29 @@ public class SongServiceImpl extends ServiceImpl<SongMapper, Song> implements IS
      * 
      * @param key 缓存键
      * @param value 缓存值
+     * @param rebuildMillis 本次从数据库加载的耗时，用于下次提前刷新
      */
-    private <T> void setWithLogicalExpire(String key, T value) {
+    private <T> void setWithLogicalExpire(String key, T value, long rebuildMillis) {
         // 设置逻辑过期
         RedisData<T> redisData = new RedisData<>();
         redisData.setData(value);
         redisData.setExpireTime(LocalDateTime.now().plusMinutes(RedisConstants.CACHE_SONG_TTL));
+        redisData.setRebuildMillis(rebuildMillis);
         
-        // 写入Redis，不设置RedisTTL过期时间
-        stringRedisTemplate.opsForValue().set(key, JSONUtil.toJsonStr(redisData));
+        // 按 key 前缀选择的编解码器写入Redis，不设置RedisTTL过期时间
+        cacheCodecRegistry.set(key, redisData);
+
+        // 通知所有节点丢弃本地的旧值，下次读取时从 Redis 加载新值
+        nearCache.invalidate(key);
+    }
+
+    /**
+     * 写入歌曲详情缓存
+     * 分页等列表缓存按命名空间版本号整体失效（见 CacheNamespaces），歌曲详情按 id 精确删除，需要记录依赖标签
+     */
+    private void setSongDetail(String key, SongDetailVO songDetailVO, long rebuildMillis) {
+        setWithLogicalExpire(key, songDetailVO, rebuildMillis);
+        cacheTagIndex.record(key, CacheTagIndex.extractTags(songDetailVO));
     }
     
     /**
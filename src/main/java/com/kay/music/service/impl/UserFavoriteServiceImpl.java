@@ -17,12 +17,15 @@ import com.kay.music.pojo.vo.SongVO;
 import com.kay.music.result.PageResult;
 import com.kay.music.result.Result;
 import com.kay.music.service.IUserFavoriteService;
+import com.kay.music.utils.CacheTagIndex;
+import com.kay.music.utils.ChangeOutbox;
+import com.kay.music.utils.FavoriteSongCache;
 import com.kay.music.utils.ThreadLocalUtil;
 import lombok.RequiredArgsConstructor;
 import org.springframework.cache.annotation.CacheConfig;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.Collections;
@@ -41,6 +44,8 @@ public class UserFavoriteServiceImpl extends ServiceImpl<UserFavoriteMapper, Use
     private final UserFavoriteMapper userFavoriteMapper;
     private final SongMapper songMapper;
     private final PlaylistMapper playlistMapper;
+    private final ChangeOutbox changeOutbox;
+    private final FavoriteSongCache favoriteSongCache;
 
     /**
      * 获取用户收藏的歌曲列表
@@ -49,7 +54,7 @@ public class UserFavoriteServiceImpl extends ServiceImpl<UserFavoriteMapper, Use
      * @return 用户收藏的歌曲列表
      */
     @Override
-    @Cacheable(key = "'user-favorite:songs:' + #songDTO.pageNum + '-' + #songDTO.pageSize + '-' + #songDTO.songName + '-' + #songDTO.artistName + '-' + #songDTO.album + '-' + T(com.kay.music.utils.ThreadLocalUtil).getUserId()", unless = "#result == null")
+    @Cacheable(key = "'user-favorite:songs:' + #songDTO.pageNum + '-' + #songDTO.pageSize + '-' + #songDTO.songName + '-' + #songDTO.artistName + '-' + #songDTO.album + '-' + T(com.kay.music.utils.ThreadLocalUtil).getUserId()", sync = true)
     public Result<PageResult<SongVO>> getUserFavoriteSongs(SongDTO songDTO) {
 
         Long userId = ThreadLocalUtil.getUserId();
@@ -85,8 +90,8 @@ public class UserFavoriteServiceImpl extends ServiceImpl<UserFavoriteMapper, Use
      * @param songId 歌曲 ID
      * @return 成功或失败
      */
+    @Transactional
     @Override
-    @CacheEvict(cacheNames = {"userFavoriteCache", "songCache", "artistCache", "playlistCache"}, allEntries = true)
     public Result collectSong(Long songId) {
         Long userId = ThreadLocalUtil.getUserId();
 
@@ -99,6 +104,9 @@ public class UserFavoriteServiceImpl extends ServiceImpl<UserFavoriteMapper, Use
         UserFavorite userFavorite = new UserFavorite();
         userFavorite.setUserId(userId).setType(0).setSongId(songId).setCreateTime(LocalDateTime.now());
         userFavoriteMapper.insert(userFavorite);
+        favoriteSongCache.add(userId, songId);
+        // 只有该用户上下文中构建的缓存（收藏列表、喜欢状态）受影响
+        changeOutbox.record(CacheTagIndex.user(userId));
 
         return Result.success(MessageConstant.ADD + MessageConstant.SUCCESS);
     }
@@ -109,8 +117,8 @@ public class UserFavoriteServiceImpl extends ServiceImpl<UserFavoriteMapper, Use
      * @param songId 歌曲 ID
      * @return 成功或失败
      */
+    @Transactional
     @Override
-    @CacheEvict(cacheNames = {"userFavoriteCache", "songCache", "artistCache", "playlistCache"}, allEntries = true)
     public Result cancelCollectSong(Long songId) {
 
         Long userId = ThreadLocalUtil.getUserId();
@@ -120,6 +128,8 @@ public class UserFavoriteServiceImpl extends ServiceImpl<UserFavoriteMapper, Use
         if (userFavoriteMapper.delete(queryWrapper) == 0) {
             return Result.error(MessageConstant.DELETE + MessageConstant.FAILED);
         }
+        favoriteSongCache.remove(userId, songId);
+        changeOutbox.record(CacheTagIndex.user(userId));
 
         return Result.success(MessageConstant.DELETE + MessageConstant.SUCCESS);
     }
@@ -131,7 +141,7 @@ public class UserFavoriteServiceImpl extends ServiceImpl<UserFavoriteMapper, Use
      * @return 用户收藏的歌单列表
      */
     @Override
-    @Cacheable(key = "'user-favorite:playlists:' + #playlistDTO.pageNum + '-' + #playlistDTO.pageSize + '-' + #playlistDTO.title + '-' + T(com.kay.music.utils.ThreadLocalUtil).getUserId()", unless = "#result == null")
+    @Cacheable(key = "'user-favorite:playlists:' + #playlistDTO.pageNum + '-' + #playlistDTO.pageSize + '-' + #playlistDTO.title + '-' + T(com.kay.music.utils.ThreadLocalUtil).getUserId()", sync = true)
     public Result<PageResult<PlaylistVO>> getUserFavoritePlaylists(PlaylistDTO playlistDTO) {
         Long userId = ThreadLocalUtil.getUserId();
 
@@ -160,8 +170,8 @@ public class UserFavoriteServiceImpl extends ServiceImpl<UserFavoriteMapper, Use
      * @param playlistId 歌单 ID
      * @return 成功或失败
      */
+    @Transactional
     @Override
-    @CacheEvict(cacheNames = {"userFavoriteCache", "songCache", "artistCache", "playlistCache"}, allEntries = true)
     public Result collectPlaylist(Long playlistId) {
 
         Long userId = ThreadLocalUtil.getUserId();
@@ -175,6 +185,8 @@ public class UserFavoriteServiceImpl extends ServiceImpl<UserFavoriteMapper, Use
         UserFavorite userFavorite = new UserFavorite();
         userFavorite.setUserId(userId).setType(1).setPlaylistId(playlistId).setCreateTime(LocalDateTime.now());
         userFavoriteMapper.insert(userFavorite);
+        // 只有该用户上下文中构建的缓存（收藏列表、喜欢状态）受影响
+        changeOutbox.record(CacheTagIndex.user(userId));
 
         return Result.success(MessageConstant.ADD + MessageConstant.SUCCESS);
     }
@@ -185,8 +197,8 @@ public class UserFavoriteServiceImpl extends ServiceImpl<UserFavoriteMapper, Use
      * @param playlistId 歌单 ID
      * @return 成功或失败
      */
+    @Transactional
     @Override
-    @CacheEvict(cacheNames = {"userFavoriteCache", "songCache", "artistCache", "playlistCache"}, allEntries = true)
     public Result cancelCollectPlaylist(Long playlistId) {
         Long userId = ThreadLocalUtil.getUserId();
 
@@ -195,6 +207,7 @@ public class UserFavoriteServiceImpl extends ServiceImpl<UserFavoriteMapper, Use
         if (userFavoriteMapper.delete(queryWrapper) == 0) {
             return Result.error(MessageConstant.DELETE + MessageConstant.FAILED);
         }
+        changeOutbox.record(CacheTagIndex.user(userId));
 
         return Result.success(MessageConstant.DELETE + MessageConstant.SUCCESS);
     }
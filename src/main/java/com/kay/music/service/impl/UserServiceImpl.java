@@ -2,7 +2,6 @@ package com.kay.music.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
-import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.kay.music.constant.JwtClaimsConstant;
 import com.kay.music.constant.MessageConstant;
@@ -18,19 +17,22 @@ import com.kay.music.result.Result;
 import com.kay.music.service.EmailService;
 import com.kay.music.service.IUserService;
 import com.kay.music.service.MinioService;
+import com.kay.music.utils.CacheTagIndex;
 import com.kay.music.utils.JwtUtil;
+import com.kay.music.utils.CountCache;
+import com.kay.music.utils.PageCursor;
 import com.kay.music.utils.ThreadLocalUtil;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.CacheConfig;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.util.DigestUtils;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -51,6 +53,8 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements IU
     private final StringRedisTemplate stringRedisTemplate;
     private final JwtUtil jwtUtil;
     private final MinioService minioService;
+    private final CacheTagIndex cacheTagIndex;
+    private final CountCache countCache;
 
     @Value("${jwt.expiration_time}")
     private Long EXPIRATION_HOUR;
@@ -63,7 +67,7 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements IU
      */
     @Override
     public Result<Long> getAllUsersCount() {
-        return Result.success(userMapper.selectCount(new QueryWrapper<>()));
+        return Result.success(countCache.count(CountCache.USER, null, () -> userMapper.selectCount(new QueryWrapper<>())));
     }
 
     /**
@@ -75,10 +79,12 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements IU
      */
     @Override
     // @Cacheable 是方法级缓存触发，key 的核心是「唯一标识查询条件」
-    @Cacheable(key = "'user:list:' + #userSearchDTO.pageNum + '-' + #userSearchDTO.pageSize + '-' + #userSearchDTO.username + '-' + #userSearchDTO.phone + '-' + #userSearchDTO.userStatus", unless = "#result == null")
+    @Cacheable(key = "'user:list:' + #userSearchDTO.pageNum + '-' + #userSearchDTO.pageSize + '-' + #userSearchDTO.username + '-' + #userSearchDTO.phone + '-' + #userSearchDTO.userStatus + '-' + #userSearchDTO.cursor + '-' + #userSearchDTO.withTotal", unless = "#result == null")
     public Result<PageResult<UserManagementVO>> getAllUsers(UserSearchDTO userSearchDTO) {
-        // 1. 分页查询
-        Page<User> page = new Page<>(userSearchDTO.getPageNum(), userSearchDTO.getPageSize());
+        // 1. 分页查询，总数优先取缓存，不要总数时不统计
+        CountCache.CountedPage<User> page = countCache.page(CountCache.USER,
+                CountCache.filter("list", userSearchDTO.getUsername(), userSearchDTO.getPhone(), userSearchDTO.getUserStatus()),
+                userSearchDTO.getPageNum(), userSearchDTO.getPageSize(), userSearchDTO.getWithTotal());
         // 2. 根据 userSearchDTO 的条件构建查询条件
         LambdaQueryWrapper<User> queryWrapper = new LambdaQueryWrapper<>();
         if ( userSearchDTO.getUsername() != null ) {
@@ -93,24 +99,51 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements IU
         // 3. 倒序排序
         queryWrapper.orderByDesc(User::getCreateTime);
 
+        // 游标分页：按 (创建时间, id) 倒序，从上一页最后一个用户之后取，走 idx_user_create_time 联合索引
+        if (userSearchDTO.getCursor() != null) {
+            PageCursor<LocalDateTime> cursor = PageCursor.parse(userSearchDTO.getCursor(), LocalDateTime::parse);
+            if (cursor == null) {
+                return Result.error(MessageConstant.CURSOR + MessageConstant.INVALID);
+            }
+            queryWrapper.and(!cursor.isFirst(), wrapper -> wrapper.lt(User::getCreateTime, cursor.key())
+                            .or(sameTime -> sameTime.eq(User::getCreateTime, cursor.key()).lt(User::getUserId, cursor.id())))
+                    .orderByDesc(User::getUserId)
+                    .last("LIMIT " + (userSearchDTO.getPageSize() + 1));
+            List<User> users = userMapper.selectList(queryWrapper);
+            if (users.isEmpty()) {
+                return Result.success(MessageConstant.DATA_NOT_FOUND, new PageResult<>(0L, null));
+            }
+            PageResult<User> userPage = PageCursor.page(users, userSearchDTO.getPageSize(),
+                    user -> PageCursor.encode(user.getCreateTime(), user.getUserId()));
+            return Result.success(new PageResult<>(null, toUserManagementVOList(userPage.getItems()), userPage.getNextCursor()));
+        }
+
         // 4. 查询结果
-        Page<User> userPage = userMapper.selectPage(page, queryWrapper);
+        userMapper.selectPage(page, queryWrapper);
+        PageResult<User> userPage = countCache.result(page);
 
         // 5.1 返回结果 - 未查到
-        if ( userPage.getRecords().size() == 0 ) {
+        if ( userPage.getItems().size() == 0 ) {
             // 没有查到结果，返回空结果（也会被缓存，防止缓存穿透）
             return Result.success(MessageConstant.DATA_NOT_FOUND , new PageResult<>(0L,null));
         }
         // 5.2 返回结果 - 封装结果
-        List<UserManagementVO> userVOList = userPage.getRecords().stream().map(
+        PageResult<UserManagementVO> result = new PageResult<>(userPage.getTotal(), toUserManagementVOList(userPage.getItems()));
+        result.setHasMore(userPage.getHasMore());
+        return Result.success(result);
+    }
+
+    /**
+     * User 转换为 UserManagementVO
+     */
+    private static List<UserManagementVO> toUserManagementVOList(List<User> users) {
+        return users.stream().map(
                 user -> {
                     UserManagementVO userVO = new UserManagementVO();
                     BeanUtils.copyProperties(user, userVO);
                     return userVO;
                 }
         ).toList();
-
-        return Result.success(new PageResult<>(userPage.getTotal(), userVOList));
     }
 
     /**
@@ -121,7 +154,6 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements IU
      * @date:   2025/11/17 19:36
      */
     @Override
-    @CacheEvict(cacheNames = "userCache", allEntries = true)
     // 清除名为 userCache 的缓存组下所有缓存数据，避免新增用户后，之前查询用户的缓存（如分页 / 多条件查询缓存）返回旧数据，保证缓存与数据库数据一致性。
     public Result addUser(UserAddDTO userAddDTO) {
         // 1.0 判断能否新增
@@ -163,6 +195,8 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements IU
         if (userMapper.insert(user) == 0) {
             return Result.error(MessageConstant.ADD + MessageConstant.FAILED);
         }
+        cacheTagIndex.evict(CacheTagIndex.USER_LIST);
+        countCache.increment(CountCache.USER, 1);
         return Result.success(MessageConstant.ADD + MessageConstant.SUCCESS);
     }
 
@@ -173,7 +207,6 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements IU
      * @date:   2025/11/17 20:01
      */
     @Override
-    @CacheEvict(cacheNames = "userCache", allEntries = true)
     public Result updateUser(UserDTO userDTO) {
         Long userId = userDTO.getUserId();
 
@@ -215,6 +248,8 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements IU
         if (userMapper.updateById(user) == 0) {
             return Result.error(MessageConstant.UPDATE + MessageConstant.FAILED);
         }
+        // 用户名、电话等会影响管理端的用户列表搜索
+        cacheTagIndex.evict(CacheTagIndex.user(userId), CacheTagIndex.USER_LIST);
         return Result.success(MessageConstant.UPDATE + MessageConstant.SUCCESS);
     }
 
@@ -224,7 +259,6 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements IU
      * @date:   2025/11/17 20:35
      */
     @Override
-    @CacheEvict(cacheNames = "userCache", allEntries = true)
     public Result updateUserStatus(Long userId, Integer userStatus) {
         // 1. 确保用户状态有效 , 并封装成 枚举类型
         UserStatusEnum statusEnum;
@@ -244,6 +278,7 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements IU
         if (rows == 0) {
             return Result.error(MessageConstant.UPDATE + MessageConstant.FAILED);
         }
+        cacheTagIndex.evict(CacheTagIndex.user(userId), CacheTagIndex.USER_LIST);
         return Result.success(MessageConstant.UPDATE + MessageConstant.SUCCESS);
     }
 
@@ -253,11 +288,14 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements IU
      * @date:   2025/11/17 20:43
      */
     @Override
-    @CacheEvict(cacheNames = "userCache", allEntries = true)
     public Result deleteUser(Long userId) {
         if (userMapper.deleteById(userId) == 0) {
             return Result.error(MessageConstant.DELETE + MessageConstant.FAILED);
         }
+        cacheTagIndex.evict(CacheTagIndex.user(userId), CacheTagIndex.USER_LIST);
+        // 用户的歌单被级联删除，歌单总数重新统计
+        countCache.increment(CountCache.USER, -1);
+        countCache.evict(CountCache.PLAYLIST);
         return Result.success(MessageConstant.DELETE + MessageConstant.SUCCESS);
     }
 
@@ -267,11 +305,17 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements IU
      * @date:   2025/11/17 20:46
      */
     @Override
-    @CacheEvict(cacheNames = "userCache", allEntries = true)
     public Result deleteUsers(List<Long> userIds) {
-        if (userMapper.deleteByIds(userIds) == 0) {
+        int deleted = userMapper.deleteByIds(userIds);
+        if (deleted == 0) {
             return Result.error(MessageConstant.DELETE + MessageConstant.FAILED);
         }
+        // 用户的歌单被级联删除，歌单总数重新统计
+        countCache.increment(CountCache.USER, -deleted);
+        countCache.evict(CountCache.PLAYLIST);
+        List<String> tags = new ArrayList<>(List.of(CacheTagIndex.USER_LIST));
+        userIds.forEach(userId -> tags.add(CacheTagIndex.user(userId)));
+        cacheTagIndex.evict(tags);
         return Result.success(MessageConstant.DELETE + MessageConstant.SUCCESS);
     }
 
@@ -311,7 +355,6 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements IU
      * @date:   2025/11/18 23:48
      */
     @Override
-    @CacheEvict(cacheNames = "userCache", allEntries = true)
     public Result register(UserRegisterDTO userRegisterDTO) {
         // 能到这里， 说明验证码验证完了，并且是正确的
         // 1. 删除 redis 存的 验证码
@@ -340,6 +383,8 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements IU
         if (userMapper.insert(user) == 0) {
             return Result.error(MessageConstant.REGISTER + MessageConstant.FAILED);
         }
+        cacheTagIndex.evict(CacheTagIndex.USER_LIST);
+        countCache.increment(CountCache.USER, 1);
         return Result.success(MessageConstant.REGISTER + MessageConstant.SUCCESS);
     }
 
@@ -405,7 +450,6 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements IU
      * @date:   2025/11/19 20:23
      */
     @Override
-    @CacheEvict(cacheNames = "userCache", allEntries = true)
     public Result updateUserInfo(UserDTO userDTO) {
         Long userId = ThreadLocalUtil.getUserId();
 
@@ -437,6 +481,8 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements IU
         if (userMapper.updateById(user) == 0) {
             return Result.error(MessageConstant.UPDATE + MessageConstant.FAILED);
         }
+        // 用户名、电话等会影响管理端的用户列表搜索
+        cacheTagIndex.evict(CacheTagIndex.user(userId), CacheTagIndex.USER_LIST);
         return Result.success(MessageConstant.UPDATE + MessageConstant.SUCCESS);
     }
 
@@ -446,7 +492,6 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements IU
      * @date:   2025/11/19 21:30
      */
     @Override
-    @CacheEvict(cacheNames = "userCache", allEntries = true)
     public Result updateUserAvatar(String avatarUrl) {
         Long userId = ThreadLocalUtil.getUserId();
         // 1. 删除 旧头像
@@ -460,6 +505,7 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements IU
                 new LambdaQueryWrapper<User>().eq(User::getUserId, userId)) == 0) {
             return Result.error(MessageConstant.UPDATE + MessageConstant.FAILED);
         }
+        cacheTagIndex.evict(CacheTagIndex.user(userId));
         return Result.success(MessageConstant.UPDATE + MessageConstant.SUCCESS);
     }
 
@@ -534,7 +580,6 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements IU
      * @date:   2025/11/19 23:17
      */
     @Override
-    @CacheEvict(cacheNames = {"userCache", "userFavoriteCache", "songCache", "artistCache", "playlistCache"}, allEntries = true)
     public Result logout(String token) {
         // 注销token
         Boolean result = stringRedisTemplate.delete(token);
@@ -550,7 +595,6 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements IU
      * @date:   2025/11/19 23:19
      */
     @Override
-    @CacheEvict(cacheNames = "userCache", allEntries = true)
     public Result deleteAccount() {
         Long userId = ThreadLocalUtil.getUserId();
         // 1. 查询用户信息
@@ -567,6 +611,10 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements IU
         if (userMapper.deleteById(userId) == 0) {
             return Result.error(MessageConstant.DELETE + MessageConstant.FAILED);
         }
+        cacheTagIndex.evict(CacheTagIndex.user(userId), CacheTagIndex.USER_LIST);
+        // 用户的歌单被级联删除，歌单总数重新统计
+        countCache.increment(CountCache.USER, -1);
+        countCache.evict(CountCache.PLAYLIST);
         return Result.success(MessageConstant.DELETE + MessageConstant.SUCCESS);
     }
 
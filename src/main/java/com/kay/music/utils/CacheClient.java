@@ -2,18 +2,22 @@ package com.kay.music.utils;
 
 import cn.hutool.core.util.BooleanUtil;
 import cn.hutool.core.util.StrUtil;
-import cn.hutool.json.JSONObject;
 import cn.hutool.json.JSONUtil;
+import com.kay.music.constant.RedisConstants;
 import com.kay.music.pojo.dto.RedisData;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * 缓存客户端工具类
@@ -29,12 +33,29 @@ public class CacheClient {
     private final StringRedisTemplate stringRedisTemplate;
     
     /**
-     * 线程池，用于异步更新缓存
+     * 正在加载中的 key -> 加载结果
      */
-    private static final ExecutorService CACHE_REBUILD_EXECUTOR = Executors.newFixedThreadPool(10);
+    private static final Map<String, CompletableFuture<Object>> IN_FLIGHT = new ConcurrentHashMap<>();
 
-    public CacheClient(StringRedisTemplate stringRedisTemplate) {
+    /**
+     * 等待其他节点重建时轮询 Redis 的退避时间（毫秒）
+     */
+    private static final long MIN_BACKOFF_MILLIS = 20;
+    private static final long MAX_BACKOFF_MILLIS = 200;
+
+    private final CacheCodecRegistry cacheCodecRegistry;
+    private final CacheRebuildExecutor cacheRebuildExecutor;
+    private final EarlyRefreshPolicy earlyRefreshPolicy;
+    private final CacheMetrics cacheMetrics;
+
+    public CacheClient(StringRedisTemplate stringRedisTemplate, CacheCodecRegistry cacheCodecRegistry,
+                       CacheRebuildExecutor cacheRebuildExecutor, EarlyRefreshPolicy earlyRefreshPolicy,
+                       CacheMetrics cacheMetrics) {
         this.stringRedisTemplate = stringRedisTemplate;
+        this.cacheCodecRegistry = cacheCodecRegistry;
+        this.cacheRebuildExecutor = cacheRebuildExecutor;
+        this.earlyRefreshPolicy = earlyRefreshPolicy;
+        this.cacheMetrics = cacheMetrics;
     }
 
     /**
@@ -49,13 +70,21 @@ public class CacheClient {
      * 用于解决缓存击穿问题
      */
     public void setWithLogicalExpire(String key, Object value, Long time, TimeUnit unit) {
+        setWithLogicalExpire(key, value, time, unit, 0);
+    }
+
+    /**
+     * 设置逻辑过期时间，并记录本次重建耗时，重建越慢，下次越早开始提前刷新
+     */
+    public void setWithLogicalExpire(String key, Object value, Long time, TimeUnit unit, long rebuildMillis) {
         // 设置逻辑过期时间
         RedisData<Object> redisData = new RedisData<>();
         redisData.setData(value);
         redisData.setExpireTime(LocalDateTime.now().plusSeconds(unit.toSeconds(time)));
+        redisData.setRebuildMillis(rebuildMillis);
         
-        // 写入Redis，不设置TTL过期时间
-        stringRedisTemplate.opsForValue().set(key, JSONUtil.toJsonStr(redisData));
+        // 按 key 前缀选择的编解码器写入Redis，不设置TTL过期时间
+        cacheCodecRegistry.set(key, redisData);
     }
 
     /**
@@ -79,14 +108,17 @@ public class CacheClient {
         // 2. 判断是否存在
         if (StrUtil.isNotBlank(json)) {
             // 3. 存在，直接返回
-            return JSONUtil.toBean(json, type);
+            cacheMetrics.hit(CacheMetrics.REDIS, key);
+            return toBean(key, json, type);
         }
         
         // 判断命中的是否是空值
         if (json != null) {
             // 返回一个错误信息或空对象
+            cacheMetrics.nullHit(CacheMetrics.REDIS, key);
             return null;
         }
+        cacheMetrics.miss(CacheMetrics.REDIS, key);
 
         // 4. 不存在，根据id查询数据库
         R r = dbFallback.apply(id);
@@ -122,50 +154,53 @@ public class CacheClient {
             String keyPrefix, ID id, Class<R> type, Function<ID, R> dbFallback, Long time, TimeUnit unit) {
         String key = keyPrefix + id;
         // 1. 从Redis查询缓存
-        String json = stringRedisTemplate.opsForValue().get(key);
+        byte[] bytes = cacheCodecRegistry.getBytes(key);
         
         // 2. 判断是否存在
-        if (StrUtil.isBlank(json)) {
+        if (bytes == null) {
             // 3. 未命中，返回null
             return null;
         }
         
-        // 4. 命中，需要先把json反序列化为对象
-        RedisData<R> redisData = JSONUtil.toBean(json, RedisData.class);
-        R r = JSONUtil.toBean((JSONObject) redisData.getData(), type);
-        LocalDateTime expireTime = redisData.getExpireTime();
+        // 4. 命中，需要先反序列化为对象
+        RedisData<R> redisData = cacheCodecRegistry.decode(key, bytes, type);
+        cacheMetrics.served(CacheMetrics.REDIS, key, redisData);
+        R r = redisData.getData();
         
-        // 5. 判断是否过期
-        if (expireTime.isAfter(LocalDateTime.now())) {
-            // 5.1 未过期，直接返回
+        // 5. 判断是否需要刷新（已过期，或者快过期时按概率提前刷新）
+        if (!earlyRefreshPolicy.shouldRefresh(redisData)) {
+            // 5.1 不需要，直接返回
             return r;
         }
         
-        // 5.2 已过期，需要缓存重建
+        // 5.2 需要刷新，缓存重建
         // 6. 缓存重建
         // 6.1 获取互斥锁
-        String lockKey = "lock:" + keyPrefix + id;
+        String lockKey = RedisConstants.LOCK_KEY + key;
         boolean isLock = tryLock(lockKey);
         
         // 6.2 判断是否获取锁成功
         if (isLock) {
-            // 6.3 成功，开启独立线程，实现缓存重建
-            CACHE_REBUILD_EXECUTOR.submit(() -> {
+            // 6.3 成功，交给重建线程池，实现缓存重建
+            boolean submitted = cacheRebuildExecutor.submit(key, () -> {
                 try {
                     // 查询数据库
+                    long start = System.currentTimeMillis();
                     R newR = dbFallback.apply(id);
                     // 重建缓存
-                    this.setWithLogicalExpire(key, newR, time, unit);
-                } catch (Exception e) {
-                    throw new RuntimeException(e);
+                    this.setWithLogicalExpire(key, newR, time, unit, System.currentTimeMillis() - start);
                 } finally {
                     // 释放锁
                     unlock(lockKey);
                 }
             });
+            if (!submitted) {
+                // 任务被丢弃，立即释放锁
+                unlock(lockKey);
+            }
         }
         
-        // 6.4 返回过期的商品信息
+        // 6.4 返回当前的商品信息（可能已过期）
         return r;
     }
 
@@ -190,33 +225,123 @@ public class CacheClient {
         // 2. 判断是否存在
         if (StrUtil.isNotBlank(json)) {
             // 3. 存在，直接返回
-            return JSONUtil.toBean(json, type);
+            cacheMetrics.hit(CacheMetrics.REDIS, key);
+            return toBean(key, json, type);
         }
         
         // 判断命中的是否是空值
         if (json != null) {
             // 返回一个错误信息或空对象
+            cacheMetrics.nullHit(CacheMetrics.REDIS, key);
             return null;
         }
+        cacheMetrics.miss(CacheMetrics.REDIS, key);
+
+        // 4. 实现缓存重建，同一个 key 在本节点只有一个线程去重建，其他线程等待它的结果
+        return singleFlight(key, () -> rebuildWithLock(key, id, type, dbFallback, time, unit),
+                () -> readThrough(key, id, type, dbFallback));
+    }
+
+    /**
+     * 本节点内的请求合并
+     * 同一个 key 同时只执行一次 loader，其余线程阻塞在同一个 future 上，loader 完成时被唤醒，
+     * 不再休眠后递归重试，也就不会占满 Tomcat 线程或者栈溢出
+     *
+     * @param key 缓存键
+     * @param loader 真正的加载逻辑
+     * @param fallback 等待超时后自己读取的逻辑
+     * @return 加载结果
+     */
+    private <R> R singleFlight(String key, Supplier<R> loader, Supplier<R> fallback) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = IN_FLIGHT.putIfAbsent(key, future);
+        if (inFlight != null) {
+            // 已经有线程在加载，等待它的结果
+            return await(key, inFlight, fallback);
+        }
+
+        try {
+            R r = loader.get();
+            future.complete(r);
+            return r;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            IN_FLIGHT.remove(key, future);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <R> R await(String key, CompletableFuture<Object> future, Supplier<R> fallback) {
+        try {
+            // 最多等一个锁的有效期，加载线程卡住时不会无限等待
+            return (R) future.get(RedisConstants.LOCK_TTL, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException re ? re : new RuntimeException(e.getCause());
+        } catch (TimeoutException e) {
+            // 加载线程等其他节点的锁最多就要用掉一个锁的有效期，之后还要查数据库，超时不代表加载失败：
+            // 不再等它，自己读一次 Redis，还没有就直接查数据库（不写缓存，由加载线程写）
+            log.warn("等待缓存重建超时，直接读取: {}", key);
+            return fallback.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 不加锁读取：先读 Redis，没有再查数据库，不写回缓存
+     */
+    private <R, ID> R readThrough(String key, ID id, Class<R> type, Function<ID, R> dbFallback) {
+        String json = stringRedisTemplate.opsForValue().get(key);
+        if (json != null) {
+            return StrUtil.isNotBlank(json) ? toBean(key, json, type) : null;
+        }
+        return dbFallback.apply(id);
+    }
 
-        // 4. 实现缓存重建
-        // 4.1 获取互斥锁
-        String lockKey = "lock:" + keyPrefix + id;
-        R r = null;
+    /**
+     * 持有分布式锁重建缓存，保证多个节点之间也只有一个去查数据库
+     * 没抢到锁说明其他节点正在重建，由本节点的这一个线程等待对方写回 Redis，其余线程都在 future 上等待
+     */
+    private <R, ID> R rebuildWithLock(
+            String key, ID id, Class<R> type, Function<ID, R> dbFallback, Long time, TimeUnit unit) {
+        String lockKey = RedisConstants.LOCK_KEY + key;
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(RedisConstants.LOCK_TTL);
+        long backoff = MIN_BACKOFF_MILLIS;
+        boolean isLock;
         try {
-            boolean isLock = tryLock(lockKey);
-            // 4.2 判断是否获取成功
-            if (!isLock) {
-                // 4.3 获取锁失败，休眠并重试
-                Thread.sleep(50);
-                return queryWithMutex(keyPrefix, id, type, dbFallback, time, unit);
+            // 4.1 获取互斥锁
+            while (!(isLock = tryLock(lockKey))) {
+                // 4.2 其他节点重建完成，直接使用它的结果
+                String json = stringRedisTemplate.opsForValue().get(key);
+                if (json != null) {
+                    return StrUtil.isNotBlank(json) ? toBean(key, json, type) : null;
+                }
+                // 4.3 超过锁的有效期还没等到，锁的持有者可能已经挂了，自己查数据库
+                if (System.currentTimeMillis() > deadline) {
+                    break;
+                }
+                Thread.sleep(backoff);
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
             }
-            
-            // 4.4 获取锁成功，根据id查询数据库
-            r = dbFallback.apply(id);
-            
-            // 模拟重建的延时
-            Thread.sleep(200);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+
+        try {
+            // 4.4 拿到锁后再查一次，等锁期间其他节点可能已经写好了
+            if (isLock) {
+                String json = stringRedisTemplate.opsForValue().get(key);
+                if (json != null) {
+                    return StrUtil.isNotBlank(json) ? toBean(key, json, type) : null;
+                }
+            }
+
+            // 4.5 根据id查询数据库
+            R r = dbFallback.apply(id);
             
             // 5. 数据库中也不存在，返回错误
             if (r == null) {
@@ -228,14 +353,22 @@ public class CacheClient {
             
             // 6. 存在，写入Redis
             this.set(key, r, time, unit);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
+            return r;
         } finally {
             // 7. 释放锁
-            unlock(lockKey);
+            if (isLock) {
+                unlock(lockKey);
+            }
         }
-        
-        // 8. 返回
+    }
+
+    /**
+     * 反序列化 JSON，并记录耗时
+     */
+    private <R> R toBean(String key, String json, Class<R> type) {
+        long start = System.nanoTime();
+        R r = JSONUtil.toBean(json, type);
+        cacheMetrics.recordDeserialize(CacheMetrics.REDIS, CacheMetrics.prefixOf(key), System.nanoTime() - start);
         return r;
     }
 
@@ -245,7 +378,7 @@ public class CacheClient {
      * @return 是否获取成功
      */
     private boolean tryLock(String key) {
-        Boolean flag = stringRedisTemplate.opsForValue().setIfAbsent(key, "1", 10, TimeUnit.SECONDS);
+        Boolean flag = stringRedisTemplate.opsForValue().setIfAbsent(key, "1", RedisConstants.LOCK_TTL, TimeUnit.SECONDS);
         return BooleanUtil.isTrue(flag);
     }
 
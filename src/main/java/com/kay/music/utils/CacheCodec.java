@@ -0,0 +1,43 @@
+package com.kay.music.utils;
+
+import java.lang.reflect.Type;
+
+/**
+ * 缓存值编解码器（SPI）
+ * 只负责 RedisData 中 data 部分的编解码，逻辑过期时间由 CacheCodecRegistry 写在固定的头部里
+ *
+ * @author Kay
+ * @date 2026/10/18 14:10
+ */
+public interface CacheCodec {
+
+    /**
+     * 编解码器标识，写在头部第一个字节，读取时据此选择编解码器
+     * 不能与 '{'（旧版 JSON 缓存的第一个字符）冲突
+     */
+    byte id();
+
+    /**
+     * 配置中使用的名称，例如 json、smile
+     */
+    String name();
+
+    /**
+     * 编码
+     *
+     * @param value 缓存的数据
+     * @return 编码后的字节
+     */
+    byte[] encode(Object value);
+
+    /**
+     * 解码
+     *
+     * @param bytes 缓存的字节（包含头部）
+     * @param offset 数据部分的起始位置
+     * @param length 数据部分的长度
+     * @param type 数据的类型，可以是带泛型的类型，例如 PageResult&lt;SongVO&gt;
+     * @return 解码后的数据
+     */
+    <T> T decode(byte[] bytes, int offset, int length, Type type);
+}
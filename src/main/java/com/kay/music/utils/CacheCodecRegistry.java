@@ -0,0 +1,371 @@
+package com.kay.music.utils;
+
+import cn.hutool.json.JSON;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.kay.music.config.CacheCodecProperties;
+import com.kay.music.pojo.dto.RedisData;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 逻辑过期缓存（RedisData）的读写入口，按 key 前缀选择编解码器
+ *
+ * 存储格式：
+ *   [1 字节 编解码器 id | 0x80][8 字节 逻辑过期时间（毫秒时间戳）][4 字节 上次重建耗时（毫秒）][数据]
+ * 过期时间在固定位置，判断是否过期不需要解码数据部分；
+ * id 的最高位为 0 的是没有重建耗时的旧头部 [id][过期时间][数据]，仍然可以读取；
+ * 编码后的数据达到压缩阈值时用 LZ4 压缩，id 的次高位为 1，数据部分为 [4 字节 原始长度][压缩后的数据]；
+ * 读取时按头部的 id 选择编解码器，修改配置后旧格式的缓存仍然可以读取。
+ * 以 '{' 开头的是改造前 hutool 直接序列化的 RedisData，按旧格式兼容读取。
+ *
+ * @author Kay
+ * @date 2026/10/18 14:25
+ */
+@Component
+public class CacheCodecRegistry {
+
+    /**
+     * 头部长度：编解码器 id + 过期时间 + 重建耗时
+     */
+    public static final int HEADER_LENGTH = 1 + Long.BYTES + Integer.BYTES;
+
+    /**
+     * 不带重建耗时的旧头部长度
+     */
+    private static final int LEGACY_HEADER_LENGTH = 1 + Long.BYTES;
+
+    /**
+     * 头部第一个字节的最高位，表示带有重建耗时
+     */
+    private static final byte REBUILD_TIME_FLAG = (byte) 0x80;
+
+    /**
+     * 头部第一个字节的次高位，表示数据部分经过 LZ4 压缩
+     */
+    private static final byte COMPRESSED_FLAG = 0x40;
+
+    /**
+     * 头部第一个字节中的标志位，其余位是编解码器 id
+     */
+    private static final int FLAGS = REBUILD_TIME_FLAG | COMPRESSED_FLAG;
+
+    private static final byte LEGACY_JSON = '{';
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final CacheMetrics cacheMetrics;
+    private final HotKeyDetector hotKeyDetector;
+
+    private final Map<Byte, CacheCodec> codecsById = new HashMap<>();
+
+    /**
+     * 前缀 -> 编解码器，按前缀长度倒序，先匹配最长的前缀
+     */
+    private final Map<String, CacheCodec> codecsByPrefix = new LinkedHashMap<>();
+
+    private final CacheCodec defaultCodec;
+
+    /**
+     * 压缩阈值（字节），0 表示不压缩
+     */
+    private final int compressionThreshold;
+
+    private final LZ4Compressor compressor;
+    private final LZ4SafeDecompressor decompressor;
+
+    public CacheCodecRegistry(StringRedisTemplate stringRedisTemplate, List<CacheCodec> codecs,
+                              CacheCodecProperties properties, CacheMetrics cacheMetrics,
+                              HotKeyDetector hotKeyDetector) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.cacheMetrics = cacheMetrics;
+        this.hotKeyDetector = hotKeyDetector;
+        this.compressionThreshold = properties.getCompressionThreshold();
+        LZ4Factory lz4Factory = LZ4Factory.fastestInstance();
+        this.compressor = lz4Factory.fastCompressor();
+        this.decompressor = lz4Factory.safeDecompressor();
+        Map<String, CacheCodec> codecsByName = new HashMap<>();
+        for (CacheCodec codec : codecs) {
+            if (codec.id() == LEGACY_JSON || (codec.id() & FLAGS) != 0 || codecsById.putIfAbsent(codec.id(), codec) != null) {
+                throw new IllegalStateException("缓存编解码器 id 冲突: " + codec.name());
+            }
+            codecsByName.put(codec.name(), codec);
+        }
+
+        this.defaultCodec = lookup(codecsByName, properties.getDefaultCodec());
+        properties.getPrefixes().entrySet().stream()
+                .sorted(Map.Entry.<String, String>comparingByKey(Comparator.comparingInt(String::length)).reversed())
+                .forEach(entry -> codecsByPrefix.put(entry.getKey(), lookup(codecsByName, entry.getValue())));
+    }
+
+    private static CacheCodec lookup(Map<String, CacheCodec> codecsByName, String name) {
+        CacheCodec codec = codecsByName.get(name);
+        if (codec == null) {
+            throw new IllegalStateException("未知的缓存编解码器: " + name + "，可选: " + codecsByName.keySet());
+        }
+        return codec;
+    }
+
+    /**
+     * 该 key 使用的编解码器
+     */
+    public CacheCodec codecFor(String key) {
+        for (Map.Entry<String, CacheCodec> entry : codecsByPrefix.entrySet()) {
+            if (key.startsWith(entry.getKey())) {
+                return entry.getValue();
+            }
+        }
+        return defaultCodec;
+    }
+
+    /**
+     * 编码，带上固定头部，数据达到压缩阈值时压缩
+     */
+    public byte[] encode(String key, RedisData<?> redisData) {
+        CacheCodec codec = codecFor(key);
+        byte[] body = codec.encode(redisData.getData());
+        String prefix = CacheMetrics.prefixOf(key);
+        cacheMetrics.recordValueSize(prefix, body.length);
+        int flags = REBUILD_TIME_FLAG;
+        if (compressionThreshold > 0 && body.length >= compressionThreshold) {
+            byte[] compressed = compress(prefix, body);
+            if (compressed != null) {
+                body = compressed;
+                flags |= COMPRESSED_FLAG;
+            }
+        }
+        Long rebuildMillis = redisData.getRebuildMillis();
+        return ByteBuffer.allocate(HEADER_LENGTH + body.length)
+                .put((byte) (codec.id() | flags))
+                .putLong(toEpochMilli(redisData.getExpireTime()))
+                .putInt(rebuildMillis == null ? 0 : (int) Math.min(rebuildMillis, Integer.MAX_VALUE))
+                .put(body)
+                .array();
+    }
+
+    /**
+     * 是否是带固定头部的逻辑过期缓存（不包括改造前的 JSON 格式、空值占位和其他 key）
+     *
+     * @param bytes 至少包含头部的字节
+     */
+    public boolean hasHeader(byte[] bytes) {
+        if (bytes.length < LEGACY_HEADER_LENGTH || bytes[0] == LEGACY_JSON) {
+            return false;
+        }
+        return codecsById.containsKey((byte) (bytes[0] & ~FLAGS));
+    }
+
+    /**
+     * 只读取头部中的逻辑过期时间，不解码数据
+     */
+    public LocalDateTime peekExpireTime(byte[] bytes) {
+        if (bytes[0] == LEGACY_JSON) {
+            return JSONUtil.parseObj(new String(bytes, StandardCharsets.UTF_8)).get("expireTime", LocalDateTime.class);
+        }
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(ByteBuffer.wrap(bytes, 1, Long.BYTES).getLong()),
+                ZoneId.systemDefault());
+    }
+
+    /**
+     * 解码
+     *
+     * @param bytes Redis 中的字节
+     * @param type data 的类型
+     */
+    public <T> RedisData<T> decode(byte[] bytes, Type type) {
+        return decode(bytes, type, "*");
+    }
+
+    private <T> RedisData<T> decode(byte[] bytes, Type type, String prefix) {
+        if (bytes[0] == LEGACY_JSON) {
+            JSONObject json = JSONUtil.parseObj(new String(bytes, StandardCharsets.UTF_8));
+            return new RedisData<T>()
+                    .setExpireTime(json.get("expireTime", LocalDateTime.class))
+                    .setData(json.get("data") instanceof JSON data ? JSONUtil.toBean(data, type, false) : null);
+        }
+        byte id = (byte) (bytes[0] & ~FLAGS);
+        CacheCodec codec = codecsById.get(id);
+        if (codec == null) {
+            throw new IllegalStateException("未知的缓存编解码器 id: " + id);
+        }
+        boolean hasRebuildTime = (bytes[0] & REBUILD_TIME_FLAG) != 0;
+        int headerLength = hasRebuildTime ? HEADER_LENGTH : LEGACY_HEADER_LENGTH;
+        byte[] body = bytes;
+        int offset = headerLength;
+        int length = bytes.length - headerLength;
+        if ((bytes[0] & COMPRESSED_FLAG) != 0) {
+            body = decompress(prefix, bytes, headerLength);
+            offset = 0;
+            length = body.length;
+        }
+        return new RedisData<T>()
+                .setExpireTime(peekExpireTime(bytes))
+                .setRebuildMillis(hasRebuildTime ? (long) ByteBuffer.wrap(bytes, LEGACY_HEADER_LENGTH, Integer.BYTES).getInt() : null)
+                .setData(codec.decode(body, offset, length, type));
+    }
+
+    /**
+     * LZ4 压缩，结果为 [4 字节 原始长度][压缩后的数据]
+     *
+     * @return 压缩后没有变小时返回 null，按原样存储
+     */
+    private byte[] compress(String prefix, byte[] body) {
+        long start = System.nanoTime();
+        int maxLength = compressor.maxCompressedLength(body.length);
+        byte[] buffer = new byte[Integer.BYTES + maxLength];
+        int length = Integer.BYTES + compressor.compress(body, 0, body.length, buffer, Integer.BYTES, maxLength);
+        cacheMetrics.recordCompress(prefix, body.length, length, System.nanoTime() - start);
+        if (length >= body.length) {
+            return null;
+        }
+        ByteBuffer.wrap(buffer).putInt(body.length);
+        return Arrays.copyOf(buffer, length);
+    }
+
+    private byte[] decompress(String prefix, byte[] bytes, int offset) {
+        long start = System.nanoTime();
+        int originalLength = ByteBuffer.wrap(bytes, offset, Integer.BYTES).getInt();
+        byte[] body = new byte[originalLength];
+        int length = decompressor.decompress(bytes, offset + Integer.BYTES, bytes.length - offset - Integer.BYTES, body, 0);
+        if (length != originalLength) {
+            throw new IllegalStateException("缓存解压后的长度不一致: " + length + " != " + originalLength);
+        }
+        cacheMetrics.recordDecompress(prefix, System.nanoTime() - start);
+        return body;
+    }
+
+    /**
+     * 解码，并按 key 前缀记录反序列化耗时（包括解压）
+     *
+     * @param key 缓存键
+     * @param bytes Redis 中的字节
+     * @param type data 的类型
+     */
+    public <T> RedisData<T> decode(String key, byte[] bytes, Type type) {
+        String prefix = CacheMetrics.prefixOf(key);
+        long start = System.nanoTime();
+        RedisData<T> redisData = decode(bytes, type, prefix);
+        cacheMetrics.recordDeserialize(CacheMetrics.REDIS, prefix, System.nanoTime() - start);
+        return redisData;
+    }
+
+    /**
+     * 读取原始字节，记录未命中和空值占位
+     * 命中的情况由调用方按是否过期记录（hit / stale）；热点 key 优先读取本节点保留的副本
+     *
+     * @return 不存在或者是空值占位时返回 null
+     */
+    public byte[] getBytes(String key) {
+        hotKeyDetector.record(key);
+        byte[] pinned = hotKeyDetector.getPinned(key);
+        if (pinned != null) {
+            return pinned;
+        }
+        byte[] bytes = stringRedisTemplate.execute(
+                (RedisCallback<byte[]>) connection -> connection.stringCommands().get(rawKey(key)));
+        if (bytes == null) {
+            cacheMetrics.miss(CacheMetrics.REDIS, key);
+            return null;
+        }
+        if (bytes.length == 0) {
+            cacheMetrics.nullHit(CacheMetrics.REDIS, key);
+            return null;
+        }
+        hotKeyDetector.pinIfHot(key, bytes);
+        return bytes;
+    }
+
+    /**
+     * 一次 MGET 批量读取原始字节，记录未命中和空值占位
+     *
+     * @return 与 keys 一一对应，不存在或者是空值占位的位置为 null
+     */
+    public List<byte[]> multiGetBytes(List<String> keys) {
+        byte[][] rawKeys = keys.stream().map(CacheCodecRegistry::rawKey).toArray(byte[][]::new);
+        List<byte[]> values = stringRedisTemplate.execute(
+                (RedisCallback<List<byte[]>>) connection -> connection.stringCommands().mGet(rawKeys));
+        List<byte[]> result = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            hotKeyDetector.record(keys.get(i));
+            byte[] bytes = values == null ? null : values.get(i);
+            if (bytes == null) {
+                cacheMetrics.miss(CacheMetrics.REDIS, keys.get(i));
+            } else if (bytes.length == 0) {
+                cacheMetrics.nullHit(CacheMetrics.REDIS, keys.get(i));
+                bytes = null;
+            }
+            result.add(bytes);
+        }
+        return result;
+    }
+
+    /**
+     * 读取并解码
+     *
+     * @return 不存在时返回 null
+     */
+    public <T> RedisData<T> get(String key, Type type) {
+        byte[] bytes = getBytes(key);
+        if (bytes == null) {
+            return null;
+        }
+        RedisData<T> redisData = decode(key, bytes, type);
+        cacheMetrics.served(CacheMetrics.REDIS, key, redisData);
+        return redisData;
+    }
+
+    /**
+     * 编码后写入 Redis，不设置 Redis 的过期时间（逻辑过期）
+     *
+     * @return 写入的字节数
+     */
+    public int set(String key, RedisData<?> redisData) {
+        byte[] bytes = encode(key, redisData);
+        stringRedisTemplate.execute((RedisCallback<Boolean>) connection -> connection.stringCommands().set(rawKey(key), bytes));
+        hotKeyDetector.unpin(key);
+        return bytes.length;
+    }
+
+    /**
+     * 批量编码后通过管道写入 Redis，并设置 Redis 的过期时间
+     *
+     * @param entries 缓存键 -> 数据
+     * @param ttlSeconds Redis 过期时间（秒）
+     */
+    public void setAll(Map<String, RedisData<?>> entries, long ttlSeconds) {
+        Map<byte[], byte[]> encoded = new LinkedHashMap<>();
+        entries.forEach((key, redisData) -> encoded.put(rawKey(key), encode(key, redisData)));
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            encoded.forEach((rawKey, bytes) -> connection.stringCommands()
+                    .set(rawKey, bytes, Expiration.seconds(ttlSeconds), RedisStringCommands.SetOption.upsert()));
+            return null;
+        });
+    }
+
+    private static byte[] rawKey(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static long toEpochMilli(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,179 @@
+package com.kay.music.utils;
+
+import com.kay.music.pojo.dto.RedisData;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * 缓存指标，按缓存名和 key 前缀统计，可通过 /actuator/prometheus 抓取
+ *
+ *   music.cache.gets{cache, prefix, result}        命中 hit / 未命中 miss / 返回过期数据 stale / 命中空值占位 null
+ *   music.cache.rebuilds{cache, prefix, result}    异步重建 success / failure
+ *   music.cache.deserialize{cache, prefix}         反序列化耗时
+ *   music.cache.value.size{prefix}                 逻辑过期缓存编码后（压缩前）的字节数，用于调整压缩阈值
+ *   music.cache.compression.ratio{prefix}          压缩后 / 压缩前的字节数比例，大于等于 1 的按原样存储
+ *   music.cache.compress{prefix}                   压缩耗时
+ *   music.cache.decompress{prefix}                 解压耗时
+ *
+ * cache 取值：near（本地缓存）、redis（手动维护的逻辑过期缓存、CacheClient）、Spring 缓存名（songCache 等）
+ * prefix 取 key 开头的非数字段（最多 3 段），例如 music:song:123 -> music:song，
+ * music:song:guest:1:20:... -> music:song:guest，避免 id、分页参数等导致指标数量爆炸
+ *
+ * @author Kay
+ * @date 2026/10/18 18:10
+ */
+@Component
+public class CacheMetrics {
+
+    public static final String NEAR = "near";
+    public static final String REDIS = "redis";
+
+    private static final int MAX_PREFIX_SEGMENTS = 3;
+
+    private static final Pattern PREFIX_SEGMENT = Pattern.compile("[A-Za-z_-]+");
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 指标名|cache|prefix|result -> 计数器，避免每次都通过 builder 查找
+     */
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+    public CacheMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void hit(String cache, String key) {
+        get(cache, key, "hit");
+    }
+
+    public void miss(String cache, String key) {
+        get(cache, key, "miss");
+    }
+
+    public void stale(String cache, String key) {
+        get(cache, key, "stale");
+    }
+
+    public void nullHit(String cache, String key) {
+        get(cache, key, "null");
+    }
+
+    /**
+     * 逻辑过期缓存返回了数据，按是否已过期记为 hit 或 stale
+     */
+    public void served(String cache, String key, RedisData<?> redisData) {
+        if (redisData.getExpireTime().isAfter(LocalDateTime.now())) {
+            hit(cache, key);
+        } else {
+            stale(cache, key);
+        }
+    }
+
+    public void rebuildSuccess(String cache, String key) {
+        counter("music.cache.rebuilds", cache, prefixOf(key), "success").increment();
+    }
+
+    public void rebuildFailure(String cache, String key) {
+        counter("music.cache.rebuilds", cache, prefixOf(key), "failure").increment();
+    }
+
+    /**
+     * 记录反序列化耗时
+     *
+     * @param prefix key 前缀，拿不到 key 时（Spring 缓存的序列化器）传 *
+     */
+    public void recordDeserialize(String cache, String prefix, long nanos) {
+        timers.computeIfAbsent(cache + "|" + prefix, k -> Timer.builder("music.cache.deserialize")
+                .description("缓存反序列化耗时")
+                .tag("cache", cache)
+                .tag("prefix", prefix)
+                .register(meterRegistry)
+        ).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录逻辑过期缓存编码后（压缩前）的字节数
+     */
+    public void recordValueSize(String prefix, int bytes) {
+        summary("music.cache.value.size", "缓存编码后的字节数", "bytes", prefix).record(bytes);
+    }
+
+    /**
+     * 记录一次压缩的压缩比和耗时
+     */
+    public void recordCompress(String prefix, int originalBytes, int compressedBytes, long nanos) {
+        summary("music.cache.compression.ratio", "缓存压缩后 / 压缩前的字节数比例", null, prefix)
+                .record((double) compressedBytes / originalBytes);
+        timer("music.cache.compress", "缓存压缩耗时", prefix).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录一次解压的耗时
+     */
+    public void recordDecompress(String prefix, long nanos) {
+        timer("music.cache.decompress", "缓存解压耗时", prefix).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer timer(String name, String description, String prefix) {
+        return timers.computeIfAbsent(name + "|" + prefix, k -> Timer.builder(name)
+                .description(description)
+                .tag("prefix", prefix)
+                .register(meterRegistry));
+    }
+
+    private DistributionSummary summary(String name, String description, String baseUnit, String prefix) {
+        return summaries.computeIfAbsent(name + "|" + prefix, k -> DistributionSummary.builder(name)
+                .description(description)
+                .baseUnit(baseUnit)
+                .tag("prefix", prefix)
+                .register(meterRegistry));
+    }
+
+    private void get(String cache, String key, String result) {
+        counter("music.cache.gets", cache, prefixOf(key), result).increment();
+    }
+
+    private Counter counter(String name, String cache, String prefix, String result) {
+        return counters.computeIfAbsent(name + "|" + cache + "|" + prefix + "|" + result, k -> Counter.builder(name)
+                .tag("cache", cache)
+                .tag("prefix", prefix)
+                .tag("result", result)
+                .register(meterRegistry));
+    }
+
+    /**
+     * key 前缀：开头只含字母、下划线、短横线的段，最多 3 段
+     */
+    public static String prefixOf(String key) {
+        StringBuilder prefix = new StringBuilder();
+        int start = 0;
+        for (int i = 0; i < MAX_PREFIX_SEGMENTS && start <= key.length(); i++) {
+            int end = key.indexOf(':', start);
+            String segment = key.substring(start, end < 0 ? key.length() : end);
+            if (!PREFIX_SEGMENT.matcher(segment).matches()) {
+                break;
+            }
+            if (!prefix.isEmpty()) {
+                prefix.append(':');
+            }
+            prefix.append(segment);
+            if (end < 0) {
+                break;
+            }
+            start = end + 1;
+        }
+        return prefix.isEmpty() ? "*" : prefix.toString();
+    }
+}
@@ -0,0 +1,172 @@
+package com.kay.music.utils;
+
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.NumberUtil;
+import com.kay.music.constant.RedisConstants;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 缓存 key 的命名空间版本号（generation）
+ * 手动维护的歌曲分页、推荐、歌手歌曲分页缓存，key 中带上所属命名空间的版本号：
+ *   music:song:guest:{版本号}:{页码}:{每页条数}:...
+ *   music:song:recommended:{版本号}
+ *   music:song:artist:{歌手id}:{版本号}:{页码}:...
+ * 写操作只需要把版本号加 1（O(1)），旧版本的 key 不会再被读到，由 CacheSweeper 在后台回收
+ *
+ * 版本号保存在 Redis 的 Hash 中，本地缓存一份，修改时通过发布/订阅通知其他节点，并定时与 Redis 同步
+ *
+ * @author Kay
+ * @date 2026/10/18 18:50
+ */
+@Slf4j
+@Component
+public class CacheNamespaces implements MessageListener {
+
+    public static final String SONG_GUEST = RedisConstants.CACHE_SONG_KEY + "guest";
+    public static final String SONG_RECOMMENDED = RedisConstants.CACHE_SONG_KEY + "recommended";
+
+    /**
+     * 带版本号的 key：命名空间:版本号[:其余部分]
+     */
+    private static final Pattern VERSIONED_KEY = Pattern.compile(
+            "^(" + Pattern.quote(SONG_GUEST) + "|" + Pattern.quote(SONG_RECOMMENDED) + "|"
+                    + Pattern.quote(RedisConstants.CACHE_SONG_KEY) + "artist:\\d+):(\\d+)(:.*)?$");
+
+    private static final String NODE_ID = IdUtil.fastSimpleUUID();
+    private static final String SEPARATOR = "|";
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 命名空间 -> 当前版本号
+     */
+    private final Map<String, Long> generations = new ConcurrentHashMap<>();
+
+    public CacheNamespaces(StringRedisTemplate stringRedisTemplate,
+                           RedisMessageListenerContainer redisMessageListenerContainer) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(RedisConstants.CACHE_GENERATION_CHANNEL));
+    }
+
+    /**
+     * 歌手歌曲分页的命名空间，每个歌手单独一个，只失效该歌手的分页
+     */
+    public static String songsOfArtist(Long artistId) {
+        return RedisConstants.CACHE_SONG_KEY + "artist:" + artistId;
+    }
+
+    /**
+     * 拼接带当前版本号的 key
+     *
+     * @param namespace 命名空间
+     * @param suffix 其余部分，可以为空
+     */
+    public String key(String namespace, String suffix) {
+        String key = namespace + ":" + generation(namespace);
+        return suffix == null || suffix.isEmpty() ? key : key + ":" + suffix;
+    }
+
+    /**
+     * 当前版本号，本地没有时从 Redis 读取
+     */
+    public long generation(String namespace) {
+        Long generation = generations.get(namespace);
+        if (generation != null) {
+            return generation;
+        }
+        Object value = stringRedisTemplate.opsForHash().get(RedisConstants.CACHE_GENERATION_KEY, namespace);
+        long loaded = value == null ? 0 : Long.parseLong(value.toString());
+        return generations.merge(namespace, loaded, Math::max);
+    }
+
+    /**
+     * 版本号加 1，旧版本的 key 全部失效
+     */
+    public void bump(String namespace) {
+        Long generation = stringRedisTemplate.opsForHash().increment(RedisConstants.CACHE_GENERATION_KEY, namespace, 1);
+        generations.merge(namespace, generation, Math::max);
+        try {
+            stringRedisTemplate.convertAndSend(RedisConstants.CACHE_GENERATION_CHANNEL,
+                    NODE_ID + SEPARATOR + namespace + SEPARATOR + generation);
+        } catch (Exception e) {
+            // 其他节点最迟在下次定时同步时拿到新版本号
+            log.warn("缓存版本号广播失败: {}", namespace, e);
+        }
+    }
+
+    /**
+     * 按 CacheTagIndex 失效的标签，更新对应的命名空间
+     *   song:list   -> 歌曲分页、推荐
+     *   artist:{id} -> 该歌手的歌曲分页
+     */
+    public void bumpForTags(Collection<String> tags) {
+        Set<String> namespaces = new LinkedHashSet<>();
+        for (String tag : tags) {
+            if (CacheTagIndex.SONG_LIST.equals(tag)) {
+                // 分页、推荐只保存歌曲 id，单首歌曲的修改只需要删除它的实体缓存
+                namespaces.add(SONG_GUEST);
+                namespaces.add(SONG_RECOMMENDED);
+            } else if (tag.startsWith("artist:") && !CacheTagIndex.ARTIST_LIST.equals(tag)) {
+                // 不是合法 id 的标签（例如 artist:null）没有对应的命名空间，不能因为它让整个失效失败
+                String artistId = tag.substring("artist:".length());
+                if (NumberUtil.isLong(artistId)) {
+                    namespaces.add(songsOfArtist(Long.valueOf(artistId)));
+                } else {
+                    log.warn("忽略无法解析的歌手标签: {}", tag);
+                }
+            }
+        }
+        namespaces.forEach(this::bump);
+    }
+
+    /**
+     * 判断 key 是否属于已经失效的旧版本
+     *
+     * @return 不带版本号的 key 返回 false
+     */
+    public boolean isStale(String key) {
+        Matcher matcher = VERSIONED_KEY.matcher(key);
+        if (!matcher.matches()) {
+            return false;
+        }
+        return Long.parseLong(matcher.group(2)) < generation(matcher.group(1));
+    }
+
+    /**
+     * 收到其他节点的版本号更新
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|");
+        if (parts.length != 3 || NODE_ID.equals(parts[0])) {
+            return;
+        }
+        generations.merge(parts[1], Long.valueOf(parts[2]), Math::max);
+    }
+
+    /**
+     * 定时与 Redis 同步，弥补丢失的广播
+     */
+    @Scheduled(fixedDelayString = "${cache.namespace.refresh-interval-ms:5000}")
+    public void refresh() {
+        Map<Object, Object> all = stringRedisTemplate.opsForHash().entries(RedisConstants.CACHE_GENERATION_KEY);
+        all.forEach((namespace, generation) ->
+                generations.merge(namespace.toString(), Long.valueOf(generation.toString()), Math::max));
+    }
+}
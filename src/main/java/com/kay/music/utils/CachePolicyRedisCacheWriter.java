@@ -0,0 +1,126 @@
+package com.kay.music.utils;
+
+import com.kay.music.config.CachePolicyProperties;
+import org.springframework.data.redis.cache.CacheStatistics;
+import org.springframework.data.redis.cache.CacheStatisticsCollector;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 按缓存策略决定每条缓存过期时间的 RedisCacheWriter 装饰器
+ * RedisCacheConfiguration 的 entryTtl 是固定值，随机数只在启动时算一次，所有缓存仍然会同时失效；
+ * 这里在每次写入时重新计算：空结果使用 nullTtl，其余使用 ttl + 随机 0 ~ jitter；
+ * 读取时记录热点 key，热点 key 优先读取本节点保留的副本
+ *
+ * @author Kay
+ * @date 2026/10/18 20:40
+ */
+public class CachePolicyRedisCacheWriter implements RedisCacheWriter {
+
+    /**
+     * 当前线程正在写入的是否是空结果，由 TaggingCacheManager 在写入前标记
+     * （写入到这里时已经是序列化后的字节，无法再判断）
+     */
+    private static final ThreadLocal<Boolean> WRITING_EMPTY = new ThreadLocal<>();
+
+    private final RedisCacheWriter delegate;
+    private final CachePolicyProperties properties;
+    private final HotKeyDetector hotKeyDetector;
+
+    public CachePolicyRedisCacheWriter(RedisCacheWriter delegate, CachePolicyProperties properties,
+                                       HotKeyDetector hotKeyDetector) {
+        this.delegate = delegate;
+        this.properties = properties;
+        this.hotKeyDetector = hotKeyDetector;
+    }
+
+    /**
+     * 以空结果的身份执行写入
+     */
+    public static void writeEmpty(Runnable write) {
+        WRITING_EMPTY.set(Boolean.TRUE);
+        try {
+            write.run();
+        } finally {
+            WRITING_EMPTY.remove();
+        }
+    }
+
+    /**
+     * 本次写入的过期时间
+     */
+    private Duration ttl(String name) {
+        CachePolicyProperties.Policy policy = properties.resolve(name);
+        if (Boolean.TRUE.equals(WRITING_EMPTY.get())) {
+            return policy.getNullTtl();
+        }
+        long jitterMillis = policy.getJitter().toMillis();
+        if (jitterMillis <= 0) {
+            return policy.getTtl();
+        }
+        return policy.getTtl().plusMillis(ThreadLocalRandom.current().nextLong(jitterMillis + 1));
+    }
+
+    @Override
+    public void put(String name, byte[] key, byte[] value, Duration ttl) {
+        delegate.put(name, key, value, ttl(name));
+        hotKeyDetector.unpin(keyString(key));
+    }
+
+    @Override
+    public byte[] get(String name, byte[] key) {
+        String keyString = keyString(key);
+        hotKeyDetector.record(keyString);
+        byte[] pinned = hotKeyDetector.getPinned(keyString);
+        if (pinned != null) {
+            return pinned;
+        }
+        byte[] value = delegate.get(name, key);
+        hotKeyDetector.pinIfHot(keyString, value);
+        return value;
+    }
+
+    @Override
+    public byte[] putIfAbsent(String name, byte[] key, byte[] value, Duration ttl) {
+        byte[] existing = delegate.putIfAbsent(name, key, value, ttl(name));
+        if (existing == null) {
+            hotKeyDetector.unpin(keyString(key));
+        }
+        return existing;
+    }
+
+    @Override
+    public void remove(String name, byte[] key) {
+        delegate.remove(name, key);
+        hotKeyDetector.unpin(keyString(key));
+    }
+
+    @Override
+    public void clean(String name, byte[] pattern) {
+        delegate.clean(name, pattern);
+        hotKeyDetector.unpin(keyString(pattern));
+    }
+
+    private static String keyString(byte[] key) {
+        return new String(key, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void clearStatistics(String name) {
+        delegate.clearStatistics(name);
+    }
+
+    @Override
+    public RedisCacheWriter withStatisticsCollector(CacheStatisticsCollector cacheStatisticsCollector) {
+        return new CachePolicyRedisCacheWriter(delegate.withStatisticsCollector(cacheStatisticsCollector), properties,
+                hotKeyDetector);
+    }
+
+    @Override
+    public CacheStatistics getCacheStatistics(String cacheName) {
+        return delegate.getCacheStatistics(cacheName);
+    }
+}
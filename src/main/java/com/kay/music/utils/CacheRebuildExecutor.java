@@ -0,0 +1,175 @@
+package com.kay.music.utils;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 全局共享的缓存重建线程池
+ * 替代各处的 Executors.newFixedThreadPool(10)（无界队列，热点 key 过期时同一个 key 会被提交成千上万次）
+ *
+ * 1. 同一个 key 同时只有一个重建任务，重复提交直接忽略
+ * 2. 有界队列，队列满时丢弃新任务（调用方继续返回旧数据，下次读取会再次尝试）
+ * 3. 应用关闭时等待已提交的任务执行完，超时后强制中断
+ * 4. 记录队列深度、重建耗时、丢弃次数等指标（同时注册到 Micrometer）
+ *
+ * @author Kay
+ * @date 2026/10/18 15:40
+ */
+@Slf4j
+@Component
+public class CacheRebuildExecutor implements DisposableBean {
+
+    private final ThreadPoolExecutor executor;
+
+    private final long shutdownTimeoutSeconds;
+
+    private final CacheMetrics cacheMetrics;
+
+    private final Timer latencyTimer;
+
+    /**
+     * 正在排队或执行中的 key
+     */
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong deduplicated = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    public CacheRebuildExecutor(MeterRegistry meterRegistry,
+                                CacheMetrics cacheMetrics,
+                                @Value("${cache.rebuild.threads:10}") int threads,
+                                @Value("${cache.rebuild.queue-capacity:256}") int queueCapacity,
+                                @Value("${cache.rebuild.shutdown-timeout-seconds:10}") long shutdownTimeoutSeconds) {
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "cache-rebuild-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.shutdownTimeoutSeconds = shutdownTimeoutSeconds;
+        this.cacheMetrics = cacheMetrics;
+
+        Gauge.builder("music.cache.rebuild.queue", this, CacheRebuildExecutor::getQueueDepth)
+                .description("排队中的缓存重建任务数")
+                .register(meterRegistry);
+        Gauge.builder("music.cache.rebuild.inflight", inFlight, Set::size)
+                .description("排队或执行中的缓存重建 key 数")
+                .register(meterRegistry);
+        FunctionCounter.builder("music.cache.rebuild.dropped", dropped, AtomicLong::get)
+                .description("队列已满被丢弃的重建任务数")
+                .register(meterRegistry);
+        FunctionCounter.builder("music.cache.rebuild.deduplicated", deduplicated, AtomicLong::get)
+                .description("同一个 key 重复提交被忽略的次数")
+                .register(meterRegistry);
+        this.latencyTimer = Timer.builder("music.cache.rebuild.latency")
+                .description("缓存重建耗时")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 提交重建任务
+     *
+     * @param key 缓存键，同一个 key 同时只会有一个任务
+     * @param task 重建逻辑
+     * @return 是否提交成功；重复或队列已满时返回 false
+     */
+    public boolean submit(String key, Runnable task) {
+        if (!inFlight.add(key)) {
+            deduplicated.incrementAndGet();
+            return false;
+        }
+        try {
+            executor.execute(() -> run(key, task));
+            submitted.incrementAndGet();
+            return true;
+        } catch (RejectedExecutionException e) {
+            // 队列已满或正在关闭，丢弃，调用方继续使用旧数据
+            inFlight.remove(key);
+            dropped.incrementAndGet();
+            log.warn("缓存重建队列已满，丢弃任务: {}", key);
+            return false;
+        }
+    }
+
+    private void run(String key, Runnable task) {
+        long start = System.nanoTime();
+        try {
+            task.run();
+            completed.incrementAndGet();
+            cacheMetrics.rebuildSuccess(CacheMetrics.REDIS, key);
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            cacheMetrics.rebuildFailure(CacheMetrics.REDIS, key);
+            log.error("缓存重建异常: {}", key, e);
+        } finally {
+            long latency = System.nanoTime() - start;
+            latencyTimer.record(latency, TimeUnit.NANOSECONDS);
+            totalLatencyNanos.addAndGet(latency);
+            maxLatencyNanos.accumulateAndGet(latency, Math::max);
+            inFlight.remove(key);
+        }
+    }
+
+    /**
+     * 当前排队中的任务数
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * 运行指标
+     */
+    public Map<String, Object> stats() {
+        long finished = completed.get() + failed.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queueDepth", getQueueDepth());
+        stats.put("queueRemainingCapacity", executor.getQueue().remainingCapacity());
+        stats.put("activeThreads", executor.getActiveCount());
+        stats.put("inFlight", inFlight.size());
+        stats.put("submitted", submitted.get());
+        stats.put("deduplicated", deduplicated.get());
+        stats.put("dropped", dropped.get());
+        stats.put("completed", completed.get());
+        stats.put("failed", failed.get());
+        stats.put("avgLatencyMillis", finished == 0 ? 0 : totalLatencyNanos.get() / finished / 1_000_000.0);
+        stats.put("maxLatencyMillis", maxLatencyNanos.get() / 1_000_000.0);
+        return stats;
+    }
+
+    /**
+     * 应用关闭时不再接收新任务，等待已提交的任务执行完
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(shutdownTimeoutSeconds, TimeUnit.SECONDS)) {
+            log.warn("缓存重建任务在 {} 秒内未执行完，强制关闭，剩余 {} 个", shutdownTimeoutSeconds, executor.shutdownNow().size());
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.kay.music.utils;
+
+import cn.hutool.core.util.IdUtil;
+import com.kay.music.constant.RedisConstants;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Spring 缓存未命中时的全集群单飞（single-flight）加载
+ * 同一个 key 同时未命中时：
+ * 1. 本节点内只有第一个线程去加载，其他线程等待它的结果（本地 CompletableFuture）
+ * 2. 节点之间通过 Redis 租约（SET NX PX）只让一个节点查询数据库，其他节点轮询缓存等待写入，
+ *    等待超时（加载方宕机或太慢）后自己加载
+ *
+ * @author Kay
+ * @date 2026/10/18 21:10
+ */
+@Slf4j
+@Component
+public class CacheSingleFlight {
+
+    /**
+     * 只释放自己持有的租约
+     */
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 租约有效期（毫秒），需要比一次加载的耗时长，加载方宕机时最多阻塞这么久
+     */
+    private final long leaseMillis;
+
+    /**
+     * 等待其他节点加载的最长时间（毫秒）
+     */
+    private final long waitTimeoutMillis;
+
+    /**
+     * 等待时轮询缓存的间隔（毫秒）
+     */
+    private final long pollIntervalMillis;
+
+    /**
+     * 本节点正在加载的 key -> 加载结果
+     */
+    private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    public CacheSingleFlight(StringRedisTemplate stringRedisTemplate,
+                             @Value("${cache.single-flight.lease-ms:10000}") long leaseMillis,
+                             @Value("${cache.single-flight.wait-timeout-ms:3000}") long waitTimeoutMillis,
+                             @Value("${cache.single-flight.poll-interval-ms:50}") long pollIntervalMillis) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.leaseMillis = leaseMillis;
+        this.waitTimeoutMillis = waitTimeoutMillis;
+        this.pollIntervalMillis = pollIntervalMillis;
+    }
+
+    /**
+     * 加载缓存未命中的 key
+     *
+     * @param cacheKey 缓存在 Redis 中的完整 key（cacheName::key）
+     * @param lookup 读取缓存，等待其他节点时用来检查是否已经写入
+     * @param loader 查询数据库并写入缓存
+     * @return 加载到的值
+     */
+    public Object load(String cacheKey, Supplier<Cache.ValueWrapper> lookup, Callable<?> loader) throws Exception {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(cacheKey, future);
+        if (existing != null) {
+            // 本节点已经有线程在加载，等待它的结果
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof Exception cause ? cause : e;
+            }
+        }
+        try {
+            Object value = loadAcrossCluster(cacheKey, lookup, loader);
+            future.complete(value);
+            return value;
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(cacheKey, future);
+        }
+    }
+
+    private Object loadAcrossCluster(String cacheKey, Supplier<Cache.ValueWrapper> lookup, Callable<?> loader) throws Exception {
+        String leaseKey = RedisConstants.CACHE_LOAD_LEASE_KEY + cacheKey;
+        String token = IdUtil.fastSimpleUUID();
+        long deadline = System.currentTimeMillis() + waitTimeoutMillis;
+        while (true) {
+            Boolean acquired;
+            try {
+                acquired = stringRedisTemplate.opsForValue().setIfAbsent(leaseKey, token, leaseMillis, TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                // Redis 异常时退化为直接加载
+                log.warn("缓存加载租约获取失败: {}", cacheKey, e);
+                return loader.call();
+            }
+
+            if (Boolean.TRUE.equals(acquired)) {
+                try {
+                    // 拿到租约后再查一次，可能其他节点刚刚写入并释放了租约
+                    Cache.ValueWrapper wrapper = lookup.get();
+                    return wrapper != null ? wrapper.get() : loader.call();
+                } finally {
+                    release(leaseKey, token);
+                }
+            }
+
+            // 其他节点正在加载，等待它写入缓存
+            Thread.sleep(pollIntervalMillis);
+            Cache.ValueWrapper wrapper = lookup.get();
+            if (wrapper != null) {
+                return wrapper.get();
+            }
+            if (System.currentTimeMillis() > deadline) {
+                log.warn("等待其他节点加载缓存超时，自行加载: {}", cacheKey);
+                return loader.call();
+            }
+        }
+    }
+
+    private void release(String leaseKey, String token) {
+        try {
+            stringRedisTemplate.execute(RELEASE_SCRIPT, List.of(leaseKey), token);
+        } catch (Exception e) {
+            // 释放失败时租约到期后自动释放
+            log.warn("缓存加载租约释放失败: {}", leaseKey, e);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.kay.music.utils;
+
+import cn.hutool.core.util.IdUtil;
+import com.kay.music.constant.RedisConstants;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 后台回收 music:song:* 下的孤儿缓存
+ * 逻辑过期缓存在 Redis 中没有过期时间，以下两种 key 不会再被读到，却会一直占用内存：
+ * 1. 命名空间版本号已经更新，旧版本的 key（见 CacheNamespaces）
+ * 2. 逻辑过期时间已经过去很久（超过 stale-grace-minutes），说明已经没有请求在读它了
+ *
+ * 用 SCAN 分批扫描，删除前用 MEMORY USAGE 统计占用，日志和指标 music.cache.sweeper.* 中记录回收了多少内存
+ * 多节点时只有拿到锁的节点执行
+ *
+ * @author Kay
+ * @date 2026/10/18 19:15
+ */
+@Slf4j
+@Component
+public class CacheSweeper {
+
+    private static final byte[] USAGE = "USAGE".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * 只释放自己持有的回收锁
+     */
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final CacheNamespaces cacheNamespaces;
+    private final CacheCodecRegistry cacheCodecRegistry;
+
+    private final int batchSize;
+    private final long staleGraceMinutes;
+
+    private final Counter sweptKeys;
+    private final Counter freedBytes;
+
+    public CacheSweeper(StringRedisTemplate stringRedisTemplate,
+                        CacheNamespaces cacheNamespaces,
+                        CacheCodecRegistry cacheCodecRegistry,
+                        MeterRegistry meterRegistry,
+                        @Value("${cache.sweeper.batch-size:500}") int batchSize,
+                        @Value("${cache.sweeper.stale-grace-minutes:1440}") long staleGraceMinutes) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.cacheNamespaces = cacheNamespaces;
+        this.cacheCodecRegistry = cacheCodecRegistry;
+        this.batchSize = batchSize;
+        this.staleGraceMinutes = staleGraceMinutes;
+        this.sweptKeys = Counter.builder("music.cache.sweeper.keys")
+                .description("回收的孤儿缓存 key 数")
+                .register(meterRegistry);
+        this.freedBytes = Counter.builder("music.cache.sweeper.freed")
+                .description("回收的孤儿缓存占用的内存（字节）")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${cache.sweeper.interval-ms:600000}", initialDelayString = "${cache.sweeper.interval-ms:600000}")
+    public void sweep() {
+        String token = IdUtil.fastSimpleUUID();
+        Boolean locked = stringRedisTemplate.opsForValue()
+                .setIfAbsent(RedisConstants.CACHE_SWEEPER_LOCK_KEY, token, 5, TimeUnit.MINUTES);
+        if (!Boolean.TRUE.equals(locked)) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        long scanned = 0;
+        long keys = 0;
+        long bytes = 0;
+        try {
+            ScanOptions options = ScanOptions.scanOptions()
+                    .match(RedisConstants.CACHE_SONG_KEY + "*")
+                    .count(batchSize)
+                    .build();
+            List<String> batch = new ArrayList<>(batchSize);
+            try (Cursor<String> cursor = stringRedisTemplate.scan(options)) {
+                while (cursor.hasNext()) {
+                    batch.add(cursor.next());
+                    scanned++;
+                    if (batch.size() >= batchSize) {
+                        long[] freed = sweepBatch(batch);
+                        keys += freed[0];
+                        bytes += freed[1];
+                        batch.clear();
+                    }
+                }
+            }
+            long[] freed = sweepBatch(batch);
+            keys += freed[0];
+            bytes += freed[1];
+        } catch (Exception e) {
+            log.error("孤儿缓存回收异常", e);
+        } finally {
+            // 回收超过 5 分钟时锁可能已被其他节点拿到，不能直接删除
+            try {
+                stringRedisTemplate.execute(RELEASE_SCRIPT, List.of(RedisConstants.CACHE_SWEEPER_LOCK_KEY), token);
+            } catch (Exception e) {
+                log.warn("回收锁释放失败", e);
+            }
+        }
+        log.info("孤儿缓存回收完成：扫描 {} 个 key，删除 {} 个，释放约 {} KB，耗时 {} ms",
+                scanned, keys, bytes / 1024, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 处理一批 key
+     *
+     * @return [删除的 key 数, 释放的字节数]
+     */
+    private long[] sweepBatch(List<String> batch) {
+        if (batch.isEmpty()) {
+            return new long[]{0, 0};
+        }
+        // 不是旧版本的 key，再读取头部判断逻辑过期时间（只读 13 字节，不读取数据部分）
+        List<String> candidates = new ArrayList<>();
+        List<String> orphans = new ArrayList<>();
+        for (String key : batch) {
+            if (cacheNamespaces.isStale(key)) {
+                orphans.add(key);
+            } else {
+                candidates.add(key);
+            }
+        }
+        LocalDateTime deadline = LocalDateTime.now().minusMinutes(staleGraceMinutes);
+        List<Object> headers = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String key : candidates) {
+                connection.stringCommands().getRange(raw(key), 0, CacheCodecRegistry.HEADER_LENGTH - 1);
+            }
+            return null;
+        }, RedisSerializer.byteArray());
+        for (int i = 0; i < candidates.size(); i++) {
+            if (headers.get(i) instanceof byte[] header && isLongExpired(header, deadline)) {
+                orphans.add(candidates.get(i));
+            }
+        }
+        if (orphans.isEmpty()) {
+            return new long[]{0, 0};
+        }
+
+        // 删除前统计占用的内存
+        List<Object> sizes = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String key : orphans) {
+                connection.execute("MEMORY", USAGE, raw(key));
+            }
+            return null;
+        }, RedisSerializer.byteArray());
+        long bytes = sizes.stream().filter(Number.class::isInstance).mapToLong(size -> ((Number) size).longValue()).sum();
+        Long deleted = stringRedisTemplate.unlink(orphans);
+        long keys = deleted == null ? 0 : deleted;
+
+        sweptKeys.increment(keys);
+        freedBytes.increment(bytes);
+        return new long[]{keys, bytes};
+    }
+
+    /**
+     * 是否是逻辑过期时间早于 deadline 的缓存（锁、空值占位等不是逻辑过期缓存的 key 返回 false）
+     */
+    private boolean isLongExpired(byte[] header, LocalDateTime deadline) {
+        if (!cacheCodecRegistry.hasHeader(header)) {
+            return false;
+        }
+        return cacheCodecRegistry.peekExpireTime(header).isBefore(deadline);
+    }
+
+    private static byte[] raw(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+}
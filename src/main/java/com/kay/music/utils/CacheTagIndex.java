@@ -0,0 +1,258 @@
+package com.kay.music.utils;
+
+import cn.hutool.core.util.ReflectUtil;
+import com.kay.music.constant.RedisConstants;
+import com.kay.music.result.PageResult;
+import com.kay.music.result.Result;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 缓存依赖（标签）索引
+ * 每条缓存写入时记录它依赖的实体（歌曲、歌手、歌单、用户），写操作只删除打了对应标签的缓存，
+ * 不再用 allEntries = true 把整个缓存清空
+ *
+ * 标签格式：
+ *   song:12      —— 缓存内容包含 id 为 12 的歌曲
+ *   song:list    —— 缓存内容是歌曲列表，新增歌曲、修改可搜索字段时需要失效
+ *   user:3       —— 缓存内容包含用户 3，或者是用户 3 自己的缓存（收藏列表等按用户区分的缓存）
+ *
+ * Redis 中每个标签是一个 Set：music:cache:tag:{标签} -> 缓存 key 集合
+ *
+ * @author Kay
+ * @date 2026/10/18 11:05
+ */
+@Slf4j
+@Component
+public class CacheTagIndex {
+
+    public static final String SONG_LIST = "song:list";
+    public static final String ARTIST_LIST = "artist:list";
+    public static final String PLAYLIST_LIST = "playlist:list";
+    public static final String USER_LIST = "user:list";
+
+    /**
+     * 实体 id 字段名 -> 标签前缀
+     */
+    private static final Map<String, String> ID_FIELDS = Map.of(
+            "songId", "song:",
+            "artistId", "artist:",
+            "playlistId", "playlist:",
+            "userId", "user:"
+    );
+
+    /**
+     * 标签前缀 -> 列表标签
+     */
+    private static final Map<String, String> LIST_TAGS = Map.of(
+            "song:", SONG_LIST,
+            "artist:", ARTIST_LIST,
+            "playlist:", PLAYLIST_LIST,
+            "user:", USER_LIST
+    );
+
+    /**
+     * 每个类中需要读取的字段（id 字段和嵌套的列表字段），按类缓存，避免每次反射查找
+     */
+    private static final Map<Class<?>, List<Field>> FIELD_CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * 读取标签集合并删除其中的缓存和标签集合本身，返回删除的缓存 key
+     * 读和删在一个脚本里原子执行：分两步时，两步之间并发写入的缓存会随标签集合一起被删掉标签，却没有删掉缓存本身，
+     * 之后的失效再也找不到它，只能等到过期
+     * 每次最多删除 1000 个 key，避免超出 Lua unpack 的参数个数限制
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static final DefaultRedisScript<List<String>> EVICT_SCRIPT = new DefaultRedisScript<>("""
+            local keys = {}
+            for _, tagKey in ipairs(KEYS) do
+                for _, key in ipairs(redis.call('smembers', tagKey)) do
+                    keys[#keys + 1] = key
+                end
+                redis.call('del', tagKey)
+            end
+            for i = 1, #keys, 1000 do
+                redis.call('del', unpack(keys, i, math.min(i + 999, #keys)))
+            end
+            return keys
+            """, (Class) List.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final NearCache nearCache;
+    private final CacheNamespaces cacheNamespaces;
+
+    public CacheTagIndex(StringRedisTemplate stringRedisTemplate, NearCache nearCache, CacheNamespaces cacheNamespaces) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.nearCache = nearCache;
+        this.cacheNamespaces = cacheNamespaces;
+    }
+
+    public static String song(Long songId) {
+        return "song:" + songId;
+    }
+
+    public static String artist(Long artistId) {
+        return "artist:" + artistId;
+    }
+
+    public static String playlist(Long playlistId) {
+        return "playlist:" + playlistId;
+    }
+
+    public static String user(Long userId) {
+        return "user:" + userId;
+    }
+
+    /**
+     * 从缓存值中提取依赖的实体标签
+     * 会展开 Result、PageResult、集合，以及 VO 中的 songs 等嵌套列表
+     *
+     * @param value 缓存值
+     * @return 标签集合
+     */
+    public static Set<String> extractTags(Object value) {
+        Set<String> tags = new LinkedHashSet<>();
+        collect(value, tags, true);
+        return tags;
+    }
+
+    private static void collect(Object value, Set<String> tags, boolean topLevel) {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof Result<?> result) {
+            collect(result.getData(), tags, topLevel);
+            return;
+        }
+        if (value instanceof PageResult<?> pageResult) {
+            collect(pageResult.getItems(), tags, true);
+            return;
+        }
+        if (value instanceof Collection<?> collection) {
+            Set<String> itemTags = new LinkedHashSet<>();
+            for (Object item : collection) {
+                collect(item, itemTags, false);
+            }
+            if (topLevel) {
+                // 顶层列表（分页、推荐等）还依赖整个集合，新增数据时也要失效
+                for (String tag : itemTags) {
+                    LIST_TAGS.forEach((prefix, listTag) -> {
+                        if (tag.startsWith(prefix)) {
+                            tags.add(listTag);
+                        }
+                    });
+                }
+            }
+            tags.addAll(itemTags);
+            return;
+        }
+        if (value.getClass().getName().startsWith("java.")) {
+            return;
+        }
+        for (Field field : FIELD_CACHE.computeIfAbsent(value.getClass(), CacheTagIndex::trackedFields)) {
+            Object fieldValue = ReflectUtil.getFieldValue(value, field);
+            if (fieldValue instanceof Collection<?>) {
+                collect(fieldValue, tags, false);
+            } else if (fieldValue != null) {
+                tags.add(ID_FIELDS.get(field.getName()) + fieldValue);
+            }
+        }
+    }
+
+    private static List<Field> trackedFields(Class<?> type) {
+        List<Field> fields = new ArrayList<>();
+        for (Field field : ReflectUtil.getFields(type)) {
+            if (ID_FIELDS.containsKey(field.getName()) || Collection.class.isAssignableFrom(field.getType())) {
+                fields.add(field);
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * 记录一条缓存依赖的标签
+     *
+     * @param cacheKey 缓存在 Redis 中的完整 key
+     * @param tags 标签
+     */
+    public void record(String cacheKey, Collection<String> tags) {
+        recordAll(Map.of(cacheKey, tags));
+    }
+
+    /**
+     * 在一个管道中批量记录多条缓存依赖的标签
+     *
+     * @param tagsByKey 缓存在 Redis 中的完整 key -> 标签
+     */
+    public void recordAll(Map<String, ? extends Collection<String>> tagsByKey) {
+        if (tagsByKey.values().stream().allMatch(Collection::isEmpty)) {
+            return;
+        }
+        try {
+            stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                    RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                    tagsByKey.forEach((cacheKey, tags) -> {
+                        for (String tag : tags) {
+                            String tagKey = RedisConstants.CACHE_TAG_KEY + tag;
+                            ops.opsForSet().add(tagKey, cacheKey);
+                            // 标签集合的有效期要比缓存本身长，过期后自然回收
+                            ops.expire(tagKey, RedisConstants.CACHE_TAG_TTL, TimeUnit.HOURS);
+                        }
+                    });
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            // 记录失败只会让这些缓存等到过期才失效，不影响本次请求
+            log.warn("缓存标签记录失败: {}", tagsByKey.keySet(), e);
+        }
+    }
+
+    /**
+     * 删除所有打了指定标签的缓存
+     *
+     * @param tags 标签
+     */
+    public void evict(String... tags) {
+        evict(Arrays.asList(tags));
+    }
+
+    /**
+     * 删除所有打了指定标签的缓存，并更新受影响的缓存命名空间版本号
+     *
+     * @param tags 标签
+     */
+    public void evict(Collection<String> tags) {
+        // 歌曲分页等按命名空间版本号失效的缓存，不在标签索引里
+        cacheNamespaces.bumpForTags(tags);
+
+        List<String> tagKeys = tags.stream().map(tag -> RedisConstants.CACHE_TAG_KEY + tag).distinct().toList();
+        List<String> keys = stringRedisTemplate.execute(EVICT_SCRIPT, tagKeys);
+        if (keys == null) {
+            keys = List.of();
+        }
+
+        // 手动维护的 music:* 缓存可能还在各节点的本地缓存中，热点 key（包括 Spring 缓存）可能在各节点有本地副本
+        keys.forEach(nearCache::invalidate);
+        log.debug("按标签 {} 删除缓存 {} 条", tags, keys.size());
+    }
+}
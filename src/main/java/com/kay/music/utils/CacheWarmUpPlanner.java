@@ -0,0 +1,315 @@
+package com.kay.music.utils;
+
+import cn.hutool.json.JSONUtil;
+import com.kay.music.constant.RedisConstants;
+import com.kay.music.pojo.dto.SongDTO;
+import com.kay.music.service.IArtistService;
+import com.kay.music.service.IPlaylistService;
+import com.kay.music.service.ISongService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.zset.Aggregate;
+import org.springframework.data.redis.connection.zset.Weights;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按访问量规划的缓存预热
+ * 替代原来的 HotDataPreloader（只预热游客第 1 页，而且在 Bean 初始化时同步执行，拖慢启动）
+ *
+ * 1. 记录：控制器每次请求歌曲分页、推荐、歌曲/歌手/歌单详情时计数，本地累加后定时批量写入 Redis 的 ZSet，
+ *    ZSet 只保留访问量最高的一部分，每天衰减一次，重启后仍然可用
+ * 2. 回放：启动完成后取访问量最高的 top-n 个目标，用有限的并发异步调用对应的查询，把缓存填上
+ * 3. 就绪：预热完成的比例达到 ready-ratio 之前，应用的就绪状态为 REFUSING_TRAFFIC
+ *
+ * 预热目标格式：类型|参数，例如 song|12、guest|{"pageNum":1,"pageSize":20}
+ *
+ * @author Kay
+ * @date 2026/10/18 17:20
+ */
+@Slf4j
+@Component
+public class CacheWarmUpPlanner {
+
+    private static final String GUEST_PAGE = "guest";
+    private static final String RECOMMENDED = "recommended";
+    private static final String SONG = "song";
+    private static final String ARTIST = "artist";
+    private static final String PLAYLIST = "playlist";
+    private static final String SEPARATOR = "|";
+
+    /**
+     * 两次写入之间本地最多记录的目标数，超出后新目标不再计数（长尾的搜索条件没有预热价值）
+     */
+    private static final int MAX_PENDING = 10000;
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ApplicationContext applicationContext;
+    private final ISongService songService;
+    private final IArtistService artistService;
+    private final IPlaylistService playlistService;
+
+    private final boolean enabled;
+    private final int topN;
+    private final int concurrency;
+    private final double readyRatio;
+
+    /**
+     * 本地累加的访问次数，定时写入 Redis
+     */
+    private final Map<String, LongAdder> pending = new ConcurrentHashMap<>();
+
+    private final AtomicInteger planned = new AtomicInteger();
+    private final AtomicInteger warmed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private volatile boolean ready;
+
+    public CacheWarmUpPlanner(StringRedisTemplate stringRedisTemplate,
+                              ApplicationContext applicationContext,
+                              ISongService songService,
+                              IArtistService artistService,
+                              IPlaylistService playlistService,
+                              @Value("${cache.warmup.enabled:true}") boolean enabled,
+                              @Value("${cache.warmup.top-n:200}") int topN,
+                              @Value("${cache.warmup.concurrency:4}") int concurrency,
+                              @Value("${cache.warmup.ready-ratio:0.8}") double readyRatio) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.applicationContext = applicationContext;
+        this.songService = songService;
+        this.artistService = artistService;
+        this.playlistService = playlistService;
+        this.enabled = enabled;
+        this.topN = topN;
+        this.concurrency = concurrency;
+        this.readyRatio = readyRatio;
+        this.ready = !enabled;
+    }
+
+    public void recordSongPage(SongDTO songDTO) {
+        record(GUEST_PAGE + SEPARATOR + JSONUtil.toJsonStr(songDTO));
+    }
+
+    public void recordRecommendedSongs() {
+        record(RECOMMENDED + SEPARATOR);
+    }
+
+    public void recordSongDetail(Long songId) {
+        record(SONG + SEPARATOR + songId);
+    }
+
+    public void recordArtistDetail(Long artistId) {
+        record(ARTIST + SEPARATOR + artistId);
+    }
+
+    public void recordPlaylistDetail(Long playlistId) {
+        record(PLAYLIST + SEPARATOR + playlistId);
+    }
+
+    private void record(String target) {
+        if (!enabled) {
+            return;
+        }
+        LongAdder counter = pending.get(target);
+        if (counter == null) {
+            if (pending.size() >= MAX_PENDING) {
+                return;
+            }
+            counter = pending.computeIfAbsent(target, t -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    /**
+     * 定时把本地计数写入 Redis，并只保留访问量最高的部分
+     */
+    @Scheduled(fixedDelayString = "${cache.warmup.flush-interval-ms:30000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (String target : new ArrayList<>(pending.keySet())) {
+            LongAdder counter = pending.remove(target);
+            if (counter != null) {
+                counts.put(target, counter.sum());
+            }
+        }
+        // 多保留一些，给排名靠后但正在上升的目标留出位置
+        long keep = (long) topN * 10;
+        try {
+            stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                    RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                    counts.forEach((target, count) -> ops.opsForZSet().incrementScore(RedisConstants.WARMUP_PLAN_KEY, target, count));
+                    ops.opsForZSet().removeRange(RedisConstants.WARMUP_PLAN_KEY, 0, -keep - 1);
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            log.warn("缓存预热访问计数写入失败，丢弃 {} 条", counts.size(), e);
+        }
+    }
+
+    /**
+     * 每天把访问量减半，让最近的访问占更大比重；多节点时只有拿到锁的节点执行
+     */
+    @Scheduled(cron = "${cache.warmup.decay-cron:0 0 4 * * ?}")
+    public void decay() {
+        Boolean locked = stringRedisTemplate.opsForValue()
+                .setIfAbsent(RedisConstants.WARMUP_DECAY_LOCK_KEY, "1", 1, TimeUnit.HOURS);
+        if (!Boolean.TRUE.equals(locked)) {
+            return;
+        }
+        stringRedisTemplate.opsForZSet().unionAndStore(RedisConstants.WARMUP_PLAN_KEY, List.of(),
+                RedisConstants.WARMUP_PLAN_KEY, Aggregate.SUM, Weights.of(0.5));
+    }
+
+    /**
+     * 启动完成后异步回放预热计划，不阻塞启动
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            return;
+        }
+        Thread thread = new Thread(this::warmUp, "cache-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Spring Boot 在启动完成后会把就绪状态设为 ACCEPTING_TRAFFIC，预热比例未达标时改回 REFUSING_TRAFFIC
+     */
+    @EventListener
+    public synchronized void onReadinessChange(AvailabilityChangeEvent<ReadinessState> event) {
+        if (event.getState() == ReadinessState.ACCEPTING_TRAFFIC && !ready) {
+            log.info("缓存预热未完成，暂不接收流量");
+            AvailabilityChangeEvent.publish(applicationContext, ReadinessState.REFUSING_TRAFFIC);
+        }
+    }
+
+    private void warmUp() {
+        List<String> plan = loadPlan();
+        planned.set(plan.size());
+        log.info("开始预热缓存，共 {} 个目标，并发 {}", plan.size(), concurrency);
+        long start = System.currentTimeMillis();
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "cache-warmup-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (String target : plan) {
+            pool.execute(() -> {
+                try {
+                    replay(target);
+                    warmed.incrementAndGet();
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                    log.warn("缓存预热失败: {}", target, e);
+                } finally {
+                    ThreadLocalUtil.remove();
+                }
+                checkReady();
+            });
+        }
+        pool.shutdown();
+        try {
+            pool.awaitTermination(10, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // 失败太多达不到比例时，全部执行完也要放行
+        markReady();
+        log.info("缓存预热完成，成功 {}，失败 {}，耗时 {} ms", warmed.get(), failed.get(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 读取访问量最高的 top-n 个目标；第一次启动还没有访问记录时，预热游客第 1 页和推荐歌曲
+     */
+    private List<String> loadPlan() {
+        Set<String> top = null;
+        try {
+            top = stringRedisTemplate.opsForZSet().reverseRange(RedisConstants.WARMUP_PLAN_KEY, 0, topN - 1);
+        } catch (Exception e) {
+            log.warn("读取缓存预热计划失败，使用默认计划", e);
+        }
+        if (top == null || top.isEmpty()) {
+            SongDTO songDTO = new SongDTO();
+            songDTO.setPageNum(1);
+            songDTO.setPageSize(20);
+            return List.of(GUEST_PAGE + SEPARATOR + JSONUtil.toJsonStr(songDTO), RECOMMENDED + SEPARATOR);
+        }
+        return new ArrayList<>(top);
+    }
+
+    /**
+     * 调用目标对应的查询（都是代理对象，@Cacheable 生效）
+     */
+    private void replay(String target) {
+        int index = target.indexOf(SEPARATOR);
+        String type = target.substring(0, index);
+        String param = target.substring(index + 1);
+        switch (type) {
+            case GUEST_PAGE -> songService.getAllSongsForGuest(JSONUtil.toBean(param, SongDTO.class));
+            case RECOMMENDED -> songService.getRecommendedSongs();
+            case SONG -> songService.getSongDetail(Long.valueOf(param), null);
+            case ARTIST -> artistService.getArtistDetail(Long.valueOf(param));
+            case PLAYLIST -> playlistService.getPlaylistDetail(Long.valueOf(param), null);
+            default -> log.warn("未知的缓存预热目标: {}", target);
+        }
+    }
+
+    private void checkReady() {
+        if (!ready && warmed.get() >= Math.ceil(planned.get() * readyRatio)) {
+            markReady();
+        }
+    }
+
+    private synchronized void markReady() {
+        if (ready) {
+            return;
+        }
+        ready = true;
+        log.info("缓存预热已完成 {}/{}，开始接收流量", warmed.get(), planned.get());
+        AvailabilityChangeEvent.publish(applicationContext, ReadinessState.ACCEPTING_TRAFFIC);
+    }
+
+    /**
+     * 预热进度
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("planned", planned.get());
+        stats.put("warmed", warmed.get());
+        stats.put("failed", failed.get());
+        stats.put("ready", ready);
+        stats.put("pendingTargets", pending.size());
+        return stats;
+    }
+}
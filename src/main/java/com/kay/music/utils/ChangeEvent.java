@@ -0,0 +1,36 @@
+package com.kay.music.utils;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 发件箱中的一条变更，由 OutboxPublisher 在每个节点上发布为 Spring 事件
+ * 本地的搜索索引、计数等可以监听这个事件，不需要在写操作中同步维护
+ * 同一条变更可能收到不止一次，先后顺序也不保证与 id 一致，监听者应当按标签重新读取数据，不能按 id 去重或判断新旧
+ *
+ * @param id 变更 id，只用于日志排查
+ * @param tags 受影响的缓存标签（song:12、artist:list 等，格式见 CacheTagIndex）
+ *
+ * @author Kay
+ * @date 2026/10/18 21:45
+ */
+public record ChangeEvent(long id, List<String> tags) {
+
+    /**
+     * 取出指定前缀的实体 id，例如前缀 song: 时 song:12 -> 12，song:list 等不是实体标签的忽略
+     */
+    public Set<Long> ids(String prefix) {
+        Set<Long> ids = new LinkedHashSet<>();
+        for (String tag : tags) {
+            if (!tag.startsWith(prefix)) {
+                continue;
+            }
+            String id = tag.substring(prefix.length());
+            if (!id.isEmpty() && id.chars().allMatch(Character::isDigit)) {
+                ids.add(Long.valueOf(id));
+            }
+        }
+        return ids;
+    }
+}
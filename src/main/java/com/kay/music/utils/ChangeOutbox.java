@@ -0,0 +1,52 @@
+package com.kay.music.utils;
+
+import cn.hutool.core.util.StrUtil;
+import com.kay.music.mapper.OutboxMapper;
+import com.kay.music.pojo.entity.Outbox;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * 变更发件箱的写入入口
+ * 写操作不再直接失效缓存，而是在同一个事务中写入一条 tb_outbox 记录：
+ * 事务回滚时变更不会发布，缓存也不会被误删；提交后由 OutboxPublisher 按顺序异步发布
+ *
+ * @author Kay
+ * @date 2026/10/18 21:45
+ */
+@Component
+public class ChangeOutbox {
+
+    private final OutboxMapper outboxMapper;
+
+    public ChangeOutbox(OutboxMapper outboxMapper) {
+        this.outboxMapper = outboxMapper;
+    }
+
+    /**
+     * 记录一条变更，需要在写操作的事务中调用
+     *
+     * @param tags 受影响的缓存标签
+     */
+    public void record(String... tags) {
+        record(Arrays.asList(tags));
+    }
+
+    /**
+     * 记录一条变更，需要在写操作的事务中调用
+     *
+     * @param tags 受影响的缓存标签
+     */
+    public void record(Collection<String> tags) {
+        if (tags.isEmpty()) {
+            return;
+        }
+        outboxMapper.insert(new Outbox()
+                .setTags(StrUtil.join(",", tags))
+                .setPublished(0)
+                .setCreateTime(LocalDateTime.now()));
+    }
+}
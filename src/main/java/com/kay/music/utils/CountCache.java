@@ -0,0 +1,242 @@
+package com.kay.music.utils;
+
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.kay.music.constant.RedisConstants;
+import com.kay.music.result.PageResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 分页总数缓存，列表请求不再每次都由分页插件额外执行一次 COUNT
+ *
+ * 1. 不带筛选条件的总数：保存在 Redis 中，新增、删除提交后增减（key 不存在时不增减，下次读取时重新统计），
+ *    total-ttl 后过期重新统计一次，纠正级联删除、事务外写入等造成的偏差
+ * 2. 带筛选条件的总数：按条件缓存 filter-ttl，期间的新增、删除不会反映到总数上，最多滞后 filter-ttl
+ * 3. 客户端可以不要总数（withTotal = false）：不执行 COUNT，多查一条判断是否还有下一页（hasMore）
+ *
+ * 列表：page() 创建分页对象交给 selectPage，查询后用 result() 取出本页数据和总数；只要总数时用 count()
+ *
+ * @author Kay
+ * @date 2026/10/18 23:30
+ */
+@Slf4j
+@Component
+public class CountCache {
+
+    public static final String SONG = "song";
+    public static final String ARTIST = "artist";
+    public static final String PLAYLIST = "playlist";
+    public static final String USER = "user";
+
+    /**
+     * key 存在时才增减，不存在时等下次读取重新统计，避免从 0 开始累加
+     */
+    private static final DefaultRedisScript<Long> INCREMENT_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('exists', KEYS[1]) == 1 then return redis.call('incrby', KEYS[1], ARGV[1]) else return 0 end",
+            Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 不带筛选条件的总数的有效期（分钟）
+     */
+    private final long totalTtlMinutes;
+
+    /**
+     * 带筛选条件的总数的有效期（秒），即总数最多滞后的时间
+     */
+    private final long filterTtlSeconds;
+
+    public CountCache(StringRedisTemplate stringRedisTemplate,
+                      @Value("${count.total-ttl-minutes:60}") long totalTtlMinutes,
+                      @Value("${count.filter-ttl-seconds:60}") long filterTtlSeconds) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.totalTtlMinutes = totalTtlMinutes;
+        this.filterTtlSeconds = filterTtlSeconds;
+    }
+
+    /**
+     * 筛选条件，作为带筛选条件的总数的缓存 key
+     *
+     * @param list 列表名称，区分筛选条件相同但含义不同的列表
+     * @param values 筛选条件的值
+     * @return 全部为 null 时返回 null，即使用不带筛选条件的总数
+     */
+    public static String filter(String list, Object... values) {
+        if (Arrays.stream(values).noneMatch(Objects::nonNull)) {
+            return null;
+        }
+        return list + ":" + Arrays.deepToString(values);
+    }
+
+    /**
+     * 总数，缓存中没有时由 loader 统计
+     *
+     * @param filter filter() 生成的筛选条件，为 null 时使用不带筛选条件的总数
+     */
+    public long count(String entity, String filter, Supplier<Long> loader) {
+        String key = key(entity, filter);
+        Long cached = read(key);
+        if (cached != null) {
+            return cached;
+        }
+        long count = loader.get();
+        write(key, count, ttlSeconds(filter));
+        return count;
+    }
+
+    /**
+     * 新增或删除提交后增减总数；不在事务中时立即增减
+     *
+     * @param delta 新增为正数，删除为负数
+     */
+    public void increment(String entity, long delta) {
+        if (delta == 0) {
+            return;
+        }
+        afterCommit(() -> stringRedisTemplate.execute(INCREMENT_SCRIPT,
+                List.of(RedisConstants.COUNT_TOTAL_KEY + entity), String.valueOf(delta)));
+    }
+
+    /**
+     * 删除总数，下次读取时重新统计，用于级联删除等不知道具体减少多少的情况
+     */
+    public void evict(String entity) {
+        afterCommit(() -> stringRedisTemplate.delete(RedisConstants.COUNT_TOTAL_KEY + entity));
+    }
+
+    private static void afterCommit(Runnable action) {
+        Runnable safe = () -> {
+            try {
+                action.run();
+            } catch (Exception e) {
+                // 总数只是展示用，失败时等过期后重新统计
+                log.warn("分页总数更新失败", e);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    safe.run();
+                }
+            });
+        } else {
+            safe.run();
+        }
+    }
+
+    /**
+     * 创建分页对象
+     * 能从缓存取到总数时关闭分页插件的 COUNT；不要总数时多查一条，用于判断是否还有下一页
+     *
+     * @param entity 实体类型，SONG / ARTIST / PLAYLIST / USER
+     * @param filter filter() 生成的筛选条件，为 null 时使用不带筛选条件的总数
+     * @param withTotal 是否需要总数，null 视为需要
+     */
+    public <T> CountedPage<T> page(String entity, String filter, int pageNum, int pageSize, Boolean withTotal) {
+        if (Boolean.FALSE.equals(withTotal)) {
+            return new CountedPage<>(pageNum, pageSize, null, null, true);
+        }
+        String key = key(entity, filter);
+        Long cached = read(key);
+        CountedPage<T> page = new CountedPage<>(pageNum, pageSize, key, cached, false);
+        page.setSearchCount(cached == null);
+        page.ttlSeconds = ttlSeconds(filter);
+        return page;
+    }
+
+    /**
+     * 查询后取出本页数据和总数：分页插件统计了总数时写入缓存；不要总数时去掉多查的一条，设置 hasMore
+     */
+    public <T> PageResult<T> result(CountedPage<T> page) {
+        List<T> records = page.getRecords();
+        if (page.lookahead) {
+            boolean hasMore = records.size() > page.pageSize;
+            List<T> items = hasMore ? new ArrayList<>(records.subList(0, page.pageSize)) : records;
+            PageResult<T> result = new PageResult<>(null, items);
+            result.setHasMore(hasMore);
+            return result;
+        }
+        long total;
+        if (page.cachedTotal != null) {
+            total = page.cachedTotal;
+        } else {
+            total = page.getTotal();
+            write(page.countKey, total, page.ttlSeconds);
+        }
+        return new PageResult<>(total, records);
+    }
+
+    private Long read(String key) {
+        try {
+            String value = stringRedisTemplate.opsForValue().get(key);
+            return value == null ? null : Long.valueOf(value);
+        } catch (Exception e) {
+            log.warn("分页总数读取失败: {}", key, e);
+            return null;
+        }
+    }
+
+    private void write(String key, long value, long ttlSeconds) {
+        try {
+            stringRedisTemplate.opsForValue().set(key, String.valueOf(value), ttlSeconds, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.warn("分页总数写入失败: {}", key, e);
+        }
+    }
+
+    /**
+     * 不带筛选条件：music:count:total:{entity}；带筛选条件：music:count:filter:{entity}:{条件的 MD5}
+     */
+    private static String key(String entity, String filter) {
+        if (filter == null) {
+            return RedisConstants.COUNT_TOTAL_KEY + entity;
+        }
+        return RedisConstants.COUNT_FILTER_KEY + entity + ":" + DigestUtils.md5DigestAsHex(filter.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private long ttlSeconds(String filter) {
+        return filter != null ? filterTtlSeconds : TimeUnit.MINUTES.toSeconds(totalTtlMinutes);
+    }
+
+    /**
+     * 带总数缓存信息的分页对象
+     * 不要总数时每页多查一条：size 为 pageSize + 1，offset 仍按 pageSize 计算
+     */
+    public static class CountedPage<T> extends Page<T> {
+
+        private final int pageSize;
+        private final String countKey;
+        private final Long cachedTotal;
+        private final boolean lookahead;
+        private long ttlSeconds;
+
+        private CountedPage(int pageNum, int pageSize, String countKey, Long cachedTotal, boolean lookahead) {
+            super(pageNum, lookahead ? pageSize + 1L : pageSize, !lookahead);
+            this.pageSize = pageSize;
+            this.countKey = countKey;
+            this.cachedTotal = cachedTotal;
+            this.lookahead = lookahead;
+        }
+
+        @Override
+        public long offset() {
+            return getCurrent() > 1 ? (getCurrent() - 1) * pageSize : 0;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.kay.music.utils;
+
+import com.kay.music.pojo.dto.RedisData;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.ZoneId;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 逻辑过期缓存的概率提前刷新（XFetch）
+ * 以前所有缓存都恰好在 expireTime 那一刻变旧，启动时一起预热的热点页会在同一时刻一起重建；
+ * 现在每次读取都按概率决定是否提前刷新：离过期越近、上次重建越慢，提前刷新的概率越大，
+ * 重建就分散到了过期前的不同时刻，而且通常在真正过期之前就已经完成
+ *
+ * 判断条件：now - rebuildMillis * beta * ln(random) >= expireTime，random ∈ (0, 1]
+ *
+ * @author Kay
+ * @date 2026/10/18 16:50
+ */
+@Component
+public class EarlyRefreshPolicy {
+
+    /**
+     * 大于 1 更倾向于提前刷新，小于 1 更倾向于等到过期，0 表示关闭提前刷新
+     */
+    private final double beta;
+
+    public EarlyRefreshPolicy(@Value("${cache.early-refresh.beta:1.0}") double beta) {
+        this.beta = beta;
+    }
+
+    /**
+     * 是否需要刷新（已经过期，或者按概率提前刷新）
+     *
+     * @param redisData 缓存数据
+     * @return true 表示需要异步重建
+     */
+    public boolean shouldRefresh(RedisData<?> redisData) {
+        long expireMillis = redisData.getExpireTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        long now = System.currentTimeMillis();
+        Long rebuildMillis = redisData.getRebuildMillis();
+        if (rebuildMillis == null || rebuildMillis <= 0 || beta <= 0) {
+            return now >= expireMillis;
+        }
+        // 1 - nextDouble() ∈ (0, 1]，避免 ln(0)
+        double gap = -rebuildMillis * beta * Math.log(1 - ThreadLocalRandom.current().nextDouble());
+        return now + gap >= expireMillis;
+    }
+}
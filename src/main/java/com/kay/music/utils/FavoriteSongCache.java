@@ -0,0 +1,139 @@
+package com.kay.music.utils;
+
+import com.kay.music.constant.RedisConstants;
+import com.kay.music.mapper.UserFavoriteMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用户收藏歌曲 id 集合
+ * 歌曲列表、歌曲详情的缓存与用户无关，喜欢状态在返回前根据这个集合叠加上去，
+ * 缓存的大小只和歌曲数量有关，不会随用户数量增长
+ *
+ * Redis 中每个用户一个 Set：music:favorite:song:{userId} -> 歌曲 id，
+ * 纯整数的小集合 Redis 会用 intset 编码保存，占用很小
+ *
+ * @author Kay
+ * @date 2026/10/18 13:20
+ */
+@Component
+@RequiredArgsConstructor
+public class FavoriteSongCache {
+
+    /**
+     * 占位成员，歌曲 id 从 1 开始，不会冲突
+     * 集合中总是有它，用来区分“没有收藏任何歌曲”和“集合还没加载”
+     */
+    private static final String PLACEHOLDER = "0";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final UserFavoriteMapper userFavoriteMapper;
+
+    /**
+     * 从给定的歌曲中找出用户收藏了的
+     * 正常情况下只有一次 SMISMEMBER 请求
+     *
+     * @param userId 用户 id
+     * @param songIds 待判断的歌曲 id
+     * @return 其中被收藏的歌曲 id
+     */
+    public Set<Long> filterFavorites(Long userId, Collection<Long> songIds) {
+        if (userId == null || songIds.isEmpty()) {
+            return Set.of();
+        }
+        String key = RedisConstants.FAVORITE_SONG_KEY + userId;
+
+        List<Object> members = new ArrayList<>(songIds.size() + 1);
+        members.add(PLACEHOLDER);
+        songIds.forEach(songId -> members.add(String.valueOf(songId)));
+
+        Map<Object, Boolean> result = stringRedisTemplate.opsForSet().isMember(key, members.toArray());
+        if (result == null || !Boolean.TRUE.equals(result.get(PLACEHOLDER))) {
+            // 集合不存在（首次访问或已过期），从数据库加载后再判断
+            Set<Long> favoriteSongIds = load(userId, key);
+            Set<Long> favorites = new HashSet<>();
+            for (Long songId : songIds) {
+                if (favoriteSongIds.contains(songId)) {
+                    favorites.add(songId);
+                }
+            }
+            return favorites;
+        }
+
+        Set<Long> favorites = new HashSet<>();
+        for (Long songId : songIds) {
+            if (Boolean.TRUE.equals(result.get(String.valueOf(songId)))) {
+                favorites.add(songId);
+            }
+        }
+        return favorites;
+    }
+
+    /**
+     * 判断用户是否收藏了某首歌曲
+     */
+    public boolean isFavorite(Long userId, Long songId) {
+        return filterFavorites(userId, List.of(songId)).contains(songId);
+    }
+
+    /**
+     * 收藏歌曲后更新集合，集合未加载时不需要处理，下次读取时会从数据库加载
+     * 在事务中调用时提交后才更新，回滚时集合保持不变
+     */
+    public void add(Long userId, Long songId) {
+        String key = RedisConstants.FAVORITE_SONG_KEY + userId;
+        afterCommit(() -> {
+            if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(key))) {
+                stringRedisTemplate.opsForSet().add(key, String.valueOf(songId));
+            }
+        });
+    }
+
+    /**
+     * 取消收藏后更新集合，在事务中调用时提交后才更新
+     */
+    public void remove(Long userId, Long songId) {
+        afterCommit(() -> stringRedisTemplate.opsForSet()
+                .remove(RedisConstants.FAVORITE_SONG_KEY + userId, String.valueOf(songId)));
+    }
+
+    /**
+     * 有事务时在提交后执行，否则立即执行
+     */
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private Set<Long> load(Long userId, String key) {
+        List<Long> songIds = userFavoriteMapper.getFavoriteSongIdsByUserId(userId);
+
+        String[] members = new String[songIds.size() + 1];
+        members[0] = PLACEHOLDER;
+        for (int i = 0; i < songIds.size(); i++) {
+            members[i + 1] = String.valueOf(songIds.get(i));
+        }
+        stringRedisTemplate.opsForSet().add(key, members);
+        stringRedisTemplate.expire(key, RedisConstants.FAVORITE_SONG_TTL, TimeUnit.MINUTES);
+        return new HashSet<>(songIds);
+    }
+}
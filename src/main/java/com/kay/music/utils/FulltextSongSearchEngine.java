@@ -0,0 +1,85 @@
+package com.kay.music.utils;
+
+import com.kay.music.mapper.SongMapper;
+import com.kay.music.result.PageResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+/**
+ * 基于 MySQL FULLTEXT 索引（ngram 分词）的歌曲搜索，search.engine = fulltext 时使用
+ *
+ * 1. tb_song.name、tb_song.album、tb_artist.name 各有一个 WITH PARSER ngram 的全文索引（见 sql/vibe_music.sql），
+ *    ngram_token_size 使用默认的 2，即按相邻两字切分
+ * 2. 查询串作为短语在 BOOLEAN MODE 下匹配（"周杰伦" 要求 周杰、杰伦 连续出现），效果接近 LIKE '%周杰伦%'；
+ *    只有一个字时退化为前缀匹配（周*），匹配以该字开头的两字词，字段末尾的单字匹配不到
+ * 3. 按各字段的相关度之和倒序，相同时按歌曲 id 升序；总数使用 CountCache 的带筛选条件的总数
+ * 4. 不支持拼音、容错的模糊模式，fuzzy 被忽略
+ *
+ * 不传任何条件、某个条件无法用全文索引表达（空白、单个标点），或全文索引不存在（查询出错）时返回 null，
+ * 调用方退回 LIKE 查询
+ *
+ * @author Kay
+ * @date 2026/10/18 23:50
+ */
+@Slf4j
+@Component
+public class FulltextSongSearchEngine implements SongSearchEngine {
+
+    private final SongMapper songMapper;
+    private final CountCache countCache;
+
+    public FulltextSongSearchEngine(SongMapper songMapper, CountCache countCache) {
+        this.songMapper = songMapper;
+        this.countCache = countCache;
+    }
+
+    @Override
+    public String name() {
+        return "fulltext";
+    }
+
+    @Override
+    public PageResult<Long> search(String songName, String artistName, String album, int pageNum, int pageSize,
+                                   boolean fuzzy) {
+        String songQuery = toBooleanQuery(songName);
+        String artistQuery = toBooleanQuery(artistName);
+        String albumQuery = toBooleanQuery(album);
+        // 没有条件时不查询：searchSongIdsFulltext 会变成对全表 ORDER BY 0 DESC, s.id
+        if (songQuery == null && artistQuery == null && albumQuery == null
+                || songName != null && songQuery == null
+                || artistName != null && artistQuery == null
+                || album != null && albumQuery == null) {
+            return null;
+        }
+        try {
+            CountCache.CountedPage<Long> page = countCache.page(CountCache.SONG,
+                    CountCache.filter("fulltext", songQuery, artistQuery, albumQuery), pageNum, pageSize, null);
+            songMapper.searchSongIdsFulltext(page, songQuery, artistQuery, albumQuery);
+            return countCache.result(page);
+        } catch (DataAccessException e) {
+            log.warn("全文检索失败，退回 LIKE 查询", e);
+            return null;
+        }
+    }
+
+    /**
+     * 查询串 -> BOOLEAN MODE 的查询：去掉双引号后作为短语，只有一个字时用前缀匹配
+     *
+     * @return 无法用全文索引表达（为 null、只有空白、单个标点）时返回 null
+     */
+    static String toBooleanQuery(String query) {
+        if (query == null) {
+            return null;
+        }
+        String phrase = query.replace("\"", " ").strip();
+        if (phrase.isEmpty()) {
+            return null;
+        }
+        if (phrase.codePointCount(0, phrase.length()) == 1) {
+            // 单字短于 ngram_token_size，只能作为前缀匹配；标点会被当成运算符或不被索引
+            return phrase.matches("[\\p{L}\\p{N}]") ? phrase + "*" : null;
+        }
+        return "\"" + phrase + "\"";
+    }
+}
@@ -0,0 +1,262 @@
+package com.kay.music.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * 热点 key 探测与本地副本
+ * 少数 key（推荐歌曲、轮播图、游客第一页等）承担了大部分读请求，全部落在同一个 Redis 分片上会形成热点
+ *
+ * 1. 按采样率抽样记录缓存 key 的访问，用 Count-Min Sketch 估计访问次数，并维护估计次数最高的前 K 个候选
+ * 2. 每个统计窗口结束时，估计访问次数（按采样率还原）达到阈值的 key 标记为热点，然后计数减半（衰减）
+ * 3. 热点 key 从 Redis 读到的字节在本节点保留很短的时间（pin-ttl），期间不再访问 Redis；
+ *    本节点写入、删除时立即丢弃，其他节点通过本地缓存的失效广播丢弃，丢了广播也最多脏 pin-ttl
+ *
+ * 保留的是原始字节，每次读取仍然各自反序列化，不会在请求之间共享同一个对象
+ *
+ * @author Kay
+ * @date 2026/10/18 22:05
+ */
+@Slf4j
+@Component
+public class HotKeyDetector {
+
+    /**
+     * Count-Min Sketch 的行数（哈希函数个数）
+     */
+    private static final int DEPTH = 4;
+
+    /**
+     * Count-Min Sketch 每行的计数器个数，必须是 2 的幂
+     */
+    private static final int WIDTH = 1 << 11;
+
+    private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+    private final boolean enabled;
+
+    /**
+     * 采样率，0 ~ 1
+     */
+    private final double sampleRate;
+
+    /**
+     * 一个窗口内（按采样率还原后）的访问次数达到该值即为热点
+     */
+    private final long threshold;
+
+    /**
+     * 维护的候选个数，也是管理端展示的个数
+     */
+    private final int topK;
+
+    /**
+     * 热点 key 本地副本的保留时间（毫秒）
+     */
+    private final long pinTtlMillis;
+
+    /**
+     * 本地副本的最大个数
+     */
+    private final int maxPinned;
+
+    private final int[][] sketch = new int[DEPTH][WIDTH];
+
+    /**
+     * 候选 key -> 采样后的估计访问次数，最多 topK 个
+     */
+    private final Map<String, Integer> candidates = new HashMap<>();
+
+    /**
+     * 上一个窗口的统计结果（按估计访问次数倒序），供管理端查看
+     */
+    private volatile List<HotKey> lastWindow = List.of();
+
+    private volatile Set<String> hotKeys = Set.of();
+
+    private final Map<String, Pinned> pinned = new ConcurrentHashMap<>();
+
+    public HotKeyDetector(@Value("${cache.hot-key.enabled:true}") boolean enabled,
+                          @Value("${cache.hot-key.sample-rate:0.1}") double sampleRate,
+                          @Value("${cache.hot-key.threshold:500}") long threshold,
+                          @Value("${cache.hot-key.top-k:20}") int topK,
+                          @Value("${cache.hot-key.pin-ttl-ms:1000}") long pinTtlMillis,
+                          @Value("${cache.hot-key.max-pinned:256}") int maxPinned) {
+        this.enabled = enabled;
+        this.sampleRate = sampleRate;
+        this.threshold = threshold;
+        this.topK = topK;
+        this.pinTtlMillis = pinTtlMillis;
+        this.maxPinned = maxPinned;
+    }
+
+    /**
+     * 记录一次访问（按采样率抽样）
+     *
+     * @param key 缓存在 Redis 中的完整 key
+     */
+    public void record(String key) {
+        if (!enabled || ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+        synchronized (this) {
+            int estimate = Integer.MAX_VALUE;
+            int hash = key.hashCode();
+            for (int i = 0; i < DEPTH; i++) {
+                int[] row = sketch[i];
+                int index = index(hash, i);
+                estimate = Math.min(estimate, ++row[index]);
+            }
+            if (candidates.containsKey(key) || candidates.size() < topK) {
+                candidates.put(key, estimate);
+                return;
+            }
+            // 候选已满，替换掉估计次数最少的
+            Map.Entry<String, Integer> min = null;
+            for (Map.Entry<String, Integer> entry : candidates.entrySet()) {
+                if (min == null || entry.getValue() < min.getValue()) {
+                    min = entry;
+                }
+            }
+            if (min != null && estimate > min.getValue()) {
+                candidates.remove(min.getKey());
+                candidates.put(key, estimate);
+            }
+        }
+    }
+
+    private static int index(int hash, int row) {
+        int h = (hash ^ SEEDS[row]) * 0x85EBCA6B;
+        h ^= h >>> 13;
+        return h & (WIDTH - 1);
+    }
+
+    /**
+     * 统计窗口结束：更新热点 key，计数减半
+     */
+    @Scheduled(fixedDelayString = "${cache.hot-key.window-ms:10000}",
+            initialDelayString = "${cache.hot-key.window-ms:10000}")
+    public void rotate() {
+        if (!enabled) {
+            return;
+        }
+        List<HotKey> window = new ArrayList<>();
+        synchronized (this) {
+            candidates.forEach((key, sampled) -> {
+                long estimate = Math.round(sampled / sampleRate);
+                window.add(new HotKey(key, estimate, estimate >= threshold));
+            });
+            for (int[] row : sketch) {
+                for (int i = 0; i < WIDTH; i++) {
+                    row[i] >>>= 1;
+                }
+            }
+            candidates.replaceAll((key, sampled) -> sampled >>> 1);
+            candidates.values().removeIf(sampled -> sampled == 0);
+        }
+        window.sort(Comparator.comparingLong(HotKey::estimate).reversed());
+        Set<String> hot = window.stream().filter(HotKey::hot).map(HotKey::key).collect(Collectors.toSet());
+        if (!hot.equals(hotKeys)) {
+            log.info("热点 key: {}", hot);
+        }
+        lastWindow = List.copyOf(window);
+        hotKeys = Set.copyOf(hot);
+        // 不再是热点的 key 不再保留本地副本
+        pinned.keySet().removeIf(key -> !hot.contains(key));
+    }
+
+    public boolean isHot(String key) {
+        return hotKeys.contains(key);
+    }
+
+    /**
+     * 读取热点 key 的本地副本
+     *
+     * @return 没有或已过期时返回 null
+     */
+    public byte[] getPinned(String key) {
+        if (pinned.isEmpty()) {
+            return null;
+        }
+        Pinned entry = pinned.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.deadline < System.currentTimeMillis()) {
+            pinned.remove(key, entry);
+            return null;
+        }
+        return entry.bytes;
+    }
+
+    /**
+     * 热点 key 从 Redis 读到数据后，在本节点保留一个副本
+     */
+    public void pinIfHot(String key, byte[] bytes) {
+        if (bytes == null || !isHot(key) || pinned.size() >= maxPinned) {
+            return;
+        }
+        pinned.put(key, new Pinned(bytes, System.currentTimeMillis() + pinTtlMillis));
+    }
+
+    /**
+     * 丢弃本地副本
+     *
+     * @param pattern 精确的 key，或以 * 结尾的前缀
+     */
+    public void unpin(String pattern) {
+        if (pinned.isEmpty()) {
+            return;
+        }
+        if (pattern.endsWith("*")) {
+            String prefix = pattern.substring(0, pattern.length() - 1);
+            pinned.keySet().removeIf(key -> key.startsWith(prefix));
+        } else {
+            pinned.remove(pattern);
+        }
+    }
+
+    /**
+     * 管理端查看：上一个窗口的前 K 个 key 及是否为热点
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("sampleRate", sampleRate);
+        stats.put("threshold", threshold);
+        stats.put("pinned", pinned.size());
+        stats.put("topKeys", lastWindow.stream().map(hotKey -> {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("key", hotKey.key());
+            item.put("estimate", hotKey.estimate());
+            item.put("hot", hotKey.hot());
+            item.put("pinned", pinned.containsKey(hotKey.key()));
+            return item;
+        }).toList());
+        return stats;
+    }
+
+    /**
+     * 一个窗口内的统计结果
+     *
+     * @param estimate 按采样率还原后的估计访问次数
+     */
+    private record HotKey(String key, long estimate, boolean hot) {
+    }
+
+    private record Pinned(byte[] bytes, long deadline) {
+    }
+}
@@ -0,0 +1,284 @@
+package com.kay.music.utils;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import cn.hutool.core.util.IdUtil;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import com.kay.music.constant.RedisConstants;
+import com.kay.music.mapper.ArtistMapper;
+import com.kay.music.mapper.PlaylistMapper;
+import com.kay.music.mapper.SongMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 歌曲、歌手、歌单 id 的布隆过滤器，防止用不存在的 id 扫接口造成缓存穿透
+ * 以前不存在的 id 会在 Redis 里写一个 "" 空值，随机扫描时 Redis 里全是垃圾 key，每个 id 还要查一次 MySQL；
+ * 现在布隆过滤器判断不存在的 id 直接返回，不访问 Redis 和数据库
+ *
+ * 1. 启动时从数据库加载全部 id
+ * 2. 新增时加入过滤器，并通过 Redis 发布/订阅通知其他节点
+ * 3. 布隆过滤器不支持删除，删除后异步重建，避免已删除的 id 越积越多导致误判率上升
+ * 4. 未启用或还没构建好时一律放行
+ * 5. 在事务中调用 add、removed 时等事务提交后再执行：删除后立即重建会读到还没提交删除的 id，回滚的新增也不应该加入
+ *
+ * @author Kay
+ * @date 2026/10/18 16:20
+ */
+@Slf4j
+@Component
+public class IdBloomFilter implements InitializingBean, MessageListener {
+
+    public static final String SONG = "song";
+    public static final String ARTIST = "artist";
+    public static final String PLAYLIST = "playlist";
+
+    /**
+     * 当前节点标识，收到自己发出的消息时直接忽略
+     */
+    private static final String NODE_ID = IdUtil.fastSimpleUUID();
+
+    /**
+     * 消息格式：节点|操作|类型|id，例如 {node}|add|song|12、{node}|rebuild|artist|
+     */
+    private static final String SEPARATOR = "|";
+    private static final String ADD = "add";
+    private static final String REBUILD = "rebuild";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final CacheRebuildExecutor cacheRebuildExecutor;
+
+    /**
+     * 类型 -> 过滤器及其数据来源
+     */
+    private final Map<String, Slot> slots;
+
+    private final boolean enabled;
+
+    /**
+     * 期望的误判率
+     */
+    private final double fpp;
+
+    /**
+     * 预计的元素数量，实际数量更多时按实际数量的 2 倍分配，给后续新增留出余量
+     */
+    private final long expectedInsertions;
+
+    public IdBloomFilter(StringRedisTemplate stringRedisTemplate,
+                         RedisMessageListenerContainer redisMessageListenerContainer,
+                         CacheRebuildExecutor cacheRebuildExecutor,
+                         SongMapper songMapper,
+                         ArtistMapper artistMapper,
+                         PlaylistMapper playlistMapper,
+                         @Value("${cache.bloom.enabled:true}") boolean enabled,
+                         @Value("${cache.bloom.fpp:0.01}") double fpp,
+                         @Value("${cache.bloom.expected-insertions:100000}") long expectedInsertions) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.cacheRebuildExecutor = cacheRebuildExecutor;
+        this.enabled = enabled;
+        this.fpp = fpp;
+        this.expectedInsertions = expectedInsertions;
+        this.slots = Map.of(
+                SONG, new Slot(songMapper),
+                ARTIST, new Slot(artistMapper),
+                PLAYLIST, new Slot(playlistMapper)
+        );
+        if (enabled) {
+            redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(RedisConstants.BLOOM_UPDATE_CHANNEL));
+        }
+    }
+
+    /**
+     * 启动时构建过滤器
+     */
+    @Override
+    public void afterPropertiesSet() {
+        if (!enabled) {
+            return;
+        }
+        slots.keySet().forEach(this::rebuild);
+    }
+
+    public boolean mightContainSong(Long songId) {
+        return mightContain(SONG, songId);
+    }
+
+    public boolean mightContainArtist(Long artistId) {
+        return mightContain(ARTIST, artistId);
+    }
+
+    public boolean mightContainPlaylist(Long playlistId) {
+        return mightContain(PLAYLIST, playlistId);
+    }
+
+    /**
+     * 判断 id 是否可能存在
+     *
+     * @param type 类型：song / artist / playlist
+     * @param id 主键
+     * @return false 表示一定不存在，true 表示可能存在
+     */
+    public boolean mightContain(String type, Long id) {
+        if (!enabled || id == null) {
+            return true;
+        }
+        BloomFilter<Long> filter = slots.get(type).filter;
+        return filter == null || filter.mightContain(id);
+    }
+
+    /**
+     * 新增数据后调用，加入本节点和其他节点的过滤器；在事务中调用时提交后才加入
+     *
+     * @param type 类型
+     * @param id 新数据的主键
+     */
+    public void add(String type, Long id) {
+        if (!enabled || id == null) {
+            return;
+        }
+        afterCommit(() -> {
+            addLocal(type, id);
+            publish(ADD + SEPARATOR + type + SEPARATOR + id);
+        });
+    }
+
+    /**
+     * 删除数据后调用，各节点异步重建对应类型的过滤器；在事务中调用时提交后才重建
+     * 同一类型的重建任务在线程池中会去重，批量删除也只重建一次
+     *
+     * @param type 类型
+     */
+    public void removed(String type) {
+        if (!enabled) {
+            return;
+        }
+        afterCommit(() -> {
+            rebuildAsync(type);
+            publish(REBUILD + SEPARATOR + type + SEPARATOR);
+        });
+    }
+
+    /**
+     * 有事务时在提交后执行，否则立即执行
+     */
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * 收到其他节点的更新消息
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", -1);
+        if (parts.length != 4 || NODE_ID.equals(parts[0]) || !slots.containsKey(parts[2])) {
+            return;
+        }
+        if (ADD.equals(parts[1])) {
+            addLocal(parts[2], Long.valueOf(parts[3]));
+        } else if (REBUILD.equals(parts[1])) {
+            rebuildAsync(parts[2]);
+        }
+    }
+
+    private void addLocal(String type, Long id) {
+        Slot slot = slots.get(type);
+        BloomFilter<Long> filter = slot.filter;
+        if (filter != null) {
+            filter.put(id);
+        }
+        // 正在重建时也要加到新的过滤器里，否则替换后就丢了
+        BloomFilter<Long> building = slot.building;
+        if (building != null) {
+            building.put(id);
+        }
+    }
+
+    private void rebuildAsync(String type) {
+        cacheRebuildExecutor.submit(RedisConstants.BLOOM_REBUILD_KEY + type, () -> rebuild(type));
+    }
+
+    /**
+     * 从数据库加载全部 id，构建新的过滤器后整体替换
+     */
+    private void rebuild(String type) {
+        Slot slot = slots.get(type);
+        synchronized (slot) {
+            try {
+                long count = slot.mapper.selectCount(null);
+                long capacity = Math.max(expectedInsertions, count * 2);
+                BloomFilter<Long> building = BloomFilter.create(Funnels.longFunnel(), capacity, fpp);
+                slot.building = building;
+
+                List<Object> ids = slot.mapper.selectObjs(new QueryWrapper<Object>().select("id"));
+                for (Object id : ids) {
+                    building.put(((Number) id).longValue());
+                }
+                slot.filter = building;
+                log.info("{} 布隆过滤器构建完成，共 {} 个 id，容量 {}，约 {} KB", type, ids.size(), capacity, bitSize(capacity) / 8 / 1024);
+            } catch (Exception e) {
+                // 构建失败时保留旧的过滤器（首次构建失败则一律放行）
+                log.error("{} 布隆过滤器构建失败", type, e);
+            } finally {
+                slot.building = null;
+            }
+        }
+    }
+
+    /**
+     * 按容量和误判率估算的位数组大小：m = -n * ln(p) / (ln2)^2
+     */
+    private long bitSize(long capacity) {
+        return (long) (-capacity * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+    }
+
+    private void publish(String body) {
+        try {
+            stringRedisTemplate.convertAndSend(RedisConstants.BLOOM_UPDATE_CHANNEL, NODE_ID + SEPARATOR + body);
+        } catch (Exception e) {
+            // 广播失败时其他节点会把新 id 误判为不存在，直到下次重建
+            log.warn("布隆过滤器更新广播失败: {}", body, e);
+        }
+    }
+
+    /**
+     * 某一类 id 的过滤器
+     */
+    private static class Slot {
+
+        @SuppressWarnings("rawtypes")
+        private final BaseMapper mapper;
+
+        private volatile BloomFilter<Long> filter;
+
+        private volatile BloomFilter<Long> building;
+
+        Slot(BaseMapper<?> mapper) {
+            this.mapper = mapper;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.kay.music.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 进程内索引（歌曲搜索、歌词、输入提示、随机推荐）的后台任务线程池
+ *
+ * 索引的全量重建要读取整张表，增量更新也要查询数据库，都不能在调用方的线程上执行：
+ * 定时任务线程会拖慢其他定时任务（变更发件箱的轮询等），ChangeEvent 的监听者运行在 Redis 订阅的单个线程上，
+ * 会拖慢本地缓存、布隆过滤器等其他节点广播的处理。监听者和定时任务只负责把任务交给这里
+ *
+ * 1. 同一个 owner（一个索引）的任务按提交顺序串行执行，全量重建和增量更新不会同时修改同一个索引；不同 owner 并行
+ * 2. 全量重建去重：同一个 owner 已经有重建在排队时，再提交的重建直接忽略
+ * 3. 应用关闭时等待正在执行的任务，超时后强制中断
+ *
+ * @author Kay
+ * @date 2026/10/18 23:59
+ */
+@Slf4j
+@Component
+public class IndexTaskExecutor implements DisposableBean {
+
+    private final ExecutorService executor;
+
+    private final long shutdownTimeoutSeconds;
+
+    /**
+     * owner -> 该 owner 待执行的任务
+     */
+    private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+
+    /**
+     * 有全量重建在排队的 owner
+     */
+    private final Set<String> pendingRebuilds = ConcurrentHashMap.newKeySet();
+
+    public IndexTaskExecutor(@Value("${index.executor.threads:4}") int threads,
+                             @Value("${index.executor.shutdown-timeout-seconds:10}") long shutdownTimeoutSeconds) {
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "index-task-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.shutdownTimeoutSeconds = shutdownTimeoutSeconds;
+    }
+
+    /**
+     * 提交任务，与同一个 owner 的其他任务按提交顺序串行执行
+     *
+     * @param owner 任务所属的索引
+     * @param task 任务，抛出的异常只记录日志
+     */
+    public void execute(String owner, Runnable task) {
+        lanes.computeIfAbsent(owner, Lane::new).add(task);
+    }
+
+    /**
+     * 提交全量重建；同一个 owner 已经有重建在排队时忽略
+     *
+     * @return 是否提交
+     */
+    public boolean rebuild(String owner, Runnable task) {
+        if (!pendingRebuilds.add(owner)) {
+            return false;
+        }
+        execute(owner, () -> {
+            // 开始执行后再提交的重建需要重新排队，它可能是为了读到这次重建之后的数据
+            pendingRebuilds.remove(owner);
+            task.run();
+        });
+        return true;
+    }
+
+    /**
+     * 应用关闭时不再接收新任务，等待正在执行的任务
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(shutdownTimeoutSeconds, TimeUnit.SECONDS)) {
+            log.warn("索引任务在 {} 秒内未执行完，强制关闭", shutdownTimeoutSeconds);
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 一个 owner 的任务队列，同一时间最多占用一个线程
+     */
+    private final class Lane implements Runnable {
+
+        private final String owner;
+
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        /**
+         * 是否已经占用了一个线程（正在执行或已经提交给线程池）
+         */
+        private boolean running;
+
+        Lane(String owner) {
+            this.owner = owner;
+        }
+
+        synchronized void add(Runnable task) {
+            tasks.add(task);
+            if (running) {
+                return;
+            }
+            try {
+                executor.execute(this);
+                running = true;
+            } catch (RejectedExecutionException e) {
+                // 正在关闭
+                tasks.clear();
+                log.warn("索引任务线程池已关闭，丢弃任务: {}", owner);
+            }
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Runnable task;
+                synchronized (this) {
+                    task = tasks.poll();
+                    if (task == null) {
+                        running = false;
+                        return;
+                    }
+                }
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    log.error("索引任务异常: {}", owner, e);
+                }
+            }
+        }
+    }
+}
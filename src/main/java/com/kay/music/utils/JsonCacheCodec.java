@@ -0,0 +1,37 @@
+package com.kay.music.utils;
+
+import cn.hutool.json.JSONUtil;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * JSON 编解码器，与原来的 hutool JSON 格式保持一致，可读性好，方便在 redis-cli 中排查问题
+ *
+ * @author Kay
+ * @date 2026/10/18 14:12
+ */
+@Component
+public class JsonCacheCodec implements CacheCodec {
+
+    @Override
+    public byte id() {
+        return 1;
+    }
+
+    @Override
+    public String name() {
+        return "json";
+    }
+
+    @Override
+    public byte[] encode(Object value) {
+        return JSONUtil.toJsonStr(value).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public <T> T decode(byte[] bytes, int offset, int length, Type type) {
+        return JSONUtil.toBean(new String(bytes, offset, length, StandardCharsets.UTF_8), type, false);
+    }
+}
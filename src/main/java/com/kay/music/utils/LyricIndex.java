@@ -0,0 +1,545 @@
+package com.kay.music.utils;
+
+import com.kay.music.mapper.SongMapper;
+import com.kay.music.pojo.entity.Song;
+import com.kay.music.result.PageResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * 歌词全文检索的进程内倒排索引（带位置），用记得的一句歌词找歌，不再对 tb_song.lyric 做 LIKE 查询
+ *
+ * 1. 歌词去掉 LRC 标签（[00:12.34]、[ti:xxx] 等）后切分成词：汉字、假名每个字一个词，字母、数字连续的一段为一个词（小写），
+ *    空白和标点只作为分隔；每个词按在歌词中出现的顺序编号（位置）
+ * 2. 倒排表：词 -> 按歌曲 id 升序的 (歌曲 id, 该词在这首歌中的全部位置)，位置连续保存在一个 int 数组中
+ * 3. 查询串按同样的方式切分后做短语匹配：所有词都出现且位置依次相邻（可以跨行）；
+ *    以文档数最少的词的倒排表作为候选，再逐首校验位置
+ * 4. 排序：短语出现次数多的在前，次数相同按歌曲 id 升序
+ *
+ * 启动时用 ResultHandler 流式读取 tb_song.lyric 全量构建，逐行加入索引，整张表不会一次读进内存；
+ * 之后监听变更发件箱的 ChangeEvent（updateSong 等修改歌曲后发出），按 song:{id}、artist:{id} 标签重新读取受影响的歌曲；
+ * 另外定时全量重建一次，弥补丢失的广播；增量更新和定时重建都交给 IndexTaskExecutor 在后台串行执行
+ *
+ * @author Kay
+ * @date 2026/10/18 23:57
+ */
+@Slf4j
+@Component
+public class LyricIndex implements InitializingBean {
+
+    private static final String SONG_TAG = "song:";
+    private static final String ARTIST_TAG = "artist:";
+
+    /**
+     * IndexTaskExecutor 中的 owner
+     */
+    private static final String TASK_OWNER = "lyric";
+
+    /**
+     * LRC 的时间标签和信息标签
+     */
+    private static final Pattern LRC_TAG = Pattern.compile("\\[[^\\]\\n]*]");
+
+    /**
+     * 查询串最多使用的词数，更长的查询只取前面的部分
+     */
+    private static final int MAX_QUERY_TERMS = 64;
+
+    private final SongMapper songMapper;
+
+    private final IndexTaskExecutor indexTaskExecutor;
+
+    private final boolean enabled;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 当前的索引，全量重建时整体替换
+     */
+    private Index index = new Index();
+
+    private volatile boolean ready;
+
+    /**
+     * 全量重建期间收到的变更，替换后重新应用，避免被旧的全量数据覆盖
+     * 为 null 表示当前没有在全量重建
+     */
+    private Set<Long> pendingSongIds;
+    private Set<Long> pendingArtistIds;
+
+    public LyricIndex(SongMapper songMapper,
+                      IndexTaskExecutor indexTaskExecutor,
+                      @Value("${search.lyric.enabled:true}") boolean enabled) {
+        this.songMapper = songMapper;
+        this.indexTaskExecutor = indexTaskExecutor;
+        this.enabled = enabled;
+    }
+
+    /**
+     * 启动时全量构建
+     */
+    @Override
+    public void afterPropertiesSet() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    /**
+     * 是否可以搜索
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 当前索引中有歌词的歌曲数
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.docs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 定时全量重建，在后台执行
+     */
+    @Scheduled(fixedDelayString = "${search.lyric.rebuild-interval-ms:3600000}",
+            initialDelayString = "${search.lyric.rebuild-interval-ms:3600000}")
+    public void scheduleRebuild() {
+        if (enabled) {
+            indexTaskExecutor.rebuild(TASK_OWNER, this::rebuild);
+        }
+    }
+
+    /**
+     * 全量重建
+     */
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            pendingSongIds = new HashSet<>();
+            pendingArtistIds = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        long start = System.currentTimeMillis();
+        Index rebuilt = new Index();
+        try {
+            songMapper.streamAllLyrics(context -> {
+                Song song = context.getResultObject();
+                rebuilt.add(song.getSongId(), song.getArtistId(), song.getLyric());
+            });
+            rebuilt.trim();
+        } catch (Exception e) {
+            log.error("歌词索引构建失败", e);
+            lock.writeLock().lock();
+            try {
+                pendingSongIds = null;
+                pendingArtistIds = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return;
+        }
+
+        Set<Long> songIds;
+        Set<Long> artistIds;
+        lock.writeLock().lock();
+        try {
+            index = rebuilt;
+            songIds = pendingSongIds;
+            artistIds = pendingArtistIds;
+            pendingSongIds = null;
+            pendingArtistIds = null;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        reindex(songIds, artistIds);
+        log.info("歌词索引构建完成，共 {} 首歌曲、{} 个词，耗时 {} ms",
+                rebuilt.docs.size(), rebuilt.postings.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 歌曲、歌手变更后，在后台重新读取受影响的歌曲的歌词（监听线程只负责转交）
+     */
+    @EventListener
+    public void onChange(ChangeEvent event) {
+        if (!enabled) {
+            return;
+        }
+        Set<Long> songIds = event.ids(SONG_TAG);
+        Set<Long> artistIds = event.ids(ARTIST_TAG);
+        if (songIds.isEmpty() && artistIds.isEmpty()) {
+            return;
+        }
+        indexTaskExecutor.execute(TASK_OWNER, () -> apply(songIds, artistIds));
+    }
+
+    /**
+     * 正在全量重建时先记下变更，替换后重新应用；再重新读取受影响的歌曲
+     */
+    private void apply(Set<Long> songIds, Set<Long> artistIds) {
+        lock.writeLock().lock();
+        try {
+            if (pendingSongIds != null) {
+                pendingSongIds.addAll(songIds);
+                pendingArtistIds.addAll(artistIds);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        reindex(songIds, artistIds);
+    }
+
+    private void reindex(Set<Long> songIds, Set<Long> artistIds) {
+        if (songIds.isEmpty() && artistIds.isEmpty()) {
+            return;
+        }
+        List<Song> songs;
+        try {
+            songs = songMapper.getLyrics(songIds, artistIds);
+        } catch (Exception e) {
+            // 等下次全量重建
+            log.warn("歌词索引更新失败: songIds={}, artistIds={}", songIds, artistIds, e);
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            songIds.forEach(index::remove);
+            for (Long artistId : artistIds) {
+                Set<Long> artistSongIds = index.songsByArtist.get(artistId);
+                if (artistSongIds != null) {
+                    new ArrayList<>(artistSongIds).forEach(index::remove);
+                }
+            }
+            for (Song song : songs) {
+                index.remove(song.getSongId());
+                index.add(song.getSongId(), song.getArtistId(), song.getLyric());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 按歌词短语搜索并分页
+     *
+     * @param keyword 记得的歌词，标点和空白只作为分隔
+     * @return 当前页的歌曲 id 和总数；索引未启用或未就绪时返回 null
+     */
+    public PageResult<Long> search(String keyword, int pageNum, int pageSize) {
+        if (!enabled || !ready) {
+            return null;
+        }
+        List<String> terms = tokenize(keyword);
+        if (terms.size() > MAX_QUERY_TERMS) {
+            terms = terms.subList(0, MAX_QUERY_TERMS);
+        }
+        if (terms.isEmpty()) {
+            return new PageResult<>(0L, List.of());
+        }
+
+        List<Scored> matches = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Postings[] postings = new Postings[terms.size()];
+            Postings rarest = null;
+            for (int i = 0; i < postings.length; i++) {
+                postings[i] = index.postings.get(terms.get(i));
+                if (postings[i] == null) {
+                    return new PageResult<>(0L, List.of());
+                }
+                if (rarest == null || postings[i].size < rarest.size) {
+                    rarest = postings[i];
+                }
+            }
+            for (int doc = 0; doc < rarest.size; doc++) {
+                long songId = rarest.ids[doc];
+                int count = countPhrase(postings, songId);
+                if (count > 0) {
+                    matches.add(new Scored(songId, count));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        matches.sort(Comparator.comparingInt(Scored::count).reversed().thenComparingLong(Scored::songId));
+        int from = (int) Math.min((long) Math.max(pageNum - 1, 0) * pageSize, matches.size());
+        int to = Math.min(from + Math.max(pageSize, 0), matches.size());
+        return new PageResult<>((long) matches.size(), matches.subList(from, to).stream().map(Scored::songId).toList());
+    }
+
+    /**
+     * 短语在这首歌中出现的次数：第 i 个词出现在第一个词的位置 + i
+     */
+    private static int countPhrase(Postings[] postings, long songId) {
+        int[] docs = new int[postings.length];
+        for (int i = 0; i < postings.length; i++) {
+            docs[i] = postings[i].indexOf(songId);
+            if (docs[i] < 0) {
+                return 0;
+            }
+        }
+        Postings first = postings[0];
+        int count = 0;
+        for (int k = first.offsets[docs[0]]; k < first.offsets[docs[0] + 1]; k++) {
+            int start = first.positions[k];
+            boolean matched = true;
+            for (int i = 1; i < postings.length && matched; i++) {
+                matched = postings[i].hasPosition(docs[i], start + i);
+            }
+            if (matched) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 切分歌词或查询串：去掉 LRC 标签，汉字、假名每个字一个词，字母、数字连续的一段为一个词（小写），其余字符只作为分隔
+     */
+    static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        String stripped = LRC_TAG.matcher(text).replaceAll(" ").toLowerCase(Locale.ROOT);
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < stripped.length(); ) {
+            int codePoint = stripped.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (isSingleCharTerm(codePoint)) {
+                flush(word, terms);
+                terms.add(new String(Character.toChars(codePoint)));
+            } else if (Character.isLetterOrDigit(codePoint)) {
+                word.appendCodePoint(codePoint);
+            } else {
+                flush(word, terms);
+            }
+        }
+        flush(word, terms);
+        return terms;
+    }
+
+    private static boolean isSingleCharTerm(int codePoint) {
+        if (Character.isIdeographic(codePoint)) {
+            return true;
+        }
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HIRAGANA || script == Character.UnicodeScript.KATAKANA;
+    }
+
+    private static void flush(StringBuilder word, List<String> terms) {
+        if (!word.isEmpty()) {
+            terms.add(word.toString());
+            word.setLength(0);
+        }
+    }
+
+    private record Scored(long songId, int count) {
+    }
+
+    /**
+     * 索引中的一首歌曲：所属歌手，以及包含它的倒排表（删除时逐个移除）
+     */
+    private record Doc(Long artistId, Postings[] postings) {
+    }
+
+    /**
+     * 一个词的倒排表，按歌曲 id 升序
+     * 第 i 首歌曲的 id 为 ids[i]，该词在其中的位置为 positions[offsets[i], offsets[i + 1])，升序
+     * 全量构建时按 id 顺序追加，增量更新时插入或删除（需要移动数组，但增量更新很少）
+     */
+    private static class Postings {
+
+        private final String term;
+        private long[] ids = new long[2];
+        private int[] offsets = new int[3];
+        private int[] positions = new int[4];
+        private int size;
+
+        Postings(String term) {
+            this.term = term;
+        }
+
+        void add(long id, int[] docPositions, int count) {
+            int insertAt;
+            if (size == 0 || ids[size - 1] < id) {
+                insertAt = size;
+            } else {
+                int index = Arrays.binarySearch(ids, 0, size, id);
+                if (index >= 0) {
+                    return;
+                }
+                insertAt = -index - 1;
+            }
+            int end = offsets[size];
+            if (size + 1 > ids.length) {
+                ids = Arrays.copyOf(ids, grow(ids.length, size + 1));
+            }
+            if (size + 2 > offsets.length) {
+                offsets = Arrays.copyOf(offsets, grow(offsets.length, size + 2));
+            }
+            if (end + count > positions.length) {
+                positions = Arrays.copyOf(positions, grow(positions.length, end + count));
+            }
+
+            int at = offsets[insertAt];
+            System.arraycopy(positions, at, positions, at + count, end - at);
+            System.arraycopy(docPositions, 0, positions, at, count);
+            System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+            ids[insertAt] = id;
+            for (int i = size + 1; i > insertAt; i--) {
+                offsets[i] = offsets[i - 1] + count;
+            }
+            size++;
+        }
+
+        /**
+         * @return 删除后是否为空
+         */
+        boolean remove(long id) {
+            int index = indexOf(id);
+            if (index >= 0) {
+                int at = offsets[index];
+                int count = offsets[index + 1] - at;
+                System.arraycopy(positions, at + count, positions, at, offsets[size] - at - count);
+                System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+                for (int i = index + 1; i < size; i++) {
+                    offsets[i] = offsets[i + 1] - count;
+                }
+                size--;
+            }
+            return size == 0;
+        }
+
+        int indexOf(long id) {
+            return Arrays.binarySearch(ids, 0, size, id);
+        }
+
+        boolean hasPosition(int doc, int position) {
+            return Arrays.binarySearch(positions, offsets[doc], offsets[doc + 1], position) >= 0;
+        }
+
+        /**
+         * 去掉数组末尾的空余，全量构建完成后调用
+         */
+        void trim() {
+            ids = Arrays.copyOf(ids, size);
+            offsets = Arrays.copyOf(offsets, size + 1);
+            positions = Arrays.copyOf(positions, offsets[size]);
+        }
+
+        private static int grow(int length, int required) {
+            return Math.max(required, length + (length >> 1) + 1);
+        }
+    }
+
+    /**
+     * 倒排索引本身，调用方负责加锁
+     */
+    private static class Index {
+
+        private final Map<Long, Doc> docs = new HashMap<>();
+
+        /**
+         * 歌手 id -> 歌曲 id，歌手被删除（歌曲级联删除）时找到需要移除的歌曲
+         */
+        private final Map<Long, Set<Long>> songsByArtist = new HashMap<>();
+
+        private final Map<String, Postings> postings = new HashMap<>();
+
+        /**
+         * 加入一首歌曲，调用方保证索引中没有这首歌曲；没有歌词时不加入
+         */
+        void add(Long songId, Long artistId, String lyric) {
+            List<String> terms = tokenize(lyric);
+            if (terms.isEmpty()) {
+                return;
+            }
+            Map<String, PositionList> positionsByTerm = new LinkedHashMap<>();
+            for (int position = 0; position < terms.size(); position++) {
+                positionsByTerm.computeIfAbsent(terms.get(position), term -> new PositionList()).add(position);
+            }
+            Postings[] docPostings = new Postings[positionsByTerm.size()];
+            int i = 0;
+            for (Map.Entry<String, PositionList> entry : positionsByTerm.entrySet()) {
+                Postings termPostings = postings.computeIfAbsent(entry.getKey(), Postings::new);
+                termPostings.add(songId, entry.getValue().values, entry.getValue().size);
+                docPostings[i++] = termPostings;
+            }
+            docs.put(songId, new Doc(artistId, docPostings));
+            if (artistId != null) {
+                songsByArtist.computeIfAbsent(artistId, id -> new HashSet<>()).add(songId);
+            }
+        }
+
+        void remove(Long songId) {
+            Doc doc = docs.remove(songId);
+            if (doc == null) {
+                return;
+            }
+            for (Postings termPostings : doc.postings()) {
+                if (termPostings.remove(songId)) {
+                    postings.remove(termPostings.term);
+                }
+            }
+            if (doc.artistId() != null) {
+                Set<Long> artistSongIds = songsByArtist.get(doc.artistId());
+                if (artistSongIds != null) {
+                    artistSongIds.remove(songId);
+                    if (artistSongIds.isEmpty()) {
+                        songsByArtist.remove(doc.artistId());
+                    }
+                }
+            }
+        }
+
+        void trim() {
+            postings.values().forEach(Postings::trim);
+        }
+    }
+
+    /**
+     * 构建时收集一个词在一首歌中的位置
+     */
+    private static class PositionList {
+
+        private int[] values = new int[2];
+        private int size;
+
+        void add(int position) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = position;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.kay.music.utils;
+
+import cn.hutool.core.util.IdUtil;
+import com.kay.music.constant.RedisConstants;
+import com.kay.music.pojo.dto.RedisData;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 进程内一级缓存（L1），位于 Redis（L2）之前
+ * 缓存的是已经反序列化好的 RedisData 对象，命中时不需要网络请求，也不需要再解析 JSON
+ *
+ * 1. 按权重（缓存时 JSON 的长度）限制总大小，超出后按 LRU 淘汰
+ * 2. 本地最多保留 ttl 秒，即使丢了失效广播，脏数据的时间也是有上限的
+ * 3. 写操作通过 Redis 发布/订阅广播失效消息，保证各节点的 L1 一致
+ *
+ * @author Kay
+ * @date 2026/10/18 10:12
+ */
+@Slf4j
+@Component
+public class NearCache implements MessageListener {
+
+    /**
+     * 当前节点标识，收到自己发出的失效消息时直接忽略
+     */
+    private static final String NODE_ID = IdUtil.fastSimpleUUID();
+
+    /**
+     * 失效消息中节点标识与 key 的分隔符
+     */
+    private static final String SEPARATOR = "|";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final CacheMetrics cacheMetrics;
+    private final HotKeyDetector hotKeyDetector;
+
+    /**
+     * 最大总权重（字符数）
+     */
+    private final long maxWeight;
+
+    /**
+     * 本地最长保留时间（毫秒）
+     */
+    private final long ttlMillis;
+
+    /**
+     * accessOrder = true，按访问顺序排列，表头即最久未使用的条目
+     */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+
+    private long totalWeight;
+
+    public NearCache(StringRedisTemplate stringRedisTemplate,
+                     RedisMessageListenerContainer redisMessageListenerContainer,
+                     CacheMetrics cacheMetrics,
+                     HotKeyDetector hotKeyDetector,
+                     @Value("${cache.near.max-weight:16777216}") long maxWeight,
+                     @Value("${cache.near.ttl-seconds:60}") long ttlSeconds) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.cacheMetrics = cacheMetrics;
+        this.hotKeyDetector = hotKeyDetector;
+        this.maxWeight = maxWeight;
+        this.ttlMillis = ttlSeconds * 1000;
+        // 订阅失效频道
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(RedisConstants.CACHE_INVALIDATE_CHANNEL));
+    }
+
+    /**
+     * 读取本地缓存
+     * @param key 缓存键（与 Redis 中的 key 一致）
+     * @return 命中返回逻辑过期包装对象，未命中返回 null
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <T> RedisData<T> get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            cacheMetrics.miss(CacheMetrics.NEAR, key);
+            return null;
+        }
+        if (entry.localDeadline < System.currentTimeMillis()) {
+            // 本地保留时间已到，丢弃，回源到 Redis
+            remove(key);
+            cacheMetrics.miss(CacheMetrics.NEAR, key);
+            return null;
+        }
+        cacheMetrics.served(CacheMetrics.NEAR, key, entry.data);
+        // 本地命中的访问同样计入热点统计，管理端看到的是真实的访问分布
+        hotKeyDetector.record(key);
+        return (RedisData<T>) entry.data;
+    }
+
+    /**
+     * 写入本地缓存
+     * @param key 缓存键
+     * @param data 已反序列化的数据
+     * @param weight 权重，一般传 Redis 中 JSON 的长度
+     */
+    public synchronized void put(String key, RedisData<?> data, int weight) {
+        if (weight > maxWeight) {
+            // 单个值比整个缓存还大，不缓存
+            return;
+        }
+        Entry old = entries.put(key, new Entry(data, weight, System.currentTimeMillis() + ttlMillis));
+        if (old != null) {
+            totalWeight -= old.weight;
+        }
+        totalWeight += weight;
+
+        // 超出容量，从最久未使用的开始淘汰
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (totalWeight > maxWeight && iterator.hasNext()) {
+            totalWeight -= iterator.next().getValue().weight;
+            iterator.remove();
+        }
+    }
+
+    /**
+     * 使本节点及其他所有节点的本地缓存失效
+     * @param pattern 精确的 key，或以 * 结尾的前缀
+     */
+    public void invalidate(String pattern) {
+        invalidateLocal(pattern);
+        try {
+            stringRedisTemplate.convertAndSend(RedisConstants.CACHE_INVALIDATE_CHANNEL, NODE_ID + SEPARATOR + pattern);
+        } catch (Exception e) {
+            // 广播失败时其他节点最多在 ttl 后自行过期
+            log.warn("本地缓存失效广播失败: {}", pattern, e);
+        }
+    }
+
+    /**
+     * 只使本节点的本地缓存（包括热点 key 的本地副本）失效
+     * @param pattern 精确的 key，或以 * 结尾的前缀
+     */
+    public synchronized void invalidateLocal(String pattern) {
+        hotKeyDetector.unpin(pattern);
+        if (pattern.endsWith("*")) {
+            String prefix = pattern.substring(0, pattern.length() - 1);
+            Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, Entry> next = iterator.next();
+                if (next.getKey().startsWith(prefix)) {
+                    totalWeight -= next.getValue().weight;
+                    iterator.remove();
+                }
+            }
+        } else {
+            remove(pattern);
+        }
+    }
+
+    /**
+     * 收到其他节点的失效消息
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int index = body.indexOf(SEPARATOR);
+        if (index < 0 || NODE_ID.equals(body.substring(0, index))) {
+            return;
+        }
+        invalidateLocal(body.substring(index + 1));
+    }
+
+    private void remove(String key) {
+        Entry old = entries.remove(key);
+        if (old != null) {
+            totalWeight -= old.weight;
+        }
+    }
+
+    /**
+     * 本地缓存条目
+     */
+    private record Entry(RedisData<?> data, int weight, long localDeadline) {
+    }
+}
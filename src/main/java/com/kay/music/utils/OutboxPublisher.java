@@ -0,0 +1,244 @@
+package com.kay.music.utils;
+
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.kay.music.constant.RedisConstants;
+import com.kay.music.mapper.OutboxMapper;
+import com.kay.music.pojo.entity.Outbox;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 变更发件箱的发布者
+ * 1. 定时读取 tb_outbox 中 published = 0 的变更（多节点时只有拿到锁的节点执行），
+ *    按标签失效缓存（全集群共享，只需要执行一次），然后标记为已发布
+ * 2. 每条变更再通过 Redis 发布/订阅广播，所有节点（包括自己）按收到的顺序发布为本地的 ChangeEvent
+ * 3. 定时删除保留期之前的已发布变更
+ *
+ * 按发布状态而不是“上次发布到的 id”读取：自增 id 在插入时分配，长事务中 id 较小的变更可能在 id 更大的变更发布之后才提交，
+ * 它仍然是待发布状态，下一次轮询会被读到，不会被跳过；代价是发布顺序不一定是 id 顺序
+ * 某条变更失效缓存失败时记一次失败，跳过它继续发布之后的变更，下次轮询再重试；失败次数用完后标记为发布失败，
+ * 不再重试，避免一条总是失败的变更让全集群的缓存失效停下来。Redis 连接失败时所有变更都会失败，不计失败次数，
+ * 这一批剩下的变更都留到下次再发布；至少发布一次，失效缓存是幂等的
+ *
+ * @author Kay
+ * @date 2026/10/18 21:50
+ */
+@Slf4j
+@Component
+public class OutboxPublisher implements MessageListener {
+
+    /**
+     * 广播消息中变更 id 与标签的分隔符
+     */
+    private static final String SEPARATOR = "|";
+
+    /**
+     * 每次最多删除的已发布变更数，避免大事务
+     */
+    private static final int CLEANUP_BATCH_SIZE = 1000;
+
+    /**
+     * 发布锁的有效期（毫秒）
+     */
+    private static final long LOCK_TTL_MILLIS = 30_000;
+
+    /**
+     * 发布状态：已发布
+     */
+    private static final int PUBLISHED = 1;
+
+    /**
+     * 发布状态：发布失败，重试次数用完后不再发布
+     */
+    private static final int FAILED = 2;
+
+    /**
+     * 只释放自己持有的发布锁
+     */
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final OutboxMapper outboxMapper;
+    private final CacheTagIndex cacheTagIndex;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ApplicationEventPublisher applicationEventPublisher;
+
+    /**
+     * 每次最多发布的变更数
+     */
+    private final int batchSize;
+
+    /**
+     * 已发布变更的保留天数
+     */
+    private final int retentionDays;
+
+    /**
+     * 同一条变更最多失败的次数
+     */
+    private final int maxRetries;
+
+    /**
+     * 标记为发布失败的变更数
+     */
+    private final Counter failedCounter;
+
+    public OutboxPublisher(OutboxMapper outboxMapper,
+                           CacheTagIndex cacheTagIndex,
+                           StringRedisTemplate stringRedisTemplate,
+                           ApplicationEventPublisher applicationEventPublisher,
+                           RedisMessageListenerContainer redisMessageListenerContainer,
+                           MeterRegistry meterRegistry,
+                           @Value("${outbox.batch-size:100}") int batchSize,
+                           @Value("${outbox.retention-days:3}") int retentionDays,
+                           @Value("${outbox.max-retries:10}") int maxRetries) {
+        this.outboxMapper = outboxMapper;
+        this.cacheTagIndex = cacheTagIndex;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.applicationEventPublisher = applicationEventPublisher;
+        this.batchSize = batchSize;
+        this.retentionDays = retentionDays;
+        this.maxRetries = maxRetries;
+        this.failedCounter = Counter.builder("music.outbox.failed")
+                .description("重试次数用完、不再发布的变更数")
+                .register(meterRegistry);
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(RedisConstants.OUTBOX_EVENT_CHANNEL));
+    }
+
+    /**
+     * 发布待发布的变更
+     */
+    @Scheduled(fixedDelayString = "${outbox.poll-interval-ms:200}")
+    public void publish() {
+        String token = IdUtil.fastSimpleUUID();
+        Boolean locked = stringRedisTemplate.opsForValue()
+                .setIfAbsent(RedisConstants.OUTBOX_LOCK_KEY, token, LOCK_TTL_MILLIS, TimeUnit.MILLISECONDS);
+        if (!Boolean.TRUE.equals(locked)) {
+            return;
+        }
+        // 用掉一半有效期后不再发布新的变更，避免锁过期后与其他节点同时发布
+        long deadline = System.currentTimeMillis() + LOCK_TTL_MILLIS / 2;
+        try {
+            List<Outbox> pending = outboxMapper.getPending(batchSize);
+            List<Long> publishedIds = new ArrayList<>(pending.size());
+            for (Outbox outbox : pending) {
+                if (System.currentTimeMillis() > deadline) {
+                    break;
+                }
+                try {
+                    cacheTagIndex.evict(StrUtil.split(outbox.getTags(), ','));
+                } catch (DataAccessResourceFailureException | TransientDataAccessException e) {
+                    // Redis 暂时不可用，之后的变更也会失败：不计失败次数，这条和之后的变更下次再发布
+                    log.warn("变更 {} 发布失败，Redis 暂时不可用，稍后重试", outbox.getOutboxId(), e);
+                    break;
+                } catch (Exception e) {
+                    failed(outbox, e);
+                    continue;
+                }
+                publishedIds.add(outbox.getOutboxId());
+                broadcast(outbox);
+            }
+            if (!publishedIds.isEmpty()) {
+                outboxMapper.update(null, new LambdaUpdateWrapper<Outbox>()
+                        .set(Outbox::getPublished, PUBLISHED)
+                        .in(Outbox::getOutboxId, publishedIds));
+            }
+        } finally {
+            release(token);
+        }
+    }
+
+    /**
+     * 记一次发布失败，失败次数用完后标记为发布失败，不再重试
+     */
+    private void failed(Outbox outbox, Exception e) {
+        int retryCount = (outbox.getRetryCount() == null ? 0 : outbox.getRetryCount()) + 1;
+        boolean exhausted = retryCount >= maxRetries;
+        outboxMapper.update(null, new LambdaUpdateWrapper<Outbox>()
+                .set(Outbox::getRetryCount, retryCount)
+                .set(exhausted, Outbox::getPublished, FAILED)
+                .eq(Outbox::getOutboxId, outbox.getOutboxId()));
+        if (exhausted) {
+            failedCounter.increment();
+            log.error("变更 {} 已失败 {} 次，不再发布，相关缓存需要手动处理，标签: {}",
+                    outbox.getOutboxId(), retryCount, outbox.getTags(), e);
+        } else {
+            log.warn("变更 {} 第 {} 次发布失败，稍后重试", outbox.getOutboxId(), retryCount, e);
+        }
+    }
+
+    /**
+     * 释放发布锁；锁已过期并被其他节点拿到时不删除
+     */
+    private void release(String token) {
+        try {
+            stringRedisTemplate.execute(RELEASE_SCRIPT, List.of(RedisConstants.OUTBOX_LOCK_KEY), token);
+        } catch (Exception e) {
+            // 等锁自然过期
+            log.warn("发布锁释放失败", e);
+        }
+    }
+
+    /**
+     * 删除保留期之前的已发布变更
+     */
+    @Scheduled(cron = "${outbox.cleanup-cron:0 30 4 * * ?}")
+    public void cleanup() {
+        LocalDateTime before = LocalDateTime.now().minusDays(retentionDays);
+        int deleted;
+        int total = 0;
+        do {
+            deleted = outboxMapper.deletePublishedBefore(before, CLEANUP_BATCH_SIZE);
+            total += deleted;
+        } while (deleted == CLEANUP_BATCH_SIZE);
+        if (total > 0) {
+            log.info("删除 {} 天前已发布的变更 {} 条", retentionDays, total);
+        }
+    }
+
+    private void broadcast(Outbox outbox) {
+        try {
+            stringRedisTemplate.convertAndSend(RedisConstants.OUTBOX_EVENT_CHANNEL,
+                    outbox.getOutboxId() + SEPARATOR + outbox.getTags());
+        } catch (Exception e) {
+            // 缓存已经失效，只影响各节点本地的监听者
+            log.warn("变更 {} 广播失败", outbox.getOutboxId(), e);
+        }
+    }
+
+    /**
+     * 收到变更广播，按顺序发布为本地事件
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int index = body.indexOf(SEPARATOR);
+        if (index < 0) {
+            return;
+        }
+        applicationEventPublisher.publishEvent(new ChangeEvent(Long.parseLong(body.substring(0, index)),
+                StrUtil.split(body.substring(index + 1), ',')));
+    }
+}
@@ -0,0 +1,96 @@
+package com.kay.music.utils;
+
+import com.kay.music.result.PageResult;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 游标（keyset）分页的游标：上一页最后一条记录的排序字段和 id，编码后交给前端，前端原样传回
+ *
+ * 下一页按 WHERE (排序字段, id) 在游标之后 ORDER BY 排序字段, id LIMIT n 查询，由联合索引直接定位到游标位置，
+ * 不像 LIMIT offset, n 那样先扫描再丢弃前面的 offset 行，翻到多深每页的开销都一样
+ * 游标分页不统计总数（total 为 null），多查一条判断是否还有下一页
+ *
+ * @param key 排序字段（只按 id 排序时为 null）
+ * @param id 上一页最后一条记录的 id，第一页为 null
+ *
+ * @author Kay
+ * @date 2026/10/18 23:15
+ */
+public record PageCursor<K>(K key, Long id) {
+
+    private static final char SEPARATOR = '|';
+
+    /**
+     * 是否第一页（前端传入空字符串）
+     */
+    public boolean isFirst() {
+        return id == null;
+    }
+
+    /**
+     * 解析只按 id 排序的游标
+     *
+     * @return 格式不正确时返回 null
+     */
+    public static PageCursor<Void> parse(String cursor) {
+        return parse(cursor, null);
+    }
+
+    /**
+     * 解析游标
+     *
+     * @param keyParser 排序字段的解析方法，例如 LocalDate::parse；只按 id 排序时传 null
+     * @return 空字符串返回第一页，格式不正确时返回 null
+     */
+    public static <K> PageCursor<K> parse(String cursor, Function<String, K> keyParser) {
+        if (cursor == null || cursor.isBlank()) {
+            return new PageCursor<>(null, null);
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = decoded.lastIndexOf(SEPARATOR);
+            if (keyParser == null) {
+                return separator < 0 ? new PageCursor<>(null, Long.valueOf(decoded)) : null;
+            }
+            if (separator < 0) {
+                return null;
+            }
+            K key = keyParser.apply(decoded.substring(0, separator));
+            return new PageCursor<>(key, Long.valueOf(decoded.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 编码游标
+     *
+     * @param key 排序字段，toString 的结果需要能被 parse 时的 keyParser 解析；只按 id 排序时传 null
+     */
+    public static String encode(Object key, Long id) {
+        String raw = key == null ? String.valueOf(id) : key.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 由多查一条的结果组装一页：超出 pageSize 说明还有下一页，下一页的游标取本页最后一条记录
+     *
+     * @param rows 按 pageSize + 1 查询的结果
+     * @param cursorOf 记录 -> 编码后的游标
+     */
+    public static <T> PageResult<T> page(List<T> rows, int pageSize, Function<T, String> cursorOf) {
+        if (pageSize < 1) {
+            return new PageResult<>(null, List.of(), null);
+        }
+        if (rows.size() <= pageSize) {
+            return new PageResult<>(null, rows, null);
+        }
+        List<T> items = new ArrayList<>(rows.subList(0, pageSize));
+        return new PageResult<>(null, items, cursorOf.apply(items.get(pageSize - 1)));
+    }
+}
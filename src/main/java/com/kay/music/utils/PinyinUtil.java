@@ -0,0 +1,73 @@
+package com.kay.music.utils;
+
+import net.sourceforge.pinyin4j.PinyinHelper;
+import net.sourceforge.pinyin4j.format.HanyuPinyinCaseType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat;
+import net.sourceforge.pinyin4j.format.HanyuPinyinToneType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinVCharType;
+import net.sourceforge.pinyin4j.format.exception.BadHanyuPinyinOutputFormatCombination;
+
+import java.util.Locale;
+
+/**
+ * @Description: 汉字转拼音工具类，不带声调、小写、ü 写作 v，多音字取第一个读音
+ * @Author: Kay
+ * @date:   2026/10/18 22:40
+ */
+public class PinyinUtil {
+
+    private static final HanyuPinyinOutputFormat FORMAT = new HanyuPinyinOutputFormat();
+
+    static {
+        FORMAT.setCaseType(HanyuPinyinCaseType.LOWERCASE);
+        FORMAT.setToneType(HanyuPinyinToneType.WITHOUT_TONE);
+        FORMAT.setVCharType(HanyuPinyinVCharType.WITH_V);
+    }
+
+    private PinyinUtil() {
+    }
+
+    /**
+     * 转换为全拼和首字母，去掉空白，非汉字字符原样保留（转为小写）
+     * 例如 "周杰伦 Jay" -> (zhoujielunjay, zjljay)
+     *
+     * @return 不包含汉字时返回 null
+     */
+    public static Pinyin convert(String text) {
+        if (text == null) {
+            return null;
+        }
+        StringBuilder full = new StringBuilder();
+        StringBuilder initials = new StringBuilder();
+        boolean hasHanzi = false;
+        for (char c : text.toLowerCase(Locale.ROOT).toCharArray()) {
+            if (Character.isWhitespace(c)) {
+                continue;
+            }
+            String[] readings = null;
+            if (Character.UnicodeScript.of(c) == Character.UnicodeScript.HAN) {
+                try {
+                    readings = PinyinHelper.toHanyuPinyinStringArray(c, FORMAT);
+                } catch (BadHanyuPinyinOutputFormatCombination e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            if (readings != null && readings.length > 0) {
+                hasHanzi = true;
+                full.append(readings[0]);
+                initials.append(readings[0].charAt(0));
+            } else {
+                full.append(c);
+                initials.append(c);
+            }
+        }
+        return hasHanzi ? new Pinyin(full.toString(), initials.toString()) : null;
+    }
+
+    /**
+     * @param full 全拼
+     * @param initials 首字母
+     */
+    public record Pinyin(String full, String initials) {
+    }
+}
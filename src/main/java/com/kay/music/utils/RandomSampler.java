@@ -0,0 +1,483 @@
+package com.kay.music.utils;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.kay.music.mapper.ArtistMapper;
+import com.kay.music.mapper.PlaylistMapper;
+import com.kay.music.mapper.SongMapper;
+import com.kay.music.pojo.dto.SuggestEntryDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 随机推荐的 id 池，替代 ORDER BY RAND() LIMIT n（每次都要给整张表排序）
+ *
+ * 1. 每种类型（歌曲、歌手、歌单）在内存中保存一个升序的 long[] id 数组，每个 id 8 字节
+ * 2. 均匀随机：Floyd 算法从数组中取 k 个不重复的下标，O(k)，再打乱顺序；之后由调用方按主键读取数据
+ * 3. 按热度加权（recommend.random.weighted = true）：全量构建时另存一份 id 及累计权重（被收藏次数 + 1），
+ *    按随机数二分查找抽取，重复的和已删除的丢弃重抽，次数用完后用均匀随机补足；
+ *    两次全量构建之间新增的 id 按权重 1 追加
+ *
+ * 启动时全量构建，之后监听变更发件箱的 ChangeEvent，按 song:{id}、artist:{id}、playlist:{id} 标签查询这些 id 是否还存在，
+ * 存在的加入、不存在的移除（新增歌曲只带歌手标签，按歌手查询其歌曲）；级联删除等没有广播的变更，
+ * 在按主键读取时发现数据已不存在后移除，另外定时全量重建一次；增量更新和定时重建都交给 IndexTaskExecutor 在后台串行执行
+ *
+ * @author Kay
+ * @date 2026/10/18 23:59
+ */
+@Slf4j
+@Component
+public class RandomSampler implements InitializingBean {
+
+    public static final String SONG = "song";
+    public static final String ARTIST = "artist";
+    public static final String PLAYLIST = "playlist";
+
+    private static final String SONG_TAG = "song:";
+    private static final String ARTIST_TAG = "artist:";
+    private static final String PLAYLIST_TAG = "playlist:";
+
+    /**
+     * IndexTaskExecutor 中的 owner
+     */
+    private static final String TASK_OWNER = "random";
+
+    /**
+     * 加权抽取时每个名额最多尝试的次数，用完后用均匀随机补足
+     */
+    private static final int WEIGHTED_ATTEMPTS = 8;
+
+    private final SongMapper songMapper;
+
+    private final IndexTaskExecutor indexTaskExecutor;
+
+    private final boolean enabled;
+
+    private final boolean weighted;
+
+    /**
+     * 类型 -> id 池及其数据来源
+     */
+    private final Map<String, Slot> slots;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public RandomSampler(SongMapper songMapper,
+                         ArtistMapper artistMapper,
+                         PlaylistMapper playlistMapper,
+                         IndexTaskExecutor indexTaskExecutor,
+                         @Value("${recommend.random.enabled:true}") boolean enabled,
+                         @Value("${recommend.random.weighted:false}") boolean weighted) {
+        this.songMapper = songMapper;
+        this.indexTaskExecutor = indexTaskExecutor;
+        this.enabled = enabled;
+        this.weighted = weighted;
+        this.slots = Map.of(
+                SONG, new Slot(songMapper, () -> songMapper.getSuggestEntries(null, null)),
+                ARTIST, new Slot(artistMapper, () -> artistMapper.getSuggestEntries(null)),
+                PLAYLIST, new Slot(playlistMapper, () -> playlistMapper.getSuggestEntries(null))
+        );
+    }
+
+    /**
+     * 启动时全量构建
+     */
+    @Override
+    public void afterPropertiesSet() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    /**
+     * 定时全量重建，同时刷新热度，在后台执行
+     */
+    @Scheduled(fixedDelayString = "${recommend.random.rebuild-interval-ms:1800000}",
+            initialDelayString = "${recommend.random.rebuild-interval-ms:1800000}")
+    public void scheduleRebuild() {
+        if (enabled) {
+            indexTaskExecutor.rebuild(TASK_OWNER, this::rebuild);
+        }
+    }
+
+    /**
+     * 全量重建
+     */
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        slots.keySet().forEach(this::rebuild);
+    }
+
+    /**
+     * 随机取 count 条数据：从 id 池中取不重复的 id，由 loader 按主键读取，按抽取的顺序返回
+     * loader 没有返回的 id（已被删除）从池中移除
+     *
+     * @param type 类型：SONG / ARTIST / PLAYLIST
+     * @param loader 按 id 列表读取数据
+     * @param idOf 数据 -> id
+     * @return 未启用或池还没有构建时返回空列表
+     */
+    public <T> List<T> sample(String type, int count, Function<List<Long>, List<T>> loader, Function<T, Long> idOf) {
+        List<Long> ids = sampleIds(type, count);
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, T> rows = new HashMap<>();
+        for (T row : loader.apply(ids)) {
+            rows.put(idOf.apply(row), row);
+        }
+        List<T> result = new ArrayList<>(ids.size());
+        List<Long> missing = new ArrayList<>();
+        for (Long id : ids) {
+            T row = rows.get(id);
+            if (row != null) {
+                result.add(row);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            discard(type, missing);
+        }
+        return result;
+    }
+
+    /**
+     * 随机取 count 个不重复的 id，顺序随机
+     *
+     * @return 未启用或池还没有构建时返回空列表
+     */
+    public List<Long> sampleIds(String type, int count) {
+        if (!enabled || count <= 0) {
+            return new ArrayList<>();
+        }
+        Slot slot = slots.get(type);
+        lock.readLock().lock();
+        try {
+            Pool pool = slot.pool;
+            if (pool == null) {
+                return new ArrayList<>();
+            }
+            List<Long> ids = weighted ? pool.weighted(count) : pool.uniform(count);
+            Collections.shuffle(ids, ThreadLocalRandom.current());
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 当前池中的 id 数
+     */
+    public int size(String type) {
+        lock.readLock().lock();
+        try {
+            Pool pool = slots.get(type).pool;
+            return pool == null ? 0 : pool.size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 歌曲、歌手、歌单变更后，在后台按 id 是否还存在加入或移除（监听线程只负责转交）
+     */
+    @EventListener
+    public void onChange(ChangeEvent event) {
+        if (enabled) {
+            indexTaskExecutor.execute(TASK_OWNER, () -> apply(event));
+        }
+    }
+
+    private void apply(ChangeEvent event) {
+        Set<Long> songIds = new HashSet<>(event.ids(SONG_TAG));
+        Set<Long> artistIds = event.ids(ARTIST_TAG);
+        try {
+            if (!artistIds.isEmpty()) {
+                // 新增歌曲的变更只带歌手标签
+                songIds.addAll(ids(songMapper, new QueryWrapper<>().select("id").in("artist_id", artistIds)));
+            }
+            refresh(SONG, songIds);
+            refresh(ARTIST, artistIds);
+            refresh(PLAYLIST, event.ids(PLAYLIST_TAG));
+        } catch (Exception e) {
+            // 等下次全量重建
+            log.warn("随机推荐 id 池更新失败: {}", event.tags(), e);
+        }
+    }
+
+    /**
+     * 按主键读取时发现已经不存在的 id（级联删除等），从池中移除
+     */
+    public void discard(String type, Collection<Long> ids) {
+        Slot slot = slots.get(type);
+        lock.writeLock().lock();
+        try {
+            if (slot.pool != null) {
+                ids.forEach(slot.pool::remove);
+            }
+            // 正在全量重建时，替换后再核对一次
+            if (slot.pending != null) {
+                slot.pending.addAll(ids);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 查询这些 id 是否还存在，存在的加入池，不存在的移除
+     */
+    private void refresh(String type, Set<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        Slot slot = slots.get(type);
+        Set<Long> present = new HashSet<>(ids(slot.mapper, new QueryWrapper<>().select("id").in("id", ids)));
+        lock.writeLock().lock();
+        try {
+            if (slot.pending != null) {
+                slot.pending.addAll(ids);
+            }
+            if (slot.pool == null) {
+                return;
+            }
+            for (Long id : ids) {
+                if (present.contains(id)) {
+                    slot.pool.add(id);
+                } else {
+                    slot.pool.remove(id);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 从数据库加载全部 id（加权时连同热度），构建新的池后整体替换，再核对构建期间变更过的 id
+     */
+    private void rebuild(String type) {
+        Slot slot = slots.get(type);
+        synchronized (slot) {
+            lock.writeLock().lock();
+            try {
+                slot.pending = new HashSet<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            long start = System.currentTimeMillis();
+            Pool rebuilt;
+            try {
+                rebuilt = weighted ? Pool.weighted(slot.weights.get()) : Pool.uniform(ids(slot.mapper, new QueryWrapper<>().select("id")));
+            } catch (Exception e) {
+                // 构建失败时保留旧的池
+                log.error("{} 随机推荐 id 池构建失败", type, e);
+                lock.writeLock().lock();
+                try {
+                    slot.pending = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                return;
+            }
+
+            Set<Long> pending;
+            lock.writeLock().lock();
+            try {
+                slot.pool = rebuilt;
+                pending = slot.pending;
+                slot.pending = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            try {
+                refresh(type, pending);
+            } catch (Exception e) {
+                log.warn("{} 随机推荐 id 池更新失败: {}", type, pending, e);
+            }
+            log.info("{} 随机推荐 id 池构建完成，共 {} 个 id，耗时 {} ms", type, rebuilt.size, System.currentTimeMillis() - start);
+        }
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static List<Long> ids(BaseMapper mapper, QueryWrapper<Object> wrapper) {
+        List<Object> ids = mapper.selectObjs(wrapper);
+        return ids.stream().map(id -> ((Number) id).longValue()).toList();
+    }
+
+    /**
+     * 某一类数据的 id 池及其数据来源
+     */
+    private static class Slot {
+
+        @SuppressWarnings("rawtypes")
+        private final BaseMapper mapper;
+
+        /**
+         * 全部数据的热度（被收藏次数），加权时使用
+         */
+        private final Supplier<List<SuggestEntryDTO>> weights;
+
+        private Pool pool;
+
+        /**
+         * 全量重建期间变更过的 id，替换后重新核对，为 null 表示当前没有在全量重建
+         */
+        private Set<Long> pending;
+
+        Slot(BaseMapper<?> mapper, Supplier<List<SuggestEntryDTO>> weights) {
+            this.mapper = mapper;
+            this.weights = weights;
+        }
+    }
+
+    /**
+     * id 池，调用方负责加锁
+     */
+    private static class Pool {
+
+        /**
+         * 当前存在的全部 id，升序
+         */
+        private long[] ids;
+        private int size;
+
+        /**
+         * 加权时的 id 及累计权重：cumulative[i] 为 weightedIds[0..i] 的权重之和，只追加，已删除的 id 在抽取时丢弃
+         * 不加权时为 null
+         */
+        private long[] weightedIds;
+        private long[] cumulative;
+        private int weightedSize;
+
+        static Pool uniform(List<Long> ids) {
+            Pool pool = new Pool();
+            pool.ids = ids.stream().mapToLong(Long::longValue).sorted().distinct().toArray();
+            pool.size = pool.ids.length;
+            return pool;
+        }
+
+        static Pool weighted(List<SuggestEntryDTO> entries) {
+            List<SuggestEntryDTO> sorted = new ArrayList<>(entries);
+            sorted.sort(Comparator.comparing(SuggestEntryDTO::getId));
+            Pool pool = uniform(sorted.stream().map(SuggestEntryDTO::getId).toList());
+            pool.weightedIds = new long[sorted.size()];
+            pool.cumulative = new long[sorted.size()];
+            long total = 0;
+            for (SuggestEntryDTO entry : sorted) {
+                total += 1 + Math.max(0, entry.getWeight() == null ? 0 : entry.getWeight());
+                pool.weightedIds[pool.weightedSize] = entry.getId();
+                pool.cumulative[pool.weightedSize++] = total;
+            }
+            return pool;
+        }
+
+        boolean contains(long id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+
+        void add(long id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                return;
+            }
+            int insertAt = -index - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            }
+            System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+            ids[insertAt] = id;
+            size++;
+            // 新增的 id 按权重 1 追加；比已有的 id 小（重新加入）时等下次全量构建
+            if (weightedIds != null && (weightedSize == 0 || weightedIds[weightedSize - 1] < id)) {
+                if (weightedSize == weightedIds.length) {
+                    int capacity = weightedSize + (weightedSize >> 1) + 1;
+                    weightedIds = Arrays.copyOf(weightedIds, capacity);
+                    cumulative = Arrays.copyOf(cumulative, capacity);
+                }
+                weightedIds[weightedSize] = id;
+                cumulative[weightedSize] = (weightedSize == 0 ? 0 : cumulative[weightedSize - 1]) + 1;
+                weightedSize++;
+            }
+        }
+
+        void remove(long id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+                size--;
+            }
+        }
+
+        /**
+         * Floyd 算法：从 size 个下标中均匀地取 count 个不重复的下标
+         */
+        List<Long> uniform(int count) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int k = Math.min(count, size);
+            Set<Integer> chosen = new HashSet<>(k * 2);
+            for (int j = size - k; j < size; j++) {
+                int t = random.nextInt(j + 1);
+                chosen.add(chosen.contains(t) ? j : t);
+            }
+            List<Long> result = new ArrayList<>(k);
+            chosen.forEach(index -> result.add(ids[index]));
+            return result;
+        }
+
+        /**
+         * 按累计权重抽取，重复的和已删除的丢弃重抽；尝试次数用完后用均匀随机补足
+         */
+        List<Long> weighted(int count) {
+            int k = Math.min(count, size);
+            Set<Long> chosen = new LinkedHashSet<>(k * 2);
+            if (weightedSize > 0) {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long total = cumulative[weightedSize - 1];
+                for (int attempt = 0; attempt < k * WEIGHTED_ATTEMPTS && chosen.size() < k; attempt++) {
+                    long target = random.nextLong(total);
+                    // 第一个累计权重大于 target 的位置
+                    int index = Arrays.binarySearch(cumulative, 0, weightedSize, target + 1);
+                    long id = weightedIds[index >= 0 ? index : -index - 1];
+                    if (contains(id)) {
+                        chosen.add(id);
+                    }
+                }
+            }
+            if (chosen.size() < k) {
+                // 再均匀取 chosen.size() + 缺少的个数，其中至少有缺少的个数个不在 chosen 中
+                for (Long id : uniform(Math.min(size, k + chosen.size()))) {
+                    if (chosen.size() >= k) {
+                        break;
+                    }
+                    chosen.add(id);
+                }
+            }
+            return new ArrayList<>(chosen);
+        }
+    }
+}
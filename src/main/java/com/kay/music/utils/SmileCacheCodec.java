@@ -0,0 +1,61 @@
+package com.kay.music.utils;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+
+/**
+ * Smile（二进制 JSON）编解码器
+ * 体积比文本 JSON 小，解码时直接绑定到目标类型，不需要先解析成 JSONObject 再转换一次
+ *
+ * @author Kay
+ * @date 2026/10/18 14:15
+ */
+@Component
+public class SmileCacheCodec implements CacheCodec {
+
+    private final ObjectMapper smileMapper;
+
+    public SmileCacheCodec() {
+        smileMapper = new SmileMapper();
+        smileMapper.registerModule(new JavaTimeModule());
+        smileMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        // 字段增减时旧缓存仍然可以读取
+        smileMapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    @Override
+    public byte id() {
+        return 2;
+    }
+
+    @Override
+    public String name() {
+        return "smile";
+    }
+
+    @Override
+    public byte[] encode(Object value) {
+        try {
+            return smileMapper.writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public <T> T decode(byte[] bytes, int offset, int length, Type type) {
+        try {
+            return smileMapper.readValue(bytes, offset, length, smileMapper.constructType(type));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.kay.music.utils;
+
+import com.kay.music.constant.RedisConstants;
+import com.kay.music.mapper.SongMapper;
+import com.kay.music.pojo.dto.RedisData;
+import com.kay.music.pojo.vo.SongVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 歌曲实体缓存
+ * 每首歌只缓存一份 SongVO（music:entity:song:{id}），歌曲分页、推荐、歌单详情等只缓存歌曲 id 列表，
+ * 返回前按 id 组装：本地缓存 -> 一次 MGET -> 缺失的 id 一条 SQL 批量回填
+ *
+ * 修改一首歌只需要删除它自己的实体缓存（按 song:{id}、artist:{id} 标签），不会留下分散在各个分页里的旧副本
+ *
+ * @author Kay
+ * @date 2026/10/18 19:40
+ */
+@Slf4j
+@Component
+public class SongEntityCache {
+
+    private final SongMapper songMapper;
+    private final NearCache nearCache;
+    private final CacheCodecRegistry cacheCodecRegistry;
+    private final CacheTagIndex cacheTagIndex;
+    private final CacheMetrics cacheMetrics;
+
+    public SongEntityCache(SongMapper songMapper, NearCache nearCache, CacheCodecRegistry cacheCodecRegistry,
+                           CacheTagIndex cacheTagIndex, CacheMetrics cacheMetrics) {
+        this.songMapper = songMapper;
+        this.nearCache = nearCache;
+        this.cacheCodecRegistry = cacheCodecRegistry;
+        this.cacheTagIndex = cacheTagIndex;
+        this.cacheMetrics = cacheMetrics;
+    }
+
+    public static String key(Long songId) {
+        return RedisConstants.CACHE_SONG_ENTITY_KEY + songId;
+    }
+
+    /**
+     * 按 id 顺序获取歌曲
+     * 返回的是副本，调用方可以直接设置喜欢状态；已删除的歌曲会被跳过
+     *
+     * @param songIds 歌曲 id 列表
+     * @return 歌曲列表
+     */
+    public List<SongVO> getSongs(List<Long> songIds) {
+        if (songIds == null || songIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, SongVO> found = new HashMap<>();
+
+        // 1. 本地缓存
+        List<Long> remoteIds = new ArrayList<>();
+        for (Long songId : songIds) {
+            RedisData<SongVO> local = nearCache.get(key(songId));
+            if (local != null) {
+                found.put(songId, local.getData());
+            } else {
+                remoteIds.add(songId);
+            }
+        }
+
+        // 2. 本地没有的一次 MGET
+        List<Long> missingIds = new ArrayList<>();
+        if (!remoteIds.isEmpty()) {
+            List<String> keys = remoteIds.stream().map(SongEntityCache::key).toList();
+            List<byte[]> values = cacheCodecRegistry.multiGetBytes(keys);
+            for (int i = 0; i < keys.size(); i++) {
+                byte[] bytes = values.get(i);
+                if (bytes == null) {
+                    missingIds.add(remoteIds.get(i));
+                    continue;
+                }
+                try {
+                    RedisData<SongVO> redisData = cacheCodecRegistry.decode(keys.get(i), bytes, SongVO.class);
+                    cacheMetrics.served(CacheMetrics.REDIS, keys.get(i), redisData);
+                    nearCache.put(keys.get(i), redisData, bytes.length);
+                    found.put(remoteIds.get(i), redisData.getData());
+                } catch (Exception e) {
+                    log.error("缓存数据解析异常: {}", keys.get(i), e);
+                    missingIds.add(remoteIds.get(i));
+                }
+            }
+        }
+
+        // 3. Redis 也没有的，一条 SQL 批量查询并回填
+        if (!missingIds.isEmpty()) {
+            List<SongVO> loaded = songMapper.getSongsWithArtistByIds(missingIds);
+            put(loaded);
+            loaded.forEach(songVO -> found.put(songVO.getSongId(), songVO));
+        }
+
+        // 4. 按原来的顺序组装副本（缓存中的对象是共享的，不能直接修改）
+        List<SongVO> songs = new ArrayList<>(songIds.size());
+        for (Long songId : songIds) {
+            SongVO cached = found.get(songId);
+            if (cached != null) {
+                SongVO songVO = new SongVO();
+                BeanUtils.copyProperties(cached, songVO);
+                songs.add(songVO);
+            }
+        }
+        return songs;
+    }
+
+    /**
+     * 写入歌曲实体缓存，并记录 song:{id}、artist:{id} 标签
+     * 从数据库查询分页等结果时顺便调用，后续组装时就不需要再回填
+     *
+     * @param songs 从数据库查询到的歌曲
+     */
+    public void put(Collection<SongVO> songs) {
+        if (songs == null || songs.isEmpty()) {
+            return;
+        }
+        // Redis 中真实过期，逻辑过期时间与之相同，实体缓存只靠标签失效，不需要异步重建
+        LocalDateTime expireTime = LocalDateTime.now().plusMinutes(RedisConstants.CACHE_SONG_ENTITY_TTL);
+        Map<String, RedisData<?>> entries = new LinkedHashMap<>();
+        Map<String, Collection<String>> tags = new LinkedHashMap<>();
+        for (SongVO song : songs) {
+            SongVO entity = new SongVO();
+            BeanUtils.copyProperties(song, entity);
+            // 喜欢状态和用户有关，不进入共享缓存
+            entity.setLikeStatus(null);
+
+            String key = key(song.getSongId());
+            entries.put(key, new RedisData<SongVO>().setData(entity).setExpireTime(expireTime));
+            tags.put(key, CacheTagIndex.extractTags(entity));
+        }
+        try {
+            cacheCodecRegistry.setAll(entries, TimeUnit.MINUTES.toSeconds(RedisConstants.CACHE_SONG_ENTITY_TTL));
+            cacheTagIndex.recordAll(tags);
+        } catch (Exception e) {
+            // 写入失败下次组装时会再回填，不影响本次请求
+            log.warn("歌曲实体缓存写入失败: {}", entries.keySet(), e);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.kay.music.utils;
+
+import com.kay.music.result.PageResult;
+
+/**
+ * 歌曲搜索引擎（SPI）：按歌名、歌手名、专辑搜索歌曲，替代数据库的 LIKE '%xxx%' 查询
+ * 通过 search.engine 选择实现，由 SongSearchEngineRegistry 统一调用
+ *
+ * @author Kay
+ * @date 2026/10/18 23:40
+ */
+public interface SongSearchEngine {
+
+    /**
+     * 配置中使用的名称，例如 index、fulltext
+     */
+    String name();
+
+    /**
+     * 搜索并分页，传入的字段做匹配，多个字段取交集，结果按相关度排序
+     *
+     * @param fuzzy 是否使用模糊模式（拼音、首字母、容错），不支持的引擎忽略
+     * @return 当前页的歌曲 id 和总数；没有搜索条件或引擎当前不能搜索时返回 null，调用方退回数据库查询
+     */
+    PageResult<Long> search(String songName, String artistName, String album, int pageNum, int pageSize,
+                            boolean fuzzy);
+}
@@ -0,0 +1,62 @@
+package com.kay.music.utils;
+
+import cn.hutool.core.util.StrUtil;
+import com.kay.music.result.PageResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按 search.engine 选择歌曲搜索引擎
+ *
+ * 1. index：进程内倒排索引（SongSearchIndex），支持拼音、容错的模糊模式
+ * 2. fulltext：MySQL FULLTEXT 索引（ngram 分词），不占用应用内存，多个实例共用数据库中的索引
+ * 3. like：不使用搜索引擎，直接 LIKE 查询数据库
+ *
+ * @author Kay
+ * @date 2026/10/18 23:45
+ */
+@Slf4j
+@Component
+public class SongSearchEngineRegistry {
+
+    public static final String LIKE = "like";
+
+    /**
+     * 当前使用的搜索引擎，为 null 表示使用 LIKE 查询
+     */
+    private final SongSearchEngine engine;
+
+    public SongSearchEngineRegistry(List<SongSearchEngine> engines,
+                                    @Value("${search.engine:index}") String name) {
+        Map<String, SongSearchEngine> enginesByName = new HashMap<>();
+        engines.forEach(engine -> enginesByName.put(engine.name(), engine));
+        if (LIKE.equals(name)) {
+            this.engine = null;
+        } else {
+            this.engine = enginesByName.get(name);
+            if (this.engine == null) {
+                throw new IllegalStateException("未知的歌曲搜索引擎: " + name + "，可选: " + enginesByName.keySet() + " 或 " + LIKE);
+            }
+        }
+        log.info("歌曲搜索引擎: {}", name);
+    }
+
+    /**
+     * 使用当前的搜索引擎搜索
+     *
+     * @return 当前页的歌曲 id 和总数；使用 LIKE 查询、没有搜索条件或引擎当前不能搜索时返回 null
+     */
+    public PageResult<Long> search(String songName, String artistName, String album, int pageNum, int pageSize,
+                                   boolean fuzzy) {
+        // 不带条件的列表走数据库查询和分页缓存，任何引擎都不需要对全表排序
+        if (engine == null || StrUtil.isAllBlank(songName, artistName, album)) {
+            return null;
+        }
+        return engine.search(songName, artistName, album, pageNum, pageSize, fuzzy);
+    }
+}
@@ -0,0 +1,730 @@
+package com.kay.music.utils;
+
+import cn.hutool.core.util.StrUtil;
+import com.kay.music.mapper.SongMapper;
+import com.kay.music.pojo.vo.SongVO;
+import com.kay.music.result.PageResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * 歌曲搜索的进程内倒排索引，按歌名、歌手名、专辑搜索时不再访问数据库
+ *
+ * 精确模式（默认）：
+ * 1. 每个字段按字符建立单字和相邻两字（bigram）的倒排表：词 -> 歌曲 id
+ * 2. 查询时取查询串所有 bigram 的倒排表求交集（只有一个字时取单字的倒排表），再用 contains 校验，
+ *    结果与原来的 LIKE '%xxx%' 一致（不区分大小写）；多个字段同时传入时取交集
+ * 3. 排序：完全相同 > 前缀匹配 > 包含，分数相同按歌曲 id 升序
+ * 4. 不传条件（或只有空白）时返回 null，由调用方走带分页缓存的数据库查询，不在索引里排序全部歌曲
+ *
+ * 模糊模式：
+ * 1. 另外为每个字段的全拼（zhoujielun）和首字母（zjl）建立 bigram 倒排表，只保存原文中没有的 bigram
+ * 2. 查询串（去掉空格）的 bigram 命中数达到 q-gram 下界（bigram 数 - 2 × 允许的编辑距离）的歌曲作为候选
+ * 3. 候选在原文、全拼、首字母上分别打分取最高：完全相同 > 前缀 > 包含 > 编辑距离在允许范围内的近似包含，
+ *    允许的编辑距离随查询串长度增加（4 个字符以上允许 1 处，8 个以上允许 2 处）
+ *
+ * 启动时全量构建，之后监听变更发件箱的 ChangeEvent，按 song:{id}、artist:{id} 标签重新读取受影响的歌曲；
+ * 另外定时全量重建一次，弥补丢失的广播；增量更新和定时重建都交给 IndexTaskExecutor 在后台串行执行
+ * search.engine 不是 index 时不构建索引
+ *
+ * @author Kay
+ * @date 2026/10/18 22:20
+ */
+@Slf4j
+@Component
+public class SongSearchIndex implements SongSearchEngine, InitializingBean {
+
+    private static final String SONG_TAG = "song:";
+    private static final String ARTIST_TAG = "artist:";
+
+    /**
+     * IndexTaskExecutor 中的 owner
+     */
+    private static final String TASK_OWNER = "song-search";
+
+    /**
+     * 精确模式中完全相同、前缀匹配、包含的得分
+     */
+    private static final int EXACT_SCORE = 3;
+    private static final int PREFIX_SCORE = 2;
+    private static final int CONTAINS_SCORE = 1;
+
+    /**
+     * 模糊模式中完全相同、前缀匹配、包含、近似包含（没有编辑时）的得分
+     */
+    private static final int FUZZY_EXACT_SCORE = 100;
+    private static final int FUZZY_PREFIX_SCORE = 80;
+    private static final int FUZZY_CONTAINS_SCORE = 60;
+    private static final int FUZZY_APPROXIMATE_SCORE = 40;
+
+    private final SongMapper songMapper;
+
+    private final IndexTaskExecutor indexTaskExecutor;
+
+    private final boolean enabled;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 当前的索引，全量重建时整体替换
+     */
+    private Index index = new Index();
+
+    private volatile boolean ready;
+
+    /**
+     * 全量重建期间收到的变更，替换后重新应用，避免被旧的全量数据覆盖
+     * 为 null 表示当前没有在全量重建
+     */
+    private Set<Long> pendingSongIds;
+    private Set<Long> pendingArtistIds;
+
+    public SongSearchIndex(SongMapper songMapper,
+                           IndexTaskExecutor indexTaskExecutor,
+                           @Value("#{${search.index.enabled:true} and '${search.engine:index}' == 'index'}") boolean enabled) {
+        this.songMapper = songMapper;
+        this.indexTaskExecutor = indexTaskExecutor;
+        this.enabled = enabled;
+    }
+
+    /**
+     * 启动时全量构建
+     */
+    @Override
+    public void afterPropertiesSet() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    @Override
+    public String name() {
+        return "index";
+    }
+
+    /**
+     * 是否可以使用索引搜索，未就绪时调用方退回数据库查询
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 当前索引中的歌曲数
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.docs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 定时全量重建，在后台执行
+     */
+    @Scheduled(fixedDelayString = "${search.index.rebuild-interval-ms:1800000}",
+            initialDelayString = "${search.index.rebuild-interval-ms:1800000}")
+    public void scheduleRebuild() {
+        if (enabled) {
+            indexTaskExecutor.rebuild(TASK_OWNER, this::rebuild);
+        }
+    }
+
+    /**
+     * 全量重建
+     */
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            pendingSongIds = new HashSet<>();
+            pendingArtistIds = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        long start = System.currentTimeMillis();
+        Index rebuilt = new Index();
+        try {
+            songMapper.getAllSongIndexEntries().forEach(rebuilt::add);
+        } catch (Exception e) {
+            log.error("歌曲搜索索引构建失败", e);
+            lock.writeLock().lock();
+            try {
+                pendingSongIds = null;
+                pendingArtistIds = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return;
+        }
+
+        Set<Long> songIds;
+        Set<Long> artistIds;
+        lock.writeLock().lock();
+        try {
+            index = rebuilt;
+            songIds = pendingSongIds;
+            artistIds = pendingArtistIds;
+            pendingSongIds = null;
+            pendingArtistIds = null;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        reindex(songIds, artistIds);
+        log.info("歌曲搜索索引构建完成，共 {} 首歌曲，耗时 {} ms", rebuilt.docs.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 歌曲、歌手变更后，在后台重新读取受影响的歌曲（监听线程只负责转交）
+     */
+    @EventListener
+    public void onChange(ChangeEvent event) {
+        if (!enabled) {
+            return;
+        }
+        Set<Long> songIds = event.ids(SONG_TAG);
+        Set<Long> artistIds = event.ids(ARTIST_TAG);
+        if (songIds.isEmpty() && artistIds.isEmpty()) {
+            return;
+        }
+        indexTaskExecutor.execute(TASK_OWNER, () -> apply(songIds, artistIds));
+    }
+
+    /**
+     * 正在全量重建时先记下变更，替换后重新应用；再重新读取受影响的歌曲
+     */
+    private void apply(Set<Long> songIds, Set<Long> artistIds) {
+        lock.writeLock().lock();
+        try {
+            if (pendingSongIds != null) {
+                pendingSongIds.addAll(songIds);
+                pendingArtistIds.addAll(artistIds);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        reindex(songIds, artistIds);
+    }
+
+    private void reindex(Set<Long> songIds, Set<Long> artistIds) {
+        if (songIds.isEmpty() && artistIds.isEmpty()) {
+            return;
+        }
+        List<SongVO> songs;
+        try {
+            songs = songMapper.getSongIndexEntries(songIds, artistIds);
+        } catch (Exception e) {
+            // 等下次全量重建
+            log.warn("歌曲搜索索引更新失败: songIds={}, artistIds={}", songIds, artistIds, e);
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            songIds.forEach(index::remove);
+            for (Long artistId : artistIds) {
+                Set<Long> artistSongIds = index.songsByArtist.get(artistId);
+                if (artistSongIds != null) {
+                    new ArrayList<>(artistSongIds).forEach(index::remove);
+                }
+            }
+            songs.forEach(index::add);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 精确搜索并分页，条件与 SongMapper.getSongsWithArtist 相同：传入的字段做包含匹配，多个字段取交集
+     *
+     * @return 当前页的歌曲 id 和总数；索引未就绪或没有搜索条件时返回 null
+     */
+    public PageResult<Long> search(String songName, String artistName, String album, int pageNum, int pageSize) {
+        return search(songName, artistName, album, pageNum, pageSize, false);
+    }
+
+    /**
+     * 搜索并分页
+     *
+     * @param fuzzy 是否使用模糊模式（拼音、首字母、容错）
+     * @return 当前页的歌曲 id 和总数；索引未就绪或没有搜索条件时返回 null
+     */
+    @Override
+    public PageResult<Long> search(String songName, String artistName, String album, int pageNum, int pageSize,
+                                   boolean fuzzy) {
+        if (!enabled || !ready || StrUtil.isAllBlank(songName, artistName, album)) {
+            // 不带条件的列表走数据库查询和分页缓存，不必每次给全部歌曲打分、排序
+            return null;
+        }
+        Map<Field, String> queries = new EnumMap<>(Field.class);
+        putQuery(queries, Field.SONG_NAME, songName);
+        putQuery(queries, Field.ARTIST_NAME, artistName);
+        putQuery(queries, Field.ALBUM, album);
+
+        List<Scored> matches = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Collection<Long> candidates = fuzzy ? index.fuzzyCandidates(queries) : index.candidates(queries);
+            for (Long songId : candidates) {
+                Doc doc = index.docs.get(songId);
+                int score = 0;
+                for (Map.Entry<Field, String> query : queries.entrySet()) {
+                    Text text = query.getKey().value.apply(doc);
+                    int fieldScore = fuzzy ? fuzzyScore(text, query.getValue()) : score(text.raw(), query.getValue());
+                    if (fieldScore == 0) {
+                        score = -1;
+                        break;
+                    }
+                    score += fieldScore;
+                }
+                if (score >= 0) {
+                    matches.add(new Scored(songId, score));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        matches.sort(Comparator.comparingInt(Scored::score).reversed().thenComparingLong(Scored::songId));
+        int from = (int) Math.min((long) Math.max(pageNum - 1, 0) * pageSize, matches.size());
+        int to = Math.min(from + Math.max(pageSize, 0), matches.size());
+        return new PageResult<>((long) matches.size(), matches.subList(from, to).stream().map(Scored::songId).toList());
+    }
+
+    private static void putQuery(Map<Field, String> queries, Field field, String query) {
+        if (StrUtil.isNotBlank(query)) {
+            queries.put(field, normalize(query));
+        }
+    }
+
+    /**
+     * 精确模式：字段与查询串的匹配得分，不匹配返回 0
+     */
+    private static int score(String value, String query) {
+        if (value == null || !value.contains(query)) {
+            return 0;
+        }
+        if (value.equals(query)) {
+            return EXACT_SCORE;
+        }
+        return value.startsWith(query) ? PREFIX_SCORE : CONTAINS_SCORE;
+    }
+
+    /**
+     * 模糊模式：在原文、全拼、首字母上分别打分取最高，不匹配返回 0
+     */
+    private static int fuzzyScore(Text text, String query) {
+        if (text.raw() == null) {
+            return 0;
+        }
+        if (query.isEmpty()) {
+            return FUZZY_CONTAINS_SCORE;
+        }
+        String compact = compact(query);
+        int score = fuzzyScore(text.raw(), query);
+        if (text.pinyin() != null && !compact.isEmpty()) {
+            score = Math.max(score, fuzzyScore(text.pinyin(), compact));
+            score = Math.max(score, fuzzyScore(text.initials(), compact));
+        }
+        return score;
+    }
+
+    private static int fuzzyScore(String value, String query) {
+        if (value.equals(query)) {
+            return FUZZY_EXACT_SCORE;
+        }
+        if (value.startsWith(query)) {
+            return FUZZY_PREFIX_SCORE;
+        }
+        if (value.contains(query)) {
+            return FUZZY_CONTAINS_SCORE;
+        }
+        int allowed = allowedEdits(query);
+        if (allowed == 0) {
+            return 0;
+        }
+        int distance = substringDistance(query, value, allowed);
+        return distance > allowed ? 0 : FUZZY_APPROXIMATE_SCORE * (allowed + 1 - distance) / (allowed + 1);
+    }
+
+    /**
+     * 查询串允许的编辑距离，按码点数计算
+     */
+    private static int allowedEdits(String query) {
+        int length = query.codePointCount(0, query.length());
+        if (length >= 8) {
+            return 2;
+        }
+        return length >= 4 ? 1 : 0;
+    }
+
+    /**
+     * 查询串与文本中任意子串的最小编辑距离（Sellers 算法），超过 limit 时提前返回 limit + 1
+     */
+    private static int substringDistance(String query, String text, int limit) {
+        int[] q = query.codePoints().toArray();
+        int[] t = text.codePoints().toArray();
+        int[] previous = new int[q.length + 1];
+        int[] current = new int[q.length + 1];
+        for (int i = 0; i <= q.length; i++) {
+            previous[i] = i;
+        }
+        int best = previous[q.length];
+        for (int j = 1; j <= t.length; j++) {
+            // 匹配可以从文本的任意位置开始
+            current[0] = 0;
+            for (int i = 1; i <= q.length; i++) {
+                int substitute = previous[i - 1] + (q[i - 1] == t[j - 1] ? 0 : 1);
+                current[i] = Math.min(substitute, Math.min(previous[i] + 1, current[i - 1] + 1));
+            }
+            best = Math.min(best, current[q.length]);
+            if (best == 0) {
+                return 0;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return best > limit ? limit + 1 : best;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? null : text.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 去掉空白，拼音查询时 "zhou jie lun" 与 "zhoujielun" 相同
+     */
+    private static String compact(String text) {
+        return text.replaceAll("\\s+", "");
+    }
+
+    /**
+     * 原文及其全拼、首字母；原文中没有汉字时全拼和首字母为 null
+     */
+    private static Text text(String value) {
+        String raw = normalize(value);
+        PinyinUtil.Pinyin pinyin = PinyinUtil.convert(raw);
+        return pinyin == null ? new Text(raw, null, null) : new Text(raw, pinyin.full(), pinyin.initials());
+    }
+
+    /**
+     * 文本的单字和相邻两字，按码点切分
+     */
+    private static Set<String> terms(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        int[] codePoints = text.codePoints().toArray();
+        for (int i = 0; i < codePoints.length; i++) {
+            terms.add(new String(codePoints, i, 1));
+            if (i + 1 < codePoints.length) {
+                terms.add(new String(codePoints, i, 2));
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * 文本中所有相邻两字，按码点切分
+     */
+    private static Set<String> bigrams(String text) {
+        Set<String> bigrams = new LinkedHashSet<>();
+        int[] codePoints = text.codePoints().toArray();
+        for (int i = 0; i + 1 < codePoints.length; i++) {
+            bigrams.add(new String(codePoints, i, 2));
+        }
+        return bigrams;
+    }
+
+    /**
+     * 全拼、首字母中有而原文中没有的 bigram，模糊模式的倒排表只保存这些
+     */
+    private static Set<String> pinyinTerms(Text text) {
+        if (text.pinyin() == null) {
+            return Set.of();
+        }
+        Set<String> terms = bigrams(text.pinyin());
+        terms.addAll(bigrams(text.initials()));
+        terms.removeAll(bigrams(text.raw()));
+        return terms;
+    }
+
+    /**
+     * 精确模式中查询串用于取倒排表的词：一个字时是这个字，否则是所有相邻两字
+     */
+    private static Set<String> queryTerms(String query) {
+        int[] codePoints = query.codePoints().toArray();
+        if (codePoints.length == 1) {
+            return Set.of(query);
+        }
+        return bigrams(query);
+    }
+
+    /**
+     * 可搜索的字段
+     */
+    private enum Field {
+        SONG_NAME(Doc::songName),
+        ARTIST_NAME(Doc::artistName),
+        ALBUM(Doc::album);
+
+        private final Function<Doc, Text> value;
+
+        Field(Function<Doc, Text> value) {
+            this.value = value;
+        }
+    }
+
+    /**
+     * 索引中的一首歌曲
+     */
+    private record Doc(Long songId, Long artistId, Text songName, Text artistName, Text album) {
+    }
+
+    /**
+     * 字段的原文（小写）、全拼、首字母
+     */
+    private record Text(String raw, String pinyin, String initials) {
+    }
+
+    private record Scored(Long songId, int score) {
+    }
+
+    /**
+     * 按歌曲 id 升序保存的倒排表，比 HashSet<Long> 节省大部分内存
+     * 全量构建时按 id 顺序追加，增量更新时插入或删除（需要移动数组，但增量更新很少）
+     */
+    private static class Postings {
+
+        private long[] ids = new long[4];
+        private int size;
+
+        void add(long id) {
+            if (size == 0 || ids[size - 1] < id) {
+                grow();
+                ids[size++] = id;
+                return;
+            }
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                return;
+            }
+            int insertAt = -index - 1;
+            grow();
+            System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+            ids[insertAt] = id;
+            size++;
+        }
+
+        /**
+         * @return 删除后是否为空
+         */
+        boolean remove(long id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+                size--;
+            }
+            return size == 0;
+        }
+
+        boolean contains(long id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+
+        private void grow() {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            }
+        }
+    }
+
+    /**
+     * 倒排索引本身，调用方负责加锁
+     */
+    private static class Index {
+
+        private final Map<Long, Doc> docs = new HashMap<>();
+
+        /**
+         * 歌手 id -> 歌曲 id，歌手改名时找到需要更新的歌曲
+         */
+        private final Map<Long, Set<Long>> songsByArtist = new HashMap<>();
+
+        /**
+         * 原文的单字和 bigram
+         */
+        private final Map<Field, Map<String, Postings>> postings = new EnumMap<>(Field.class);
+
+        /**
+         * 全拼、首字母中有而原文中没有的 bigram
+         */
+        private final Map<Field, Map<String, Postings>> pinyinPostings = new EnumMap<>(Field.class);
+
+        Index() {
+            for (Field field : Field.values()) {
+                postings.put(field, new HashMap<>());
+                pinyinPostings.put(field, new HashMap<>());
+            }
+        }
+
+        void add(SongVO songVO) {
+            remove(songVO.getSongId());
+            Doc doc = new Doc(songVO.getSongId(), songVO.getArtistId(), text(songVO.getSongName()),
+                    text(songVO.getArtistName()), text(songVO.getAlbum()));
+            docs.put(doc.songId(), doc);
+            if (doc.artistId() != null) {
+                songsByArtist.computeIfAbsent(doc.artistId(), k -> new HashSet<>()).add(doc.songId());
+            }
+            for (Field field : Field.values()) {
+                Text text = field.value.apply(doc);
+                if (text.raw() != null) {
+                    addAll(postings.get(field), terms(text.raw()), doc.songId());
+                    addAll(pinyinPostings.get(field), pinyinTerms(text), doc.songId());
+                }
+            }
+        }
+
+        void remove(Long songId) {
+            Doc doc = docs.remove(songId);
+            if (doc == null) {
+                return;
+            }
+            if (doc.artistId() != null) {
+                Set<Long> artistSongIds = songsByArtist.get(doc.artistId());
+                if (artistSongIds != null && artistSongIds.remove(songId) && artistSongIds.isEmpty()) {
+                    songsByArtist.remove(doc.artistId());
+                }
+            }
+            for (Field field : Field.values()) {
+                Text text = field.value.apply(doc);
+                if (text.raw() != null) {
+                    removeAll(postings.get(field), terms(text.raw()), songId);
+                    removeAll(pinyinPostings.get(field), pinyinTerms(text), songId);
+                }
+            }
+        }
+
+        private static void addAll(Map<String, Postings> fieldPostings, Set<String> terms, long songId) {
+            for (String term : terms) {
+                fieldPostings.computeIfAbsent(term, k -> new Postings()).add(songId);
+            }
+        }
+
+        private static void removeAll(Map<String, Postings> fieldPostings, Set<String> terms, long songId) {
+            for (String term : terms) {
+                Postings songIds = fieldPostings.get(term);
+                if (songIds != null && songIds.remove(songId)) {
+                    fieldPostings.remove(term);
+                }
+            }
+        }
+
+        /**
+         * 精确模式的候选：所有非空查询串的倒排表的交集，没有非空查询串时是全部歌曲
+         */
+        Collection<Long> candidates(Map<Field, String> queries) {
+            List<Postings> lists = new ArrayList<>();
+            for (Map.Entry<Field, String> query : queries.entrySet()) {
+                if (query.getValue().isEmpty()) {
+                    continue;
+                }
+                Map<String, Postings> fieldPostings = postings.get(query.getKey());
+                for (String term : queryTerms(query.getValue())) {
+                    Postings songIds = fieldPostings.get(term);
+                    if (songIds == null) {
+                        return List.of();
+                    }
+                    lists.add(songIds);
+                }
+            }
+            if (lists.isEmpty()) {
+                return docs.keySet();
+            }
+            // 从最短的倒排表开始求交集
+            lists.sort(Comparator.comparingInt(songIds -> songIds.size));
+            Postings shortest = lists.get(0);
+            List<Long> result = new ArrayList<>();
+            for (int i = 0; i < shortest.size; i++) {
+                long songId = shortest.ids[i];
+                boolean all = true;
+                for (int j = 1; j < lists.size() && all; j++) {
+                    all = lists.get(j).contains(songId);
+                }
+                if (all) {
+                    result.add(songId);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * 模糊模式的候选：每个非空查询串在原文、全拼、首字母 bigram 上的命中数达到 q-gram 下界的歌曲，取交集
+         * 查询串太短（不足两个字符）时无法用 bigram 过滤，由打分阶段逐个判断
+         */
+        Collection<Long> fuzzyCandidates(Map<Field, String> queries) {
+            Set<Long> result = null;
+            for (Map.Entry<Field, String> query : queries.entrySet()) {
+                String compact = compact(query.getValue());
+                Set<String> grams = bigrams(compact);
+                if (grams.isEmpty()) {
+                    continue;
+                }
+                // 每处编辑最多破坏两个 bigram
+                int required = Math.max(1, grams.size() - 2 * allowedEdits(compact));
+                Map<Long, Integer> hits = new HashMap<>();
+                for (String gram : grams) {
+                    countHits(postings.get(query.getKey()).get(gram), hits);
+                    countHits(pinyinPostings.get(query.getKey()).get(gram), hits);
+                }
+                Set<Long> matched = new HashSet<>();
+                hits.forEach((songId, count) -> {
+                    if (count >= required) {
+                        matched.add(songId);
+                    }
+                });
+                if (result == null) {
+                    result = matched;
+                } else {
+                    result.retainAll(matched);
+                }
+                if (result.isEmpty()) {
+                    return result;
+                }
+            }
+            return result == null ? docs.keySet() : result;
+        }
+
+        private static void countHits(Postings songIds, Map<Long, Integer> hits) {
+            if (songIds == null) {
+                return;
+            }
+            for (int i = 0; i < songIds.size; i++) {
+                hits.merge(songIds.ids[i], 1, Integer::sum);
+            }
+        }
+    }
+}
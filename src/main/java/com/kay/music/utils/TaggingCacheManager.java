@@ -0,0 +1,219 @@
+package com.kay.music.utils;
+
+import com.kay.music.config.CachePolicyProperties;
+import com.kay.music.result.Result;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 给 Spring 缓存加上依赖标签记录的 CacheManager 装饰器
+ * 每次 @Cacheable 写入缓存时，从返回值中提取标签并记录到 CacheTagIndex，空结果按缓存策略使用单独的过期时间；
+ * 读取时按缓存名和 key 前缀记录命中、未命中和空结果命中；@Cacheable(sync = true) 未命中时按缓存策略全集群单飞加载
+ *
+ * @author Kay
+ * @date 2026/10/18 11:40
+ */
+public class TaggingCacheManager implements CacheManager {
+
+    /**
+     * Spring RedisCache 默认的 key 前缀格式：cacheName::key
+     */
+    private static final String KEY_SEPARATOR = "::";
+
+    private final CacheManager delegate;
+    private final CacheTagIndex cacheTagIndex;
+    private final CacheMetrics cacheMetrics;
+    private final CacheSingleFlight cacheSingleFlight;
+    private final CachePolicyProperties cachePolicyProperties;
+
+    /**
+     * 缓存名 -> 返回值中没有任何实体时使用的默认标签（例如“未找到”的空结果）
+     */
+    private final Map<String, String> defaultTags;
+
+    /**
+     * 按用户区分 key 的缓存名（key 中带有用户 id），只有这些缓存的条目需要打上当前用户的标签
+     */
+    private final Set<String> userCaches;
+
+    private final Map<String, Cache> caches = new ConcurrentHashMap<>();
+
+    public TaggingCacheManager(CacheManager delegate, CacheTagIndex cacheTagIndex, CacheMetrics cacheMetrics,
+                               CacheSingleFlight cacheSingleFlight, CachePolicyProperties cachePolicyProperties,
+                               Map<String, String> defaultTags, Set<String> userCaches) {
+        this.delegate = delegate;
+        this.cacheTagIndex = cacheTagIndex;
+        this.cacheMetrics = cacheMetrics;
+        this.cacheSingleFlight = cacheSingleFlight;
+        this.cachePolicyProperties = cachePolicyProperties;
+        this.defaultTags = defaultTags;
+        this.userCaches = userCaches;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        Cache cache = delegate.getCache(name);
+        if (cache == null) {
+            return null;
+        }
+        return caches.computeIfAbsent(name, n -> new TaggedCache(cache, defaultTags.get(n), userCaches.contains(n),
+                cachePolicyProperties.resolve(n).getSingleFlight()));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return delegate.getCacheNames();
+    }
+
+    /**
+     * 写入时记录标签的 Cache，其余操作直接委托
+     */
+    private class TaggedCache implements Cache {
+
+        private final Cache delegate;
+        private final String defaultTag;
+        private final boolean perUser;
+        private final boolean singleFlight;
+
+        TaggedCache(Cache delegate, String defaultTag, boolean perUser, boolean singleFlight) {
+            this.delegate = delegate;
+            this.defaultTag = defaultTag;
+            this.perUser = perUser;
+            this.singleFlight = singleFlight;
+        }
+
+        @Override
+        public String getName() {
+            return delegate.getName();
+        }
+
+        @Override
+        public Object getNativeCache() {
+            return delegate.getNativeCache();
+        }
+
+        @Override
+        public ValueWrapper get(Object key) {
+            ValueWrapper wrapper = delegate.get(key);
+            String keyString = String.valueOf(key);
+            if (wrapper == null) {
+                cacheMetrics.miss(getName(), keyString);
+            } else if (isEmpty(wrapper.get())) {
+                // “未找到”的空结果，防止缓存穿透缓存下来的
+                cacheMetrics.nullHit(getName(), keyString);
+            } else {
+                cacheMetrics.hit(getName(), keyString);
+            }
+            return wrapper;
+        }
+
+        @Override
+        public <T> T get(Object key, Class<T> type) {
+            return delegate.get(key, type);
+        }
+
+        /**
+         * @Cacheable(sync = true) 走这里：未命中时加载并写入（同样记录标签），开启单飞的缓存全集群只加载一次
+         */
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T get(Object key, Callable<T> valueLoader) {
+            ValueWrapper wrapper = get(key);
+            if (wrapper != null) {
+                return (T) wrapper.get();
+            }
+            Callable<T> loadAndPut = () -> {
+                T value = valueLoader.call();
+                put(key, value);
+                return value;
+            };
+            try {
+                if (singleFlight) {
+                    return (T) cacheSingleFlight.load(getName() + KEY_SEPARATOR + key, () -> delegate.get(key), loadAndPut);
+                }
+                return loadAndPut.call();
+            } catch (Exception e) {
+                // 原样保留 Spring 包装的业务异常，由 CacheAspectSupport 解开
+                throw new ValueRetrievalException(key, valueLoader, e);
+            }
+        }
+
+        @Override
+        public void put(Object key, Object value) {
+            if (value == null && delegate instanceof AbstractValueAdaptingCache cache && !cache.isAllowNullValues()) {
+                // 该缓存配置为不缓存 null
+                return;
+            }
+            if (isEmpty(value)) {
+                // 空结果使用单独的（较短的）过期时间
+                CachePolicyRedisCacheWriter.writeEmpty(() -> delegate.put(key, value));
+            } else {
+                delegate.put(key, value);
+            }
+            recordTags(key, value);
+        }
+
+        @Override
+        public ValueWrapper putIfAbsent(Object key, Object value) {
+            ValueWrapper[] existing = new ValueWrapper[1];
+            if (isEmpty(value)) {
+                CachePolicyRedisCacheWriter.writeEmpty(() -> existing[0] = delegate.putIfAbsent(key, value));
+            } else {
+                existing[0] = delegate.putIfAbsent(key, value);
+            }
+            if (existing[0] == null) {
+                recordTags(key, value);
+            }
+            return existing[0];
+        }
+
+        @Override
+        public void evict(Object key) {
+            delegate.evict(key);
+        }
+
+        @Override
+        public boolean evictIfPresent(Object key) {
+            return delegate.evictIfPresent(key);
+        }
+
+        @Override
+        public void clear() {
+            delegate.clear();
+        }
+
+        @Override
+        public boolean invalidate() {
+            return delegate.invalidate();
+        }
+
+        /**
+         * 空结果：null，或者 data 为空的 Result
+         */
+        private boolean isEmpty(Object value) {
+            return value == null || value instanceof Result<?> result && result.getData() == null;
+        }
+
+        private void recordTags(Object key, Object value) {
+            Set<String> tags = CacheTagIndex.extractTags(value);
+            // 结果里没有任何实体（空结果），新增数据时也需要失效
+            if (tags.isEmpty() && defaultTag != null) {
+                tags.add(defaultTag);
+            }
+            // 按用户区分的缓存（收藏列表等），该用户的收藏变化时需要失效；
+            // 其他缓存是所有用户共享的，不能因为碰巧由某个用户写入，就随这个用户的收藏变化被删除
+            Long userId = perUser ? ThreadLocalUtil.getUserId() : null;
+            if (userId != null) {
+                tags.add(CacheTagIndex.user(userId));
+            }
+            cacheTagIndex.record(getName() + KEY_SEPARATOR + key, tags);
+        }
+    }
+}
@@ -35,7 +35,8 @@ public class ThreadLocalUtil {
      * @date:   2025/11/20 23:27
      */
     public void setThreadLocalByToken(HttpServletRequest request){
-        if (ThreadLocalUtil.getUserId() == null) {
+        // 缓存预热等内部调用没有请求
+        if (request != null && ThreadLocalUtil.getUserId() == null) {
             String token = request.getHeader("Authorization");
             if (token != null && token.startsWith("Bearer ")) {
                 token = token.substring(7);
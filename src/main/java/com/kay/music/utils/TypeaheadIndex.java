@@ -0,0 +1,606 @@
+package com.kay.music.utils;
+
+import com.kay.music.mapper.ArtistMapper;
+import com.kay.music.mapper.PlaylistMapper;
+import com.kay.music.mapper.SongMapper;
+import com.kay.music.pojo.dto.SuggestEntryDTO;
+import com.kay.music.pojo.vo.SuggestionVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 输入提示（typeahead）的进程内前缀树，歌名、歌手名、歌单标题各一棵
+ *
+ * 1. 压缩前缀树（radix tree）：边上保存一段字符串，不是词尾且只有一个子节点的节点与子节点合并
+ * 2. 每个名称按原文（小写、去空白）、全拼、首字母三种形式插入，输入 "周杰"、"zhoujie"、"zjl" 都能提示 "周杰伦"
+ * 3. 每个节点保存子树中热度（被收藏次数）最高的前 K 个补全，查询走到前缀对应的节点直接返回，不遍历子树；
+ *    热度相同时名称短的在前，再按 id 升序
+ * 4. 插入时把新条目放入路径上每个节点的前 K 个；删除时自底向上，只有前 K 个中包含被删条目的节点
+ *    才用本节点的词尾条目和子节点的前 K 个重新合并，然后清理空节点、合并单子节点
+ *
+ * 启动时全量构建，之后监听变更发件箱的 ChangeEvent，按 song:{id}、artist:{id}、playlist:{id} 标签重新读取受影响的条目；
+ * 收藏不会产生这些标签，热度随定时全量重建刷新；增量更新和定时重建都交给 IndexTaskExecutor 在后台串行执行
+ *
+ * @author Kay
+ * @date 2026/10/18 23:00
+ */
+@Slf4j
+@Component
+public class TypeaheadIndex implements InitializingBean {
+
+    public static final String SONG = "song";
+    public static final String ARTIST = "artist";
+    public static final String PLAYLIST = "playlist";
+
+    private static final String SONG_TAG = "song:";
+    private static final String ARTIST_TAG = "artist:";
+    private static final String PLAYLIST_TAG = "playlist:";
+
+    /**
+     * IndexTaskExecutor 中的 owner
+     */
+    private static final String TASK_OWNER = "typeahead";
+
+    /**
+     * 热度倒序，名称短的在前，再按 id 升序
+     */
+    private static final Comparator<Entry> ORDER = Comparator.comparingLong(Entry::weight).reversed()
+            .thenComparingInt(entry -> entry.name().length())
+            .thenComparingLong(Entry::id);
+
+    private final SongMapper songMapper;
+    private final ArtistMapper artistMapper;
+    private final PlaylistMapper playlistMapper;
+    private final IndexTaskExecutor indexTaskExecutor;
+
+    private final boolean enabled;
+
+    /**
+     * 每个节点保存的补全个数，也是单次查询每种类型返回的上限
+     */
+    private final int topK;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 当前的索引，全量重建时整体替换
+     */
+    private Index index;
+
+    private volatile boolean ready;
+
+    /**
+     * 全量重建期间收到的变更，替换后重新应用，避免被旧的全量数据覆盖
+     * 为 null 表示当前没有在全量重建
+     */
+    private Set<Long> pendingSongIds;
+    private Set<Long> pendingArtistIds;
+    private Set<Long> pendingPlaylistIds;
+
+    public TypeaheadIndex(SongMapper songMapper,
+                          ArtistMapper artistMapper,
+                          PlaylistMapper playlistMapper,
+                          IndexTaskExecutor indexTaskExecutor,
+                          @Value("${search.suggest.enabled:true}") boolean enabled,
+                          @Value("${search.suggest.top-k:10}") int topK) {
+        this.songMapper = songMapper;
+        this.artistMapper = artistMapper;
+        this.playlistMapper = playlistMapper;
+        this.indexTaskExecutor = indexTaskExecutor;
+        this.enabled = enabled;
+        this.topK = Math.max(1, topK);
+        this.index = new Index(this.topK);
+    }
+
+    /**
+     * 启动时全量构建
+     */
+    @Override
+    public void afterPropertiesSet() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    /**
+     * 定时全量重建，同时刷新热度，在后台执行
+     */
+    @Scheduled(fixedDelayString = "${search.suggest.rebuild-interval-ms:600000}",
+            initialDelayString = "${search.suggest.rebuild-interval-ms:600000}")
+    public void scheduleRebuild() {
+        if (enabled) {
+            indexTaskExecutor.rebuild(TASK_OWNER, this::rebuild);
+        }
+    }
+
+    /**
+     * 全量重建
+     */
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            pendingSongIds = new HashSet<>();
+            pendingArtistIds = new HashSet<>();
+            pendingPlaylistIds = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        long start = System.currentTimeMillis();
+        Index rebuilt = new Index(topK);
+        try {
+            songMapper.getSuggestEntries(null, null).forEach(rebuilt::addSong);
+            artistMapper.getSuggestEntries(null).forEach(entry -> rebuilt.artists.add(entry));
+            playlistMapper.getSuggestEntries(null).forEach(entry -> rebuilt.playlists.add(entry));
+        } catch (Exception e) {
+            log.error("输入提示索引构建失败", e);
+            lock.writeLock().lock();
+            try {
+                pendingSongIds = null;
+                pendingArtistIds = null;
+                pendingPlaylistIds = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return;
+        }
+
+        Set<Long> songIds;
+        Set<Long> artistIds;
+        Set<Long> playlistIds;
+        lock.writeLock().lock();
+        try {
+            index = rebuilt;
+            songIds = pendingSongIds;
+            artistIds = pendingArtistIds;
+            playlistIds = pendingPlaylistIds;
+            pendingSongIds = null;
+            pendingArtistIds = null;
+            pendingPlaylistIds = null;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        reindex(songIds, artistIds, playlistIds);
+        log.info("输入提示索引构建完成，歌曲 {} 首，歌手 {} 位，歌单 {} 个，耗时 {} ms", rebuilt.songs.size(),
+                rebuilt.artists.size(), rebuilt.playlists.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 歌曲、歌手、歌单变更后，在后台重新读取受影响的条目（监听线程只负责转交）
+     */
+    @EventListener
+    public void onChange(ChangeEvent event) {
+        if (!enabled) {
+            return;
+        }
+        Set<Long> songIds = event.ids(SONG_TAG);
+        Set<Long> artistIds = event.ids(ARTIST_TAG);
+        Set<Long> playlistIds = event.ids(PLAYLIST_TAG);
+        if (songIds.isEmpty() && artistIds.isEmpty() && playlistIds.isEmpty()) {
+            return;
+        }
+        indexTaskExecutor.execute(TASK_OWNER, () -> apply(songIds, artistIds, playlistIds));
+    }
+
+    /**
+     * 正在全量重建时先记下变更，替换后重新应用；再重新读取受影响的条目
+     */
+    private void apply(Set<Long> songIds, Set<Long> artistIds, Set<Long> playlistIds) {
+        lock.writeLock().lock();
+        try {
+            if (pendingSongIds != null) {
+                pendingSongIds.addAll(songIds);
+                pendingArtistIds.addAll(artistIds);
+                pendingPlaylistIds.addAll(playlistIds);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        reindex(songIds, artistIds, playlistIds);
+    }
+
+    /**
+     * 歌手变更时连同其全部歌曲一起重新读取：删除歌手会级联删除歌曲，歌曲本身不会产生 song:{id} 标签
+     */
+    private void reindex(Set<Long> songIds, Set<Long> artistIds, Set<Long> playlistIds) {
+        List<SuggestEntryDTO> songs = List.of();
+        List<SuggestEntryDTO> artists = List.of();
+        List<SuggestEntryDTO> playlists = List.of();
+        try {
+            if (!songIds.isEmpty() || !artistIds.isEmpty()) {
+                songs = songMapper.getSuggestEntries(songIds, artistIds);
+            }
+            if (!artistIds.isEmpty()) {
+                artists = artistMapper.getSuggestEntries(artistIds);
+            }
+            if (!playlistIds.isEmpty()) {
+                playlists = playlistMapper.getSuggestEntries(playlistIds);
+            }
+        } catch (Exception e) {
+            // 等下次全量重建
+            log.warn("输入提示索引更新失败: songIds={}, artistIds={}, playlistIds={}", songIds, artistIds, playlistIds, e);
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            songIds.forEach(index::removeSong);
+            for (Long artistId : artistIds) {
+                Set<Long> artistSongIds = index.songsByArtist.get(artistId);
+                if (artistSongIds != null) {
+                    new ArrayList<>(artistSongIds).forEach(index::removeSong);
+                }
+                index.artists.remove(artistId);
+            }
+            playlistIds.forEach(index.playlists::remove);
+            songs.forEach(index::addSong);
+            artists.forEach(entry -> index.artists.add(entry));
+            playlists.forEach(entry -> index.playlists.add(entry));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 按前缀查询补全，依次返回歌曲、歌手、歌单
+     *
+     * @param keyword 前缀，可以是原文、全拼或首字母，忽略大小写和空白
+     * @param limit 每种类型最多返回的个数，不超过 top-k
+     * @return 索引未就绪时返回 null
+     */
+    public List<SuggestionVO> suggest(String keyword, int limit) {
+        if (!ready) {
+            return null;
+        }
+        String prefix = normalize(keyword);
+        if (prefix.isEmpty()) {
+            return List.of();
+        }
+        int size = Math.min(Math.max(limit, 1), topK);
+        List<SuggestionVO> suggestions = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            collect(index.songs, SONG, prefix, size, suggestions);
+            collect(index.artists, ARTIST, prefix, size, suggestions);
+            collect(index.playlists, PLAYLIST, prefix, size, suggestions);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return suggestions;
+    }
+
+    private static void collect(RadixTrie trie, String type, String prefix, int size, List<SuggestionVO> suggestions) {
+        Entry[] top = trie.complete(prefix);
+        for (int i = 0; i < top.length && i < size; i++) {
+            suggestions.add(new SuggestionVO(type, top[i].id(), top[i].name()));
+        }
+    }
+
+    /**
+     * 小写并去掉空白
+     */
+    private static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder normalized = new StringBuilder(text.length());
+        for (char c : text.toLowerCase(Locale.ROOT).toCharArray()) {
+            if (!Character.isWhitespace(c)) {
+                normalized.append(c);
+            }
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * 一个名称插入前缀树的形式：原文、全拼、首字母，去重
+     */
+    private static Set<String> keys(String name) {
+        Set<String> keys = new LinkedHashSet<>();
+        String normalized = normalize(name);
+        if (!normalized.isEmpty()) {
+            keys.add(normalized);
+        }
+        PinyinUtil.Pinyin pinyin = PinyinUtil.convert(name);
+        if (pinyin != null) {
+            keys.add(pinyin.full());
+            keys.add(pinyin.initials());
+        }
+        return keys;
+    }
+
+    /**
+     * 三棵前缀树，以及删除歌手时找到其歌曲用的歌手 id -> 歌曲 id
+     */
+    private static final class Index {
+
+        private final RadixTrie songs;
+        private final RadixTrie artists;
+        private final RadixTrie playlists;
+        private final Map<Long, Set<Long>> songsByArtist = new HashMap<>();
+        private final Map<Long, Long> artistBySong = new HashMap<>();
+
+        private Index(int topK) {
+            songs = new RadixTrie(topK);
+            artists = new RadixTrie(topK);
+            playlists = new RadixTrie(topK);
+        }
+
+        private void addSong(SuggestEntryDTO song) {
+            songs.add(song);
+            if (song.getArtistId() != null) {
+                songsByArtist.computeIfAbsent(song.getArtistId(), artistId -> new HashSet<>()).add(song.getId());
+                artistBySong.put(song.getId(), song.getArtistId());
+            }
+        }
+
+        private void removeSong(Long songId) {
+            songs.remove(songId);
+            Long artistId = artistBySong.remove(songId);
+            if (artistId != null) {
+                Set<Long> artistSongIds = songsByArtist.get(artistId);
+                artistSongIds.remove(songId);
+                if (artistSongIds.isEmpty()) {
+                    songsByArtist.remove(artistId);
+                }
+            }
+        }
+    }
+
+    /**
+     * 压缩前缀树，每个节点保存子树中排序最靠前的 K 个条目（按 id 去重：同一条目的全拼和首字母可能在同一棵子树下）
+     */
+    private static final class RadixTrie {
+
+        private static final Entry[] EMPTY = new Entry[0];
+
+        private final int topK;
+
+        private final Node root = new Node("");
+
+        /**
+         * id -> 条目，删除时按 id 找到名称
+         */
+        private final Map<Long, Entry> entries = new HashMap<>();
+
+        private RadixTrie(int topK) {
+            this.topK = topK;
+        }
+
+        private int size() {
+            return entries.size();
+        }
+
+        private void add(SuggestEntryDTO dto) {
+            if (dto.getId() == null || dto.getName() == null) {
+                return;
+            }
+            remove(dto.getId());
+            Entry entry = new Entry(dto.getId(), dto.getName(), dto.getWeight() == null ? 0 : dto.getWeight());
+            Set<String> keys = keys(entry.name());
+            if (keys.isEmpty()) {
+                return;
+            }
+            entries.put(entry.id(), entry);
+            keys.forEach(key -> insert(key, entry));
+        }
+
+        private void remove(Long id) {
+            Entry entry = entries.remove(id);
+            if (entry != null) {
+                keys(entry.name()).forEach(key -> delete(key, entry));
+            }
+        }
+
+        /**
+         * 前缀对应节点的前 K 个；前缀落在某条边的中间时，就是这条边下方节点的前 K 个
+         */
+        private Entry[] complete(String prefix) {
+            Node node = root;
+            int i = 0;
+            while (i < prefix.length()) {
+                Node child = node.child(prefix.charAt(i));
+                if (child == null) {
+                    return EMPTY;
+                }
+                int common = commonPrefix(child.label, prefix, i);
+                if (i + common == prefix.length()) {
+                    return child.top;
+                }
+                if (common < child.label.length()) {
+                    return EMPTY;
+                }
+                i += common;
+                node = child;
+            }
+            return node.top;
+        }
+
+        private void insert(String key, Entry entry) {
+            Node node = root;
+            int i = 0;
+            while (i < key.length()) {
+                Node child = node.child(key.charAt(i));
+                if (child == null) {
+                    child = new Node(key.substring(i));
+                    node.children.put(key.charAt(i), child);
+                    node = child;
+                    break;
+                }
+                int common = commonPrefix(child.label, key, i);
+                if (common < child.label.length()) {
+                    // 在边的中间分裂出一个节点，子树不变，前 K 个也不变
+                    Node middle = new Node(child.label.substring(0, common));
+                    middle.top = child.top;
+                    child.label = child.label.substring(common);
+                    middle.children.put(child.label.charAt(0), child);
+                    node.children.put(middle.label.charAt(0), middle);
+                    child = middle;
+                }
+                child.offer(entry, topK);
+                i += common;
+                node = child;
+            }
+            // 新建的叶子节点在循环中没有 offer
+            node.offer(entry, topK);
+            node.terminals.add(entry);
+        }
+
+        private void delete(String key, Entry entry) {
+            List<Node> path = new ArrayList<>();
+            Node node = root;
+            int i = 0;
+            while (i < key.length()) {
+                Node child = node.child(key.charAt(i));
+                if (child == null || !key.startsWith(child.label, i)) {
+                    return;
+                }
+                path.add(child);
+                i += child.label.length();
+                node = child;
+            }
+            if (!node.terminals.remove(entry)) {
+                return;
+            }
+            for (int depth = path.size() - 1; depth >= 0; depth--) {
+                Node current = path.get(depth);
+                Node parent = depth == 0 ? root : path.get(depth - 1);
+                if (current.terminals.isEmpty() && current.children.isEmpty()) {
+                    parent.children.remove(current.label.charAt(0));
+                    continue;
+                }
+                if (current.terminals.isEmpty() && current.children.size() == 1) {
+                    // 合并单子节点，子节点的前 K 个就是合并后节点的前 K 个
+                    Node only = current.children.values().iterator().next();
+                    only.label = current.label + only.label;
+                    parent.children.put(only.label.charAt(0), only);
+                    path.set(depth, only);
+                    continue;
+                }
+                if (current.contains(entry)) {
+                    current.recompute(topK);
+                }
+            }
+        }
+
+        private static int commonPrefix(String label, String key, int offset) {
+            int max = Math.min(label.length(), key.length() - offset);
+            int i = 0;
+            while (i < max && label.charAt(i) == key.charAt(offset + i)) {
+                i++;
+            }
+            return i;
+        }
+    }
+
+    private static final class Node {
+
+        /**
+         * 父节点到本节点的边上的字符串
+         */
+        private String label;
+
+        /**
+         * 边的首字符 -> 子节点
+         */
+        private final Map<Character, Node> children = new HashMap<>(4);
+
+        /**
+         * 以本节点结尾的条目（同名的歌曲可能有多首）
+         */
+        private final List<Entry> terminals = new ArrayList<>(1);
+
+        /**
+         * 子树中排序最靠前的 K 个条目
+         */
+        private Entry[] top = RadixTrie.EMPTY;
+
+        private Node(String label) {
+            this.label = label;
+        }
+
+        private Node child(char c) {
+            return children.get(c);
+        }
+
+        private boolean contains(Entry entry) {
+            for (Entry candidate : top) {
+                if (candidate.id() == entry.id()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * 新条目放入前 K 个
+         */
+        private void offer(Entry entry, int topK) {
+            if (contains(entry)) {
+                return;
+            }
+            int position = 0;
+            while (position < top.length && ORDER.compare(top[position], entry) < 0) {
+                position++;
+            }
+            if (position >= topK) {
+                return;
+            }
+            int length = Math.min(top.length + 1, topK);
+            Entry[] merged = new Entry[length];
+            System.arraycopy(top, 0, merged, 0, position);
+            merged[position] = entry;
+            System.arraycopy(top, position, merged, position + 1, length - position - 1);
+            top = merged;
+        }
+
+        /**
+         * 由本节点的词尾条目和子节点的前 K 个重新合并
+         */
+        private void recompute(int topK) {
+            Map<Long, Entry> candidates = new HashMap<>();
+            terminals.forEach(entry -> candidates.put(entry.id(), entry));
+            for (Node child : children.values()) {
+                for (Entry entry : child.top) {
+                    candidates.put(entry.id(), entry);
+                }
+            }
+            Entry[] sorted = candidates.values().toArray(RadixTrie.EMPTY);
+            Arrays.sort(sorted, ORDER);
+            top = sorted.length > topK ? Arrays.copyOf(sorted, topK) : sorted;
+        }
+    }
+
+    /**
+     * @param weight 热度：被收藏次数
+     */
+    private record Entry(long id, String name, long weight) {
+    }
+}
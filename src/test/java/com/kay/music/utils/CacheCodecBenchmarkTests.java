@@ -0,0 +1,144 @@
+package com.kay.music.utils;
+
+import cn.hutool.core.lang.TypeReference;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.kay.music.config.CacheCodecProperties;
+import com.kay.music.pojo.dto.RedisData;
+import com.kay.music.pojo.vo.CommentVO;
+import com.kay.music.pojo.vo.SongDetailVO;
+import com.kay.music.pojo.vo.SongVO;
+import com.kay.music.result.PageResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 缓存编解码器对比：存储字节数和解码耗时，以及 LZ4 压缩（+lz4）的效果
+ * 不参与日常构建，手动运行：mvn test -Dbenchmark=true -Dtest=CacheCodecBenchmarkTests
+ *
+ * 一次运行的结果（JDK 17，单核）：
+ *                       PageResult<SongVO>（20 条）   SongDetailVO
+ *   legacy-json         5544 B  208 us             3979 B  108 us
+ *   json                5521 B  209 us             3956 B  101 us
+ *   json+lz4             655 B  202 us              601 B  102 us
+ *   smile               3456 B   14 us             3151 B    6 us
+ *   smile+lz4            690 B   10 us              575 B    7 us
+ *
+ * @author Kay
+ * @date 2026/10/18 15:05
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class CacheCodecBenchmarkTests {
+
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 50_000;
+
+    private static final Type SONG_PAGE_TYPE = new TypeReference<PageResult<SongVO>>() {}.getType();
+
+    @Test
+    void songPage() {
+        PageResult<SongVO> page = new PageResult<>(1000L, new ArrayList<>());
+        for (long i = 1; i <= 20; i++) {
+            SongVO songVO = new SongVO();
+            songVO.setSongId(i);
+            songVO.setSongName("晴天 " + i);
+            songVO.setArtistName("周杰伦");
+            songVO.setAlbum("叶惠美");
+            songVO.setDuration("4:29");
+            songVO.setCoverUrl("http://localhost:9000/vibe-music-data/songCovers/" + i + ".jpg");
+            songVO.setAudioUrl("http://localhost:9000/vibe-music-data/songs/" + i + ".mp3");
+            songVO.setLikeStatus(0);
+            songVO.setReleaseTime(LocalDate.of(2003, 7, 31));
+            page.getItems().add(songVO);
+        }
+        compare("PageResult<SongVO>（20 条）", page, SONG_PAGE_TYPE,
+                json -> ((JSONObject) json).toBean(new TypeReference<PageResult<SongVO>>() {}));
+    }
+
+    @Test
+    void songDetail() {
+        SongDetailVO detail = new SongDetailVO();
+        detail.setSongId(1L);
+        detail.setSongName("晴天");
+        detail.setArtistName("周杰伦");
+        detail.setAlbum("叶惠美");
+        detail.setLyric("[00:00.00]故事的小黄花\n".repeat(60));
+        detail.setDuration("4:29");
+        detail.setCoverUrl("http://localhost:9000/vibe-music-data/songCovers/1.jpg");
+        detail.setAudioUrl("http://localhost:9000/vibe-music-data/songs/1.mp3");
+        detail.setReleaseTime(LocalDate.of(2003, 7, 31));
+        detail.setLikeStatus(0);
+        List<CommentVO> comments = new ArrayList<>();
+        for (long i = 1; i <= 10; i++) {
+            CommentVO comment = new CommentVO();
+            comment.setCommentId(i);
+            comment.setUsername("user" + i);
+            comment.setUserAvatar("http://localhost:9000/vibe-music-data/users/" + i + ".jpg");
+            comment.setContent("前奏一响就回到了高中");
+            comment.setCreateTime(LocalDate.of(2025, 11, 20));
+            comment.setLikeCount(i * 3);
+            comments.add(comment);
+        }
+        detail.setComments(comments);
+        compare("SongDetailVO（60 行歌词，10 条评论）", detail, SongDetailVO.class,
+                json -> JSONUtil.toBean((JSONObject) json, SongDetailVO.class));
+    }
+
+    private void compare(String name, Object value, Type type, Function<Object, Object> legacyConvert) {
+        RedisData<Object> redisData = new RedisData<>()
+                .setExpireTime(LocalDateTime.now().plusMinutes(30))
+                .setData(value);
+
+        // 改造前：hutool 直接序列化 RedisData，读取时先解析成 JSONObject 再转换一次
+        byte[] legacy = JSONUtil.toJsonStr(redisData).getBytes(StandardCharsets.UTF_8);
+        Supplier<Object> legacyDecode = () -> {
+            RedisData<?> parsed = JSONUtil.toBean(new String(legacy, StandardCharsets.UTF_8), RedisData.class);
+            return legacyConvert.apply(parsed.getData());
+        };
+
+        System.out.println("== " + name);
+        report("legacy-json", legacy.length, legacyDecode);
+        for (String codec : List.of("json", "smile")) {
+            for (int threshold : new int[]{0, 1}) {
+                CacheCodecRegistry registry = registry(codec, threshold);
+                byte[] bytes = registry.encode("music:song:benchmark", redisData);
+                assertEquals(value, registry.decode(bytes, type).getData());
+                report(threshold == 0 ? codec : codec + "+lz4", bytes.length, () -> registry.decode(bytes, type).getData());
+            }
+        }
+    }
+
+    private static void report(String codec, int bytes, Supplier<Object> decode) {
+        for (int i = 0; i < WARMUP; i++) {
+            decode.get();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            decode.get();
+        }
+        double micros = (System.nanoTime() - start) / 1000.0 / ITERATIONS;
+        System.out.printf("%-12s %8d bytes %10.2f us/decode%n", codec, bytes, micros);
+    }
+
+    private static CacheCodecRegistry registry(String codec, int compressionThreshold) {
+        CacheCodecProperties properties = new CacheCodecProperties();
+        properties.setDefaultCodec(codec);
+        properties.setPrefixes(Map.of());
+        properties.setCompressionThreshold(compressionThreshold);
+        return new CacheCodecRegistry(null, List.of(new JsonCacheCodec(), new SmileCacheCodec()), properties,
+                new CacheMetrics(new SimpleMeterRegistry()), new HotKeyDetector(false, 0, 0, 0, 0, 0));
+    }
+}
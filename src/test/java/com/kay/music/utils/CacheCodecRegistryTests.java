@@ -0,0 +1,163 @@
+package com.kay.music.utils;
+
+import cn.hutool.core.lang.TypeReference;
+import cn.hutool.json.JSONUtil;
+import com.kay.music.config.CacheCodecProperties;
+import com.kay.music.pojo.dto.RedisData;
+import com.kay.music.pojo.vo.SongVO;
+import com.kay.music.result.PageResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * CacheCodecRegistry：按前缀选择编解码器、固定头部、LZ4 压缩，以及旧格式（旧头部、改造前的 JSON）的读取
+ * 只测试编解码，不访问 Redis
+ *
+ * @author Kay
+ * @date 2026/10/18 23:59
+ */
+class CacheCodecRegistryTests {
+
+    private static final Type SONG_PAGE_TYPE = new TypeReference<PageResult<SongVO>>() {}.getType();
+
+    private static final LocalDateTime EXPIRE_TIME = LocalDateTime.now().plusMinutes(30).truncatedTo(ChronoUnit.MILLIS);
+
+    private final CacheCodecRegistry registry = registry(0);
+
+    @Test
+    void longestPrefixWins() {
+        assertEquals("smile", registry.codecFor("music:song:detail:1").name());
+        assertEquals("json", registry.codecFor("music:artist:1").name());
+        assertEquals("json", registry.codecFor("other").name());
+    }
+
+    @Test
+    void headerRoundTrip() {
+        RedisData<PageResult<SongVO>> redisData = new RedisData<PageResult<SongVO>>()
+                .setExpireTime(EXPIRE_TIME)
+                .setRebuildMillis(123L)
+                .setData(page(3));
+        byte[] bytes = registry.encode("music:song:guest:1", redisData);
+
+        assertTrue(registry.hasHeader(bytes));
+        // 带重建耗时、未压缩、smile 的 id
+        assertEquals((byte) (0x80 | 2), bytes[0]);
+        assertEquals(EXPIRE_TIME, registry.peekExpireTime(bytes));
+
+        RedisData<PageResult<SongVO>> decoded = registry.decode(bytes, SONG_PAGE_TYPE);
+        assertEquals(EXPIRE_TIME, decoded.getExpireTime());
+        assertEquals(123L, decoded.getRebuildMillis());
+        assertEquals(3L, decoded.getData().getTotal());
+        // 按泛型类型解码，不是 JSONObject
+        assertInstanceOf(SongVO.class, decoded.getData().getItems().get(0));
+        assertEquals("晴天 2", decoded.getData().getItems().get(1).getSongName());
+    }
+
+    @Test
+    void compressedRoundTrip() {
+        CacheCodecRegistry compressing = registry(64);
+        RedisData<PageResult<SongVO>> redisData = new RedisData<PageResult<SongVO>>()
+                .setExpireTime(EXPIRE_TIME)
+                .setData(page(20));
+        byte[] bytes = compressing.encode("music:artist:songs:1", redisData);
+
+        assertEquals((byte) (0x80 | 0x40 | 1), bytes[0]);
+        assertTrue(bytes.length < registry.encode("music:artist:songs:1", redisData).length);
+        RedisData<PageResult<SongVO>> decoded = compressing.decode(bytes, SONG_PAGE_TYPE);
+        assertEquals(20, decoded.getData().getItems().size());
+        assertEquals(0L, decoded.getRebuildMillis());
+        // 不压缩的节点也能读取压缩过的数据
+        assertEquals(20, registry.<PageResult<SongVO>>decode(bytes, SONG_PAGE_TYPE).getData().getItems().size());
+    }
+
+    @Test
+    void headerWithoutRebuildTime() {
+        byte[] body = new JsonCacheCodec().encode(List.of(1L, 2L));
+        byte[] bytes = ByteBuffer.allocate(1 + Long.BYTES + body.length)
+                .put((byte) 1)
+                .putLong(EXPIRE_TIME.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli())
+                .put(body)
+                .array();
+
+        assertTrue(registry.hasHeader(bytes));
+        RedisData<List<Long>> decoded = registry.decode(bytes, new TypeReference<List<Long>>() {}.getType());
+        assertEquals(EXPIRE_TIME, decoded.getExpireTime());
+        assertNull(decoded.getRebuildMillis());
+        assertEquals(List.of(1L, 2L), decoded.getData());
+    }
+
+    @Test
+    void legacyJson() {
+        RedisData<PageResult<SongVO>> redisData = new RedisData<PageResult<SongVO>>()
+                .setExpireTime(EXPIRE_TIME)
+                .setData(page(2));
+        byte[] bytes = JSONUtil.toJsonStr(redisData).getBytes(StandardCharsets.UTF_8);
+
+        assertFalse(registry.hasHeader(bytes));
+        assertEquals(EXPIRE_TIME, registry.peekExpireTime(bytes));
+        RedisData<PageResult<SongVO>> decoded = registry.decode(bytes, SONG_PAGE_TYPE);
+        assertEquals(EXPIRE_TIME, decoded.getExpireTime());
+        assertInstanceOf(SongVO.class, decoded.getData().getItems().get(0));
+        assertEquals("晴天 1", decoded.getData().getItems().get(0).getSongName());
+    }
+
+    @Test
+    void nullPlaceholderHasNoHeader() {
+        assertFalse(registry.hasHeader(new byte[0]));
+        assertFalse(registry.hasHeader("{}".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void unknownCodecIdIsRejected() {
+        byte[] bytes = ByteBuffer.allocate(CacheCodecRegistry.HEADER_LENGTH + 2).put((byte) (0x80 | 9)).array();
+        assertFalse(registry.hasHeader(bytes));
+        assertThrows(IllegalStateException.class, () -> registry.decode(bytes, SONG_PAGE_TYPE));
+    }
+
+    @Test
+    void conflictingIdsAreRejected() {
+        assertThrows(IllegalStateException.class, () -> new CacheCodecRegistry(null,
+                List.of(new JsonCacheCodec(), new JsonCacheCodec()), new CacheCodecProperties(),
+                new CacheMetrics(new SimpleMeterRegistry()), new HotKeyDetector(false, 0, 0, 0, 0, 0)));
+    }
+
+    private static CacheCodecRegistry registry(int compressionThreshold) {
+        CacheCodecProperties properties = new CacheCodecProperties();
+        properties.setPrefixes(Map.of("music:", "json", "music:song:", "smile"));
+        properties.setCompressionThreshold(compressionThreshold);
+        return new CacheCodecRegistry(null, List.of(new JsonCacheCodec(), new SmileCacheCodec()), properties,
+                new CacheMetrics(new SimpleMeterRegistry()), new HotKeyDetector(false, 0, 0, 0, 0, 0));
+    }
+
+    private static PageResult<SongVO> page(int size) {
+        PageResult<SongVO> page = new PageResult<>((long) size, new ArrayList<>());
+        for (long i = 1; i <= size; i++) {
+            SongVO songVO = new SongVO();
+            songVO.setSongId(i);
+            songVO.setSongName("晴天 " + i);
+            songVO.setArtistName("周杰伦");
+            songVO.setAlbum("叶惠美");
+            songVO.setReleaseTime(LocalDate.of(2003, 7, 31));
+            page.getItems().add(songVO);
+        }
+        return page;
+    }
+}
@@ -0,0 +1,227 @@
+package com.kay.music.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 按标签删除缓存与 @CacheEvict(allEntries = true) 的命中率对比：重放合成的读写请求
+ * 不参与日常构建，手动运行：mvn test -Dbenchmark=true -Dtest=CacheTagReplayBenchmarkTests
+ *
+ * 只模拟删除策略，不访问 Redis：
+ * 1. 读：游客歌曲分页、登录用户歌曲分页、歌曲详情、歌手详情、歌单详情，按 Zipf 分布访问，
+ *    每个缓存项带上它依赖的标签（song:{id}、artist:{id}、playlist:{id}、user:{id}、song:list）
+ * 2. 写：收藏 / 取消收藏（原来清空四个缓存）、评论、修改歌曲、新增歌曲、修改歌手
+ * 3. allEntries 模式下写操作清空涉及的整个缓存，标签模式下只删除带有对应标签的缓存项
+ *
+ * @author Kay
+ * @date 2026/10/18 23:59
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class CacheTagReplayBenchmarkTests {
+
+    private static final int SONGS = 5000;
+    private static final int ARTISTS = 300;
+    private static final int PLAYLISTS = 200;
+    private static final int USERS = 500;
+    private static final int PAGE_SIZE = 20;
+    private static final int OPERATIONS = 400_000;
+    private static final long SEED = 11;
+
+    @Test
+    void hitRate() {
+        for (double writeRatio : new double[]{0.05, 0.2}) {
+            double allEntries = new Replay(SEED, false).run(writeRatio);
+            double tags = new Replay(SEED, true).run(writeRatio);
+            System.out.printf("写操作 %2.0f%%: allEntries %5.1f%% -> tags %5.1f%%%n",
+                    writeRatio * 100, allEntries * 100, tags * 100);
+            assertTrue(tags > allEntries);
+        }
+    }
+
+    /**
+     * 一次重放，两种模式使用相同的种子，读写序列相同
+     */
+    private static final class Replay {
+
+        private final Random random;
+        private final boolean byTag;
+
+        private final int[] songArtist = new int[SONGS];
+        private final List<List<Integer>> artistSongs = new ArrayList<>();
+        private final List<List<Integer>> playlistSongs = new ArrayList<>();
+
+        private final Zipf songs = new Zipf(SONGS, 1.0);
+        private final Zipf artists = new Zipf(ARTISTS, 1.0);
+        private final Zipf playlists = new Zipf(PLAYLISTS, 1.0);
+        private final Zipf pages = new Zipf(250, 1.2);
+        private final Zipf users = new Zipf(USERS, 0.8);
+
+        /**
+         * 缓存项 -> 所在的缓存名
+         */
+        private final Map<String, String> cache = new HashMap<>();
+
+        /**
+         * 标签 -> 依赖它的缓存项
+         */
+        private final Map<String, Set<String>> tagIndex = new HashMap<>();
+
+        Replay(long seed, boolean byTag) {
+            this.random = new Random(seed);
+            this.byTag = byTag;
+            for (int i = 0; i < ARTISTS; i++) {
+                artistSongs.add(new ArrayList<>());
+            }
+            for (int i = 0; i < SONGS; i++) {
+                songArtist[i] = random.nextInt(ARTISTS);
+                artistSongs.get(songArtist[i]).add(i);
+            }
+            List<Integer> all = new ArrayList<>();
+            for (int i = 0; i < SONGS; i++) {
+                all.add(i);
+            }
+            for (int i = 0; i < PLAYLISTS; i++) {
+                Collections.shuffle(all, random);
+                playlistSongs.add(new ArrayList<>(all.subList(0, 30)));
+            }
+        }
+
+        double run(double writeRatio) {
+            long reads = 0;
+            long hits = 0;
+            for (int i = 0; i < OPERATIONS; i++) {
+                if (random.nextDouble() < writeRatio) {
+                    write();
+                    continue;
+                }
+                reads++;
+                Set<String> tags = new HashSet<>();
+                String[] read = read(tags);
+                String key = read[0] + "|" + read[1];
+                if (cache.containsKey(key)) {
+                    hits++;
+                } else {
+                    cache.put(key, read[0]);
+                    tags.forEach(tag -> tagIndex.computeIfAbsent(tag, t -> new HashSet<>()).add(key));
+                }
+            }
+            return (double) hits / reads;
+        }
+
+        /**
+         * @return {缓存名, 缓存项}，依赖的标签放到 tags 中
+         */
+        private String[] read(Set<String> tags) {
+            double r = random.nextDouble();
+            if (r < 0.35) {
+                int page = pages.next();
+                tags.add("song:list");
+                pageSongs(page, tags);
+                return new String[]{"songCache", "guest:" + page};
+            }
+            if (r < 0.55) {
+                int user = users.next();
+                int page = pages.next() % 20;
+                tags.add("song:list");
+                tags.add("user:" + user);
+                pageSongs(page, tags);
+                return new String[]{"songCache", "user:" + user + ":" + page};
+            }
+            if (r < 0.75) {
+                int song = songs.next();
+                tags.add("song:" + song);
+                return new String[]{"songCache", "detail:" + song};
+            }
+            if (r < 0.88) {
+                int artist = artists.next();
+                tags.add("artist:" + artist);
+                artistSongs.get(artist).forEach(song -> tags.add("song:" + song));
+                return new String[]{"artistCache", "detail:" + artist};
+            }
+            int playlist = playlists.next();
+            tags.add("playlist:" + playlist);
+            playlistSongs.get(playlist).forEach(song -> tags.add("song:" + song));
+            return new String[]{"playlistCache", "detail:" + playlist};
+        }
+
+        private void pageSongs(int page, Set<String> tags) {
+            for (int song = page * PAGE_SIZE; song < page * PAGE_SIZE + PAGE_SIZE; song++) {
+                tags.add("song:" + song);
+            }
+        }
+
+        private void write() {
+            double r = random.nextDouble();
+            if (r < 0.45) {
+                // 收藏 / 取消收藏
+                evict(Set.of("songCache", "artistCache", "playlistCache", "userFavoriteCache"),
+                        Set.of("user:" + users.next()));
+            } else if (r < 0.75) {
+                // 评论歌曲或歌单
+                if (random.nextDouble() < 0.7) {
+                    evict(Set.of("songCache"), Set.of("song:" + songs.next()));
+                } else {
+                    evict(Set.of("playlistCache"), Set.of("playlist:" + playlists.next()));
+                }
+            } else if (r < 0.9) {
+                // 修改封面、音频
+                evict(Set.of("songCache"), Set.of("song:" + random.nextInt(SONGS)));
+            } else if (r < 0.97) {
+                // 新增歌曲
+                evict(Set.of("songCache"), Set.of("song:list", "artist:" + random.nextInt(ARTISTS)));
+            } else {
+                // 修改歌手
+                int artist = random.nextInt(ARTISTS);
+                evict(Set.of("artistCache"), Set.of("artist:" + artist, "artist:list"));
+            }
+        }
+
+        private void evict(Set<String> cacheNames, Set<String> tags) {
+            if (!byTag) {
+                cache.values().removeIf(cacheNames::contains);
+                return;
+            }
+            for (String tag : tags) {
+                Set<String> keys = tagIndex.remove(tag);
+                if (keys != null) {
+                    keys.forEach(cache::remove);
+                }
+            }
+        }
+
+        /**
+         * 按累积权重二分查找的 Zipf 分布，返回 [0, n)
+         */
+        private final class Zipf {
+
+            private final double[] cumulative;
+
+            Zipf(int n, double s) {
+                cumulative = new double[n];
+                double total = 0;
+                for (int i = 0; i < n; i++) {
+                    total += 1 / Math.pow(i + 1, s);
+                    cumulative[i] = total;
+                }
+            }
+
+            int next() {
+                double target = random.nextDouble() * cumulative[cumulative.length - 1];
+                int index = Arrays.binarySearch(cumulative, target);
+                return Math.min(index >= 0 ? index + 1 : -index - 1, cumulative.length - 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.kay.music.utils;
+
+import com.kay.music.result.PageResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * CountCache.CountedPage：不要总数时每页多查一条，offset 仍按 pageSize 计算
+ * 不要总数时不访问 Redis，这里不需要 StringRedisTemplate
+ *
+ * @author Kay
+ * @date 2026/10/18 23:59
+ */
+class CountCacheTests {
+
+    private final CountCache countCache = new CountCache(null, 60, 60);
+
+    @Test
+    void lookaheadFetchesOneExtraRowWithoutShiftingOffset() {
+        CountCache.CountedPage<Long> first = countCache.page(CountCache.SONG, null, 1, 20, false);
+        assertEquals(21, first.getSize());
+        assertEquals(0, first.offset());
+        assertFalse(first.searchCount());
+
+        // 第 3 页从第 41 条开始，而不是按 size = 21 算出的第 43 条
+        CountCache.CountedPage<Long> third = countCache.page(CountCache.SONG, null, 3, 20, false);
+        assertEquals(21, third.getSize());
+        assertEquals(40, third.offset());
+    }
+
+    @Test
+    void pageNumBelowOneStartsAtZero() {
+        assertEquals(0, countCache.page(CountCache.SONG, null, 0, 20, false).offset());
+    }
+
+    @Test
+    void extraRowMeansMoreAndIsDropped() {
+        CountCache.CountedPage<Long> page = countCache.page(CountCache.SONG, null, 2, 2, false);
+        page.setRecords(List.of(3L, 4L, 5L));
+        PageResult<Long> result = countCache.result(page);
+        assertEquals(List.of(3L, 4L), result.getItems());
+        assertTrue(result.getHasMore());
+        assertNull(result.getTotal());
+    }
+
+    @Test
+    void noExtraRowMeansLastPage() {
+        CountCache.CountedPage<Long> page = countCache.page(CountCache.SONG, null, 2, 2, false);
+        page.setRecords(List.of(3L, 4L));
+        PageResult<Long> result = countCache.result(page);
+        assertEquals(List.of(3L, 4L), result.getItems());
+        assertFalse(result.getHasMore());
+    }
+
+    @Test
+    void filterIsNullWithoutConditions() {
+        assertNull(CountCache.filter("admin", null, null));
+        assertEquals("admin:[晴天, null]", CountCache.filter("admin", "晴天", null));
+    }
+}
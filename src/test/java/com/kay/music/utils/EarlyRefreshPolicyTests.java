@@ -0,0 +1,90 @@
+package com.kay.music.utils;
+
+import com.kay.music.pojo.dto.RedisData;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * EarlyRefreshPolicy：过期后一定刷新；没有重建耗时或关闭时只在过期后刷新；
+ * 否则提前刷新的概率为 exp(-剩余时间 / (重建耗时 × beta))
+ *
+ * @author Kay
+ * @date 2026/10/18 23:59
+ */
+class EarlyRefreshPolicyTests {
+
+    private static final int DRAWS = 20_000;
+
+    private final EarlyRefreshPolicy policy = new EarlyRefreshPolicy(1.0);
+
+    @Test
+    void expiredAlwaysRefreshes() {
+        RedisData<?> expired = data(-1_000, 1_000L);
+        for (int i = 0; i < 1_000; i++) {
+            assertTrue(policy.shouldRefresh(expired));
+        }
+        assertTrue(policy.shouldRefresh(data(-1_000, null)));
+    }
+
+    @Test
+    void withoutRebuildTimeOnlyExpiryCounts() {
+        RedisData<?> almostExpired = data(1_000, null);
+        RedisData<?> zeroRebuild = data(1_000, 0L);
+        for (int i = 0; i < 1_000; i++) {
+            assertFalse(policy.shouldRefresh(almostExpired));
+            assertFalse(policy.shouldRefresh(zeroRebuild));
+        }
+    }
+
+    @Test
+    void betaZeroDisablesEarlyRefresh() {
+        EarlyRefreshPolicy disabled = new EarlyRefreshPolicy(0);
+        RedisData<?> slowRebuild = data(1_000, 1_000_000L);
+        for (int i = 0; i < 1_000; i++) {
+            assertFalse(disabled.shouldRefresh(slowRebuild));
+        }
+    }
+
+    @Test
+    void probabilityFollowsRemainingTime() {
+        long rebuildMillis = 1_000_000;
+        // 剩余 rebuildMillis × ln2 时，提前刷新的概率是 1/2
+        assertRate(policy, data((long) (rebuildMillis * Math.log(2)), rebuildMillis), 0.5);
+        // 剩余 rebuildMillis × ln10 时是 1/10
+        assertRate(policy, data((long) (rebuildMillis * Math.log(10)), rebuildMillis), 0.1);
+        // beta = 2 时同样的剩余时间概率更大：exp(-ln10 / 2) ≈ 0.316
+        assertRate(new EarlyRefreshPolicy(2.0), data((long) (rebuildMillis * Math.log(10)), rebuildMillis),
+                Math.exp(-Math.log(10) / 2));
+    }
+
+    @Test
+    void farFromExpiryAlmostNeverRefreshes() {
+        // 剩余时间是重建耗时的 50 倍，概率约 e^-50
+        RedisData<?> fresh = data(50_000_000, 1_000_000L);
+        for (int i = 0; i < DRAWS; i++) {
+            assertFalse(policy.shouldRefresh(fresh));
+        }
+    }
+
+    private static void assertRate(EarlyRefreshPolicy policy, RedisData<?> redisData, double expected) {
+        int refreshed = 0;
+        for (int i = 0; i < DRAWS; i++) {
+            if (policy.shouldRefresh(redisData)) {
+                refreshed++;
+            }
+        }
+        double rate = (double) refreshed / DRAWS;
+        // 20000 次抽样的标准差不超过 0.0036，留出 5 倍余量
+        assertTrue(Math.abs(rate - expected) < 0.02, "rate = " + rate + ", expected = " + expected);
+    }
+
+    private static RedisData<?> data(long remainingMillis, Long rebuildMillis) {
+        return new RedisData<>()
+                .setExpireTime(LocalDateTime.now().plusNanos(remainingMillis * 1_000_000))
+                .setRebuildMillis(rebuildMillis);
+    }
+}
@@ -0,0 +1,224 @@
+package com.kay.music.utils;
+
+import com.kay.music.pojo.vo.SongVO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 歌曲搜索：LIKE '%xxx%' 与 MySQL FULLTEXT（ngram 分词）在大量歌曲上的查询耗时
+ * 每次查询都包含一页数据（LIMIT 0, 20）和总数（COUNT），与分页插件的两条 SQL 相同
+ * 不参与日常构建，需要一个可以随意建表的 MySQL 8 数据库，手动运行：
+ *   mvn test -Dbenchmark=true -Dtest=FulltextSearchBenchmarkTests
+ *     -Djdbc.url="jdbc:mysql://localhost:3306/vibe_bench?rewriteBatchedStatements=true"
+ *     -Djdbc.username=root -Djdbc.password=xxx
+ * 歌曲数可以通过 -Dsongs=N 调整，测试结束后删除 bench_song、bench_artist 两张表
+ * 尚未实测：需要支持 ngram 分词的 MySQL 8（MariaDB 没有 ngram 解析器，建索引会失败），
+ * 因此目前没有 FULLTEXT 比 LIKE 更快的结论，选择 search.engine=fulltext 前先在目标库上运行本测试
+ *
+ * @author Kay
+ * @date 2026/10/18 23:55
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class FulltextSearchBenchmarkTests {
+
+    private static final int WARMUP = 3;
+    private static final int ITERATIONS = 20;
+    private static final int BATCH_SIZE = 5_000;
+
+    /**
+     * 与 SongMapper.getSongsWithArtist 相同的 LIKE 查询
+     */
+    private static final String LIKE_WHERE = """
+            FROM bench_song s
+            LEFT JOIN bench_artist a ON s.artist_id = a.id
+            WHERE (? IS NULL OR s.name LIKE CONCAT('%', ?, '%'))
+              AND (? IS NULL OR a.name LIKE CONCAT('%', ?, '%'))
+              AND (? IS NULL OR s.album LIKE CONCAT('%', ?, '%'))
+            """;
+
+    @Test
+    void likeVersusFulltext() throws SQLException {
+        int songCount = Integer.getInteger("songs", 1_000_000);
+        List<SongVO> songs = SongSearchIndexBenchmarkTests.generate(songCount);
+
+        try (Connection connection = DriverManager.getConnection(System.getProperty("jdbc.url"),
+                System.getProperty("jdbc.username"), System.getProperty("jdbc.password"))) {
+            try {
+                long start = System.nanoTime();
+                load(connection, songs);
+                System.out.printf("== %d 首歌曲，写入和建立全文索引耗时 %d ms%n", songCount, (System.nanoTime() - start) / 1_000_000);
+
+                SongVO sample = songs.get(songCount / 2);
+                report(connection, "歌名单字", sample.getSongName().substring(0, 1), null, null);
+                report(connection, "歌名两字", sample.getSongName().substring(0, 2), null, null);
+                report(connection, "歌名全部", sample.getSongName(), null, null);
+                report(connection, "歌手名", null, sample.getArtistName(), null);
+                report(connection, "歌手 + 专辑", null, sample.getArtistName(), sample.getAlbum());
+            } finally {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("DROP TABLE IF EXISTS bench_song");
+                    statement.execute("DROP TABLE IF EXISTS bench_artist");
+                }
+            }
+        }
+    }
+
+    /**
+     * 建表、写入歌曲，写入后再建立全文索引（比逐行维护索引快）
+     */
+    private static void load(Connection connection, List<SongVO> songs) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS bench_song");
+            statement.execute("DROP TABLE IF EXISTS bench_artist");
+            statement.execute("CREATE TABLE bench_artist (id BIGINT PRIMARY KEY, name VARCHAR(100) NOT NULL) "
+                    + "CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci");
+            statement.execute("CREATE TABLE bench_song (id BIGINT PRIMARY KEY, artist_id BIGINT NOT NULL, "
+                    + "name VARCHAR(255) NOT NULL, album VARCHAR(255) NOT NULL, INDEX (artist_id)) "
+                    + "CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci");
+        }
+        connection.setAutoCommit(false);
+        Set<Long> artistIds = new HashSet<>();
+        try (PreparedStatement artist = connection.prepareStatement("INSERT INTO bench_artist (id, name) VALUES (?, ?)");
+             PreparedStatement song = connection.prepareStatement(
+                     "INSERT INTO bench_song (id, artist_id, name, album) VALUES (?, ?, ?, ?)")) {
+            int batched = 0;
+            for (SongVO songVO : songs) {
+                if (artistIds.add(songVO.getArtistId())) {
+                    artist.setLong(1, songVO.getArtistId());
+                    artist.setString(2, songVO.getArtistName());
+                    artist.addBatch();
+                }
+                song.setLong(1, songVO.getSongId());
+                song.setLong(2, songVO.getArtistId());
+                song.setString(3, songVO.getSongName());
+                song.setString(4, songVO.getAlbum());
+                song.addBatch();
+                if (++batched % BATCH_SIZE == 0) {
+                    artist.executeBatch();
+                    song.executeBatch();
+                    connection.commit();
+                }
+            }
+            artist.executeBatch();
+            song.executeBatch();
+            connection.commit();
+        } finally {
+            connection.setAutoCommit(true);
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ALTER TABLE bench_song ADD FULLTEXT INDEX ft_song_name (name) WITH PARSER ngram");
+            statement.execute("ALTER TABLE bench_song ADD FULLTEXT INDEX ft_song_album (album) WITH PARSER ngram");
+            statement.execute("ALTER TABLE bench_artist ADD FULLTEXT INDEX ft_artist_name (name) WITH PARSER ngram");
+        }
+    }
+
+    private static void report(Connection connection, String name, String songName, String artistName, String album)
+            throws SQLException {
+        Query like = like(songName, artistName, album);
+        Query fulltext = fulltext(FulltextSongSearchEngine.toBooleanQuery(songName),
+                FulltextSongSearchEngine.toBooleanQuery(artistName), FulltextSongSearchEngine.toBooleanQuery(album));
+        long likeHits = like.run(connection);
+        long fulltextHits = fulltext.run(connection);
+        assertTrue(likeHits > 0, name);
+        System.out.printf("%-10s LIKE 命中 %7d 条 %9.1f ms/query | FULLTEXT 命中 %7d 条 %9.1f ms/query%n",
+                name, likeHits, time(connection, like), fulltextHits, time(connection, fulltext));
+    }
+
+    private static double time(Connection connection, Query query) throws SQLException {
+        for (int i = 0; i < WARMUP; i++) {
+            query.run(connection);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            query.run(connection);
+        }
+        return (System.nanoTime() - start) / 1_000_000.0 / ITERATIONS;
+    }
+
+    private static Query like(String songName, String artistName, String album) {
+        List<Object> params = Arrays.asList(songName, songName, artistName, artistName, album, album);
+        return new Query("SELECT s.id " + LIKE_WHERE + "LIMIT 0, 20",
+                "SELECT COUNT(*) " + LIKE_WHERE, params);
+    }
+
+    /**
+     * 与 SongMapper.searchSongIdsFulltext 相同的全文检索，只拼接传入的字段
+     */
+    private static Query fulltext(String songName, String artistName, String album) {
+        StringBuilder from = new StringBuilder("FROM bench_song s ");
+        List<String> conditions = new ArrayList<>();
+        List<String> scores = new ArrayList<>();
+        List<Object> params = new ArrayList<>();
+        if (artistName != null) {
+            from.append("JOIN bench_artist a ON s.artist_id = a.id ");
+        }
+        addMatch("s.name", songName, conditions, scores, params);
+        addMatch("a.name", artistName, conditions, scores, params);
+        addMatch("s.album", album, conditions, scores, params);
+        String where = from + "WHERE " + String.join(" AND ", conditions) + " ";
+        List<Object> pageParams = new ArrayList<>(params);
+        pageParams.addAll(params);
+        return new Query("SELECT s.id " + where + "ORDER BY " + String.join(" + ", scores) + " DESC, s.id LIMIT 0, 20",
+                "SELECT COUNT(*) " + where, pageParams, params);
+    }
+
+    private static void addMatch(String column, String query, List<String> conditions, List<String> scores,
+                                 List<Object> params) {
+        if (query != null) {
+            String match = "MATCH(" + column + ") AGAINST(? IN BOOLEAN MODE)";
+            conditions.add(match);
+            scores.add(match);
+            params.add(query);
+        }
+    }
+
+    /**
+     * 一次分页查询：一页数据 + 总数
+     */
+    private record Query(String pageSql, String countSql, List<Object> pageParams, List<Object> countParams) {
+
+        Query(String pageSql, String countSql, List<Object> params) {
+            this(pageSql, countSql, params, params);
+        }
+
+        /**
+         * @return 总数
+         */
+        long run(Connection connection) throws SQLException {
+            try (PreparedStatement page = prepare(connection, pageSql, pageParams);
+                 ResultSet rows = page.executeQuery()) {
+                while (rows.next()) {
+                    rows.getLong(1);
+                }
+            }
+            try (PreparedStatement count = prepare(connection, countSql, countParams);
+                 ResultSet rows = count.executeQuery()) {
+                rows.next();
+                return rows.getLong(1);
+            }
+        }
+
+        private static PreparedStatement prepare(Connection connection, String sql, List<Object> params)
+                throws SQLException {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            for (int i = 0; i < params.size(); i++) {
+                statement.setObject(i + 1, params.get(i));
+            }
+            return statement;
+        }
+    }
+}
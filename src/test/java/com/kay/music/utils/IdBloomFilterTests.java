@@ -0,0 +1,166 @@
+package com.kay.music.utils;
+
+import com.kay.music.mapper.ArtistMapper;
+import com.kay.music.mapper.PlaylistMapper;
+import com.kay.music.mapper.SongMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * IdBloomFilter：全量构建、重建期间新增的 id 不会随替换丢失，以及事务中的新增、删除在提交后才生效
+ * 不访问 Redis：广播失败只记录日志，不影响本节点
+ *
+ * @author Kay
+ * @date 2026/10/18 23:59
+ */
+class IdBloomFilterTests {
+
+    private final CacheRebuildExecutor cacheRebuildExecutor = new CacheRebuildExecutor(new SimpleMeterRegistry(),
+            new CacheMetrics(new SimpleMeterRegistry()), 1, 16, 5);
+
+    /**
+     * 数据库中的歌曲 id
+     */
+    private final List<Long> songIds = new ArrayList<>(List.of(1L, 2L, 3L));
+
+    /**
+     * 读取全部歌曲 id 时执行，模拟重建期间其他请求新增了歌曲
+     */
+    private Runnable duringSongRebuild = () -> {
+    };
+
+    private final AtomicInteger awaits = new AtomicInteger();
+
+    private final IdBloomFilter idBloomFilter = new IdBloomFilter(null, new RedisMessageListenerContainer(),
+            cacheRebuildExecutor, songMapper(), mapper(ArtistMapper.class), mapper(PlaylistMapper.class), true, 0.01, 1000);
+
+    @AfterEach
+    void shutdown() throws InterruptedException {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        cacheRebuildExecutor.destroy();
+    }
+
+    @Test
+    void notBuiltOrDisabledLetsEverythingThrough() {
+        assertTrue(idBloomFilter.mightContainSong(404L));
+        IdBloomFilter disabled = new IdBloomFilter(null, new RedisMessageListenerContainer(), cacheRebuildExecutor,
+                songMapper(), mapper(ArtistMapper.class), mapper(PlaylistMapper.class), false, 0.01, 1000);
+        disabled.afterPropertiesSet();
+        assertTrue(disabled.mightContainSong(404L));
+        assertTrue(idBloomFilter.mightContainSong(null));
+    }
+
+    @Test
+    void buildLoadsExistingIds() {
+        idBloomFilter.afterPropertiesSet();
+        assertTrue(idBloomFilter.mightContainSong(1L));
+        assertTrue(idBloomFilter.mightContainSong(3L));
+        assertFalse(idBloomFilter.mightContainSong(404L));
+        assertFalse(idBloomFilter.mightContainArtist(1L));
+    }
+
+    @Test
+    void addDuringRebuildSurvivesTheSwap() {
+        idBloomFilter.afterPropertiesSet();
+        // 重建已经读完数据库之后才提交的新增，不在读到的 id 中
+        duringSongRebuild = () -> idBloomFilter.add(IdBloomFilter.SONG, 500L);
+        idBloomFilter.afterPropertiesSet();
+        assertTrue(idBloomFilter.mightContainSong(500L));
+    }
+
+    @Test
+    void addInTransactionWaitsForCommit() {
+        idBloomFilter.afterPropertiesSet();
+        TransactionSynchronizationManager.initSynchronization();
+        idBloomFilter.add(IdBloomFilter.SONG, 500L);
+        assertFalse(idBloomFilter.mightContainSong(500L));
+
+        commit();
+        assertTrue(idBloomFilter.mightContainSong(500L));
+    }
+
+    @Test
+    void rolledBackAddIsNeverAdded() {
+        idBloomFilter.afterPropertiesSet();
+        TransactionSynchronizationManager.initSynchronization();
+        idBloomFilter.add(IdBloomFilter.SONG, 500L);
+        // 回滚：只调用 afterCompletion，不调用 afterCommit
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        TransactionSynchronizationManager.clearSynchronization();
+        assertFalse(idBloomFilter.mightContainSong(500L));
+    }
+
+    @Test
+    void removedRebuildsAfterCommit() throws InterruptedException {
+        idBloomFilter.afterPropertiesSet();
+        TransactionSynchronizationManager.initSynchronization();
+        songIds.remove(2L);
+        idBloomFilter.removed(IdBloomFilter.SONG);
+        awaitRebuilds();
+        // 提交前不重建，否则会读到还没提交删除的 id
+        assertTrue(idBloomFilter.mightContainSong(2L));
+
+        commit();
+        awaitRebuilds();
+        assertFalse(idBloomFilter.mightContainSong(2L));
+        assertTrue(idBloomFilter.mightContainSong(1L));
+    }
+
+    private static void commit() {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+    }
+
+    /**
+     * 重建线程池只有一个线程，排在后面的任务执行时前面的重建已经完成
+     */
+    private void awaitRebuilds() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        // 同一个 key 在上一个任务结束前会被去重，每次使用不同的 key
+        assertTrue(cacheRebuildExecutor.submit("test:await:" + awaits.incrementAndGet(), done::countDown));
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    private SongMapper songMapper() {
+        return (SongMapper) Proxy.newProxyInstance(SongMapper.class.getClassLoader(), new Class<?>[]{SongMapper.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "selectCount" -> (long) songIds.size();
+                    case "selectObjs" -> {
+                        List<Object> ids = new ArrayList<>(songIds);
+                        duringSongRebuild.run();
+                        yield ids;
+                    }
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    /**
+     * 没有数据的 mapper
+     */
+    private static <M> M mapper(Class<M> type) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "selectCount" -> 0L;
+                    case "selectObjs" -> List.of();
+                    default -> throw new UnsupportedOperationException(method.getName());
+                }));
+    }
+}
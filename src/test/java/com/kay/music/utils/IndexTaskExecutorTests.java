@@ -0,0 +1,110 @@
+package com.kay.music.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * IndexTaskExecutor：同一个 owner 串行、按提交顺序执行，不同 owner 并行，全量重建去重
+ *
+ * @author Kay
+ * @date 2026/10/18 23:59
+ */
+class IndexTaskExecutorTests {
+
+    private final IndexTaskExecutor executor = new IndexTaskExecutor(4, 5);
+
+    @AfterEach
+    void shutdown() throws InterruptedException {
+        executor.destroy();
+    }
+
+    @Test
+    void sameOwnerRunsInOrderOneAtATime() throws InterruptedException {
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(200);
+        for (int i = 0; i < 200; i++) {
+            int n = i;
+            executor.execute("a", () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                order.add(n);
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, maxRunning.get());
+        for (int i = 0; i < 200; i++) {
+            assertEquals(i, order.get(i));
+        }
+    }
+
+    @Test
+    void differentOwnersRunInParallel() throws InterruptedException {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        CountDownLatch done = new CountDownLatch(2);
+        for (String owner : List.of("a", "b")) {
+            executor.execute(owner, () -> {
+                bothStarted.countDown();
+                try {
+                    // 只有两个任务同时在执行时才能等到
+                    if (bothStarted.await(5, TimeUnit.SECONDS)) {
+                        done.countDown();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void failedTaskDoesNotStopTheOwner() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        executor.execute("a", () -> {
+            throw new IllegalStateException("boom");
+        });
+        executor.execute("a", done::countDown);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void queuedRebuildIsDeduplicated() throws InterruptedException {
+        CountDownLatch blocker = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicInteger rebuilds = new AtomicInteger();
+        // 先占住 owner，让后面的重建都在排队
+        executor.execute("a", () -> {
+            try {
+                blocker.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(executor.rebuild("a", rebuilds::incrementAndGet));
+        assertFalse(executor.rebuild("a", rebuilds::incrementAndGet));
+        assertFalse(executor.rebuild("a", rebuilds::incrementAndGet));
+        blocker.countDown();
+        executor.execute("a", done::countDown);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, rebuilds.get());
+
+        // 上一次重建已经执行，可以再次提交
+        CountDownLatch again = new CountDownLatch(1);
+        assertTrue(executor.rebuild("a", again::countDown));
+        assertTrue(again.await(5, TimeUnit.SECONDS));
+    }
+}
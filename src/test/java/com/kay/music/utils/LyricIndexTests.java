@@ -0,0 +1,173 @@
+package com.kay.music.utils;
+
+import com.kay.music.mapper.SongMapper;
+import com.kay.music.pojo.entity.Song;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * LyricIndex：切词、按位置的短语匹配、按出现次数排序，以及增量更新时倒排表的插入和删除
+ *
+ * @author Kay
+ * @date 2026/10/18 23:59
+ */
+class LyricIndexTests {
+
+    private final IndexTaskExecutor indexTaskExecutor = new IndexTaskExecutor(1, 5);
+
+    /**
+     * streamAllLyrics / getLyrics 返回的歌曲，测试中可以修改
+     */
+    private final List<Song> songs = new ArrayList<>(List.of(
+            song(1, 10, "[ti:晴天]\n[00:12.34]故事的小黄花\n[00:16.10]从出生那年就飘着"),
+            song(2, 11, "[00:01.00]刮风这天 我试过握着你手\n[00:05.00]但偏偏 雨渐渐 大到我看你不见"),
+            song(3, 12, "小黄花 小黄花\n黄花小"),
+            song(4, 13, "Hello World, hello world!"),
+            song(5, 14, null)));
+
+    private final LyricIndex index = new LyricIndex(mapper(), indexTaskExecutor, true);
+
+    @AfterEach
+    void shutdown() throws InterruptedException {
+        indexTaskExecutor.destroy();
+    }
+
+    @Test
+    void tokenizeStripsLrcTagsAndSplitsCjkPerCharacter() {
+        assertEquals(List.of("故", "事", "的", "hello", "world2"), LyricIndex.tokenize("[00:12.34]故事的 Hello，World2"));
+        assertEquals(List.of("さ", "く", "ら"), LyricIndex.tokenize("[ar:x]さくら"));
+        assertEquals(List.of(), LyricIndex.tokenize(null));
+    }
+
+    @Test
+    void phraseNeedsAdjacentPositions() {
+        index.afterPropertiesSet();
+        // 1 号和 3 号都有相邻的“小黄花”，3 号出现两次排在前面
+        assertEquals(List.of(3L, 1L), index.search("小黄花", 1, 10).getItems());
+        // 3 号的“黄花小”也是相邻的，1 号只有“黄花”后面跟着“从”
+        assertEquals(List.of(3L), index.search("黄花小", 1, 10).getItems());
+        assertEquals(0L, index.search("黄小花", 1, 10).getTotal());
+    }
+
+    @Test
+    void phraseMayCrossLinesAndIgnoresPunctuation() {
+        index.afterPropertiesSet();
+        // 第一行的末尾和第二行的开头
+        assertEquals(List.of(1L), index.search("小黄花，从出生", 1, 10).getItems());
+        assertEquals(List.of(2L), index.search("雨渐渐大到", 1, 10).getItems());
+        assertEquals(List.of(4L), index.search("HELLO world", 1, 10).getItems());
+        assertEquals(0L, index.search("hello there", 1, 10).getTotal());
+        assertEquals(0L, index.search("！？", 1, 10).getTotal());
+    }
+
+    @Test
+    void countsOccurrencesAndPages() {
+        index.afterPropertiesSet();
+        songs.add(song(6, 15, "hello world hello world hello world"));
+        index.rebuild();
+        assertEquals(List.of(6L, 4L), index.search("hello world", 1, 10).getItems());
+        assertEquals(List.of(4L), index.search("hello world", 2, 1).getItems());
+        assertEquals(2L, index.search("hello world", 2, 1).getTotal());
+    }
+
+    @Test
+    void notReadyOrDisabledReturnsNull() {
+        assertNull(index.search("小黄花", 1, 10));
+        LyricIndex disabled = new LyricIndex(mapper(), indexTaskExecutor, false);
+        disabled.afterPropertiesSet();
+        assertNull(disabled.search("小黄花", 1, 10));
+    }
+
+    @Test
+    void changeEventReplacesPostings() throws InterruptedException {
+        index.afterPropertiesSet();
+        assertEquals(4, index.size());
+
+        // 1 号改了歌词，插入一首 id 更小的歌曲，增量更新需要在倒排表中间插入
+        songs.set(0, song(1, 10, "从前从前 有个人爱你很久"));
+        songs.add(song(0, 10, "小黄花在哪里"));
+        index.onChange(new ChangeEvent(1, List.of("artist:10")));
+        awaitIndexTasks();
+
+        assertEquals(List.of(3L, 0L), index.search("小黄花", 1, 10).getItems());
+        assertEquals(List.of(1L), index.search("爱你很久", 1, 10).getItems());
+
+        songs.removeIf(song -> song.getSongId() == 3L);
+        index.onChange(new ChangeEvent(2, List.of("song:3")));
+        awaitIndexTasks();
+        assertEquals(List.of(0L), index.search("小黄花", 1, 10).getItems());
+        assertEquals(4, index.size());
+    }
+
+    /**
+     * 同一个 owner 的任务串行执行，排在后面的任务执行时前面的已经完成
+     */
+    private void awaitIndexTasks() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        indexTaskExecutor.execute("lyric", done::countDown);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @SuppressWarnings("unchecked")
+    private SongMapper mapper() {
+        return (SongMapper) Proxy.newProxyInstance(SongMapper.class.getClassLoader(), new Class<?>[]{SongMapper.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "streamAllLyrics" -> {
+                        ResultHandler<Song> handler = (ResultHandler<Song>) args[0];
+                        songs.stream()
+                                .sorted((a, b) -> Long.compare(a.getSongId(), b.getSongId()))
+                                .forEach(song -> handler.handleResult(context(song)));
+                        yield null;
+                    }
+                    case "getLyrics" -> songs.stream()
+                            .filter(song -> ((Collection<Long>) args[0]).contains(song.getSongId())
+                                    || ((Collection<Long>) args[1]).contains(song.getArtistId()))
+                            .toList();
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static ResultContext<Song> context(Song song) {
+        return new ResultContext<>() {
+            @Override
+            public Song getResultObject() {
+                return song;
+            }
+
+            @Override
+            public int getResultCount() {
+                return 1;
+            }
+
+            @Override
+            public boolean isStopped() {
+                return false;
+            }
+
+            @Override
+            public void stop() {
+            }
+        };
+    }
+
+    private static Song song(long songId, long artistId, String lyric) {
+        Song song = new Song();
+        song.setSongId(songId);
+        song.setArtistId(artistId);
+        song.setLyric(lyric);
+        return song;
+    }
+}
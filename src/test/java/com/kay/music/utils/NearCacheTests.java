@@ -0,0 +1,110 @@
+package com.kay.music.utils;
+
+import com.kay.music.pojo.dto.RedisData;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * NearCache：按权重限制总大小，超出后按最久未使用淘汰；本地保留时间到期后丢弃
+ * 只测试本节点，不启动订阅，也不广播失效消息
+ *
+ * @author Kay
+ * @date 2026/10/18 23:59
+ */
+class NearCacheTests {
+
+    @Test
+    void evictsLeastRecentlyUsedByWeight() {
+        NearCache nearCache = nearCache(100, 60);
+        nearCache.put("a", data("a"), 40);
+        nearCache.put("b", data("b"), 40);
+        // 访问 a 之后 b 成为最久未使用的条目
+        assertNotNull(nearCache.get("a"));
+
+        nearCache.put("c", data("c"), 40);
+        assertNull(nearCache.get("b"));
+        assertNotNull(nearCache.get("a"));
+        assertNotNull(nearCache.get("c"));
+    }
+
+    @Test
+    void heavyEntryEvictsSeveralLightOnes() {
+        NearCache nearCache = nearCache(100, 60);
+        for (int i = 0; i < 10; i++) {
+            nearCache.put("light:" + i, data(i), 10);
+        }
+        nearCache.put("heavy", data("heavy"), 75);
+        // 只留下最近写入的两条轻量条目：75 + 2 × 10 <= 100
+        for (int i = 0; i < 8; i++) {
+            assertNull(nearCache.get("light:" + i));
+        }
+        assertNotNull(nearCache.get("light:8"));
+        assertNotNull(nearCache.get("light:9"));
+        assertNotNull(nearCache.get("heavy"));
+    }
+
+    @Test
+    void replacingEntryReleasesOldWeight() {
+        NearCache nearCache = nearCache(100, 60);
+        nearCache.put("a", data("a"), 60);
+        RedisData<String> replaced = data("a2");
+        nearCache.put("a", replaced, 60);
+        nearCache.put("b", data("b"), 40);
+        // 替换后总权重是 60 + 40，不是 60 + 60 + 40
+        assertSame(replaced, nearCache.get("a"));
+        assertNotNull(nearCache.get("b"));
+    }
+
+    @Test
+    void entryHeavierThanCacheIsSkipped() {
+        NearCache nearCache = nearCache(100, 60);
+        nearCache.put("a", data("a"), 40);
+        nearCache.put("huge", data("huge"), 101);
+        assertNull(nearCache.get("huge"));
+        assertNotNull(nearCache.get("a"));
+    }
+
+    @Test
+    void invalidatesByPrefix() {
+        NearCache nearCache = nearCache(100, 60);
+        nearCache.put("music:song:1", data(1), 10);
+        nearCache.put("music:song:2", data(2), 10);
+        nearCache.put("music:artist:1", data(3), 10);
+        nearCache.invalidateLocal("music:song:*");
+        assertNull(nearCache.get("music:song:1"));
+        assertNull(nearCache.get("music:song:2"));
+        assertNotNull(nearCache.get("music:artist:1"));
+    }
+
+    @Test
+    void expiresAfterLocalTtl() {
+        NearCache nearCache = nearCache(100, 0);
+        nearCache.put("a", data("a"), 10);
+        sleep(5);
+        assertNull(nearCache.get("a"));
+    }
+
+    private static NearCache nearCache(long maxWeight, long ttlSeconds) {
+        return new NearCache(null, new RedisMessageListenerContainer(), new CacheMetrics(new SimpleMeterRegistry()),
+                new HotKeyDetector(false, 0, 0, 0, 0, 0), maxWeight, ttlSeconds);
+    }
+
+    private static <T> RedisData<T> data(T value) {
+        return new RedisData<T>().setExpireTime(LocalDateTime.now().plusMinutes(30)).setData(value);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.kay.music.utils;
+
+import com.kay.music.result.PageResult;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * PageCursor：编码、解析，以及按发行时间翻页时发行时间相同的记录由 id 区分
+ *
+ * @author Kay
+ * @date 2026/10/18 23:59
+ */
+class PageCursorTests {
+
+    /**
+     * 歌曲的排序字段
+     */
+    private record Row(LocalDate releaseTime, long id) {
+    }
+
+    @Test
+    void idCursorRoundTrip() {
+        PageCursor<Void> cursor = PageCursor.parse(PageCursor.encode(null, 42L));
+        assertEquals(new PageCursor<Void>(null, 42L), cursor);
+    }
+
+    @Test
+    void keyCursorRoundTrip() {
+        String encoded = PageCursor.encode(LocalDate.of(2003, 7, 31), 7L);
+        // URL 安全，不带填充
+        assertTrue(encoded.matches("[A-Za-z0-9_-]+"));
+        assertEquals(new PageCursor<>(LocalDate.of(2003, 7, 31), 7L), PageCursor.parse(encoded, LocalDate::parse));
+    }
+
+    @Test
+    void keyMayContainSeparator() {
+        String encoded = PageCursor.encode("a|b", 3L);
+        assertEquals(new PageCursor<>("a|b", 3L), PageCursor.parse(encoded, key -> key));
+    }
+
+    @Test
+    void blankCursorIsFirstPage() {
+        assertTrue(PageCursor.parse(null).isFirst());
+        assertTrue(PageCursor.parse("", LocalDate::parse).isFirst());
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        assertNull(PageCursor.parse("not base64!"));
+        // 只按 id 排序的游标不应带排序字段，反之亦然
+        assertNull(PageCursor.parse(PageCursor.encode(LocalDate.of(2003, 7, 31), 7L)));
+        assertNull(PageCursor.parse(PageCursor.encode(null, 7L), LocalDate::parse));
+        assertNull(PageCursor.parse(PageCursor.encode("2003-13-01", 7L), LocalDate::parse));
+    }
+
+    @Test
+    void pageUsesLookaheadRow() {
+        PageResult<Long> last = PageCursor.page(List.of(1L, 2L), 2, id -> PageCursor.encode(null, id));
+        assertEquals(List.of(1L, 2L), last.getItems());
+        assertNull(last.getNextCursor());
+        assertNull(last.getTotal());
+
+        PageResult<Long> more = PageCursor.page(List.of(1L, 2L, 3L), 2, id -> PageCursor.encode(null, id));
+        assertEquals(List.of(1L, 2L), more.getItems());
+        assertEquals(2L, PageCursor.parse(more.getNextCursor()).id());
+    }
+
+    /**
+     * 多首歌发行时间相同、而且正好落在页的边界上时，按游标翻页既不重复也不遗漏
+     */
+    @Test
+    void sameReleaseTimeIsBrokenById() {
+        LocalDate day = LocalDate.of(2020, 1, 1);
+        List<Row> rows = List.of(
+                new Row(day, 5), new Row(day, 9), new Row(day, 2), new Row(day, 7),
+                new Row(day.minusDays(1), 8), new Row(day.plusDays(1), 1), new Row(day.minusDays(1), 3));
+        // ORDER BY release_time DESC, id DESC
+        List<Row> expected = rows.stream()
+                .sorted(Comparator.comparing(Row::releaseTime).thenComparingLong(Row::id).reversed())
+                .toList();
+
+        List<Row> seen = new ArrayList<>();
+        String encoded = "";
+        do {
+            PageCursor<LocalDate> cursor = PageCursor.parse(encoded, LocalDate::parse);
+            PageResult<Row> page = PageCursor.page(after(expected, cursor, 3), 2,
+                    row -> PageCursor.encode(row.releaseTime(), row.id()));
+            seen.addAll(page.getItems());
+            encoded = page.getNextCursor();
+        } while (encoded != null);
+
+        assertEquals(expected, seen);
+    }
+
+    /**
+     * 与 SongMapper.getSongsWithArtistNameAfter 相同的条件：
+     * release_time < 游标，或 release_time = 游标 且 id < 游标的 id
+     */
+    private static List<Row> after(List<Row> sorted, PageCursor<LocalDate> cursor, int limit) {
+        return sorted.stream()
+                .filter(row -> cursor.isFirst()
+                        || row.releaseTime().isBefore(cursor.key())
+                        || row.releaseTime().equals(cursor.key()) && row.id() < cursor.id())
+                .limit(limit)
+                .toList();
+    }
+}
@@ -0,0 +1,178 @@
+package com.kay.music.utils;
+
+import com.kay.music.mapper.ArtistMapper;
+import com.kay.music.mapper.PlaylistMapper;
+import com.kay.music.mapper.SongMapper;
+import com.kay.music.pojo.dto.SuggestEntryDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * RandomSampler：Floyd 均匀抽取（不重复、每个 id 概率相同、顺序随机），按累计权重的加权抽取，以及丢弃已删除的 id
+ *
+ * @author Kay
+ * @date 2026/10/18 23:59
+ */
+class RandomSamplerTests {
+
+    private static final int DRAWS = 30_000;
+
+    private final IndexTaskExecutor indexTaskExecutor = new IndexTaskExecutor(1, 5);
+
+    /**
+     * 歌曲的 id 和热度，selectObjs / getSuggestEntries 都从这里读取
+     */
+    private final List<SuggestEntryDTO> songs = new ArrayList<>();
+
+    @AfterEach
+    void shutdown() throws InterruptedException {
+        indexTaskExecutor.destroy();
+    }
+
+    @Test
+    void uniformDrawsDistinctIdsFromPool() {
+        addSongs(1, 100, 0);
+        RandomSampler sampler = sampler(true, false);
+
+        List<Long> ids = sampler.sampleIds(RandomSampler.SONG, 10);
+        assertEquals(10, ids.size());
+        assertEquals(10, new HashSet<>(ids).size());
+        assertTrue(ids.stream().allMatch(id -> id >= 1 && id <= 100));
+
+        // 数量超过池的大小时返回全部
+        assertEquals(LongStream.rangeClosed(1, 100).boxed().collect(Collectors.toSet()),
+                new HashSet<>(sampler.sampleIds(RandomSampler.SONG, 500)));
+        assertTrue(sampler.sampleIds(RandomSampler.SONG, 0).isEmpty());
+        assertTrue(sampler.sampleIds(RandomSampler.ARTIST, 10).isEmpty());
+    }
+
+    @Test
+    void uniformGivesEveryIdTheSameChanceInRandomOrder() {
+        addSongs(1, 10, 0);
+        RandomSampler sampler = sampler(true, false);
+
+        long[] drawn = new long[11];
+        long[] first = new long[11];
+        for (int i = 0; i < DRAWS; i++) {
+            List<Long> ids = sampler.sampleIds(RandomSampler.SONG, 3);
+            ids.forEach(id -> drawn[id.intValue()]++);
+            first[ids.get(0).intValue()]++;
+        }
+        for (int id = 1; id <= 10; id++) {
+            // 每个 id 被抽中的概率 3/10，排在第一位的概率 1/10
+            assertRate(drawn[id], 0.3);
+            assertRate(first[id], 0.1);
+        }
+    }
+
+    @Test
+    void weightedFollowsFavoriteCounts() {
+        // 权重为被收藏次数 + 1：1 号 1、2 号 1、3 号 2、4 号 96，合计 100
+        songs.add(entry(1, 0));
+        songs.add(entry(2, 0));
+        songs.add(entry(3, 1));
+        songs.add(entry(4, 95));
+        RandomSampler sampler = sampler(true, true);
+
+        long[] drawn = new long[5];
+        for (int i = 0; i < DRAWS; i++) {
+            sampler.sampleIds(RandomSampler.SONG, 1).forEach(id -> drawn[id.intValue()]++);
+        }
+        assertRate(drawn[1], 0.01);
+        assertRate(drawn[2], 0.01);
+        assertRate(drawn[3], 0.02);
+        assertRate(drawn[4], 0.96);
+
+        // 加权抽不满时用均匀随机补足，仍然不重复
+        assertEquals(Set.of(1L, 2L, 3L, 4L), new HashSet<>(sampler.sampleIds(RandomSampler.SONG, 4)));
+    }
+
+    @Test
+    void discardedIdsAreNeverDrawn() {
+        songs.add(entry(1, 0));
+        songs.add(entry(2, 0));
+        songs.add(entry(3, 0));
+        songs.add(entry(4, 1_000));
+        RandomSampler sampler = sampler(true, true);
+
+        // loader 没有返回 4 号（已被级联删除），从池中移除
+        List<Long> rows = sampler.sample(RandomSampler.SONG, 4,
+                ids -> ids.stream().filter(id -> id != 4L).toList(), id -> id);
+        assertEquals(3, rows.size());
+        assertEquals(3, sampler.size(RandomSampler.SONG));
+
+        for (int i = 0; i < 1_000; i++) {
+            assertFalse(sampler.sampleIds(RandomSampler.SONG, 1).contains(4L));
+        }
+    }
+
+    @Test
+    void disabledOrNotBuiltIsEmpty() {
+        addSongs(1, 10, 0);
+        RandomSampler disabled = sampler(false, false);
+        disabled.afterPropertiesSet();
+        assertTrue(disabled.sampleIds(RandomSampler.SONG, 3).isEmpty());
+
+        RandomSampler notBuilt = new RandomSampler(songMapper(), emptyMapper(ArtistMapper.class),
+                emptyMapper(PlaylistMapper.class), indexTaskExecutor, true, false);
+        assertTrue(notBuilt.sampleIds(RandomSampler.SONG, 3).isEmpty());
+        assertEquals(0, notBuilt.size(RandomSampler.SONG));
+    }
+
+    private static void assertRate(long count, double expected) {
+        double rate = (double) count / DRAWS;
+        // 30000 次抽样的标准差不超过 0.003，留出 4 倍以上的余量
+        assertTrue(Math.abs(rate - expected) < 0.015, "rate = " + rate + ", expected = " + expected);
+    }
+
+    private RandomSampler sampler(boolean enabled, boolean weighted) {
+        RandomSampler sampler = new RandomSampler(songMapper(), emptyMapper(ArtistMapper.class),
+                emptyMapper(PlaylistMapper.class), indexTaskExecutor, enabled, weighted);
+        sampler.afterPropertiesSet();
+        return sampler;
+    }
+
+    private void addSongs(long from, long to, long weight) {
+        LongStream.rangeClosed(from, to).forEach(id -> songs.add(entry(id, weight)));
+    }
+
+    private SongMapper songMapper() {
+        return (SongMapper) Proxy.newProxyInstance(SongMapper.class.getClassLoader(), new Class<?>[]{SongMapper.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    // 只有全量构建调用，不带 in 条件
+                    case "selectObjs" -> songs.stream().map(song -> (Object) song.getId()).toList();
+                    case "getSuggestEntries" -> new ArrayList<>(songs);
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    /**
+     * 没有数据的 mapper
+     */
+    private static <M> M emptyMapper(Class<M> type) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "selectObjs", "getSuggestEntries" -> List.of();
+                    default -> throw new UnsupportedOperationException(method.getName());
+                }));
+    }
+
+    private static SuggestEntryDTO entry(long id, long weight) {
+        SuggestEntryDTO entry = new SuggestEntryDTO();
+        entry.setId(id);
+        entry.setWeight(weight);
+        return entry;
+    }
+}
@@ -0,0 +1,144 @@
+package com.kay.music.utils;
+
+import com.kay.music.mapper.SongMapper;
+import com.kay.music.pojo.vo.SongVO;
+import com.kay.music.result.PageResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * 歌曲搜索索引：100 万首歌曲的构建耗时、内存占用和查询耗时
+ * 不参与日常构建，手动运行（需要足够的堆内存）：
+ *   mvn test -Dbenchmark=true -Dtest=SongSearchIndexBenchmarkTests -DargLine="-Xmx4g"
+ * 歌曲数可以通过 -Dsongs=N 调整
+ *
+ * 一次运行的结果（100 万首歌曲，JDK 17，单核，-Xmx3g）：构建 25.4 s，索引约 984 MB
+ *   精确：歌名两字          命中     46 条       53 us/query
+ *   精确：歌手 + 专辑       命中      1 条        3 us/query
+ *   模糊：歌名原文          命中     46 条       68 us/query
+ *   模糊：歌名全拼          命中   9417 条    230 ms/query
+ *   模糊：全拼一处错字      命中  25646 条    353 ms/query
+ *   模糊：歌手首字母        命中   5589 条    3.3 ms/query
+ * 全拼和容错查询需要对候选词逐个计算编辑距离，在这个规模上不适合直接用于在线请求
+ *
+ * @author Kay
+ * @date 2026/10/18 22:45
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class SongSearchIndexBenchmarkTests {
+
+    private static final int WARMUP = 200;
+    private static final int ITERATIONS = 1_000;
+
+    /**
+     * 单个查询预热和计时各自的时间上限，慢查询（100 万首歌曲上的模糊拼音）达到上限后按实际执行次数计算平均耗时
+     */
+    private static final long TIME_LIMIT_NANOS = 10_000_000_000L;
+
+    /**
+     * 生成歌名、歌手名、专辑用的常用字
+     */
+    private static final String CHARS = "的一是在不了有和人这中大为上个国我以要他时来用们生到作地于出就分对成会可主发年动同工也能下过子说产种面而方后多定行学法所民得经十三之进着等部度家电力里如水化高自二理起小物现实加量都两体制机当使点从业本去把性好应开它合还因由其些然前外天政四日那社义事平形相全表间样与关各重新线内数正心反你明看原又么利比或但质气第向道命此变条只没结解问意建月公无系军很情者最立代想已通并提直题党程展五果料象员革位入常文总次品式活设及管特件长求老头基资边流路级少图山统接知较将组见计别她手角期根论运农指几九区强放决西被干做必战先回则任取据处理府研质信";
+
+    @Test
+    void buildAndQuery() {
+        int songCount = Integer.getInteger("songs", 1_000_000);
+        List<SongVO> songs = generate(songCount);
+
+        System.gc();
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        SongSearchIndex index = new SongSearchIndex(mapper(songs), new IndexTaskExecutor(1, 1), true);
+        index.afterPropertiesSet();
+        long buildMillis = (System.nanoTime() - start) / 1_000_000;
+        System.gc();
+        long heapAfter = usedHeap();
+
+        System.out.printf("== %d 首歌曲%n", index.size());
+        System.out.printf("构建耗时 %d ms，索引占用约 %d MB%n", buildMillis, (heapAfter - heapBefore) >> 20);
+
+        SongVO sample = songs.get(songCount / 2);
+        String songName = sample.getSongName();
+        String artistName = sample.getArtistName();
+        report("精确：歌名两字", () -> index.search(songName.substring(0, 2), null, null, 1, 20));
+        report("精确：歌手 + 专辑", () -> index.search(null, artistName, sample.getAlbum(), 1, 20));
+        report("模糊：歌名原文", () -> index.search(songName, null, null, 1, 20, true));
+        String pinyin = PinyinUtil.convert(songName).full();
+        report("模糊：歌名全拼", () -> index.search(pinyin, null, null, 1, 20, true));
+        String typo = pinyin.length() > 4 ? pinyin.substring(0, 2) + "x" + pinyin.substring(3) : pinyin;
+        report("模糊：全拼一处错字", () -> index.search(typo, null, null, 1, 20, true));
+        report("模糊：歌手首字母", () -> index.search(null, PinyinUtil.convert(artistName).initials(), null, 1, 20, true));
+    }
+
+    private static void report(String name, Supplier<PageResult<Long>> search) {
+        PageResult<Long> result = search.get();
+        assertFalse(result.getItems().isEmpty(), name);
+        long warmupStart = System.nanoTime();
+        for (int i = 0; i < WARMUP && System.nanoTime() - warmupStart < TIME_LIMIT_NANOS; i++) {
+            search.get();
+        }
+        long start = System.nanoTime();
+        int iterations = 0;
+        while (iterations < ITERATIONS && System.nanoTime() - start < TIME_LIMIT_NANOS) {
+            search.get();
+            iterations++;
+        }
+        double micros = (System.nanoTime() - start) / 1000.0 / iterations;
+        System.out.printf("%-16s 命中 %8d 条 %10.1f us/query（%d 次）%n", name, result.getTotal(), micros, iterations);
+    }
+
+    /**
+     * 只实现 getAllSongIndexEntries 的 SongMapper
+     */
+    private static SongMapper mapper(List<SongVO> songs) {
+        return (SongMapper) Proxy.newProxyInstance(SongMapper.class.getClassLoader(), new Class<?>[]{SongMapper.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getAllSongIndexEntries" -> songs;
+                    case "getSongIndexEntries" -> List.of();
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    static List<SongVO> generate(int songCount) {
+        Random random = new Random(42);
+        int artistCount = Math.max(1, songCount / 20);
+        List<String> artists = new ArrayList<>(artistCount);
+        for (int i = 0; i < artistCount; i++) {
+            artists.add(word(random, 2, 3));
+        }
+        List<SongVO> songs = new ArrayList<>(songCount);
+        for (long id = 1; id <= songCount; id++) {
+            int artistIndex = random.nextInt(artistCount);
+            SongVO songVO = new SongVO();
+            songVO.setSongId(id);
+            songVO.setSongName(word(random, 2, 6));
+            songVO.setArtistId((long) artistIndex + 1);
+            songVO.setArtistName(artists.get(artistIndex));
+            songVO.setAlbum(word(random, 2, 5));
+            songs.add(songVO);
+        }
+        return songs;
+    }
+
+    private static String word(Random random, int minLength, int maxLength) {
+        int length = minLength + random.nextInt(maxLength - minLength + 1);
+        StringBuilder word = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            word.append(CHARS.charAt(random.nextInt(CHARS.length())));
+        }
+        return word.toString();
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
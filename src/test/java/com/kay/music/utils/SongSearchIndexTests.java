@@ -0,0 +1,152 @@
+package com.kay.music.utils;
+
+import com.kay.music.mapper.SongMapper;
+import com.kay.music.pojo.vo.SongVO;
+import com.kay.music.result.PageResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * SongSearchIndex：精确模式的匹配、打分、分页，模糊模式的拼音、首字母和容错，以及增量更新
+ *
+ * @author Kay
+ * @date 2026/10/18 23:59
+ */
+class SongSearchIndexTests {
+
+    private final IndexTaskExecutor indexTaskExecutor = new IndexTaskExecutor(1, 5);
+
+    /**
+     * getAllSongIndexEntries / getSongIndexEntries 返回的歌曲，测试中可以修改
+     */
+    private final List<SongVO> songs = new ArrayList<>(List.of(
+            song(1, "晴天", 10, "周杰伦", "叶惠美"),
+            song(2, "晴天娃娃", 11, "王蓉", "我不是天使"),
+            song(3, "雨后晴天", 12, "Beyond", "乐与怒"),
+            song(4, "七里香", 10, "周杰伦", "七里香"),
+            song(5, "Sunny Day", 13, "Jay Chou", "Ye Hui Mei"),
+            song(6, "晴天", 14, "Cover Band", "翻唱集")));
+
+    private final SongSearchIndex index = new SongSearchIndex(mapper(), indexTaskExecutor, true);
+
+    @AfterEach
+    void shutdown() throws InterruptedException {
+        indexTaskExecutor.destroy();
+    }
+
+    @Test
+    void exactBeforePrefixBeforeContainsThenById() {
+        index.afterPropertiesSet();
+        PageResult<Long> result = index.search("晴天", null, null, 1, 10);
+        assertEquals(4L, result.getTotal());
+        assertEquals(List.of(1L, 6L, 2L, 3L), result.getItems());
+    }
+
+    @Test
+    void fieldsAreIntersectedAndCaseInsensitive() {
+        index.afterPropertiesSet();
+        assertEquals(List.of(1L), index.search("晴天", "周杰伦", null, 1, 10).getItems());
+        assertEquals(List.of(1L, 4L), index.search(null, "周杰伦", null, 1, 10).getItems());
+        assertEquals(List.of(5L), index.search("sunny", null, "hui", 1, 10).getItems());
+        // 单个字取单字的倒排表
+        assertEquals(List.of(4L), index.search("香", null, null, 1, 10).getItems());
+        assertEquals(0L, index.search("晴天", "王菲", null, 1, 10).getTotal());
+    }
+
+    @Test
+    void pagesAfterSorting() {
+        index.afterPropertiesSet();
+        PageResult<Long> second = index.search("晴天", null, null, 2, 3);
+        assertEquals(4L, second.getTotal());
+        assertEquals(List.of(3L), second.getItems());
+        assertEquals(List.of(), index.search("晴天", null, null, 3, 3).getItems());
+    }
+
+    @Test
+    void noConditionOrNotReadyReturnsNull() {
+        assertNull(index.search("晴天", null, null, 1, 10));
+        index.afterPropertiesSet();
+        assertNull(index.search(null, null, null, 1, 10));
+        assertNull(index.search(" ", "", null, 1, 10, true));
+        // 空白的字段被忽略，只按其他字段匹配
+        assertEquals(List.of(1L, 4L), index.search("", "周杰伦", null, 1, 10).getItems());
+
+        SongSearchIndex disabled = new SongSearchIndex(mapper(), indexTaskExecutor, false);
+        disabled.afterPropertiesSet();
+        assertNull(disabled.search("晴天", null, null, 1, 10));
+    }
+
+    @Test
+    void fuzzyMatchesPinyinInitialsAndTypos() {
+        index.afterPropertiesSet();
+        assertEquals(List.of(1L, 6L, 2L, 3L), index.search("qingtian", null, null, 1, 10, true).getItems());
+        assertEquals(List.of(1L, 4L), index.search(null, "zjl", null, 1, 10, true).getItems());
+        // 全拼少了一个字母（qilixiang -> qilxiang），在允许的编辑距离内
+        assertEquals(List.of(4L), index.search("qilxiang", null, null, 1, 10, true).getItems());
+        // 精确模式不认识拼音
+        assertEquals(0L, index.search("qingtian", null, null, 1, 10).getTotal());
+    }
+
+    @Test
+    void changeEventReloadsAffectedSongs() throws InterruptedException {
+        index.afterPropertiesSet();
+        songs.set(0, song(1, "阴天", 10, "周杰伦", "叶惠美"));
+        songs.add(song(7, "晴天日记", 10, "周杰伦", "新专辑"));
+
+        // 歌手的变更重新读取该歌手的全部歌曲
+        index.onChange(new ChangeEvent(1, List.of("artist:10")));
+        awaitIndexTasks();
+
+        // 1 号不再匹配；7 号与 2 号同为前缀匹配，按 id 排在 2 号之后
+        assertEquals(List.of(6L, 2L, 7L, 3L), index.search("晴天", null, null, 1, 10).getItems());
+        assertEquals(List.of(1L), index.search("阴天", null, null, 1, 10).getItems());
+
+        songs.remove(1);
+        index.onChange(new ChangeEvent(2, List.of("song:2")));
+        awaitIndexTasks();
+        assertEquals(List.of(6L, 7L, 3L), index.search("晴天", null, null, 1, 10).getItems());
+    }
+
+    /**
+     * 同一个 owner 的任务串行执行，排在后面的任务执行时前面的已经完成
+     */
+    private void awaitIndexTasks() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        indexTaskExecutor.execute("song-search", done::countDown);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @SuppressWarnings("unchecked")
+    private SongMapper mapper() {
+        return (SongMapper) Proxy.newProxyInstance(SongMapper.class.getClassLoader(), new Class<?>[]{SongMapper.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getAllSongIndexEntries" -> new ArrayList<>(songs);
+                    case "getSongIndexEntries" -> songs.stream()
+                            .filter(song -> ((Collection<Long>) args[0]).contains(song.getSongId())
+                                    || ((Collection<Long>) args[1]).contains(song.getArtistId()))
+                            .toList();
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static SongVO song(long songId, String songName, long artistId, String artistName, String album) {
+        SongVO songVO = new SongVO();
+        songVO.setSongId(songId);
+        songVO.setSongName(songName);
+        songVO.setArtistId(artistId);
+        songVO.setArtistName(artistName);
+        songVO.setAlbum(album);
+        return songVO;
+    }
+}
@@ -0,0 +1,189 @@
+package com.kay.music.utils;
+
+import com.kay.music.mapper.ArtistMapper;
+import com.kay.music.mapper.PlaylistMapper;
+import com.kay.music.mapper.SongMapper;
+import com.kay.music.pojo.dto.SuggestEntryDTO;
+import com.kay.music.pojo.vo.SuggestionVO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * TypeaheadIndex：每个节点的前 K 个补全（热度、名称长度、id 排序），拼音和首字母前缀，以及删除后前 K 个的重新合并
+ *
+ * @author Kay
+ * @date 2026/10/18 23:59
+ */
+class TypeaheadIndexTests {
+
+    private final IndexTaskExecutor indexTaskExecutor = new IndexTaskExecutor(1, 5);
+
+    /**
+     * 各 mapper 的 getSuggestEntries 返回的条目，测试中可以修改
+     */
+    private final List<SuggestEntryDTO> songs = new ArrayList<>(List.of(
+            entry(1, "晴天", 10, 100L),
+            entry(2, "晴天娃娃", 5, 101L),
+            entry(3, "晴朗", 3, 102L),
+            entry(4, "晴", 1, 103L),
+            entry(5, "七里香", 8, 100L),
+            entry(6, "Sunny", 3, 104L),
+            entry(7, "Sun", 3, 104L)));
+    private final List<SuggestEntryDTO> artists = new ArrayList<>(List.of(
+            entry(100, "周杰伦", 18, null),
+            entry(101, "周深", 20, null)));
+    private final List<SuggestEntryDTO> playlists = new ArrayList<>(List.of(
+            entry(1, "晴天合集", 2, null)));
+
+    private final TypeaheadIndex index = new TypeaheadIndex(songMapper(), artistMapper(), playlistMapper(),
+            indexTaskExecutor, true, 2);
+
+    @AfterEach
+    void shutdown() throws InterruptedException {
+        indexTaskExecutor.destroy();
+    }
+
+    @Test
+    void topKByWeight() {
+        index.afterPropertiesSet();
+        assertEquals(List.of(
+                new SuggestionVO(TypeaheadIndex.SONG, 1L, "晴天"),
+                new SuggestionVO(TypeaheadIndex.SONG, 2L, "晴天娃娃"),
+                new SuggestionVO(TypeaheadIndex.PLAYLIST, 1L, "晴天合集")), index.suggest("晴", 10));
+        // limit 小于 top-k 时按 limit 截断
+        assertEquals(List.of(new SuggestionVO(TypeaheadIndex.SONG, 1L, "晴天"),
+                new SuggestionVO(TypeaheadIndex.PLAYLIST, 1L, "晴天合集")), index.suggest("晴天", 1));
+    }
+
+    @Test
+    void sameWeightPrefersShorterNameThenId() {
+        index.afterPropertiesSet();
+        assertEquals(List.of(
+                new SuggestionVO(TypeaheadIndex.SONG, 7L, "Sun"),
+                new SuggestionVO(TypeaheadIndex.SONG, 6L, "Sunny")), index.suggest("SU N", 10));
+    }
+
+    @Test
+    void pinyinAndInitialsPrefixes() {
+        index.afterPropertiesSet();
+        assertEquals(List.of(
+                new SuggestionVO(TypeaheadIndex.ARTIST, 101L, "周深"),
+                new SuggestionVO(TypeaheadIndex.ARTIST, 100L, "周杰伦")), index.suggest("zhou", 10));
+        assertEquals(List.of(new SuggestionVO(TypeaheadIndex.ARTIST, 100L, "周杰伦")), index.suggest("zjl", 10));
+        // 前缀落在边的中间
+        assertEquals(List.of(new SuggestionVO(TypeaheadIndex.ARTIST, 100L, "周杰伦")), index.suggest("zhoujie", 10));
+        // 全拼和首字母都以 z 开头，同一个歌手只出现一次
+        assertEquals(List.of(
+                new SuggestionVO(TypeaheadIndex.ARTIST, 101L, "周深"),
+                new SuggestionVO(TypeaheadIndex.ARTIST, 100L, "周杰伦")), index.suggest("z", 10));
+        assertEquals(List.of(new SuggestionVO(TypeaheadIndex.SONG, 5L, "七里香")), index.suggest("qlx", 10));
+        assertEquals(List.of(), index.suggest("zzz", 10));
+    }
+
+    @Test
+    void notReadyReturnsNullAndBlankReturnsEmpty() {
+        assertNull(index.suggest("晴", 10));
+        index.afterPropertiesSet();
+        assertEquals(List.of(), index.suggest("  ", 10));
+    }
+
+    @Test
+    void removalRefillsTopKFromSubtree() throws InterruptedException {
+        index.afterPropertiesSet();
+        songs.removeIf(song -> song.getId() == 1L);
+        index.onChange(new ChangeEvent(1, List.of("song:1")));
+        awaitIndexTasks();
+        // 晴朗原来不在“晴”节点的前 2 个里，删除晴天后重新合并出来
+        assertEquals(List.of(
+                new SuggestionVO(TypeaheadIndex.SONG, 2L, "晴天娃娃"),
+                new SuggestionVO(TypeaheadIndex.SONG, 3L, "晴朗")), index.suggest("晴", 2).subList(0, 2));
+    }
+
+    @Test
+    void artistChangeReloadsItsSongs() throws InterruptedException {
+        index.afterPropertiesSet();
+        // 删除歌手会级联删除其歌曲，只产生 artist:{id} 标签
+        artists.removeIf(artist -> artist.getId() == 100L);
+        songs.removeIf(song -> song.getArtistId() == 100L);
+        index.onChange(new ChangeEvent(1, List.of("artist:100")));
+        awaitIndexTasks();
+
+        assertEquals(List.of(new SuggestionVO(TypeaheadIndex.ARTIST, 101L, "周深")), index.suggest("zhou", 10));
+        assertEquals(List.of(), index.suggest("qlx", 10));
+        assertEquals(List.of(
+                new SuggestionVO(TypeaheadIndex.SONG, 2L, "晴天娃娃"),
+                new SuggestionVO(TypeaheadIndex.SONG, 3L, "晴朗")), index.suggest("晴", 2).subList(0, 2));
+    }
+
+    /**
+     * 同一个 owner 的任务串行执行，排在后面的任务执行时前面的已经完成
+     */
+    private void awaitIndexTasks() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        indexTaskExecutor.execute("typeahead", done::countDown);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @SuppressWarnings("unchecked")
+    private SongMapper songMapper() {
+        return (SongMapper) Proxy.newProxyInstance(SongMapper.class.getClassLoader(), new Class<?>[]{SongMapper.class},
+                (proxy, method, args) -> {
+                    if (!"getSuggestEntries".equals(method.getName())) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    Collection<Long> songIds = (Collection<Long>) args[0];
+                    Collection<Long> artistIds = (Collection<Long>) args[1];
+                    if (songIds == null && artistIds == null) {
+                        return new ArrayList<>(songs);
+                    }
+                    return songs.stream()
+                            .filter(song -> songIds != null && songIds.contains(song.getId())
+                                    || artistIds != null && artistIds.contains(song.getArtistId()))
+                            .toList();
+                });
+    }
+
+    private ArtistMapper artistMapper() {
+        return (ArtistMapper) Proxy.newProxyInstance(ArtistMapper.class.getClassLoader(), new Class<?>[]{ArtistMapper.class},
+                (proxy, method, args) -> filter(method.getName(), artists, args[0]));
+    }
+
+    private PlaylistMapper playlistMapper() {
+        return (PlaylistMapper) Proxy.newProxyInstance(PlaylistMapper.class.getClassLoader(), new Class<?>[]{PlaylistMapper.class},
+                (proxy, method, args) -> filter(method.getName(), playlists, args[0]));
+    }
+
+    /**
+     * getSuggestEntries(ids)：ids 为 null 时返回全部
+     */
+    @SuppressWarnings("unchecked")
+    private static List<SuggestEntryDTO> filter(String method, List<SuggestEntryDTO> entries, Object ids) {
+        if (!"getSuggestEntries".equals(method)) {
+            throw new UnsupportedOperationException(method);
+        }
+        if (ids == null) {
+            return new ArrayList<>(entries);
+        }
+        return entries.stream().filter(entry -> ((Collection<Long>) ids).contains(entry.getId())).toList();
+    }
+
+    private static SuggestEntryDTO entry(long id, String name, long weight, Long artistId) {
+        SuggestEntryDTO entry = new SuggestEntryDTO();
+        entry.setId(id);
+        entry.setName(name);
+        entry.setWeight(weight);
+        entry.setArtistId(artistId);
+        return entry;
+    }
+}